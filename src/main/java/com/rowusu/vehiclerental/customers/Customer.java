@@ -2,29 +2,32 @@ package com.rowusu.vehiclerental.customers;
 
 import com.rowusu.vehiclerental.interfaces.LoyaltyProgram;
 import com.rowusu.vehiclerental.interfaces.Ratable;
+import com.rowusu.vehiclerental.model.RatingHistogram;
 import com.rowusu.vehiclerental.model.Vehicle;
-import java.util.ArrayList;
+import com.rowusu.vehiclerental.model.VehicleIntMap;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventType;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 public class Customer implements LoyaltyProgram, Ratable {
     private final String name;
     private final String customerId;
-    private final List<Vehicle> rentalHistory; // Rental history as strings (or RentalTransaction if available)
-    private final  Map<Vehicle, Integer> currentRentals; // Current rentals: Vehicle -> Rental days
+    private final VehicleIntMap currentRentals; // Current rentals: Vehicle -> Rental days
     private int rentalLimit = 2; // Max number of concurrent rentals allowed
-    private List<Integer> ratings; // List to store all ratings
+    private final RatingHistogram ratings = new RatingHistogram(); // Counts of each rating, 1 to 5
+    // Set when an agency keeping customers off-heap writes this one back to
+    // its record; the agency's lookups then return a fresh copy instead
+    private volatile boolean retired;
  //   private boolean eligibleForRental;
 
     // Constructor
     public Customer(String name, String customerId) {
         this.name = name;
         this.customerId = customerId;
-        this.rentalHistory = new ArrayList<>();
-        this.currentRentals = new HashMap<>();
-        this.ratings = new ArrayList<>();
+        this.currentRentals = new VehicleIntMap();
    //     this.eligibleForRental = true; // Default to eligible
 
     }
@@ -38,17 +41,12 @@ public class Customer implements LoyaltyProgram, Ratable {
         return customerId;
     }
 
-    // Rental History Management
-    public void addToRentalHistory(Vehicle transactionDetails) {
-        rentalHistory.add(transactionDetails);
-    }
-
-    public List<Vehicle> getRentalHistory() {
-        return rentalHistory;
-    }
+    // Rental history lives with the agency's transactions; see RentalAgency.getRentalHistory
 
     // Current Rentals Management
-    public void addCurrentRental(Vehicle vehicle, int days) {
+    // The limit check and the insert happen under the customer's lock so two
+    // concurrent rentals can't both take the last free slot.
+    public synchronized void addCurrentRental(Vehicle vehicle, int days) {
         if (!isEligibleForRental()) {
             throw new IllegalStateException("Customer is not eligible for new rentals.");
         }
@@ -58,13 +56,25 @@ public class Customer implements LoyaltyProgram, Ratable {
         currentRentals.put(vehicle, days);
     }
 
-    public void removeCurrentRental(Vehicle vehicle) {
-        System.out.println("Removing rental: " + vehicle.getVehicleId());
+    public synchronized void removeCurrentRental(Vehicle vehicle) {
+        EventLog.get().log(EventType.CURRENT_RENTAL_REMOVED, customerId, vehicle.getVehicleId());
         currentRentals.remove(vehicle);
     }
 
-    public Map<Vehicle, Integer> getCurrentRentals() {
-        return currentRentals;
+    // A copy, taken under the lock; rent and return themselves don't allocate
+    public synchronized Map<Vehicle, Integer> getCurrentRentals() {
+        Map<Vehicle, Integer> copy = new HashMap<>();
+        currentRentals.forEach(copy::put);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    public int getCurrentRentalCount() {
+        return currentRentals.size();
+    }
+
+    // Days the vehicle is rented for, or 0 if the customer doesn't have it
+    public synchronized int getRentalDays(Vehicle vehicle) {
+        return currentRentals.get(vehicle, 0);
     }
 
     // Rental Eligibility Check
@@ -76,10 +86,28 @@ public class Customer implements LoyaltyProgram, Ratable {
         return eligibleForRental;
     }*/
     public boolean isEligibleForRental() {
-        return currentRentals.size() < rentalLimit;
+        return !retired && currentRentals.size() < rentalLimit;
+    }
+
+    // Retire the customer unless they have rentals out. Under the same lock
+    // as addCurrentRental, so a retired customer never gains a rental.
+    public synchronized boolean retireIfIdle() {
+        if (!currentRentals.isEmpty()) {
+            return false;
+        }
+        retired = true;
+        return true;
+    }
+
+    public boolean isRetired() {
+        return retired;
     }
 
-    private int loyaltyPoints;  // Track customer's points
+    public int getRentalLimit() {
+        return rentalLimit;
+    }
+
+    private volatile int loyaltyPoints;  // Track customer's points
 
     @Override
     public int getLoyaltyPoints() {
@@ -87,7 +115,7 @@ public class Customer implements LoyaltyProgram, Ratable {
     }
 
     @Override
-    public void addLoyaltyPoints(int points) {
+    public synchronized void addLoyaltyPoints(int points) {
         if (points<0){
             throw new IllegalArgumentException("Loyalty points cannot be negative.");
         }
@@ -108,25 +136,30 @@ public class Customer implements LoyaltyProgram, Ratable {
 
         // Add to the current rentals.
         addCurrentRental(vehicle, days);
-
-        // Add to the rental history
-        addToRentalHistory(vehicle);
     }
 
-    // Method to add a rating
+    // Method to add a rating. The histogram is thread-safe, so no lock is needed.
     public void addRating(int rating) {
-        if (rating < 1 || rating > 5) {
-            throw new IllegalArgumentException("Rating must be between 1 and 5.");
-        }
         ratings.add(rating);
     }
 
+    @Override
+    public void addRatings(RatingHistogram more) {
+        ratings.addAll(more);
+    }
+
+    @Override
+    public RatingHistogram getRatingHistogram() {
+        return ratings.copy();
+    }
+
     // Method to calculate the average rating
     public double getAverageRating() {
-        if (ratings.isEmpty()) {
-            return 0.0; // Default if no ratings
-        }
-        return ratings.stream().mapToInt(Integer::intValue).average().orElse(0.0);
+        return ratings.getAverage(); // 0.0 if no ratings
+    }
+
+    public int getRatingCount() {
+        return ratings.getCount();
     }
     @Override
     public boolean equals(Object o) {
@@ -1,6 +1,10 @@
 package com.rowusu.vehiclerental.gui;
 
+import com.rowusu.vehiclerental.journal.AgencyStore;
 import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.reports.CustomerSummary;
+import com.rowusu.vehiclerental.reports.FleetSummary;
+import com.rowusu.vehiclerental.reports.ReportEngine;
 import com.rowusu.vehiclerental.customers.Customer;
 import com.rowusu.vehiclerental.model.*;
 
@@ -8,9 +12,11 @@ import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.IOException;
 
 public class VehicleRentalGUI extends JFrame {
     private RentalAgency agency;
+    private final ReportEngine reportEngine = ReportEngine.fromProperties();
     private JTabbedPane tabbedPane;
     private DefaultTableModel vehicleTableModel;
     private DefaultTableModel customerTableModel;
@@ -20,9 +26,23 @@ public class VehicleRentalGUI extends JFrame {
     private JTable rentalTable;
 
     public VehicleRentalGUI() {
-        agency = new RentalAgency();
+        agency = openAgency();
         initializeGUI();
-        addSampleData();
+        if (agency.getFleet().isEmpty()) {
+            addSampleData();
+        }
+    }
+
+    // Pick up where the last session left off, or start empty if the data can't be read
+    private static RentalAgency openAgency() {
+        try {
+            AgencyStore store = AgencyStore.open(AgencyStore.defaultDirectory(), false);
+            store.closeOnShutdown();
+            return store.getAgency();
+        } catch (IOException e) {
+            System.err.println("Could not load saved data, starting empty: " + e.getMessage());
+            return new RentalAgency();
+        }
     }
 
     private void initializeGUI() {
@@ -522,11 +542,9 @@ public class VehicleRentalGUI extends JFrame {
         dialog.add(new JLabel("Available Vehicles:"), gbc);
         gbc.gridx = 1;
         JComboBox<String> vehicleCombo = new JComboBox<>();
-        for (Vehicle vehicle : agency.getFleet()) {
-            if (vehicle.isAvailable()) {
-                vehicleCombo.addItem(vehicle.getVehicleId() + " - " + vehicle.getModel() + 
-                    " ($" + String.format("%.2f", vehicle.getBaseRentalRate()) + "/day)");
-            }
+        for (Vehicle vehicle : agency.getAvailableVehicles()) {
+            vehicleCombo.addItem(vehicle.getVehicleId() + " - " + vehicle.getModel() + 
+                " ($" + String.format("%.2f", vehicle.getBaseRentalRate()) + "/day)");
         }
         vehicleCombo.setToolTipText("Select a vehicle from available fleet");
         dialog.add(vehicleCombo, gbc);
@@ -587,12 +605,13 @@ public class VehicleRentalGUI extends JFrame {
                     return;
                 }
 
-                Vehicle vehicle = agency.getFleet().stream()
-                    .filter(v -> v.getVehicleId().equals(vehicleId))
-                    .findFirst().orElse(null);
+                Vehicle vehicle = agency.findVehicleById(vehicleId);
 
-                Customer customer = new Customer(customerName, customerId);
-                agency.addCustomer(customer);
+                Customer customer = agency.findCustomerById(customerId);
+                if (customer == null) {
+                    customer = new Customer(customerName, customerId);
+                    agency.addCustomer(customer);
+                }
                 
                 double totalCost = vehicle.calculateRentalCost(days);
                 agency.rentVehicle(vehicle, customer, days);
@@ -628,9 +647,7 @@ public class VehicleRentalGUI extends JFrame {
         }
 
         String vehicleId = (String) vehicleTableModel.getValueAt(selectedRow, 0);
-        Vehicle vehicle = agency.getFleet().stream()
-            .filter(v -> v.getVehicleId().equals(vehicleId))
-            .findFirst().orElse(null);
+        Vehicle vehicle = agency.findVehicleById(vehicleId);
 
         if (vehicle != null) {
             if (!vehicle.isAvailable()) {
@@ -658,9 +675,7 @@ public class VehicleRentalGUI extends JFrame {
         }
 
         String vehicleId = (String) rentalTableModel.getValueAt(selectedRow, 0);
-        Vehicle vehicle = agency.getFleet().stream()
-            .filter(v -> v.getVehicleId().equals(vehicleId))
-            .findFirst().orElse(null);
+        Vehicle vehicle = agency.findVehicleById(vehicleId);
 
         if (vehicle != null && !vehicle.isAvailable()) {
             int confirm = JOptionPane.showConfirmDialog(this, 
@@ -683,9 +698,7 @@ public class VehicleRentalGUI extends JFrame {
         }
 
         String vehicleId = (String) vehicleTableModel.getValueAt(selectedRow, 0);
-        Vehicle vehicle = agency.getFleet().stream()
-            .filter(v -> v.getVehicleId().equals(vehicleId))
-            .findFirst().orElse(null);
+        Vehicle vehicle = agency.findVehicleById(vehicleId);
 
         if (vehicle != null) {
             String ratingStr = JOptionPane.showInputDialog(this, "Enter rating (1-5) for " + vehicle.getModel() + ":", "Rate Vehicle", JOptionPane.QUESTION_MESSAGE);
@@ -739,9 +752,7 @@ public class VehicleRentalGUI extends JFrame {
         }
 
         String vehicleId = (String) vehicleTableModel.getValueAt(selectedRow, 0);
-        Vehicle vehicle = agency.getFleet().stream()
-            .filter(v -> v.getVehicleId().equals(vehicleId))
-            .findFirst().orElse(null);
+        Vehicle vehicle = agency.findVehicleById(vehicleId);
 
         if (vehicle != null) {
             JDialog dialog = new JDialog(this, "Add Feature", true);
@@ -782,8 +793,8 @@ public class VehicleRentalGUI extends JFrame {
                         return;
                     }
 
-                    Feature feature = new Feature(name, cost);
-                    vehicle.addFeature(feature);
+                    Feature feature = Feature.of(name, cost);
+                    agency.addVehicleFeature(vehicle, feature);
                     refreshVehicleTable();
                     dialog.dispose();
                     JOptionPane.showMessageDialog(this, "Feature added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -859,9 +870,13 @@ public class VehicleRentalGUI extends JFrame {
         fleetReport.append("FLEET STATUS REPORT\n");
         fleetReport.append("===================\n\n");
         
-        int totalVehicles = agency.getFleet().size();
-        long availableVehicles = agency.getFleet().stream().mapToLong(v -> v.isAvailable() ? 1 : 0).sum();
-        long rentedVehicles = totalVehicles - availableVehicles;
+        // Fleet totals are one pass over the fleet columns; customer totals one
+        // pass over the list, split across the report engine's workers
+        FleetSummary fleet = agency.getFleetColumns().summarize();
+        CustomerSummary customers = reportEngine.summarizeCustomers(agency.getCustomers());
+        int totalVehicles = fleet.getVehicleCount();
+        long availableVehicles = fleet.getAvailable();
+        long rentedVehicles = fleet.getUnavailable();
         
         fleetReport.append(String.format("Total Vehicles: %d\n", totalVehicles));
         fleetReport.append(String.format("Available: %d\n", availableVehicles));
@@ -884,11 +899,9 @@ public class VehicleRentalGUI extends JFrame {
         revenueReport.append("===============\n\n");
         revenueReport.append("Daily Revenue Potential:\n");
         
-        double totalDailyRevenue = 0;
+        double totalDailyRevenue = agency.getAggregates().getDailyPotential();
         for (Vehicle vehicle : agency.getFleet()) {
-            double vehicleRevenue = vehicle.getBaseRentalRate() + vehicle.calculateTotalFeatureCost();
-            totalDailyRevenue += vehicleRevenue;
-            revenueReport.append(String.format("• %s: $%.2f/day\n", vehicle.getVehicleId(), vehicleRevenue));
+            revenueReport.append(String.format("• %s: $%.2f/day\n", vehicle.getVehicleId(), vehicle.getDailyRate()));
         }
         
         revenueReport.append(String.format("\nTotal Daily Potential: $%.2f\n", totalDailyRevenue));
@@ -902,27 +915,15 @@ public class VehicleRentalGUI extends JFrame {
         analyticsReport.append("ANALYTICS DASHBOARD\n");
         analyticsReport.append("===================\n\n");
         
-        if (!agency.getFleet().isEmpty()) {
-            double avgRating = agency.getFleet().stream()
-                .mapToDouble(Vehicle::getAverageRating)
-                .average().orElse(0.0);
-            
-            double avgRate = agency.getFleet().stream()
-                .mapToDouble(Vehicle::getBaseRentalRate)
-                .average().orElse(0.0);
-            
-            analyticsReport.append(String.format("Average Vehicle Rating: %.1f/5\n", avgRating));
-            analyticsReport.append(String.format("Average Daily Rate: $%.2f\n", avgRate));
-            analyticsReport.append(String.format("Fleet Utilization: %.1f%%\n", ((double)rentedVehicles / totalVehicles) * 100));
+        if (totalVehicles > 0) {
+            analyticsReport.append(String.format("Average Vehicle Rating: %.1f/5\n", fleet.getAverageRating()));
+            analyticsReport.append(String.format("Average Daily Rate: $%.2f\n", fleet.getAverageRate()));
+            analyticsReport.append(String.format("Fleet Utilization: %.1f%%\n", fleet.getUtilization()));
         }
         
-        if (!agency.getCustomers().isEmpty()) {
-            double avgCustomerRating = agency.getCustomers().stream()
-                .mapToDouble(Customer::getAverageRating)
-                .average().orElse(0.0);
-            
-            analyticsReport.append(String.format("Average Customer Rating: %.1f/5\n", avgCustomerRating));
-            analyticsReport.append(String.format("Total Customers: %d\n", agency.getCustomers().size()));
+        if (customers.getCustomerCount() > 0) {
+            analyticsReport.append(String.format("Average Customer Rating: %.1f/5\n", customers.getAverageRating()));
+            analyticsReport.append(String.format("Total Customers: %d\n", customers.getCustomerCount()));
         }
         
         analyticsText.setText(analyticsReport.toString());
@@ -956,13 +957,13 @@ public class VehicleRentalGUI extends JFrame {
         agency.addVehicleToFleet(motorcycle1);
         agency.addVehicleToFleet(truck1);
 
-        // Add some ratings
-        car1.addRating(5);
-        car1.addRating(4);
-        car2.addRating(4);
-        car2.addRating(5);
-        motorcycle1.addRating(5);
-        truck1.addRating(4);
+        // Add some ratings through the agency so they are journaled and reported
+        agency.rateVehicle(car1, 5);
+        agency.rateVehicle(car1, 4);
+        agency.rateVehicle(car2, 4);
+        agency.rateVehicle(car2, 5);
+        agency.rateVehicle(motorcycle1, 5);
+        agency.rateVehicle(truck1, 4);
 
         // Add sample customers
         Customer customer1 = new Customer("John Smith", "CUST001");
@@ -0,0 +1,21 @@
+package com.rowusu.vehiclerental.interfaces;
+
+import com.rowusu.vehiclerental.model.Vehicle;
+
+public interface AvailabilityListener {
+    // Called after the vehicle's availability is published, without its lock.
+    // Calls for back-to-back changes can arrive in either order, so available
+    // may already be stale; a listener keeping state should re-read the vehicle.
+    void availabilityChanged(Vehicle vehicle, boolean available);
+
+    // The vehicle's daily rate changed. Also called with 0 as the old rate when
+    // the vehicle is attached and 0 as the new one when it is detached, always
+    // under the vehicle's lock, so a listener can keep a fleet total.
+    default void dailyRateChanged(Vehicle vehicle, double before, double after) {
+    }
+
+    // The vehicle's ratings now add up to ratingSum over ratingCount ratings.
+    // Called under the vehicle's lock after each rating lands.
+    default void ratingsChanged(Vehicle vehicle, long ratingSum, int ratingCount) {
+    }
+}
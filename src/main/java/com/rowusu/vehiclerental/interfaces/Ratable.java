@@ -1,7 +1,15 @@
 package com.rowusu.vehiclerental.interfaces;
 
+import com.rowusu.vehiclerental.model.RatingHistogram;
+
 public interface Ratable {
     void addRating(int rating);
     double getAverageRating();
-}
+    int getRatingCount();
 
+    // Add ratings already counted elsewhere, e.g. read back from a snapshot
+    void addRatings(RatingHistogram ratings);
+
+    // Copy of the ratings received so far
+    RatingHistogram getRatingHistogram();
+}
@@ -0,0 +1,406 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.RatingHistogram;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.RentalTransaction;
+import com.rowusu.vehiclerental.rentalagency.RentalTransactionStore;
+import com.rowusu.vehiclerental.rentalagency.Reservation;
+import com.rowusu.vehiclerental.rentalagency.RevenueLedger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * The whole agency state as of one journal sequence number: fleet, features,
+ * customers, ratings, loyalty points, the rentals still out, the daily
+ * revenue ledger and every rental transaction. Loading the snapshot and then
+ * replaying only the journal events after its sequence gives the same agency
+ * as replaying the full journal.
+ *
+ * The file is a fixed header, one binary record per vehicle and customer, and
+ * tables of record offsets, in list order and sorted by ID. It is loaded by
+ * mapping it into memory; records only become objects when their ID is looked
+ * up or the agency needs the full lists (see MappedSnapshot), so a large fleet
+ * is ready to serve as soon as the header has been read. The transaction
+ * history is left in the mapping too until something reads it.
+ *
+ * The header also records where in the journal the events after the snapshot
+ * begin, so opening the store reads only those rather than the whole history.
+ */
+public final class AgencySnapshot {
+
+    static final int MAGIC = 0x56524E53; // "VRNS"
+    static final int VERSION = 7;
+
+    // magic, version, lastSequence, timestamp, vehicle count, customer count,
+    // registered customer count, the offsets of the four tables, of the
+    // ledger and of the transactions, and the journal offset
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 * 9 + 8;
+    static final int LEDGER_OFFSET = 52;
+    static final int TRANSACTIONS_OFFSET = 56;
+    static final int JOURNAL_OFFSET = 60;
+
+    private static final byte EMPTY_ROW = 0;
+    private static final byte OPEN_ROW = 1;
+    private static final byte RETURNED_ROW = 2;
+
+    private final long lastSequence;
+    private final long timestamp;
+    private final long journalOffset;
+
+    private AgencySnapshot(long lastSequence, long timestamp, long journalOffset) {
+        this.lastSequence = lastSequence;
+        this.timestamp = timestamp;
+        this.journalOffset = journalOffset;
+    }
+
+    // Same, with no journal offset, so the events after it are found by
+    // reading the journal from the start
+    public static void write(Path file, RentalAgency agency, long lastSequence, long timestamp) throws IOException {
+        write(file, agency, lastSequence, timestamp, 0L);
+    }
+
+    // Write the agency's state to a temporary file and move it into place, so
+    // a crash part way through leaves the previous snapshot untouched. The
+    // journal offset is where the event after lastSequence starts.
+    public static void write(Path file, RentalAgency agency, long lastSequence, long timestamp, long journalOffset)
+            throws IOException {
+        List<Vehicle> fleet = new ArrayList<>(agency.getFleet());
+        List<Customer> people = new ArrayList<>(agency.getCustomers());
+        int registered = people.size();
+
+        Map<Vehicle, Integer> vehiclePositions = new HashMap<>(fleet.size() * 2);
+        for (int i = 0; i < fleet.size(); i++) {
+            vehiclePositions.put(fleet.get(i), i);
+        }
+        Map<Customer, Integer> customerPositions = new HashMap<>(people.size() * 2);
+        for (int i = 0; i < people.size(); i++) {
+            customerPositions.put(people.get(i), i);
+        }
+        // Renters don't have to be registered; they go after the registered customers
+        int[] renters = new int[fleet.size()];
+        for (int i = 0; i < fleet.size(); i++) {
+            Customer renter = agency.getRenter(fleet.get(i));
+            if (renter == null) {
+                renters[i] = -1;
+                continue;
+            }
+            Integer position = customerPositions.get(renter);
+            if (position == null) {
+                position = people.size();
+                people.add(renter);
+                customerPositions.put(renter, position);
+            }
+            renters[i] = position;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int[] vehicleOffsets = new int[fleet.size()];
+        int[] customerOffsets = new int[people.size()];
+        int[] tables = new int[6];
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), EventJournal.BUFFER_SIZE))) {
+            out.write(new byte[HEADER_BYTES]);
+            for (int i = 0; i < fleet.size(); i++) {
+                vehicleOffsets[i] = checkedSize(out);
+                Vehicle vehicle = fleet.get(i);
+                writeVehicle(out, vehicle, agency, renters[i] < 0 ? null : people.get(renters[i]), renters[i]);
+            }
+            for (int i = 0; i < people.size(); i++) {
+                customerOffsets[i] = checkedSize(out);
+                writeCustomer(out, people.get(i), vehiclePositions);
+            }
+
+            tables[0] = checkedSize(out);
+            writeInts(out, vehicleOffsets);
+            tables[1] = checkedSize(out);
+            writeInts(out, sortedById(fleet.size(), i -> fleet.get(i).getVehicleId()));
+            tables[2] = checkedSize(out);
+            writeInts(out, customerOffsets);
+            tables[3] = checkedSize(out);
+            writeInts(out, sortedById(registered, i -> people.get(i).getCustomerId()));
+
+            // first epoch day, day count, then cents per day
+            tables[4] = checkedSize(out);
+            RevenueLedger ledger = agency.getRevenueLedger();
+            long[] cents = ledger.getDailyCents();
+            out.writeLong(ledger.getFirstDay());
+            out.writeInt(cents.length);
+            for (long day : cents) {
+                out.writeLong(day);
+            }
+
+            tables[5] = checkedSize(out);
+            writeTransactions(out, agency.getTransactions());
+            checkedSize(out);
+        }
+
+        // The header goes in last, once the table offsets are known
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(lastSequence).putLong(timestamp)
+                .putInt(fleet.size()).putInt(people.size()).putInt(registered);
+        for (int table : tables) {
+            header.putInt(table);
+        }
+        header.putLong(journalOffset);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // type, id, model, rate, equipment, in service, ratings, features, then the
+    // renter's position (or -1) followed by the rental's days, start day,
+    // transaction ID (or 0) and cost in cents (or -1 if it has no booking)
+    private static void writeVehicle(DataOutputStream out, Vehicle vehicle, RentalAgency agency,
+                                     Customer renter, int renterPosition) throws IOException {
+        out.writeByte(vehicle.getType().ordinal());
+        writeString(out, vehicle.getVehicleId());
+        writeString(out, vehicle.getModel());
+        out.writeDouble(vehicle.getBaseRentalRate());
+        out.writeInt(VehicleCodec.equipmentFlags(vehicle));
+        out.writeBoolean(renter != null || vehicle.isAvailable());
+        writeRatings(out, vehicle.getRatingHistogram());
+        List<Feature> features = new ArrayList<>(vehicle.getFeatures());
+        out.writeInt(features.size());
+        for (Feature feature : features) {
+            writeString(out, feature.getName());
+            out.writeDouble(feature.getAdditionalCost());
+        }
+        out.writeInt(renterPosition);
+        if (renter != null) {
+            int days = renter.getRentalDays(vehicle);
+            Reservation booking = agency.getRentalBooking(vehicle);
+            out.writeInt(days > 0 ? days : 1);
+            out.writeLong((booking != null ? booking.getStartDate() : LocalDate.now()).toEpochDay());
+            out.writeLong(booking != null ? booking.getTransactionId() : 0L);
+            out.writeLong(booking != null ? Math.round(booking.getRentalCost() * 100) : -1L);
+        }
+    }
+
+    // Row count, then per row its state and, unless it is empty, vehicle ID,
+    // model, customer ID, start and end epoch days and cost in cents
+    private static void writeTransactions(DataOutputStream out, RentalTransactionStore transactions)
+            throws IOException {
+        long rows = transactions.getLastId();
+        out.writeInt((int) rows);
+        for (long id = 1; id <= rows; id++) {
+            RentalTransaction transaction = transactions.get(id);
+            if (transaction == null) {
+                out.writeByte(EMPTY_ROW);
+                continue;
+            }
+            out.writeByte(transaction.isReturned() ? RETURNED_ROW : OPEN_ROW);
+            writeString(out, transaction.getVehicleId());
+            writeString(out, transaction.getVehicleModel());
+            writeString(out, transaction.getCustomerId());
+            out.writeInt((int) transaction.getStartDate().toEpochDay());
+            out.writeInt((int) transaction.getEndDate().toEpochDay());
+            out.writeLong(Math.round(transaction.getCost() * 100));
+        }
+    }
+
+    // id, name, loyalty points, ratings and the positions of the vehicles they have out
+    private static void writeCustomer(DataOutputStream out, Customer customer,
+                                      Map<Vehicle, Integer> vehiclePositions) throws IOException {
+        writeString(out, customer.getCustomerId());
+        writeString(out, customer.getName());
+        out.writeInt(customer.getLoyaltyPoints());
+        writeRatings(out, customer.getRatingHistogram());
+
+        List<Integer> rented = new ArrayList<>();
+        for (Vehicle vehicle : customer.getCurrentRentals().keySet()) {
+            Integer position = vehiclePositions.get(vehicle);
+            if (position != null) {
+                rented.add(position);
+            }
+        }
+        out.writeInt(rented.size());
+        for (int position : rented) {
+            out.writeInt(position);
+        }
+    }
+
+    // How many of each rating, 1 to 5
+    private static void writeRatings(DataOutputStream out, RatingHistogram ratings) throws IOException {
+        writeInts(out, ratings.getDistribution());
+    }
+
+    // Length-prefixed UTF-8, so the reader can decode straight from the mapping
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for a snapshot: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    // Positions [0, count) ordered by ID, for binary search on load
+    private static int[] sortedById(int count, IntFunction<String> id) {
+        String[] ids = new String[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = id.apply(i);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> ids[a].compareTo(ids[b]));
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = order[i];
+        }
+        return positions;
+    }
+
+    // Offsets are stored as ints and the file is mapped in one piece
+    private static int checkedSize(DataOutputStream out) throws IOException {
+        int size = out.size();
+        if (size == Integer.MAX_VALUE) {
+            throw new IOException("Snapshot is too large to map");
+        }
+        return size;
+    }
+
+    // Map the snapshot and attach it to an empty agency, which materializes
+    // records as they are needed. A concurrent agency also loads the rest in
+    // the background. Returns null if there is no snapshot.
+    public static AgencySnapshot load(Path file, RentalAgency agency) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        AgencySnapshot snapshot = readHeader(buffer, file);
+        readLedger(buffer, buffer.getInt(LEDGER_OFFSET), agency.getRevenueLedger());
+        // The rentals still out carry their transaction IDs, so the history
+        // itself can wait until something reads it
+        RentalTransactionStore transactions = agency.getTransactions();
+        int offset = buffer.getInt(TRANSACTIONS_OFFSET);
+        transactions.restoreLazily(buffer.getInt(offset), store -> readTransactions(buffer, offset, store));
+        MappedSnapshot records = new MappedSnapshot(buffer, agency);
+        agency.setLazyRecords(records);
+        if (agency.isConcurrent()) {
+            Thread loader = new Thread(() -> {
+                records.materializeAll();
+                transactions.materialize();
+            }, "snapshot-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
+        return snapshot;
+    }
+
+    // The ledger is small (eight bytes a day), so it is read in full on load
+    private static void readLedger(ByteBuffer buffer, int offset, RevenueLedger ledger) {
+        long firstDay = buffer.getLong(offset);
+        long[] cents = new long[buffer.getInt(offset + 8)];
+        for (int i = 0; i < cents.length; i++) {
+            cents[i] = buffer.getLong(offset + 12 + 8 * i);
+        }
+        ledger.restore(firstDay, cents);
+    }
+
+    // Run by the store the first time it needs the snapshot's rows
+    private static void readTransactions(ByteBuffer buffer, int offset, RentalTransactionStore transactions) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset);
+        int rows = in.getInt();
+        for (int id = 1; id <= rows; id++) {
+            byte state = in.get();
+            if (state == EMPTY_ROW) {
+                continue;
+            }
+            String vehicleId = readString(in);
+            String model = readString(in);
+            String customerId = readString(in);
+            LocalDate start = LocalDate.ofEpochDay(in.getInt());
+            LocalDate end = LocalDate.ofEpochDay(in.getInt());
+            transactions.put(id, vehicleId, model, customerId, start, end, in.getLong() / 100.0,
+                    state == RETURNED_ROW);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Read only the header, to decide whether the snapshot is usable
+    public static AgencySnapshot peek(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            return readHeader(header, file);
+        }
+    }
+
+    private static AgencySnapshot readHeader(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.limit() < 8 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file: " + file);
+        }
+        if (buffer.getInt(4) != VERSION || buffer.limit() < HEADER_BYTES) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ": " + file);
+        }
+        return new AgencySnapshot(buffer.getLong(8), buffer.getLong(16), buffer.getLong(JOURNAL_OFFSET));
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Where the first event after the snapshot starts in the journal, or 0 if unknown
+    public long getJournalOffset() {
+        return journalOffset;
+    }
+}
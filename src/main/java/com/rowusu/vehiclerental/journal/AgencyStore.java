@@ -0,0 +1,178 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A rental agency backed by a directory holding its journal and latest
+ * snapshot. Opening the store rebuilds the agency from the snapshot plus the
+ * journal events written after it; from then on every mutation is journaled.
+ *
+ * The journal keeps the full history, which stateAt replays for moments
+ * before the snapshot. Each snapshot records the journal offset just past
+ * the events it covers, so opening the store seeks there and reads only the
+ * newer events instead of the whole file.
+ */
+public class AgencyStore implements Closeable {
+
+    static final String JOURNAL_FILE = "journal.log";
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private final Path directory;
+    private final RentalAgency agency;
+    private final EventJournal journal;
+
+    private AgencyStore(Path directory, RentalAgency agency, EventJournal journal) {
+        this.directory = directory;
+        this.agency = agency;
+        this.journal = journal;
+    }
+
+    // Recover the agency from the directory, creating it if it doesn't exist yet
+    public static AgencyStore open(Path directory, boolean concurrent) throws IOException {
+        RentalAgency agency = create(directory, concurrent);
+        long[] tail = replay(directory, agency, Long.MAX_VALUE);
+        return attach(directory, agency, EventJournal.open(directory.resolve(JOURNAL_FILE), tail));
+    }
+
+    // Same, but each mutation returns only once its journal record is on disk.
+    // Concurrent mutations share syncs; see GroupCommitJournal.
+    public static AgencyStore openDurable(Path directory, boolean concurrent, Duration syncInterval, int maxBatchSize)
+            throws IOException {
+        RentalAgency agency = create(directory, concurrent);
+        long[] tail = replay(directory, agency, Long.MAX_VALUE);
+        return attach(directory, agency,
+                GroupCommitJournal.open(directory.resolve(JOURNAL_FILE), tail, syncInterval, maxBatchSize));
+    }
+
+    private static RentalAgency create(Path directory, boolean concurrent) throws IOException {
+        Files.createDirectories(directory);
+        return concurrent ? RentalAgency.createConcurrent() : new RentalAgency();
+    }
+
+    private static AgencyStore attach(Path directory, RentalAgency agency, EventJournal journal) {
+        agency.setJournal(journal);
+        return new AgencyStore(directory, agency, journal);
+    }
+
+    // Where the applications keep their data unless vehiclerental.data.dir says otherwise
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("vehiclerental.data.dir", "data"));
+    }
+
+    // Snapshot and close when the JVM exits, so the next start has little
+    // journal to replay on top of the snapshot
+    public void closeOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                snapshot();
+                close();
+            } catch (IOException e) {
+                System.err.println("Could not save agency state to " + directory + ": " + e.getMessage());
+            }
+        }, "agency-store-shutdown"));
+    }
+
+    public RentalAgency getAgency() {
+        return agency;
+    }
+
+    public EventJournal getJournal() {
+        return journal;
+    }
+
+    // Write a new snapshot covering everything journaled so far. The snapshot
+    // is rebuilt from the files rather than read off the live agency, so
+    // requests running meanwhile can't leave it half-applied. It is stamped
+    // with the last event read from the file, not the journal's counter,
+    // which may be ahead by records still in the write buffer, and with the
+    // offset just past that event.
+    public synchronized void snapshot() throws IOException {
+        journal.flush();
+        RentalAgency rebuilt = new RentalAgency();
+        AgencySnapshot previous = AgencySnapshot.load(snapshotPath(), rebuilt);
+        long after = previous != null ? previous.getLastSequence() : 0L;
+        long[] tail = readAfter(journal.getPath(), previous, rebuilt, Long.MAX_VALUE);
+        if (tail[1] <= after) {
+            return;
+        }
+        AgencySnapshot.write(snapshotPath(), rebuilt, tail[1], tail[2], tail[0]);
+    }
+
+    // The agency as it was at the given moment, rebuilt into a new
+    // non-concurrent agency with no journal attached
+    public RentalAgency stateAt(Instant at) throws IOException {
+        RentalAgency past = new RentalAgency();
+        replay(directory, past, at.toEpochMilli());
+        return past;
+    }
+
+    @Override
+    public void close() throws IOException {
+        agency.setJournal(null);
+        journal.close();
+    }
+
+    private Path snapshotPath() {
+        return directory.resolve(SNAPSHOT_FILE);
+    }
+
+    // Apply the snapshot (if it isn't newer than the cutoff) and then the
+    // journal events after it, up to and including the cutoff time. Returns
+    // the journal's tail as EventJournal.scanTail does.
+    private static long[] replay(Path directory, RentalAgency agency, long upToMillis) throws IOException {
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        AgencySnapshot header = AgencySnapshot.peek(snapshotFile);
+        AgencySnapshot snapshot = null;
+        if (header != null && header.getTimestamp() <= upToMillis) {
+            snapshot = AgencySnapshot.load(snapshotFile, agency);
+        }
+        long[] tail = readAfter(directory.resolve(JOURNAL_FILE), snapshot, agency, upToMillis);
+        // Keep numbering after the snapshot even if the journal lost events it covers
+        if (snapshot != null && tail[1] < snapshot.getLastSequence()) {
+            tail[1] = snapshot.getLastSequence();
+            tail[2] = Math.max(tail[2], snapshot.getTimestamp());
+        }
+        return tail;
+    }
+
+    // Apply the journal events after the snapshot (or all of them if it is
+    // null) up to the cutoff time, and return the journal's tail. Reading
+    // starts at the snapshot's journal offset if the event there is the one
+    // right after it; otherwise the journal was replaced or cut short, and
+    // it is read from the start, skipping what the snapshot covers.
+    private static long[] readAfter(Path journalFile, AgencySnapshot snapshot, RentalAgency agency, long upToMillis)
+            throws IOException {
+        long after = snapshot != null ? snapshot.getLastSequence() : 0L;
+        long offset = snapshot != null ? snapshot.getJournalOffset() : 0L;
+        if (offset > 0) {
+            boolean[] misplaced = {false};
+            boolean[] first = {true};
+            long[] tail = EventJournal.read(journalFile, offset, event -> {
+                if (first[0]) {
+                    first[0] = false;
+                    misplaced[0] = event.getSequence() != after + 1;
+                }
+                if (!misplaced[0] && event.getTimestamp() <= upToMillis) {
+                    agency.applyEvent(event);
+                }
+            });
+            // Unreadable data right at the offset also means it can't be trusted
+            if (tail != null && !misplaced[0] && (!first[0] || tail[0] == Files.size(journalFile))) {
+                return tail;
+            }
+        }
+        return EventJournal.read(journalFile, 0L, event -> {
+            if (event.getSequence() > after && event.getTimestamp() <= upToMillis) {
+                agency.applyEvent(event);
+            }
+        });
+    }
+}
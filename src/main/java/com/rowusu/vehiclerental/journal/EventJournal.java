@@ -0,0 +1,154 @@
+package com.rowusu.vehiclerental.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Append-only file of journal events, oldest first. A record torn by a
+ * crash is detected on open and cut off instead of corrupting the replay.
+ */
+public class EventJournal implements JournalWriter, Closeable {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    final Path path;
+    final FileChannel channel;
+    final DataOutputStream out;
+    final RecordFormat format = new RecordFormat();
+
+    private long lastSequence;
+    private long lastTimestamp;
+
+    EventJournal(Path path, long validLength, long lastSequence, long lastTimestamp) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.truncate(validLength);
+        this.channel.position(validLength);
+        this.out = new DataOutputStream(new BufferedOutputStream(new ChannelOutput(channel), BUFFER_SIZE));
+        this.lastSequence = lastSequence;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    // Open the journal for appending, creating it if needed and dropping a torn last record
+    public static EventJournal open(Path path) throws IOException {
+        return open(path, scanTail(path));
+    }
+
+    // Open it with a tail already found by reading it
+    static EventJournal open(Path path, long[] tail) throws IOException {
+        return new EventJournal(path, tail[0], tail[1], tail[2]);
+    }
+
+    // Valid length, last sequence and last timestamp of an existing journal
+    static long[] scanTail(Path path) throws IOException {
+        return read(path, 0L, event -> { });
+    }
+
+    // Read every intact event in order
+    public static void read(Path path, Consumer<JournalEvent> consumer) throws IOException {
+        read(path, 0L, consumer);
+    }
+
+    // Read every intact event from the offset on, which must be where a record
+    // starts, and return the tail as scanTail does, with a sequence and
+    // timestamp of 0 if there were no events. Null if the offset is past the end.
+    static long[] read(Path path, long offset, Consumer<JournalEvent> consumer) throws IOException {
+        long[] tail = new long[3];
+        if (!Files.exists(path)) {
+            return offset == 0 ? tail : null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (offset > size) {
+                return null;
+            }
+            channel.position(offset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+                    BUFFER_SIZE));
+            tail[0] = offset + RecordFormat.read(in, size - offset, event -> {
+                tail[1] = event.getSequence();
+                tail[2] = event.getTimestamp();
+                consumer.accept(event);
+            });
+        }
+        return tail;
+    }
+
+    @Override
+    public synchronized JournalEvent append(JournalEvent event) {
+        JournalEvent stamped = stamp(event);
+        try {
+            format.write(out, stamped);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to journal " + path, e);
+        }
+        return stamped;
+    }
+
+    // Give the event the next sequence number. Timestamps never go backwards,
+    // so point-in-time replay can stop at the first later event.
+    synchronized JournalEvent stamp(JournalEvent event) {
+        lastTimestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+        return event.at(++lastSequence, lastTimestamp);
+    }
+
+    // Hand buffered records to the file, so a reader of the file sees every
+    // record stamped so far. Doesn't sync them to disk.
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.flush();
+        channel.close();
+    }
+
+    // Writes straight to the channel so the journal can later force it to disk
+    private static final class ChannelOutput extends OutputStream {
+        private final FileChannel channel;
+
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
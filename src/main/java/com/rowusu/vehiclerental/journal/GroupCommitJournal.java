@@ -0,0 +1,218 @@
+package com.rowusu.vehiclerental.journal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal whose appends return only once the record has been synced to disk.
+ * Appends from concurrent requests are buffered together and made durable by
+ * one fsync on a background thread, so throughput isn't capped at one sync
+ * per request. A batch is synced when it reaches the maximum size or when the
+ * sync interval has passed since its first record, whichever comes first.
+ */
+public class GroupCommitJournal extends EventJournal {
+
+    private final long syncIntervalNanos;
+    private final int maxBatchSize;
+    private final Histogram commitLatencyMicros = new Histogram();
+    private final Histogram batchSizes = new Histogram();
+    private final Thread syncer;
+
+    // Guarded by this
+    private int pending;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    private GroupCommitJournal(Path path, long[] tail, Duration syncInterval, int maxBatchSize) throws IOException {
+        super(path, tail[0], tail[1], tail[2]);
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.durableSequence = tail[1];
+        this.syncer = new Thread(this::syncLoop, "journal-group-commit");
+        this.syncer.setDaemon(true);
+    }
+
+    public static GroupCommitJournal open(Path path, Duration syncInterval, int maxBatchSize) throws IOException {
+        return open(path, scanTail(path), syncInterval, maxBatchSize);
+    }
+
+    // Open it with a tail already found by reading it
+    static GroupCommitJournal open(Path path, long[] tail, Duration syncInterval, int maxBatchSize)
+            throws IOException {
+        if (syncInterval.isNegative()) {
+            throw new IllegalArgumentException("Sync interval cannot be negative");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Maximum batch size must be at least 1");
+        }
+        GroupCommitJournal journal = new GroupCommitJournal(path, tail, syncInterval, maxBatchSize);
+        journal.syncer.start();
+        return journal;
+    }
+
+    @Override
+    public JournalEvent append(JournalEvent event) {
+        long start = System.nanoTime();
+        JournalEvent stamped;
+        synchronized (this) {
+            stamped = enqueue(event);
+        }
+        awaitDurable(stamped.getSequence(), start);
+        return stamped;
+    }
+
+    // The events of one mutation share a batch and a single wait
+    @Override
+    public void appendAll(List<JournalEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long last = 0;
+        synchronized (this) {
+            for (JournalEvent event : events) {
+                last = enqueue(event).getSequence();
+            }
+        }
+        awaitDurable(last, start);
+    }
+
+    // Buffer one record for the next sync. Caller holds the lock.
+    private JournalEvent enqueue(JournalEvent event) {
+        // A full batch has to be taken by the syncer before more can join
+        boolean interrupted = false;
+        while (pending >= maxBatchSize && failure == null && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed: " + path);
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal can no longer be synced: " + path, failure);
+        }
+
+        JournalEvent stamped = stamp(event);
+        try {
+            format.write(out, stamped);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to journal " + path, e);
+        }
+        // Wake the syncer when a batch starts and when it fills up
+        if (++pending == 1 || pending >= maxBatchSize) {
+            notifyAll();
+        }
+        return stamped;
+    }
+
+    private void awaitDurable(long sequence, long startNanos) {
+        synchronized (this) {
+            boolean interrupted = false;
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durableSequence < sequence) {
+                throw new UncheckedIOException("Could not sync journal " + path, failure);
+            }
+        }
+        commitLatencyMicros.record((System.nanoTime() - startNanos) / 1_000);
+    }
+
+    private void syncLoop() {
+        try {
+            while (true) {
+                long target;
+                int batch;
+                synchronized (this) {
+                    while (pending == 0 && !closed) {
+                        wait();
+                    }
+                    if (pending == 0) {
+                        return;
+                    }
+                    // Give other requests until the interval ends to join this batch
+                    long deadline = System.nanoTime() + syncIntervalNanos;
+                    long remaining;
+                    while (pending < maxBatchSize && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                    batch = pending;
+                    target = getLastSequence();
+                    out.flush();
+                    pending = 0;
+                    notifyAll();
+                }
+
+                // Appends carry on filling the next batch while this one syncs
+                channel.force(false);
+                // Recorded before anyone is released, so an acknowledged append is always counted
+                batchSizes.record(batch);
+                synchronized (this) {
+                    durableSequence = target;
+                    notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("Journal syncer interrupted"));
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        failure = e;
+        notifyAll();
+    }
+
+    // Microseconds from append to durable, one sample per acknowledged mutation
+    public Histogram getCommitLatencyMicros() {
+        return commitLatencyMicros;
+    }
+
+    // Records per fsync
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public Duration getSyncInterval() {
+        return Duration.ofNanos(syncIntervalNanos);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    // Sync whatever is still buffered, then close the file
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            syncer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,263 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.RatingHistogram;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One journaled mutation. Every event has the same fixed set of fields;
+ * which of them are meaningful depends on the type:
+ *
+ * VEHICLE_ADDED: vehicleId, vehicleType, text (model), rate, flags (features)
+ * CUSTOMER_ADDED: customerId, text (name), amount (starting loyalty points)
+ * RENTED: vehicleId, customerId, text (customer name), amount (days), date (start day),
+ *         transactionId, cents (the cost charged)
+ * RETURNED: vehicleId, date (return day)
+ * VEHICLE_RATED / CUSTOMER_RATED: vehicleId or customerId, amount (rating)
+ * LOYALTY_POINTS: customerId, amount (points)
+ * FEATURE_ADDED: vehicleId, text (feature name), rate (daily surcharge)
+ *
+ * Sequence and timestamp are assigned by the journal when the event is appended.
+ */
+public final class JournalEvent {
+
+    private final long sequence;
+    private final long timestamp;
+    private final JournalEventType type;
+    private final String vehicleId;
+    private final String customerId;
+    private final String text;
+    private final VehicleType vehicleType;
+    private final double rate;
+    private final int flags;
+    private final int amount;
+    private final long date;
+    private final long transactionId;
+    private final long cents;
+
+    private JournalEvent(long sequence, long timestamp, JournalEventType type, String vehicleId, String customerId,
+                         String text, VehicleType vehicleType, double rate, int flags, int amount, long date,
+                         long transactionId, long cents) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.vehicleId = vehicleId;
+        this.customerId = customerId;
+        this.text = text;
+        this.vehicleType = vehicleType;
+        this.rate = rate;
+        this.flags = flags;
+        this.amount = amount;
+        this.date = date;
+        this.transactionId = transactionId;
+        this.cents = cents;
+    }
+
+    private static JournalEvent of(JournalEventType type, String vehicleId, String customerId, int amount) {
+        return new JournalEvent(0, 0, type, vehicleId, customerId, null, null, 0.0, 0, amount, 0, 0, 0);
+    }
+
+    // Factories for each event type
+
+    public static JournalEvent vehicleAdded(Vehicle vehicle) {
+        return new JournalEvent(0, 0, JournalEventType.VEHICLE_ADDED, vehicle.getVehicleId(), null, vehicle.getModel(),
+                vehicle.getType(), vehicle.getBaseRentalRate(), VehicleCodec.equipmentFlags(vehicle), 0, 0, 0, 0);
+    }
+
+    public static JournalEvent vehicleRemoved(Vehicle vehicle) {
+        return of(JournalEventType.VEHICLE_REMOVED, vehicle.getVehicleId(), null, 0);
+    }
+
+    public static JournalEvent customerAdded(Customer customer) {
+        return new JournalEvent(0, 0, JournalEventType.CUSTOMER_ADDED, null, customer.getCustomerId(),
+                customer.getName(), null, 0.0, 0, customer.getLoyaltyPoints(), 0, 0, 0);
+    }
+
+    public static JournalEvent customerRemoved(Customer customer) {
+        return of(JournalEventType.CUSTOMER_REMOVED, null, customer.getCustomerId(), 0);
+    }
+
+    public static JournalEvent rented(Vehicle vehicle, Customer customer, int days, LocalDate start, long transactionId,
+                                      double cost) {
+        return new JournalEvent(0, 0, JournalEventType.RENTED, vehicle.getVehicleId(), customer.getCustomerId(),
+                customer.getName(), null, 0.0, 0, days, start.toEpochDay(), transactionId, Math.round(cost * 100));
+    }
+
+    public static JournalEvent returned(Vehicle vehicle, LocalDate on) {
+        return new JournalEvent(0, 0, JournalEventType.RETURNED, vehicle.getVehicleId(), null,
+                null, null, 0.0, 0, 0, on.toEpochDay(), 0, 0);
+    }
+
+    public static JournalEvent vehicleRated(Vehicle vehicle, int rating) {
+        return of(JournalEventType.VEHICLE_RATED, vehicle.getVehicleId(), null, rating);
+    }
+
+    public static JournalEvent customerRated(Customer customer, int rating) {
+        return of(JournalEventType.CUSTOMER_RATED, null, customer.getCustomerId(), rating);
+    }
+
+    public static JournalEvent loyaltyPoints(Customer customer, int points) {
+        return of(JournalEventType.LOYALTY_POINTS, null, customer.getCustomerId(), points);
+    }
+
+    public static JournalEvent featureAdded(Vehicle vehicle, Feature feature) {
+        return new JournalEvent(0, 0, JournalEventType.FEATURE_ADDED, vehicle.getVehicleId(), null,
+                feature.getName(), null, feature.getAdditionalCost(), 0, 0, 0, 0, 0);
+    }
+
+    // A vehicle together with the features and ratings it already carries
+    public static List<JournalEvent> vehicleWithFeaturesAndRatings(Vehicle vehicle) {
+        List<JournalEvent> events = new ArrayList<>();
+        events.add(vehicleAdded(vehicle));
+        for (Feature feature : vehicle.getFeatures()) {
+            events.add(featureAdded(vehicle, feature));
+        }
+        int[] counts = vehicle.getRatingHistogram().getDistribution();
+        for (int i = 0; i < counts.length; i++) {
+            for (int n = 0; n < counts[i]; n++) {
+                events.add(vehicleRated(vehicle, RatingHistogram.MIN_RATING + i));
+            }
+        }
+        return events;
+    }
+
+    // A customer together with the ratings they already carry
+    public static List<JournalEvent> customerWithRatings(Customer customer) {
+        List<JournalEvent> events = new ArrayList<>();
+        events.add(customerAdded(customer));
+        int[] counts = customer.getRatingHistogram().getDistribution();
+        for (int i = 0; i < counts.length; i++) {
+            for (int n = 0; n < counts[i]; n++) {
+                events.add(customerRated(customer, RatingHistogram.MIN_RATING + i));
+            }
+        }
+        return events;
+    }
+
+    // Build the vehicle described by a VEHICLE_ADDED event
+    public Vehicle toVehicle() {
+        return VehicleCodec.create(vehicleType, vehicleId, text, rate, flags);
+    }
+
+    // The feature described by a FEATURE_ADDED event
+    public Feature toFeature() {
+        return Feature.of(text, rate);
+    }
+
+    // Same event, stamped with its position in the journal
+    JournalEvent at(long sequence, long timestamp) {
+        return new JournalEvent(sequence, timestamp, type, vehicleId, customerId, text, vehicleType, rate, flags, amount,
+                date, transactionId, cents);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public JournalEventType getType() {
+        return type;
+    }
+
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(date);
+    }
+
+    // The rental's transaction, or 0 if the event has none
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    // What the rental was charged, as journaled in cents
+    public double getCost() {
+        return cents / 100.0;
+    }
+
+    // Binary encoding: every field in a fixed order, empty strings for nulls
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeLong(sequence);
+        out.writeLong(timestamp);
+        out.writeUTF(vehicleId == null ? "" : vehicleId);
+        out.writeUTF(customerId == null ? "" : customerId);
+        out.writeUTF(text == null ? "" : text);
+        out.writeByte(vehicleType == null ? -1 : vehicleType.ordinal());
+        out.writeDouble(rate);
+        out.writeInt(flags);
+        out.writeInt(amount);
+        out.writeLong(date);
+        out.writeLong(transactionId);
+        out.writeLong(cents);
+    }
+
+    private static final JournalEventType[] TYPES = JournalEventType.values();
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    public static JournalEvent readFrom(DataInput in) throws IOException {
+        JournalEventType type = TYPES[in.readByte()];
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        String vehicleId = emptyToNull(in.readUTF());
+        String customerId = emptyToNull(in.readUTF());
+        String text = emptyToNull(in.readUTF());
+        byte vehicleType = in.readByte();
+        double rate = in.readDouble();
+        int flags = in.readInt();
+        int amount = in.readInt();
+        long date = in.readLong();
+        long transactionId = in.readLong();
+        long cents = in.readLong();
+        return new JournalEvent(sequence, timestamp, type, vehicleId, customerId, text,
+                vehicleType < 0 ? null : VEHICLE_TYPES[vehicleType], rate, flags, amount, date, transactionId, cents);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " vehicle=" + vehicleId + " customer=" + customerId + " amount=" + amount;
+    }
+}
@@ -0,0 +1,15 @@
+package com.rowusu.vehiclerental.journal;
+
+// Every kind of agency mutation that is written to the journal
+public enum JournalEventType {
+    VEHICLE_ADDED,
+    VEHICLE_REMOVED,
+    CUSTOMER_ADDED,
+    CUSTOMER_REMOVED,
+    RENTED,
+    RETURNED,
+    VEHICLE_RATED,
+    CUSTOMER_RATED,
+    LOYALTY_POINTS,
+    FEATURE_ADDED
+}
@@ -0,0 +1,17 @@
+package com.rowusu.vehiclerental.journal;
+
+import java.util.List;
+
+// Destination for journaled agency mutations
+public interface JournalWriter {
+
+    // Append the event and return it stamped with its sequence and timestamp
+    JournalEvent append(JournalEvent event);
+
+    // Append several events that belong to one mutation, in order
+    default void appendAll(List<JournalEvent> events) {
+        for (JournalEvent event : events) {
+            append(event);
+        }
+    }
+}
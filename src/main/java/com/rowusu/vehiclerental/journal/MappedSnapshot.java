@@ -0,0 +1,291 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.RatingHistogram;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.rentalagency.LazyRecords;
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The records of a mapped snapshot file (see AgencySnapshot for the layout),
+ * turned into vehicles and customers on demand and registered with the agency.
+ *
+ * Materializing a record pulls in whatever it is tied to so the agency never
+ * sees half a rental: a rented vehicle brings its renter, and a customer
+ * brings the vehicles they have out. Renters
+ * are resolved from a work list rather than recursively, so long chains of
+ * rentals can't overflow the stack. All of it happens under one lock, and new
+ * objects are registered before the lock is released, so a lookup never finds
+ * a record claimed but not yet registered.
+ */
+class MappedSnapshot implements LazyRecords {
+
+    // Records materialized per lock hold when loading everything
+    private static final int CHUNK = 4096;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final ByteBuffer buffer;
+    private final RentalAgency agency;
+    private final int vehicleCount;
+    private final int customerCount;
+    private final int registeredCount;
+    private final int vehicleTable;
+    private final int vehicleOrder;
+    private final int customerTable;
+    private final int customerOrder;
+
+    // Guarded by this. The arrays are dropped once everything is loaded.
+    private Vehicle[] vehicles;
+    private Customer[] customers;
+    private int nextVehicle;
+    private int nextCustomer;
+    private boolean loaded;
+    private final List<Vehicle> newVehicles = new ArrayList<>();
+    private final List<Customer> newCustomers = new ArrayList<>();
+    private final List<Vehicle> outOfService = new ArrayList<>();
+    private final List<Rental> newRentals = new ArrayList<>();
+
+    MappedSnapshot(ByteBuffer buffer, RentalAgency agency) {
+        this.buffer = buffer;
+        this.agency = agency;
+        this.vehicleCount = buffer.getInt(24);
+        this.customerCount = buffer.getInt(28);
+        this.registeredCount = buffer.getInt(32);
+        this.vehicleTable = buffer.getInt(36);
+        this.vehicleOrder = buffer.getInt(40);
+        this.customerTable = buffer.getInt(44);
+        this.customerOrder = buffer.getInt(48);
+        this.vehicles = new Vehicle[vehicleCount];
+        this.customers = new Customer[customerCount];
+    }
+
+    @Override
+    public synchronized void materializeVehicle(String vehicleId) {
+        if (loaded) {
+            return;
+        }
+        int position = search(vehicleOrder, vehicleTable, vehicleCount, 1, vehicleId);
+        if (position >= 0 && vehicles[position] == null) {
+            vehicle(position);
+            register();
+        }
+    }
+
+    @Override
+    public synchronized void materializeCustomer(String customerId) {
+        if (loaded) {
+            return;
+        }
+        int position = search(customerOrder, customerTable, registeredCount, 0, customerId);
+        if (position >= 0 && customers[position] == null) {
+            customer(position);
+            register();
+        }
+    }
+
+    @Override
+    public void materializeAll() {
+        while (true) {
+            synchronized (this) {
+                if (loaded) {
+                    return;
+                }
+                int budget = CHUNK;
+                while (budget > 0 && nextVehicle < vehicleCount) {
+                    vehicle(nextVehicle++);
+                    budget--;
+                }
+                while (budget > 0 && nextVehicle == vehicleCount && nextCustomer < registeredCount) {
+                    customer(nextCustomer++);
+                    budget--;
+                }
+                register();
+                if (nextVehicle == vehicleCount && nextCustomer == registeredCount) {
+                    loaded = true;
+                    vehicles = null;
+                    customers = null;
+                    agency.setLazyRecords(null);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Hand everything materialized since the last call to the agency. Vehicles
+    // are registered before their rentals so the rentals land in their calendars.
+    private void register() {
+        // Resolving a renter can turn up more rented vehicles, growing the list
+        for (int i = 0; i < newRentals.size(); i++) {
+            Rental rental = newRentals.get(i);
+            rental.customer = customer(rental.renter);
+        }
+        agency.restoreCustomers(newCustomers);
+        agency.restoreVehicles(newVehicles);
+        for (Vehicle vehicle : outOfService) {
+            vehicle.setAvailable(false);
+        }
+        for (Rental rental : newRentals) {
+            agency.restoreRental(rental.vehicle, rental.customer, rental.days, LocalDate.ofEpochDay(rental.startDay),
+                    rental.transactionId, rental.costCents / 100.0);
+        }
+        newCustomers.clear();
+        newVehicles.clear();
+        outOfService.clear();
+        newRentals.clear();
+    }
+
+    private Vehicle vehicle(int position) {
+        Vehicle vehicle = vehicles[position];
+        if (vehicle != null) {
+            return vehicle;
+        }
+        Cursor in = new Cursor(buffer.getInt(vehicleTable + 4 * position));
+        vehicle = in.vehicle();
+        vehicles[position] = vehicle;
+        boolean inService = in.readByte() != 0;
+        vehicle.addRatings(in.ratings());
+        int features = in.readInt();
+        for (int i = 0; i < features; i++) {
+            vehicle.addFeature(Feature.of(in.readString(), in.readDouble()));
+        }
+        newVehicles.add(vehicle);
+
+        int renter = in.readInt();
+        if (renter >= 0) {
+            int days = in.readInt();
+            long startDay = in.readLong();
+            long transactionId = in.readLong();
+            long costCents = in.readLong();
+            newRentals.add(new Rental(vehicle, renter, days, startDay, transactionId, costCents));
+        } else if (!inService) {
+            outOfService.add(vehicle);
+        }
+        return vehicle;
+    }
+
+    private Customer customer(int position) {
+        Customer customer = customers[position];
+        if (customer != null) {
+            return customer;
+        }
+        Cursor in = new Cursor(buffer.getInt(customerTable + 4 * position));
+        String customerId = in.readString();
+        customer = new Customer(in.readString(), customerId);
+        customers[position] = customer;
+        customer.addLoyaltyPoints(in.readInt());
+        customer.addRatings(in.ratings());
+        if (position < registeredCount) {
+            newCustomers.add(customer);
+        }
+
+        int rented = in.readInt();
+        for (int i = 0; i < rented; i++) {
+            vehicle(in.readInt());
+        }
+        return customer;
+    }
+
+    // Binary search the ID-sorted table for a position, or -1. The ID sits
+    // idOffset bytes into each record (after the type byte for vehicles).
+    private int search(int orderTable, int offsetTable, int count, int idOffset, String id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = buffer.getInt(orderTable + 4 * mid);
+            int cmp = new Cursor(buffer.getInt(offsetTable + 4 * position) + idOffset).readString().compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    // Reads a record with absolute gets, leaving the shared buffer untouched
+    private final class Cursor {
+        private int offset;
+
+        Cursor(int offset) {
+            this.offset = offset;
+        }
+
+        byte readByte() {
+            return buffer.get(offset++);
+        }
+
+        int readInt() {
+            int value = buffer.getInt(offset);
+            offset += 4;
+            return value;
+        }
+
+        long readLong() {
+            long value = buffer.getLong(offset);
+            offset += 8;
+            return value;
+        }
+
+        double readDouble() {
+            double value = buffer.getDouble(offset);
+            offset += 8;
+            return value;
+        }
+
+        String readString() {
+            int length = buffer.getShort(offset) & 0xFFFF;
+            byte[] bytes = new byte[length];
+            buffer.get(offset + 2, bytes);
+            offset += 2 + length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // type, id, model, rate and equipment flags
+        Vehicle vehicle() {
+            VehicleType type = VEHICLE_TYPES[readByte()];
+            String vehicleId = readString();
+            String model = readString();
+            double rate = readDouble();
+            return VehicleCodec.create(type, vehicleId, model, rate, readInt());
+        }
+
+        // A count per rating value
+        RatingHistogram ratings() {
+            int[] counts = new int[RatingHistogram.MAX_RATING];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = readInt();
+            }
+            return RatingHistogram.fromCounts(counts);
+        }
+    }
+
+    private static final class Rental {
+        final Vehicle vehicle;
+        final int renter;
+        final int days;
+        final long startDay;
+        final long transactionId;
+        final long costCents;
+        Customer customer;
+
+        Rental(Vehicle vehicle, int renter, int days, long startDay, long transactionId, long costCents) {
+            this.vehicle = vehicle;
+            this.renter = renter;
+            this.days = days;
+            this.startDay = startDay;
+            this.transactionId = transactionId;
+            this.costCents = costCents;
+        }
+    }
+}
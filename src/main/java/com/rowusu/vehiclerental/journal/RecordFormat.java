@@ -0,0 +1,125 @@
+package com.rowusu.vehiclerental.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Framing shared by the journal and snapshot files: each event is written
+ * as [length][crc32][payload]. A frame whose length is impossible, whose
+ * checksum doesn't match, whose payload doesn't decode, or that is cut short
+ * by the end of the file, ends the readable part of the file.
+ */
+class RecordFormat {
+
+    static final int FRAME_HEADER_BYTES = 8;
+    // An event is at most three UTF strings and its fixed-size fields
+    static final int MAX_PAYLOAD_BYTES = 3 * (2 + 0xFFFF) + 64;
+
+    // Reused to encode each record before it is framed; not thread-safe
+    private final Payload payload = new Payload();
+    private final DataOutputStream payloadOut = new DataOutputStream(payload);
+    private final CRC32 crc = new CRC32();
+
+    // Write one framed event and return the number of bytes written
+    int write(DataOutput out, JournalEvent event) throws IOException {
+        payload.reset();
+        event.writeTo(payloadOut);
+        crc.reset();
+        crc.update(payload.bytes(), 0, payload.size());
+        out.writeInt(payload.size());
+        out.writeInt((int) crc.getValue());
+        out.write(payload.bytes(), 0, payload.size());
+        return FRAME_HEADER_BYTES + payload.size();
+    }
+
+    // Read framed events from the first size bytes of the stream until the
+    // end of the intact data and return how many bytes that covered
+    static long read(DataInputStream in, long size, Consumer<JournalEvent> consumer) throws IOException {
+        long valid = 0;
+        CRC32 check = new CRC32();
+        byte[] buffer = new byte[256];
+        ArrayInput record = new ArrayInput();
+        DataInputStream recordIn = new DataInputStream(record);
+        while (true) {
+            int length;
+            int expected;
+            try {
+                length = in.readInt();
+                expected = in.readInt();
+                // A zero-filled tail has length 0 and the empty payload's
+                // checksum, so it would otherwise pass as a record
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES || length > size - valid - FRAME_HEADER_BYTES) {
+                    break;
+                }
+                if (length > buffer.length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            check.reset();
+            check.update(buffer, 0, length);
+            if ((int) check.getValue() != expected) {
+                break;
+            }
+            record.reset(buffer, length);
+            JournalEvent event;
+            try {
+                event = JournalEvent.readFrom(recordIn);
+            } catch (IOException | RuntimeException e) {
+                break;
+            }
+            consumer.accept(event);
+            valid += FRAME_HEADER_BYTES + length;
+        }
+        return valid;
+    }
+
+    // ByteArrayOutputStream that exposes its buffer instead of copying it
+    private static final class Payload extends ByteArrayOutputStream {
+        Payload() {
+            super(128);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+
+    // Unsynchronized stream over part of a byte array, reusable across records
+    private static final class ArrayInput extends InputStream {
+        private byte[] bytes;
+        private int length;
+        private int position;
+
+        void reset(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+            this.position = 0;
+        }
+
+        @Override
+        public int read() {
+            return position < length ? bytes[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= length) {
+                return -1;
+            }
+            int n = Math.min(len, length - position);
+            System.arraycopy(bytes, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
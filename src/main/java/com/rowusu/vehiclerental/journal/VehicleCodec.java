@@ -0,0 +1,46 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Motorcycle;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+
+// Packs each vehicle type's optional equipment into flag bits, for the
+// journal and snapshot encodings
+final class VehicleCodec {
+
+    private static final int CAR_GPS = 1, CAR_CHILD_SEAT = 2, CAR_SUNROOF = 4;
+    private static final int MOTORCYCLE_HELMET = 1, MOTORCYCLE_LUGGAGE = 2;
+    private static final int TRUCK_CARGO_LIFT = 1, TRUCK_REFRIGERATED = 2;
+
+    private VehicleCodec() {
+    }
+
+    static int equipmentFlags(Vehicle vehicle) {
+        if (vehicle instanceof Car) {
+            Car car = (Car) vehicle;
+            return (car.hasGPS() ? CAR_GPS : 0) | (car.hasChildSeat() ? CAR_CHILD_SEAT : 0) | (car.hasSunroof() ? CAR_SUNROOF : 0);
+        } else if (vehicle instanceof Motorcycle) {
+            Motorcycle motorcycle = (Motorcycle) vehicle;
+            return (motorcycle.hasHelmet() ? MOTORCYCLE_HELMET : 0) | (motorcycle.hasLuggageStorage() ? MOTORCYCLE_LUGGAGE : 0);
+        } else if (vehicle instanceof Truck) {
+            Truck truck = (Truck) vehicle;
+            return (truck.hasCargoLift() ? TRUCK_CARGO_LIFT : 0) | (truck.hasRefrigeratedStorage() ? TRUCK_REFRIGERATED : 0);
+        }
+        return 0;
+    }
+
+    static Vehicle create(VehicleType type, String vehicleId, String model, double rate, int flags) {
+        switch (type) {
+            case CAR:
+                return new Car(vehicleId, model, rate, (flags & CAR_GPS) != 0, (flags & CAR_CHILD_SEAT) != 0, (flags & CAR_SUNROOF) != 0);
+            case MOTORCYCLE:
+                return new Motorcycle(vehicleId, model, rate, (flags & MOTORCYCLE_HELMET) != 0, (flags & MOTORCYCLE_LUGGAGE) != 0);
+            case TRUCK:
+                return new Truck(vehicleId, model, rate, (flags & TRUCK_CARGO_LIFT) != 0, (flags & TRUCK_REFRIGERATED) != 0);
+            default:
+                throw new IllegalStateException("Unknown vehicle type: " + type);
+        }
+    }
+}
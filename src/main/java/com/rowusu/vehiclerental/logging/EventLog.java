@@ -0,0 +1,44 @@
+package com.rowusu.vehiclerental.logging;
+
+/**
+ * Process-wide event logger used by the domain classes. By default events go
+ * through a {@link RingBufferEventLogger} to standard output at INFO; set the
+ * system property {@code vehiclerental.log.level} to change the threshold
+ * (OFF installs the no-op logger), or call {@link #set} to plug in another.
+ */
+public final class EventLog {
+
+    public static final String LEVEL_PROPERTY = "vehiclerental.log.level";
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static volatile EventLogger logger = createDefault();
+
+    private EventLog() {
+    }
+
+    public static EventLogger get() {
+        return logger;
+    }
+
+    // Install a new logger and return the one it replaces
+    public static EventLogger set(EventLogger newLogger) {
+        EventLogger previous = logger;
+        logger = newLogger == null ? NoOpEventLogger.INSTANCE : newLogger;
+        return previous;
+    }
+
+    public static void disable() {
+        set(NoOpEventLogger.INSTANCE);
+    }
+
+    private static EventLogger createDefault() {
+        LogLevel level = LogLevel.valueOf(System.getProperty(LEVEL_PROPERTY, "INFO").trim().toUpperCase());
+        if (level == LogLevel.OFF) {
+            return NoOpEventLogger.INSTANCE;
+        }
+        RingBufferEventLogger ringLogger = new RingBufferEventLogger(System.out, DEFAULT_CAPACITY, level);
+        // Don't lose the tail of the log when a command-line run exits
+        Runtime.getRuntime().addShutdownHook(new Thread(ringLogger::close, "event-log-shutdown"));
+        return ringLogger;
+    }
+}
@@ -0,0 +1,21 @@
+package com.rowusu.vehiclerental.logging;
+
+/**
+ * Sink for domain events. Implementations must be safe to call from any
+ * thread and should return quickly; the caller is usually on a rent or
+ * return path.
+ */
+public interface EventLogger {
+
+    boolean isEnabled(EventType type);
+
+    void log(EventType type, String subject, String detail, long value);
+
+    default void log(EventType type, String subject, String detail) {
+        log(type, subject, detail, 0L);
+    }
+
+    // Block until everything logged so far has been written out
+    default void flush() {
+    }
+}
@@ -0,0 +1,53 @@
+package com.rowusu.vehiclerental.logging;
+
+/**
+ * Every event the domain code can log. Each type fixes its level and what
+ * its subject, detail and value fields mean, so call sites only pass values
+ * they already have and never build a message string.
+ */
+public enum EventType {
+    CUSTOMER_ADDED(LogLevel.INFO, "customer", "name", null),
+    VEHICLE_ADDED(LogLevel.INFO, "vehicle", "model", null),
+    VEHICLE_REMOVED(LogLevel.INFO, "vehicle", "model", null),
+    VEHICLE_NOT_IN_FLEET(LogLevel.WARN, "vehicle", null, null),
+    RENTAL_PROCESSED(LogLevel.INFO, "vehicle", "customer", "days"),
+    RENTAL_REJECTED(LogLevel.WARN, "vehicle", "reason", null),
+    VEHICLE_RENTED(LogLevel.DEBUG, "vehicle", "customer", "days"),
+    VEHICLE_RETURNED(LogLevel.DEBUG, "vehicle", null, null),
+    RETURN_PROCESSED(LogLevel.INFO, "vehicle", "customer", null),
+    RETURN_REJECTED(LogLevel.WARN, "vehicle", "reason", null),
+    CURRENT_RENTAL_REMOVED(LogLevel.DEBUG, "customer", "vehicle", null),
+    BATCH_RENTAL(LogLevel.INFO, null, null, "applied"),
+    BATCH_RETURN(LogLevel.INFO, null, null, "applied"),
+    RATING_ADDED(LogLevel.INFO, "subject", null, "rating"),
+    RATING_REJECTED(LogLevel.WARN, "subject", "reason", "rating");
+
+    private final LogLevel level;
+    private final String subjectName;
+    private final String detailName;
+    private final String valueName;
+
+    EventType(LogLevel level, String subjectName, String detailName, String valueName) {
+        this.level = level;
+        this.subjectName = subjectName;
+        this.detailName = detailName;
+        this.valueName = valueName;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    // Field labels used when an event is written out; null means unused
+    public String getSubjectName() {
+        return subjectName;
+    }
+
+    public String getDetailName() {
+        return detailName;
+    }
+
+    public String getValueName() {
+        return valueName;
+    }
+}
@@ -0,0 +1,10 @@
+package com.rowusu.vehiclerental.logging;
+
+// Severity of an event, lowest first. OFF is only used as a threshold.
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
@@ -0,0 +1,196 @@
+package com.rowusu.vehiclerental.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous logger. Callers claim a slot in a fixed ring of preallocated
+ * records, fill in the fields and publish it; a background thread formats
+ * published records and writes them to the output stream in batches.
+ * Logging never blocks and never allocates on the caller's side: when the
+ * ring is full the event is dropped and counted instead.
+ */
+public class RingBufferEventLogger implements EventLogger, AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int WRITE_BATCH_CHARS = 8192;
+
+    // One reusable record per ring slot
+    private static final class Record {
+        // Sequence number of the event in this slot; written last to publish it
+        volatile long sequence = -1;
+        long timestamp;
+        EventType type;
+        String subject;
+        String detail;
+        long value;
+    }
+
+    private final Record[] ring;
+    private final int mask;
+    private final PrintStream out;
+
+    // Next sequence to claim, next sequence the drainer will take from the
+    // ring, and how many events have actually reached the output stream
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private volatile long written;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile LogLevel level;
+    private final AtomicIntegerArray sampleRates = new AtomicIntegerArray(EventType.values().length);
+    private final AtomicLongArray sampleCounters = new AtomicLongArray(EventType.values().length);
+
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public RingBufferEventLogger(PrintStream out, int capacity, LogLevel level) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two.");
+        }
+        this.out = out;
+        this.level = level;
+        this.ring = new Record[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Record();
+        }
+        for (int i = 0; i < sampleRates.length(); i++) {
+            sampleRates.set(i, 1);
+        }
+        this.drainer = new Thread(this::drain, "event-log-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    public void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    // Keep one in every oneInN events of this type; 1 keeps them all
+    public void setSampleRate(EventType type, int oneInN) {
+        if (oneInN < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1.");
+        }
+        sampleRates.set(type.ordinal(), oneInN);
+    }
+
+    // Events thrown away because the ring was full
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public boolean isEnabled(EventType type) {
+        return running && type.getLevel().compareTo(level) >= 0;
+    }
+
+    @Override
+    public void log(EventType type, String subject, String detail, long value) {
+        if (!isEnabled(type)) {
+            return;
+        }
+        int rate = sampleRates.get(type.ordinal());
+        if (rate > 1 && sampleCounters.getAndIncrement(type.ordinal()) % rate != 0) {
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= ring.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Record record = ring[(int) sequence & mask];
+        record.timestamp = System.currentTimeMillis();
+        record.type = type;
+        record.subject = subject;
+        record.detail = detail;
+        record.value = value;
+        record.sequence = sequence;
+    }
+
+    @Override
+    public void flush() {
+        long target = head.get();
+        while (written < target && drainer.isAlive()) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    // Write out what is already queued, then stop the background thread
+    @Override
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        StringBuilder batch = new StringBuilder(WRITE_BATCH_CHARS * 2);
+        long next = tail;
+        while (running || next < head.get()) {
+            Record record = ring[(int) next & mask];
+            if (record.sequence != next) {
+                // Nothing published yet: write out what we have and wait
+                write(batch, next);
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            format(record, batch);
+            record.subject = null;
+            record.detail = null;
+            tail = ++next;
+
+            if (batch.length() >= WRITE_BATCH_CHARS) {
+                write(batch, next);
+            }
+        }
+        write(batch, next);
+    }
+
+    private void write(StringBuilder batch, long upTo) {
+        if (batch.length() > 0) {
+            out.print(batch);
+            out.flush();
+            batch.setLength(0);
+        }
+        written = upTo;
+    }
+
+    private static void format(Record record, StringBuilder line) {
+        EventType type = record.type;
+        line.append(Instant.ofEpochMilli(record.timestamp))
+            .append(' ').append(type.getLevel())
+            .append(' ').append(type);
+        if (type.getSubjectName() != null) {
+            line.append(' ').append(type.getSubjectName()).append('=').append(record.subject);
+        }
+        if (type.getDetailName() != null) {
+            line.append(' ').append(type.getDetailName()).append('=').append(record.detail);
+        }
+        if (type.getValueName() != null) {
+            line.append(' ').append(type.getValueName()).append('=').append(record.value);
+        }
+        line.append(System.lineSeparator());
+    }
+}
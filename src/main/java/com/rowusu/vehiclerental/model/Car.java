@@ -1,46 +1,53 @@
 package com.rowusu.vehiclerental.model;
 import com.rowusu.vehiclerental.interfaces.Rentable;
 import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventType;
 public class Car extends Vehicle implements Rentable{
-    // Private fields for critical information
-    private boolean hasGPS;
-    private boolean hasChildSeat;
-    private boolean hasSunroof;
+    // Equipment, kept as flags in the vehicle's state word
+    private static final int GPS = 0;
+    private static final int CHILD_SEAT = 1;
+    private static final int SUNROOF = 2;
 
     // Constructor with validation
     public Car(String vehicleId, String model, double baseRentalRate, boolean hasGPS, boolean hasChildSeat, boolean hasSunroof) {
         super(vehicleId, model, baseRentalRate);
-        this.hasGPS = hasGPS;
-        this.hasChildSeat = hasChildSeat;
-        this.hasSunroof = hasSunroof;
+        setFlag(GPS, hasGPS);
+        setFlag(CHILD_SEAT, hasChildSeat);
+        setFlag(SUNROOF, hasSunroof);
     }
 
     // Public getter and setter methods with input validation
     public boolean hasGPS() {
-        return hasGPS;
+        return hasFlag(GPS);
     }
 
     public void setGPS(boolean hasGPS) {
-        this.hasGPS = hasGPS;
+        setFlag(GPS, hasGPS);
     }
 
     public boolean hasChildSeat() {
-        return hasChildSeat;
+        return hasFlag(CHILD_SEAT);
     }
 
     public void setChildSeat(boolean hasChildSeat) {
-        this.hasChildSeat = hasChildSeat;
+        setFlag(CHILD_SEAT, hasChildSeat);
     }
 
     public boolean hasSunroof() {
-        return hasSunroof;
+        return hasFlag(SUNROOF);
     }
 
     public void setSunroof(boolean hasSunroof) {
-        this.hasSunroof = hasSunroof;
+        setFlag(SUNROOF, hasSunroof);
     }
 
 
+    @Override
+    public VehicleType getType() {
+        return VehicleType.CAR;
+    }
+
     // Availability checks
     @Override
     public boolean isAvailableForRental() {
@@ -52,9 +59,9 @@ public class Car extends Vehicle implements Rentable{
     public String toString() {
         return String.format("Car[ID=%s, Model=%s, BaseRate=%.2f, GPS=%s, ChildSeat=%s, Sunroof=%s]",
                 getVehicleId(), getModel(), getBaseRentalRate(),
-                hasGPS ? "Yes" : "No",
-                hasChildSeat ? "Yes" : "No",
-                hasSunroof ? "Yes" : "No");
+                hasGPS() ? "Yes" : "No",
+                hasChildSeat() ? "Yes" : "No",
+                hasSunroof() ? "Yes" : "No");
     }
     @Override
     public void rent(Customer customer, int days) {
@@ -69,18 +76,15 @@ public class Car extends Vehicle implements Rentable{
             throw new IllegalStateException("Customer is not eligible for rental.");
         }
         int rentalLimit=2;
-        if (customer.getCurrentRentals().size() >= rentalLimit) {
+        if (customer.getCurrentRentalCount() >= rentalLimit) {
             throw new IllegalStateException("Customer has exceeded rental limit.");
         }
 
-        // Mark the car as rented
-        setAvailable(false);
+        // Mark the vehicle as rented and add it to the customer's current rentals
+        claim(customer, days);
 
-        // Add this car to the customer's current rentals
-        customer.addCurrentRental(this, days);
-
-        // Print rental confirmation
-        System.out.println("Car rented successfully to " + customer.getName() + " for " + days + " days.");
+        // Record the rental confirmation
+        EventLog.get().log(EventType.VEHICLE_RENTED, getVehicleId(), customer.getCustomerId(), days);
     }
     /*@Override
     /ublic void returnVehicle() {
@@ -112,29 +116,20 @@ public class Car extends Vehicle implements Rentable{
 
     @Override
     public void returnVehicle() {
-        if (isAvailable()) {
-            System.out.println("Car is already available.");
+        // Mark the car as available and remove it from the customer's rentals list
+        if (!release()) {
+            EventLog.get().log(EventType.RETURN_REJECTED, getVehicleId(), "already available");
             return;
         }
 
-        // Mark the car as available
-        setAvailable(true);
-
-        // Remove from the customer's rentals list
-        if (currentRenter != null) {
-            currentRenter.removeCurrentRental(this);
-        }
-
         // Notify that the car has been returned
-        System.out.println("Car returned successfully.");
+        EventLog.get().log(EventType.VEHICLE_RETURNED, getVehicleId(), null);
     }
 
         //Calculating rental cost
     @Override
     public double calculateRentalCost(int days) {
-        double baseCost = getBaseRentalRate() * days; // Base rental rate
-        double featureCost = calculateTotalFeatureCost() * days; // Surcharges for features
-        return baseCost + featureCost;
+        return getDailyRate() * days; // Base rental rate plus surcharges for features
     }
 }
 
@@ -3,8 +3,13 @@ package com.rowusu.vehiclerental.model;
 public class Feature {
     private final String name;
     private final double additionalCost;
+    private final int id; // ID in the FeatureCatalog, or -1 if not from it
 
     public Feature(String name, double additionalCost) {
+        this(name, additionalCost, -1);
+    }
+
+    Feature(String name, double additionalCost, int id) {
         if (name == null || name.isEmpty()) {
             throw new IllegalArgumentException("Feature name cannot be null or empty.");
         }
@@ -13,6 +18,12 @@ public class Feature {
         }
         this.name = name;
         this.additionalCost = additionalCost;
+        this.id = id;
+    }
+
+    // The shared instance for this name and cost; prefer it to the constructor
+    public static Feature of(String name, double additionalCost) {
+        return FeatureCatalog.intern(name, additionalCost);
     }
 
     public String getName() {
@@ -22,4 +33,27 @@ public class Feature {
     public double getAdditionalCost() {
         return additionalCost;
     }
+
+    public int getId() {
+        return id;
+    }
+
+    // Features are values: same name and cost, same feature
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Feature)) return false;
+        Feature other = (Feature) o;
+        return name.equals(other.name) && Double.compare(additionalCost, other.additionalCost) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + Double.hashCode(additionalCost);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (+" + additionalCost + ")";
+    }
 }
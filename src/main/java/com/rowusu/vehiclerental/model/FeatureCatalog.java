@@ -0,0 +1,93 @@
+package com.rowusu.vehiclerental.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table of every feature any vehicle has had. Each distinct
+ * name and cost is one shared Feature with a small ID, handed out in order
+ * from 0, so a fleet of cars with GPS holds one GPS feature and each car
+ * holds only a bit for it (see Vehicle.addFeature).
+ *
+ * Lookups don't lock; adding a new feature does.
+ */
+public final class FeatureCatalog {
+
+    private static final int[] NONE = new int[0];
+
+    // Feature name -> IDs of the features with that name, one per cost
+    private static final Map<String, int[]> idsByName = new ConcurrentHashMap<>();
+    private static volatile Feature[] byId = new Feature[16];
+    private static int size; // guarded by FeatureCatalog.class
+
+    private FeatureCatalog() {
+    }
+
+    // The shared feature with this name and cost, added if it's new
+    public static Feature intern(String name, double additionalCost) {
+        Feature found = find(name, additionalCost);
+        return found != null ? found : add(name, additionalCost);
+    }
+
+    public static Feature intern(Feature feature) {
+        if (feature.getId() >= 0) {
+            return feature;
+        }
+        return intern(feature.getName(), feature.getAdditionalCost());
+    }
+
+    // The shared feature with this name and cost, or null if there's none yet
+    public static Feature find(String name, double additionalCost) {
+        if (name == null) {
+            return null;
+        }
+        // IDs before the table: an ID is only listed once the table holds it
+        int[] ids = idsByName.getOrDefault(name, NONE);
+        Feature[] table = byId;
+        for (int id : ids) {
+            if (Double.compare(table[id].getAdditionalCost(), additionalCost) == 0) {
+                return table[id];
+            }
+        }
+        return null;
+    }
+
+    private static synchronized Feature add(String name, double additionalCost) {
+        // Someone may have added it while we waited for the lock
+        Feature found = find(name, additionalCost);
+        if (found != null) {
+            return found;
+        }
+        Feature feature = new Feature(name, additionalCost, size);
+        Feature[] table = byId;
+        if (size == table.length) {
+            table = Arrays.copyOf(table, size * 2);
+        }
+        table[size++] = feature;
+        byId = table;
+        int[] ids = idsByName.getOrDefault(name, NONE);
+        int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = feature.getId();
+        idsByName.put(name, grown);
+        return feature;
+    }
+
+    public static Feature byId(int id) {
+        Feature[] table = byId;
+        if (id < 0 || id >= table.length || table[id] == null) {
+            throw new IllegalArgumentException("Unknown feature ID: " + id);
+        }
+        return table[id];
+    }
+
+    // IDs of every feature with this name, whatever its cost; empty if none.
+    // The array is shared, so don't change it.
+    public static int[] idsNamed(String name) {
+        return idsByName.getOrDefault(name, NONE);
+    }
+
+    public static synchronized int size() {
+        return size;
+    }
+}
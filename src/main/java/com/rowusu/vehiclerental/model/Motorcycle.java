@@ -1,37 +1,44 @@
 package com.rowusu.vehiclerental.model;
 import com.rowusu.vehiclerental.interfaces.Rentable;
 import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventType;
 public class Motorcycle extends Vehicle implements Rentable{
-    // Private fields for critical information
-    private boolean hasHelmet;
-    private boolean hasLuggageStorage;
+    // Equipment, kept as flags in the vehicle's state word
+    private static final int HELMET = 0;
+    private static final int LUGGAGE_STORAGE = 1;
 
     // Constructor with validation
     public Motorcycle(String vehicleId, String model, double baseRentalRate, boolean hasHelmet, boolean hasLuggageStorage) {
         super(vehicleId, model, baseRentalRate);
-        this.hasHelmet = hasHelmet;
-        this.hasLuggageStorage = hasLuggageStorage;
+        setFlag(HELMET, hasHelmet);
+        setFlag(LUGGAGE_STORAGE, hasLuggageStorage);
     }
 
     // Public getter and setter methods with input validation
     public boolean hasHelmet() {
-        return hasHelmet;
+        return hasFlag(HELMET);
     }
 
     public void setHelmet(boolean hasHelmet) {
-        this.hasHelmet = hasHelmet;
+        setFlag(HELMET, hasHelmet);
     }
 
     public boolean hasLuggageStorage() {
-        return hasLuggageStorage;
+        return hasFlag(LUGGAGE_STORAGE);
     }
 
     public void setLuggageStorage(boolean hasLuggageStorage) {
-        this.hasLuggageStorage = hasLuggageStorage;
+        setFlag(LUGGAGE_STORAGE, hasLuggageStorage);
     }
 
 
 
+    @Override
+    public VehicleType getType() {
+        return VehicleType.MOTORCYCLE;
+    }
+
     // Availability checks
     @Override
     public boolean isAvailableForRental() {
@@ -43,8 +50,8 @@ public class Motorcycle extends Vehicle implements Rentable{
     public String toString() {
         return String.format("Motorcycle[ID=%s, Model=%s, BaseRate=%.2f, Helmet=%s, LuggageStorage=%s]",
                 getVehicleId(), getModel(), getBaseRentalRate(),
-                hasHelmet ? "Yes" : "No",
-                hasLuggageStorage ? "Yes" : "No");
+                hasHelmet() ? "Yes" : "No",
+                hasLuggageStorage() ? "Yes" : "No");
     }
    /* @Override
     public void rent(Customer customer, int days) {
@@ -71,17 +78,14 @@ public class Motorcycle extends Vehicle implements Rentable{
            throw new IllegalStateException("Customer is not eligible for rental.");
        }
        int rentalLimit=2;
-       if (customer.getCurrentRentals().size() >= rentalLimit) {
+       if (customer.getCurrentRentalCount() >= rentalLimit) {
            throw new IllegalStateException("Customer has exceeded rental limit.");
        }
-        // Mark the car as rented
-        setAvailable(false);
-
-        // Add this car to the customer's current rentals
-        customer.addCurrentRental(this, days);
+        // Mark the vehicle as rented and add it to the customer's current rentals
+        claim(customer, days);
 
-        // Print rental confirmation
-        System.out.println("Motorcycle rented successfully to " + customer.getName() + " for " + days + " days.");
+        // Record the rental confirmation
+        EventLog.get().log(EventType.VEHICLE_RENTED, getVehicleId(), customer.getCustomerId(), days);
     }
    /* @Override
     public void returnVehicle() {
@@ -98,29 +102,20 @@ public class Motorcycle extends Vehicle implements Rentable{
     }*/
   @Override
    public void returnVehicle() {
-       if (isAvailable()) {
-           System.out.println("Car is already available.");
+       // Mark the car as available and remove it from the customer's rentals list
+       if (!release()) {
+           EventLog.get().log(EventType.RETURN_REJECTED, getVehicleId(), "already available");
            return;
        }
 
-       // Mark the car as available
-       setAvailable(true);
-
-       // Remove from the customer's rentals list
-       if (currentRenter != null) {
-           currentRenter.removeCurrentRental(this);
-       }
-
-       // Notify that the car has been returned
-       System.out.println("Car returned successfully.");
+       // Notify that the motorcycle has been returned
+       EventLog.get().log(EventType.VEHICLE_RETURNED, getVehicleId(), null);
    }
 
 //Rental Cost Calculation
     @Override
     public double calculateRentalCost(int days) {
-        double baseCost = getBaseRentalRate() * days; // Base rate
-        double featureCost = calculateTotalFeatureCost() * days; // Dynamic surcharge
-        return baseCost + featureCost;
+        return getDailyRate() * days; // Base rate plus feature surcharges
     }
 
 
@@ -0,0 +1,130 @@
+package com.rowusu.vehiclerental.model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Ratings from 1 to 5 kept as one counter per value, so an entity's ratings
+ * take the same few bytes however many it gets, and the average, the
+ * distribution and any percentile are read off five counters instead of a
+ * walk over every rating. Counters are atomic, so ratings can be added from
+ * any number of threads without a lock. A reader running alongside sees each
+ * counter at some point during the adds, which is always a valid set of
+ * ratings to average.
+ */
+public final class RatingHistogram {
+
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+    private static final int BUCKETS = MAX_RATING - MIN_RATING + 1;
+
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKETS);
+
+    public RatingHistogram() {
+    }
+
+    // A histogram holding the given number of ratings of each value, 1 to 5
+    public static RatingHistogram fromCounts(int[] counts) {
+        if (counts.length != BUCKETS) {
+            throw new IllegalArgumentException("Expected " + BUCKETS + " rating counts, got " + counts.length);
+        }
+        RatingHistogram histogram = new RatingHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] < 0) {
+                throw new IllegalArgumentException("Rating counts cannot be negative.");
+            }
+            histogram.counts.set(i, counts[i]);
+        }
+        return histogram;
+    }
+
+    public void add(int rating) {
+        if (rating < MIN_RATING || rating > MAX_RATING) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5.");
+        }
+        counts.incrementAndGet(rating - MIN_RATING);
+    }
+
+    public void addAll(RatingHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.addAndGet(i, other.counts.get(i));
+        }
+    }
+
+    public int getCount() {
+        int total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Number of ratings with the given value
+    public int getCount(int rating) {
+        if (rating < MIN_RATING || rating > MAX_RATING) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5.");
+        }
+        return counts.get(rating - MIN_RATING);
+    }
+
+    public long getSum() {
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += (long) (i + MIN_RATING) * counts.get(i);
+        }
+        return sum;
+    }
+
+    // 0.0 if there are no ratings yet
+    public double getAverage() {
+        long sum = 0;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            int count = counts.get(i);
+            sum += (long) (i + MIN_RATING) * count;
+            total += count;
+        }
+        return total == 0 ? 0.0 : (double) sum / total;
+    }
+
+    // Counts of ratings 1 to 5, in that order
+    public int[] getDistribution() {
+        int[] distribution = new int[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            distribution[i] = counts.get(i);
+        }
+        return distribution;
+    }
+
+    // The rating at the given percentile (0 to 100) by nearest rank, or 0 if
+    // there are no ratings yet
+    public int getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        int[] distribution = getDistribution();
+        long total = 0;
+        for (int count : distribution) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += distribution[i];
+            if (seen >= rank) {
+                return i + MIN_RATING;
+            }
+        }
+        return MAX_RATING;
+    }
+
+    public int getMedian() {
+        return getPercentile(50);
+    }
+
+    public RatingHistogram copy() {
+        return fromCounts(getDistribution());
+    }
+}
@@ -2,39 +2,39 @@ package com.rowusu.vehiclerental.model;
 import com.rowusu.vehiclerental.exceptions.CustomerNotEligible;
 import com.rowusu.vehiclerental.interfaces.Rentable;
 import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventType;
 public class Truck extends Vehicle implements Rentable{
-    // Private fields for critical information
-    private boolean hasCargoLift;
-    private boolean hasRefrigeratedStorage;
+    // Equipment, kept as flags in the vehicle's state word
+    private static final int CARGO_LIFT = 0;
+    private static final int REFRIGERATED_STORAGE = 1;
 
     // Constructor with validation
     public Truck(String vehicleId, String model, double baseRentalRate, boolean hasCargoLift, boolean hasRefrigeratedStorage) {
         super(vehicleId, model, baseRentalRate);
-        this.hasCargoLift = hasCargoLift;
-        this.hasRefrigeratedStorage = hasRefrigeratedStorage;
+        setFlag(CARGO_LIFT, hasCargoLift);
+        setFlag(REFRIGERATED_STORAGE, hasRefrigeratedStorage);
     }
 
     // Public getter and setter methods with input validation
     public boolean hasCargoLift() {
-        return hasCargoLift;
+        return hasFlag(CARGO_LIFT);
     }
 
     public void setCargoLift(boolean hasCargoLift) {
-        this.hasCargoLift = hasCargoLift;
+        setFlag(CARGO_LIFT, hasCargoLift);
     }
 
     public boolean hasRefrigeratedStorage() {
-        return hasRefrigeratedStorage;
+        return hasFlag(REFRIGERATED_STORAGE);
     }
 
     public void setRefrigeratedStorage(boolean hasRefrigeratedStorage) {
-        this.hasRefrigeratedStorage = hasRefrigeratedStorage;
+        setFlag(REFRIGERATED_STORAGE, hasRefrigeratedStorage);
     }
     @Override
     public double calculateRentalCost(int days) {
-        double baseCost = getBaseRentalRate() * days; // Base rate
-        double featureCost = calculateTotalFeatureCost() * days; // Dynamic surcharge
-        return baseCost + featureCost;
+        return getDailyRate() * days; // Base rate plus feature surcharges
     }
 
     // Rental cost calculations
@@ -50,6 +50,11 @@ public class Truck extends Vehicle implements Rentable{
         return cost;
     }*/
 
+    @Override
+    public VehicleType getType() {
+        return VehicleType.TRUCK;
+    }
+
     // Availability checks
     @Override
     public boolean isAvailableForRental() {
@@ -61,8 +66,8 @@ public class Truck extends Vehicle implements Rentable{
     public String toString() {
         return String.format("Truck[ID=%s, Model=%s, BaseRate=%.2f, CargoLift=%s, RefrigeratedStorage=%s]",
                 getVehicleId(), getModel(), getBaseRentalRate(),
-                hasCargoLift ? "Yes" : "No",
-                hasRefrigeratedStorage ? "Yes" : "No");
+                hasCargoLift() ? "Yes" : "No",
+                hasRefrigeratedStorage() ? "Yes" : "No");
     }
 @Override
     public void rent(Customer customer, int days) {
@@ -78,17 +83,14 @@ public class Truck extends Vehicle implements Rentable{
             throw new IllegalStateException("Customer is not eligible for rental.");
         }
         int rentalLimit=2;
-        if (customer.getCurrentRentals().size() >= rentalLimit) {
+        if (customer.getCurrentRentalCount() >= rentalLimit) {
             throw new IllegalStateException("Customer has exceeded rental limit.");
         }
-        // Mark the car as rented
-        setAvailable(false);
+        // Mark the vehicle as rented and add it to the customer's current rentals
+        claim(customer, days);
 
-        // Add this car to the customer's current rentals
-        customer.addCurrentRental(this, days);
-
-        // Print rental confirmation
-        System.out.println("Truck rented successfully to " + customer.getName() + " for " + days + " days.");
+        // Record the rental confirmation
+        EventLog.get().log(EventType.VEHICLE_RENTED, getVehicleId(), customer.getCustomerId(), days);
     }
    /* @Override
     public void returnVehicle() {
@@ -125,17 +127,12 @@ public class Truck extends Vehicle implements Rentable{
 
     @Override
     public void returnVehicle() {
-        if (isAvailable()) {
+        // Mark car as available
+        if (!release()) {
             throw new IllegalStateException("Car is already available.");
         }
 
-        // Mark car as available
-        setAvailable(true);
-
-        // Assuming the customer is passed directly or is tracked elsewhere (like in a rental service or system)
-        // You should manage this relation in the `Customer` or `Rental` class, not directly in `Car`.
-
-        System.out.println("Car returned successfully.");
+        EventLog.get().log(EventType.VEHICLE_RETURNED, getVehicleId(), null);
     }
 
 }
@@ -1,24 +1,57 @@
 package com.rowusu.vehiclerental.model;
 import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.interfaces.AvailabilityListener;
 import com.rowusu.vehiclerental.interfaces.Rentable;
 import com.rowusu.vehiclerental.interfaces.Ratable;
 import com.rowusu.vehiclerental.interfaces.FeatureAssignable;
 import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public abstract class Vehicle implements Rentable, Ratable, FeatureAssignable {
     // Private encapsulated fields
     private final String vehicleId;
     private final String model;
     private final double baseRentalRate;
-    private boolean isAvailable;
-    private List<Integer> ratings;
-    private final List<Feature> features;
-    public Customer currentRenter;
-    private boolean availableForRental; // Availability
+    // Rental state in the low two bits, the subclass's equipment flags above
+    private volatile int state;
+    // Null until the first rating, so an unrated vehicle carries no counters
+    private volatile RatingHistogram ratings;
+    // Catalog IDs of the vehicle's features as a bitset. Replaced rather than
+    // changed when a feature is added, so it can be read without the lock.
+    private volatile long[] featureBits = NO_FEATURES;
+    private static final long[] NO_FEATURES = new long[0];
+    // Stands in for the histogram of a vehicle with no ratings; never added to
+    private static final RatingHistogram NO_RATINGS = new RatingHistogram();
+    // Base rate plus the features' surcharges, kept as features are added so
+    // a quote doesn't walk the features
+    private volatile double dailyRate;
+    public volatile Customer currentRenter;
+    private volatile int slot = -1; // Position in the owning fleet's indexes, -1 when not in a fleet
+    private volatile AvailabilityListener availabilityListener;
+
+    // Rental state machine. RENTING and RETURNING are held only while a rent or
+    // return is being applied, so two threads can never both win the same vehicle.
+    private static final int AVAILABLE = 0;
+    private static final int RENTING = 1;
+    private static final int RENTED = 2;
+    private static final int RETURNING = 3;
+    private static final int RENTAL_BITS = 2;
+    private static final int RENTAL_MASK = (1 << RENTAL_BITS) - 1;
+    // Flags a subclass can use, numbered from 0
+    protected static final int MAX_FLAGS = Integer.SIZE - RENTAL_BITS;
+    private static final AtomicIntegerFieldUpdater<Vehicle> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Vehicle.class, "state");
+    private static final AtomicReferenceFieldUpdater<Vehicle, RatingHistogram> RATINGS =
+            AtomicReferenceFieldUpdater.newUpdater(Vehicle.class, RatingHistogram.class, "ratings");
 
     // Constructor
     protected Vehicle(String vehicleId, String model, double baseRentalRate) {
@@ -34,10 +67,8 @@ public abstract class Vehicle implements Rentable, Ratable, FeatureAssignable {
         this.vehicleId = vehicleId;
         this.model = model;
         this.baseRentalRate = baseRentalRate;
-        this.isAvailable = true; // Default availability
-        this.ratings = new ArrayList<>();
-        this.features = new ArrayList<>();
-        this.availableForRental = availableForRental;
+        this.state = AVAILABLE; // Default availability
+        this.dailyRate = baseRentalRate;
     }
 
     public static Car createCar(String vehicleId, String model, double rate, boolean gps, boolean childSeat, boolean sunroof) {
@@ -87,11 +118,121 @@ public abstract class Vehicle implements Rentable, Ratable, FeatureAssignable {
     }*/
 
     public boolean isAvailable() {
-        return isAvailable;
+        return (state & RENTAL_MASK) == AVAILABLE;
     }
 
     public void setAvailable(boolean available) {
-        isAvailable = available;
+        setRentalState(available ? AVAILABLE : RENTED);
+        notifyAvailability(available);
+    }
+
+    // The flags share the word with the rental state, so both are changed
+    // with a compare-and-set that keeps the other part
+    protected final boolean hasFlag(int flag) {
+        return (state & flagBit(flag)) != 0;
+    }
+
+    protected final void setFlag(int flag, boolean on) {
+        int bit = flagBit(flag);
+        int s;
+        do {
+            s = state;
+        } while (!STATE.compareAndSet(this, s, on ? s | bit : s & ~bit));
+    }
+
+    private static int flagBit(int flag) {
+        if (flag < 0 || flag >= MAX_FLAGS) {
+            throw new IllegalArgumentException("Flag must be between 0 and " + (MAX_FLAGS - 1));
+        }
+        return 1 << (flag + RENTAL_BITS);
+    }
+
+    private void setRentalState(int rentalState) {
+        int s;
+        do {
+            s = state;
+        } while (!STATE.compareAndSet(this, s, (s & ~RENTAL_MASK) | rentalState));
+    }
+
+    // Moves from one rental state to another; false if the vehicle wasn't in
+    // the first
+    private boolean moveRentalState(int from, int to) {
+        int s;
+        do {
+            s = state;
+            if ((s & RENTAL_MASK) != from) {
+                return false;
+            }
+        } while (!STATE.compareAndSet(this, s, (s & ~RENTAL_MASK) | to));
+        return true;
+    }
+
+    public abstract VehicleType getType();
+
+    public int getSlot() {
+        return slot;
+    }
+
+    // Called by the fleet that owns this vehicle so it can keep its indexes in step
+    public synchronized void attach(int slot, AvailabilityListener listener) {
+        if (availabilityListener != null) {
+            throw new IllegalStateException("Vehicle " + vehicleId + " already belongs to a fleet.");
+        }
+        this.slot = slot;
+        this.availabilityListener = listener;
+        listener.dailyRateChanged(this, 0, dailyRate);
+    }
+
+    public synchronized void detach() {
+        AvailabilityListener listener = availabilityListener;
+        this.availabilityListener = null;
+        this.slot = -1;
+        if (listener != null) {
+            listener.dailyRateChanged(this, dailyRate, 0);
+        }
+    }
+
+    // Listeners are told after a change is published. Two changes in quick
+    // succession can be reported out of order, so a listener re-reads the
+    // vehicle rather than trusting the value it is passed.
+    private void notifyAvailability(boolean available) {
+        AvailabilityListener listener = availabilityListener;
+        if (listener != null) {
+            listener.availabilityChanged(this, available);
+        }
+    }
+
+    // Atomically moves the vehicle from available to rented and books it against
+    // the customer. If the customer has no free rental slot the vehicle is put back.
+    protected void claim(Customer customer, int days) {
+        if (!moveRentalState(AVAILABLE, RENTING)) {
+            throw new IllegalStateException("Vehicle is already rented.");
+        }
+        try {
+            customer.addCurrentRental(this, days);
+        } catch (RuntimeException e) {
+            setRentalState(AVAILABLE);
+            throw e;
+        }
+        currentRenter = customer;
+        setRentalState(RENTED);
+        notifyAvailability(false);
+    }
+
+    // Atomically moves the vehicle from rented back to available, clearing the
+    // current renter. Returns false if the vehicle was not rented.
+    protected boolean release() {
+        if (!moveRentalState(RENTED, RETURNING)) {
+            return false;
+        }
+        Customer renter = currentRenter;
+        currentRenter = null;
+        if (renter != null) {
+            renter.removeCurrentRental(this);
+        }
+        setRentalState(AVAILABLE);
+        notifyAvailability(true);
+        return true;
     }
 
     // Abstract methods
@@ -99,49 +240,161 @@ public abstract class Vehicle implements Rentable, Ratable, FeatureAssignable {
 
   //  public abstract boolean isAvailableForRental();
   public boolean isAvailableForRental() {
-      return availableForRental;
+      return isAvailable();
   }
-    public void setAvailableForRental(boolean availableForRental) {
-        this.availableForRental = availableForRental;
-    }
     @Override
     public String toString() {
         return "Vehicle{" +
                 "vehicleId='" + vehicleId + '\'' +
                 ", model='" + model + '\'' +
                 ", baseRentalRate=" + baseRentalRate +
-                ", isAvailable=" + isAvailable +
-                ", features=" + features +
+                ", isAvailable=" + isAvailable() +
+                ", features=" + getFeatures() +
                 '}';
     }
 
+    // Ratings are counted per value, so adding one doesn't need the vehicle's
+    // lock; only telling the owning fleet does
     public void addRating(int rating) {
-        if (rating < 1 || rating > 5) {
+        if (rating < RatingHistogram.MIN_RATING || rating > RatingHistogram.MAX_RATING) {
             throw new IllegalArgumentException("Rating must be between 1 and 5.");
         }
-        ratings.add(rating);
+        ratingsToAdd().add(rating);
+        notifyRatings();
     }
 
-    // Method to calculate the average rating
-    public double getAverageRating() {
-        if (ratings.isEmpty()) {
-            return 0.0; // Default if no ratings
+    @Override
+    public void addRatings(RatingHistogram more) {
+        if (more.getCount() == 0) {
+            return;
+        }
+        ratingsToAdd().addAll(more);
+        notifyRatings();
+    }
+
+    // The histogram to read, the shared empty one before the first rating
+    private RatingHistogram ratings() {
+        RatingHistogram current = ratings;
+        return current != null ? current : NO_RATINGS;
+    }
+
+    // The histogram to add to, made on the first rating
+    private RatingHistogram ratingsToAdd() {
+        RatingHistogram current = ratings;
+        if (current == null) {
+            RATINGS.compareAndSet(this, null, new RatingHistogram());
+            current = ratings;
+        }
+        return current;
+    }
+
+    // Each call reads the totals after its own rating, and calls are ordered by
+    // the lock, so the last one the fleet hears has every rating in it
+    private void notifyRatings() {
+        if (availabilityListener == null) {
+            return;
+        }
+        synchronized (this) {
+            AvailabilityListener listener = availabilityListener;
+            if (listener != null) {
+                RatingHistogram current = ratings();
+                listener.ratingsChanged(this, current.getSum(), current.getCount());
+            }
         }
-        return ratings.stream().mapToInt(Integer::intValue).average().orElse(0.0);
     }
 
     @Override
-    public void addFeature(Feature feature) {
-        features.add(feature);
+    public RatingHistogram getRatingHistogram() {
+        return ratings().copy();
+    }
+
+    // 0.0 if there are no ratings yet
+    public double getAverageRating() {
+        return ratings().getAverage();
     }
 
+    public int getRatingCount() {
+        return ratings().getCount();
+    }
+
+    // The only way the daily rate changes, so the cached rate is updated here
+    // and the owning fleet is told while the vehicle is still locked. The
+    // feature is swapped for the catalog's shared copy; adding one the
+    // vehicle already has changes nothing.
+    @Override
+    public synchronized void addFeature(Feature feature) {
+        Feature shared = FeatureCatalog.intern(feature);
+        int id = shared.getId();
+        long[] bits = featureBits;
+        if ((id >>> 6) < bits.length && (bits[id >>> 6] & (1L << id)) != 0) {
+            return;
+        }
+        long[] grown = Arrays.copyOf(bits, Math.max(bits.length, (id >>> 6) + 1));
+        grown[id >>> 6] |= 1L << id;
+        double before = dailyRate;
+        featureBits = grown;
+        dailyRate = before + shared.getAdditionalCost();
+        AvailabilityListener listener = availabilityListener;
+        if (listener != null) {
+            listener.dailyRateChanged(this, before, dailyRate);
+        }
+    }
+
+    // The catalog's features, in ID order. A copy, so features can't be
+    // added around addFeature.
     public List<Feature> getFeatures() {
-        return features;
+        long[] bits = featureBits;
+        List<Feature> features = new ArrayList<>();
+        for (int word = 0; word < bits.length; word++) {
+            for (long w = bits[word]; w != 0; w &= w - 1) {
+                features.add(FeatureCatalog.byId((word << 6) + Long.numberOfTrailingZeros(w)));
+            }
+        }
+        return Collections.unmodifiableList(features);
+    }
+
+    public boolean hasFeature(Feature feature) {
+        Feature shared = feature.getId() >= 0 ? feature
+                : FeatureCatalog.find(feature.getName(), feature.getAdditionalCost());
+        return shared != null && hasFeatureId(shared.getId());
+    }
+
+    // Whether the vehicle has a feature with this name, at any cost
+    public boolean hasFeature(String name) {
+        for (int id : FeatureCatalog.idsNamed(name)) {
+            if (hasFeatureId(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasFeatureId(int id) {
+        long[] bits = featureBits;
+        return (id >>> 6) < bits.length && (bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    // Bits for the catalog's first 64 features, bit i for ID i
+    public long getFeatureMask() {
+        long[] bits = featureBits;
+        return bits.length > 0 ? bits[0] : 0;
     }
 
     @Override
     public double calculateTotalFeatureCost() {
-        return features.stream().mapToDouble(Feature::getAdditionalCost).sum();
+        long[] bits = featureBits;
+        double cost = 0;
+        for (int word = 0; word < bits.length; word++) {
+            for (long w = bits[word]; w != 0; w &= w - 1) {
+                cost += FeatureCatalog.byId((word << 6) + Long.numberOfTrailingZeros(w)).getAdditionalCost();
+            }
+        }
+        return cost;
+    }
+
+    // Base rate plus every feature's surcharge
+    public double getDailyRate() {
+        return dailyRate;
     }
 
     @Override
@@ -158,7 +411,7 @@ public abstract class Vehicle implements Rentable, Ratable, FeatureAssignable {
     }
 
     public void rent(Customer customer, int days) {
-        if (!isAvailable) {
+        if (!isAvailable()) {
             throw new IllegalStateException("Vehicle is not available for rent.");
         }
 
@@ -166,11 +419,8 @@ public abstract class Vehicle implements Rentable, Ratable, FeatureAssignable {
             throw new IllegalStateException("Customer is not eligible for new rentals.");
         }
 
-        isAvailable = false;
-        currentRenter = customer;
-
-        // Add to customer's current rentals
-        customer.addCurrentRental(this, days);
+        // Mark as rented and add to customer's current rentals
+        claim(customer, days);
 
     }
 
@@ -203,15 +453,10 @@ public abstract class Vehicle implements Rentable, Ratable, FeatureAssignable {
         System.out.println("Car returned successfully.");
 
     }*/public void returnVehicle() {
-        System.out.println("Is Available before return: " + isAvailable());
-        if (isAvailable()) {
+        if (!release()) {
             throw new IllegalStateException("Vehicle is not currently rented");
         }
-        setAvailable(true);
-        if (currentRenter != null) {
-            currentRenter.removeCurrentRental(this);
-            currentRenter = null;
-        }
+        EventLog.get().log(EventType.VEHICLE_RETURNED, vehicleId, null);
     }
 }
 
@@ -0,0 +1,135 @@
+package com.rowusu.vehiclerental.model;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Vehicles to int values in one open-addressing table: a vehicle array and an
+ * int array side by side, probed from the hash of the vehicle's ID. There are
+ * no entry objects and no boxed values, and removal shifts the probe run back
+ * instead of leaving a tombstone, so once the table has grown to fit, puts and
+ * removes allocate nothing. The arrays aren't made until the first put.
+ *
+ * Not synchronized; the owner locks around changes. The size may be read from
+ * any thread.
+ */
+public final class VehicleIntMap {
+
+    private static final Vehicle[] NO_KEYS = new Vehicle[0];
+    private static final int[] NO_VALUES = new int[0];
+    private static final int INITIAL_CAPACITY = 4;
+
+    private Vehicle[] keys = NO_KEYS;
+    private int[] values = NO_VALUES;
+    private volatile int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Vehicle vehicle) {
+        return indexOf(vehicle) >= 0;
+    }
+
+    // The vehicle's value, or missing if it has none
+    public int get(Vehicle vehicle, int missing) {
+        int i = indexOf(vehicle);
+        return i >= 0 ? values[i] : missing;
+    }
+
+    public void put(Vehicle vehicle, int value) {
+        if (vehicle == null) {
+            throw new IllegalArgumentException("Vehicle cannot be null");
+        }
+        int i = indexOf(vehicle);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+        // At most half full, so probe runs stay short
+        if ((size + 1) * 2 > keys.length) {
+            resize(Math.max(INITIAL_CAPACITY, keys.length * 2));
+        }
+        insert(vehicle, value);
+        size++;
+    }
+
+    // False if the vehicle had no value
+    public boolean remove(Vehicle vehicle) {
+        int i = indexOf(vehicle);
+        if (i < 0) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        // Move later entries of the run back into the gap so lookups never
+        // stop short of them
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = null;
+        values[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public void forEach(ObjIntConsumer<Vehicle> action) {
+        Vehicle[] k = keys;
+        int[] v = values;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != null) {
+                action.accept(k[i], v[i]);
+            }
+        }
+    }
+
+    // Spread the ID's hash, which the string caches, over the low bits
+    private static int hash(Vehicle vehicle) {
+        int h = vehicle.getVehicleId().hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Vehicle vehicle) {
+        Vehicle[] k = keys;
+        if (vehicle == null || k.length == 0) {
+            return -1;
+        }
+        int mask = k.length - 1;
+        for (int i = hash(vehicle) & mask; k[i] != null; i = (i + 1) & mask) {
+            if (k[i] == vehicle || k[i].equals(vehicle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(Vehicle vehicle, int value) {
+        int mask = keys.length - 1;
+        int i = hash(vehicle) & mask;
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = vehicle;
+        values[i] = value;
+    }
+
+    private void resize(int capacity) {
+        Vehicle[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Vehicle[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.rowusu.vehiclerental.model;
+
+public enum VehicleType {
+    CAR("Car"),
+    MOTORCYCLE("Motorcycle"),
+    TRUCK("Truck");
+
+    private final String displayName;
+
+    VehicleType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // Parse a type name as used by the web front ends ("car", "Truck", ...)
+    public static VehicleType fromName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Vehicle type cannot be null");
+        }
+        for (VehicleType type : values()) {
+            if (type.displayName.equalsIgnoreCase(name.trim())) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown vehicle type: " + name);
+    }
+}
@@ -0,0 +1,107 @@
+package com.rowusu.vehiclerental.pricing;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.time.LocalDate;
+
+/**
+ * PricingRules compiled into flat tables. A quote is a few array reads and
+ * multiplies and allocates nothing: the per-day weekend and season factors
+ * are summed ahead of time over the compile window, so any rental inside it
+ * costs two prefix-sum reads however long it is. Rentals outside the window
+ * are priced a day at a time.
+ *
+ * Immutable, so one evaluator can serve any number of threads.
+ */
+public final class PriceEvaluator {
+
+    static final int LEAP_YEAR_DAYS = 366;
+
+    // Position of each month's first day in a leap year
+    private static final int[] MONTH_STARTS = {0, 31, 60, 91, 121, 152, 182, 213, 244, 274, 305, 335};
+
+    private final double[] typeSurcharges;
+    private final double[] durationFactors;
+    private final double[] loyaltyFactors;
+    private final double[] seasonFactors;
+    private final double weekendMultiplier;
+
+    // dayFactorSums[i] is the sum of the day factors of the window's first i days
+    private final long windowStart;
+    private final long windowEnd;
+    private final double[] dayFactorSums;
+
+    PriceEvaluator(double[] typeSurcharges, double[] durationFactors, double[] loyaltyFactors,
+                   double[] seasonFactors, double weekendMultiplier, long windowStart, long windowEnd) {
+        this.typeSurcharges = typeSurcharges;
+        this.durationFactors = durationFactors;
+        this.loyaltyFactors = loyaltyFactors;
+        this.seasonFactors = seasonFactors;
+        this.weekendMultiplier = weekendMultiplier;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.dayFactorSums = new double[(int) (windowEnd - windowStart) + 2];
+        for (long day = windowStart; day <= windowEnd; day++) {
+            int i = (int) (day - windowStart);
+            dayFactorSums[i + 1] = dayFactorSums[i] + dayFactor(LocalDate.ofEpochDay(day));
+        }
+    }
+
+    static int leapYearIndex(int month, int dayOfMonth) {
+        return MONTH_STARTS[month - 1] + dayOfMonth - 1;
+    }
+
+    // Loyalty tier for a Customer.getLoyaltyStatus value, or -1 if it isn't one
+    public static int tierOf(String status) {
+        for (int tier = 0; tier < PricingRules.LOYALTY_STATUSES.length; tier++) {
+            if (PricingRules.LOYALTY_STATUSES[tier].equals(status)) {
+                return tier;
+            }
+        }
+        return -1;
+    }
+
+    private double dayFactor(LocalDate date) {
+        double factor = seasonFactors[leapYearIndex(date.getMonthValue(), date.getDayOfMonth())];
+        if (date.getDayOfWeek().getValue() >= 6) {
+            factor *= weekendMultiplier;
+        }
+        return factor;
+    }
+
+    // The price of renting the vehicle to the customer from start for the
+    // given number of days; no days cost nothing
+    public double quote(Vehicle vehicle, Customer customer, LocalDate start, int days) {
+        return quote(vehicle.getType(), vehicle.getDailyRate(), tierOf(customer.getLoyaltyStatus()),
+                start.toEpochDay(), days);
+    }
+
+    // The same from raw values: a daily rate (base plus features), a loyalty
+    // tier (0 Bronze, 1 Silver, 2 Gold) and the first day as an epoch day
+    public double quote(VehicleType type, double dailyRate, int loyaltyTier, long startDay, int days) {
+        if (days <= 0) {
+            return 0.0;
+        }
+        if (loyaltyTier < 0 || loyaltyTier >= loyaltyFactors.length) {
+            throw new IllegalArgumentException("Unknown loyalty tier: " + loyaltyTier);
+        }
+        double rate = dailyRate + typeSurcharges[type.ordinal()];
+        double duration = durationFactors[Math.min(days, durationFactors.length - 1)];
+        return rate * dayFactors(startDay, days) * duration * loyaltyFactors[loyaltyTier];
+    }
+
+    // Sum of the day factors of [startDay, startDay + days)
+    private double dayFactors(long startDay, int days) {
+        long endDay = startDay + days - 1;
+        if (startDay >= windowStart && endDay <= windowEnd) {
+            return dayFactorSums[(int) (endDay - windowStart) + 1] - dayFactorSums[(int) (startDay - windowStart)];
+        }
+        double sum = 0;
+        for (long day = startDay; day <= endDay; day++) {
+            sum += dayFactor(LocalDate.ofEpochDay(day));
+        }
+        return sum;
+    }
+}
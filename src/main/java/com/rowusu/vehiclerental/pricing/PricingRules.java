@@ -0,0 +1,159 @@
+package com.rowusu.vehiclerental.pricing;
+
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Declarative pricing: per-type surcharges on the daily rate, weekend and
+ * seasonal multipliers per day, duration tiers and loyalty-tier discounts on
+ * the whole rental. With no rules a rental costs the vehicle's daily rate
+ * times its days, as Vehicle.calculateRentalCost does.
+ *
+ * Rules are only read by compile, which flattens them into a PriceEvaluator;
+ * changing them afterwards doesn't affect evaluators already compiled.
+ */
+public class PricingRules {
+
+    // Same statuses as Customer.getLoyaltyStatus, in PriceEvaluator tier order
+    static final String[] LOYALTY_STATUSES = {"Bronze", "Silver", "Gold"};
+
+    // Evaluators price dates this far either side of the compile date from tables
+    private static final int WINDOW_YEARS_BEFORE = 1;
+    private static final int WINDOW_YEARS_AFTER = 4;
+
+    private final Map<VehicleType, Double> typeSurcharges = new EnumMap<>(VehicleType.class);
+    private final TreeMap<Integer, Double> durationTiers = new TreeMap<>();
+    private final Map<String, Double> loyaltyDiscounts = new HashMap<>();
+    private final List<Season> seasons = new ArrayList<>();
+    private double weekendMultiplier = 1.0;
+
+    // Added to the daily rate of every vehicle of the type
+    public PricingRules typeSurcharge(VehicleType type, double perDay) {
+        if (type == null) {
+            throw new IllegalArgumentException("Vehicle type cannot be null");
+        }
+        if (perDay < 0) {
+            throw new IllegalArgumentException("Surcharge cannot be negative");
+        }
+        typeSurcharges.put(type, perDay);
+        return this;
+    }
+
+    // Rentals of at least minDays are multiplied by the multiplier; the longest
+    // tier that applies wins
+    public PricingRules durationTier(int minDays, double multiplier) {
+        if (minDays < 1) {
+            throw new IllegalArgumentException("Tier must start at one day or more");
+        }
+        checkMultiplier(multiplier);
+        durationTiers.put(minDays, multiplier);
+        return this;
+    }
+
+    // Saturdays and Sundays cost this many times a weekday
+    public PricingRules weekendMultiplier(double multiplier) {
+        checkMultiplier(multiplier);
+        this.weekendMultiplier = multiplier;
+        return this;
+    }
+
+    // Days from one date to another, inclusive and in any year, are multiplied
+    // by the multiplier. A season may wrap past New Year; overlapping seasons
+    // multiply.
+    public PricingRules season(MonthDay from, MonthDay to, double multiplier) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Season dates cannot be null");
+        }
+        checkMultiplier(multiplier);
+        seasons.add(new Season(from, to, multiplier));
+        return this;
+    }
+
+    // Percentage off the whole rental for a loyalty status (Bronze, Silver or Gold)
+    public PricingRules loyaltyDiscount(String status, double percent) {
+        if (PriceEvaluator.tierOf(status) < 0) {
+            throw new IllegalArgumentException("Unknown loyalty status: " + status);
+        }
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Discount must be between 0 and 100 percent");
+        }
+        loyaltyDiscounts.put(status, percent);
+        return this;
+    }
+
+    // Tables cover the year before this one through four years ahead
+    public PriceEvaluator compile() {
+        int year = LocalDate.now().getYear();
+        return compile(LocalDate.of(year - WINDOW_YEARS_BEFORE, 1, 1),
+                LocalDate.of(year + WINDOW_YEARS_AFTER + 1, 1, 1).minusDays(1));
+    }
+
+    // Quotes for rentals inside [from, to] come from precomputed day totals;
+    // others are priced a day at a time
+    public PriceEvaluator compile(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Window cannot end before it starts");
+        }
+        double[] surcharges = new double[VehicleType.values().length];
+        for (Map.Entry<VehicleType, Double> entry : typeSurcharges.entrySet()) {
+            surcharges[entry.getKey().ordinal()] = entry.getValue();
+        }
+
+        // One factor per day count up to the last tier; longer rentals use the last
+        int longest = durationTiers.isEmpty() ? 1 : durationTiers.lastKey();
+        double[] durationFactors = new double[longest + 1];
+        for (int days = 0; days <= longest; days++) {
+            Map.Entry<Integer, Double> tier = durationTiers.floorEntry(days);
+            durationFactors[days] = tier != null ? tier.getValue() : 1.0;
+        }
+
+        double[] loyaltyFactors = new double[LOYALTY_STATUSES.length];
+        for (int tier = 0; tier < LOYALTY_STATUSES.length; tier++) {
+            loyaltyFactors[tier] = 1.0 - loyaltyDiscounts.getOrDefault(LOYALTY_STATUSES[tier], 0.0) / 100.0;
+        }
+
+        // Indexed by the day's position in a leap year, so every year shares it
+        double[] seasonFactors = new double[PriceEvaluator.LEAP_YEAR_DAYS];
+        Arrays.fill(seasonFactors, 1.0);
+        for (Season season : seasons) {
+            int first = PriceEvaluator.leapYearIndex(season.from.getMonthValue(), season.from.getDayOfMonth());
+            int last = PriceEvaluator.leapYearIndex(season.to.getMonthValue(), season.to.getDayOfMonth());
+            for (int i = first; ; i = (i + 1) % seasonFactors.length) {
+                seasonFactors[i] *= season.multiplier;
+                if (i == last) {
+                    break;
+                }
+            }
+        }
+
+        return new PriceEvaluator(surcharges, durationFactors, loyaltyFactors, seasonFactors,
+                weekendMultiplier, from.toEpochDay(), to.toEpochDay());
+    }
+
+    private static void checkMultiplier(double multiplier) {
+        if (!(multiplier > 0) || Double.isInfinite(multiplier)) {
+            throw new IllegalArgumentException("Multiplier must be positive");
+        }
+    }
+
+    private static final class Season {
+        private final MonthDay from;
+        private final MonthDay to;
+        private final double multiplier;
+
+        Season(MonthDay from, MonthDay to, double multiplier) {
+            this.from = from;
+            this.to = to;
+            this.multiplier = multiplier;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.rowusu.vehiclerental.pricing;
+
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers recent quotes from one evaluator, for partners who ask for the
+ * same prices over and over. The key is every input to the price: type,
+ * daily rate, loyalty tier, first day and days. A vehicle that gains a
+ * feature or changes rate therefore looks up a different key, and its old
+ * quotes are never served. New rules mean a new evaluator and a new cache.
+ *
+ * Direct-mapped with a fixed number of slots, so it never grows: a quote
+ * replaces whatever shared its slot. Lookups and inserts are lock-free, and
+ * a hit allocates nothing.
+ */
+public final class QuoteCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final PriceEvaluator evaluator;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Capacity is rounded up to a power of two
+    public QuoteCache(PriceEvaluator evaluator, int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int slotCount = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.evaluator = evaluator;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+    }
+
+    public PriceEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    // Same arguments and result as PriceEvaluator.quote
+    public double quote(VehicleType type, double dailyRate, int loyaltyTier, long startDay, int days) {
+        long rateBits = Double.doubleToLongBits(dailyRate);
+        int slot = hash(type.ordinal(), rateBits, loyaltyTier, startDay, days) & mask;
+        Entry entry = slots.get(slot);
+        if (entry != null && entry.matches(type.ordinal(), rateBits, loyaltyTier, startDay, days)) {
+            hits.increment();
+            return entry.price;
+        }
+        misses.increment();
+        double price = evaluator.quote(type, dailyRate, loyaltyTier, startDay, days);
+        Entry previous = slots.getAndSet(slot,
+                new Entry(type.ordinal(), rateBits, loyaltyTier, startDay, days, price));
+        if (previous == null) {
+            size.incrementAndGet();
+        } else {
+            evictions.increment();
+        }
+        return price;
+    }
+
+    private static int hash(int type, long rateBits, int tier, long startDay, int days) {
+        long h = rateBits * 0x9E3779B97F4A7C15L;
+        h = (h ^ startDay) * 0x9E3779B97F4A7C15L;
+        h = (h ^ ((long) days << 8 | (long) tier << 4 | type)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Quotes pushed out by another that mapped to the same slot
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // Share of lookups served from the cache, 0.0 before the first
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    private static final class Entry {
+        private final int type;
+        private final long rateBits;
+        private final int tier;
+        private final long startDay;
+        private final int days;
+        private final double price;
+
+        Entry(int type, long rateBits, int tier, long startDay, int days, double price) {
+            this.type = type;
+            this.rateBits = rateBits;
+            this.tier = tier;
+            this.startDay = startDay;
+            this.days = days;
+            this.price = price;
+        }
+
+        boolean matches(int type, long rateBits, int tier, long startDay, int days) {
+            return this.rateBits == rateBits && this.startDay == startDay && this.days == days
+                    && this.type == type && this.tier == tier;
+        }
+    }
+}
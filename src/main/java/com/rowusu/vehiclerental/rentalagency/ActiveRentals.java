@@ -0,0 +1,187 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Vehicle;
+
+import java.util.function.BiConsumer;
+
+/**
+ * The agency's rented vehicles and who has them, as open-addressing tables
+ * probed from the hash of the vehicle's ID: a vehicle array and a customer
+ * array side by side, with no entry objects. Removal shifts the probe run
+ * back rather than leaving a tombstone, so once the tables have grown to the
+ * fleet's busiest point, renting and returning allocate nothing.
+ *
+ * The vehicles are split over stripes by hash, each locked on its own, so
+ * rentals of different vehicles rarely wait on each other.
+ */
+class ActiveRentals {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    // The stripe count is rounded up to a power of two
+    ActiveRentals(int stripeCount) {
+        int count = 1;
+        while (count < stripeCount) {
+            count <<= 1;
+        }
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = count - 1;
+    }
+
+    void put(Vehicle vehicle, Customer customer) {
+        int hash = hash(vehicle);
+        stripeFor(hash).put(vehicle, hash, customer);
+    }
+
+    // The vehicle's renter, or null if it isn't rented through the agency
+    Customer get(Vehicle vehicle) {
+        int hash = hash(vehicle);
+        return stripeFor(hash).get(vehicle, hash);
+    }
+
+    boolean containsKey(Vehicle vehicle) {
+        return get(vehicle) != null;
+    }
+
+    // The renter the vehicle was removed from, or null if it had none; only
+    // one of several callers removing the same vehicle gets the renter
+    Customer remove(Vehicle vehicle) {
+        int hash = hash(vehicle);
+        return stripeFor(hash).remove(vehicle, hash);
+    }
+
+    boolean isEmpty() {
+        for (Stripe stripe : stripes) {
+            if (stripe.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    // Visits each stripe under its lock, so the action mustn't rent or return
+    void forEach(BiConsumer<Vehicle, Customer> action) {
+        for (Stripe stripe : stripes) {
+            stripe.forEach(action);
+        }
+    }
+
+    private Stripe stripeFor(int hash) {
+        // High bits pick the stripe, low bits the position within it
+        return stripes[(hash >>> 24) & stripeMask];
+    }
+
+    private static int hash(Vehicle vehicle) {
+        int h = vehicle.getVehicleId().hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Stripe {
+
+        private Vehicle[] vehicles = new Vehicle[INITIAL_CAPACITY];
+        private Customer[] renters = new Customer[INITIAL_CAPACITY];
+        private volatile int size;
+
+        synchronized void put(Vehicle vehicle, int hash, Customer customer) {
+            int i = indexOf(vehicle, hash);
+            if (i >= 0) {
+                renters[i] = customer;
+                return;
+            }
+            // At most half full, so probe runs stay short
+            if ((size + 1) * 2 > vehicles.length) {
+                resize(vehicles.length * 2);
+            }
+            insert(vehicle, hash, customer);
+            size++;
+        }
+
+        synchronized Customer get(Vehicle vehicle, int hash) {
+            int i = indexOf(vehicle, hash);
+            return i >= 0 ? renters[i] : null;
+        }
+
+        synchronized Customer remove(Vehicle vehicle, int hash) {
+            int i = indexOf(vehicle, hash);
+            if (i < 0) {
+                return null;
+            }
+            Customer renter = renters[i];
+            removeAt(i);
+            return renter;
+        }
+
+        synchronized void forEach(BiConsumer<Vehicle, Customer> action) {
+            for (int i = 0; i < vehicles.length; i++) {
+                if (vehicles[i] != null) {
+                    action.accept(vehicles[i], renters[i]);
+                }
+            }
+        }
+
+        private int indexOf(Vehicle vehicle, int hash) {
+            int mask = vehicles.length - 1;
+            for (int i = hash & mask; vehicles[i] != null; i = (i + 1) & mask) {
+                if (vehicles[i] == vehicle || vehicles[i].equals(vehicle)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Move later entries of the run back into the gap so lookups never
+        // stop short of them
+        private void removeAt(int i) {
+            int mask = vehicles.length - 1;
+            int gap = i;
+            for (int j = (i + 1) & mask; vehicles[j] != null; j = (j + 1) & mask) {
+                int home = hash(vehicles[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    vehicles[gap] = vehicles[j];
+                    renters[gap] = renters[j];
+                    gap = j;
+                }
+            }
+            vehicles[gap] = null;
+            renters[gap] = null;
+            size--;
+        }
+
+        private void insert(Vehicle vehicle, int hash, Customer customer) {
+            int mask = vehicles.length - 1;
+            int i = hash & mask;
+            while (vehicles[i] != null) {
+                i = (i + 1) & mask;
+            }
+            vehicles[i] = vehicle;
+            renters[i] = customer;
+        }
+
+        private void resize(int capacity) {
+            Vehicle[] oldVehicles = vehicles;
+            Customer[] oldRenters = renters;
+            vehicles = new Vehicle[capacity];
+            renters = new Customer[capacity];
+            for (int i = 0; i < oldVehicles.length; i++) {
+                if (oldVehicles[i] != null) {
+                    insert(oldVehicles[i], hash(oldVehicles[i]), oldRenters[i]);
+                }
+            }
+        }
+    }
+}
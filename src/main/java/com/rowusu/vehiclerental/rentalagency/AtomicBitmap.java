@@ -0,0 +1,87 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Growable bitmap whose bits can be flipped from many threads at once.
+ * Storage is split into fixed-size pages that are never copied, so growing
+ * the bitmap can't lose a concurrent update to an existing page.
+ */
+class AtomicBitmap {
+
+    private static final int PAGE_SHIFT = 10; // 1024 words (65536 bits) per page
+    private static final int PAGE_WORDS = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+
+    // Make sure bits [0, bits) are backed by a page
+    synchronized void ensureCapacity(int bits) {
+        int wordsNeeded = (bits + 63) >>> 6;
+        int pagesNeeded = (wordsNeeded + PAGE_WORDS - 1) >>> PAGE_SHIFT;
+        AtomicLongArray[] current = pages;
+        if (pagesNeeded <= current.length) {
+            return;
+        }
+        AtomicLongArray[] grown = new AtomicLongArray[pagesNeeded];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        for (int i = current.length; i < pagesNeeded; i++) {
+            grown[i] = new AtomicLongArray(PAGE_WORDS);
+        }
+        pages = grown;
+    }
+
+    // Returns whether the bit was clear before
+    boolean set(int bit) {
+        int word = bit >>> 6;
+        AtomicLongArray page = pages[word >>> PAGE_SHIFT];
+        int index = word & PAGE_MASK;
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = page.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(index, current, current | mask));
+        return true;
+    }
+
+    // Returns whether the bit was set before
+    boolean clear(int bit) {
+        int word = bit >>> 6;
+        AtomicLongArray page = pages[word >>> PAGE_SHIFT];
+        int index = word & PAGE_MASK;
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = page.get(index);
+            if ((current & mask) == 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(index, current, current & ~mask));
+        return true;
+    }
+
+    boolean get(int bit) {
+        int word = bit >>> 6;
+        AtomicLongArray[] current = pages;
+        if ((word >>> PAGE_SHIFT) >= current.length) {
+            return false;
+        }
+        return (current[word >>> PAGE_SHIFT].get(word & PAGE_MASK) & (1L << bit)) != 0;
+    }
+
+    // Number of 64-bit words currently backed by storage
+    int wordCount() {
+        return pages.length << PAGE_SHIFT;
+    }
+
+    long word(int word) {
+        AtomicLongArray[] current = pages;
+        if ((word >>> PAGE_SHIFT) >= current.length) {
+            return 0L;
+        }
+        return current[word >>> PAGE_SHIFT].get(word & PAGE_MASK);
+    }
+}
@@ -0,0 +1,255 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.interfaces.AvailabilityListener;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense bitmap index over the fleet. Every vehicle gets a slot; one bitmap
+ * marks which slots are available and one per vehicle type marks which slots
+ * hold that type, so availability queries are a handful of word operations
+ * instead of a walk over every Vehicle.
+ */
+public class AvailabilityIndex implements AvailabilityListener {
+
+    private final AtomicBitmap available = new AtomicBitmap();
+    private final Map<VehicleType, AtomicBitmap> byType = new EnumMap<>(VehicleType.class);
+
+    // Set bits in the available bitmap, adjusted only when a bit actually flips
+    private final AtomicInteger availableCount = new AtomicInteger();
+
+    // Slot -> vehicle, plus a stack of slots freed by removed vehicles
+    private volatile Vehicle[] slots = new Vehicle[64];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private volatile int nextSlot;
+
+    // Told each registered vehicle's daily rate, or null if nobody keeps the total
+    private final ReportAggregates aggregates;
+
+    // Column copy of the registered vehicles kept in the same slots, or null
+    private final FleetColumns columns;
+
+    public AvailabilityIndex() {
+        this(null, null);
+    }
+
+    AvailabilityIndex(ReportAggregates aggregates, FleetColumns columns) {
+        this.aggregates = aggregates;
+        this.columns = columns;
+        for (VehicleType type : VehicleType.values()) {
+            byType.put(type, new AtomicBitmap());
+        }
+    }
+
+    // Give the vehicle a slot and start tracking its availability
+    public synchronized void register(Vehicle vehicle) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        if (slot >= slots.length) {
+            Vehicle[] grown = new Vehicle[Math.max(slots.length * 2, slot + 1)];
+            System.arraycopy(slots, 0, grown, 0, slots.length);
+            slots = grown;
+        }
+        available.ensureCapacity(slot + 1);
+        byType.get(vehicle.getType()).ensureCapacity(slot + 1);
+
+        // Columns first, so the slot exists before the vehicle can report to it
+        if (columns != null) {
+            columns.put(slot, vehicle);
+        }
+        vehicle.attach(slot, this);
+        slots[slot] = vehicle;
+        byType.get(vehicle.getType()).set(slot);
+        // Attached first, so any rent or return from here on reports to us too
+        syncAvailability(vehicle, slot);
+    }
+
+    // Stop tracking the vehicle and free its slot for reuse
+    public synchronized void unregister(Vehicle vehicle) {
+        int slot = vehicle.getSlot();
+        if (slot < 0 || slots[slot] != vehicle) {
+            return;
+        }
+        vehicle.detach();
+        if (columns != null) {
+            columns.clear(slot);
+        }
+        clearAvailable(slot);
+        byType.get(vehicle.getType()).clear(slot);
+        slots[slot] = null;
+        if (freeCount == freeSlots.length) {
+            int[] grown = new int[freeSlots.length * 2];
+            System.arraycopy(freeSlots, 0, grown, 0, freeCount);
+            freeSlots = grown;
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    // The vehicle is re-read rather than trusting isAvailable, which a later
+    // rent or return may already have replaced
+    @Override
+    public void availabilityChanged(Vehicle vehicle, boolean isAvailable) {
+        int slot = vehicle.getSlot();
+        if (slot >= 0) {
+            syncAvailability(vehicle, slot);
+        }
+    }
+
+    @Override
+    public void dailyRateChanged(Vehicle vehicle, double before, double after) {
+        if (aggregates != null) {
+            aggregates.dailyRateChanged(before, after);
+        }
+        // Attach and detach are covered by register and unregister
+        int slot = vehicle.getSlot();
+        if (columns != null && slot >= 0 && before != 0 && after != 0) {
+            columns.setDailyRate(slot, after, vehicle.getFeatureMask());
+        }
+    }
+
+    @Override
+    public void ratingsChanged(Vehicle vehicle, long ratingSum, int ratingCount) {
+        int slot = vehicle.getSlot();
+        if (columns != null && slot >= 0) {
+            columns.setRatings(slot, ratingSum, ratingCount);
+        }
+    }
+
+    // Copy the vehicle's availability into the slot, and again if it changed
+    // while being copied. Every change is followed by a call to this, so
+    // whichever call copies last leaves the slot matching the vehicle.
+    private void syncAvailability(Vehicle vehicle, int slot) {
+        boolean isAvailable;
+        do {
+            isAvailable = vehicle.isAvailable();
+            if (isAvailable) {
+                setAvailable(slot);
+            } else {
+                clearAvailable(slot);
+            }
+            if (columns != null) {
+                columns.setAvailable(slot, isAvailable);
+            }
+        } while (vehicle.isAvailable() != isAvailable);
+    }
+
+    private void setAvailable(int slot) {
+        if (available.set(slot)) {
+            availableCount.incrementAndGet();
+        }
+    }
+
+    private void clearAvailable(int slot) {
+        if (available.clear(slot)) {
+            availableCount.decrementAndGet();
+        }
+    }
+
+    public boolean isAvailable(Vehicle vehicle) {
+        int slot = vehicle.getSlot();
+        return slot >= 0 && available.get(slot);
+    }
+
+    public int countAvailable() {
+        return availableCount.get();
+    }
+
+    public int countAvailable(VehicleType type) {
+        AtomicBitmap typeBits = byType.get(type);
+        int count = 0;
+        int words = wordsInUse();
+        for (int i = 0; i < words; i++) {
+            count += Long.bitCount(available.word(i) & typeBits.word(i));
+        }
+        return count;
+    }
+
+    public List<Vehicle> availableVehicles() {
+        return collect(null);
+    }
+
+    public List<Vehicle> availableVehicles(VehicleType type) {
+        return collect(byType.get(type));
+    }
+
+    // First available vehicle of the given type, or null if none is free
+    public Vehicle firstAvailable(VehicleType type) {
+        AtomicBitmap typeBits = byType.get(type);
+        Vehicle[] table = slots;
+        int words = wordsInUse();
+        for (int i = 0; i < words; i++) {
+            long bits = available.word(i) & typeBits.word(i);
+            while (bits != 0) {
+                int slot = (i << 6) + Long.numberOfTrailingZeros(bits);
+                Vehicle vehicle = slot < table.length ? table[slot] : null;
+                if (vehicle != null) {
+                    return vehicle;
+                }
+                bits &= bits - 1;
+            }
+        }
+        return null;
+    }
+
+    // Registered vehicles of the given type (or any type if null) whose slots
+    // are clear in every one of the busy bitmaps
+    List<Vehicle> unbooked(VehicleType type, List<AtomicBitmap> busy) {
+        List<Vehicle> result = new ArrayList<>();
+        Vehicle[] table = slots;
+        int words = wordsInUse();
+        for (int i = 0; i < words; i++) {
+            long bits = 0L;
+            if (type != null) {
+                bits = byType.get(type).word(i);
+            } else {
+                for (AtomicBitmap typeBits : byType.values()) {
+                    bits |= typeBits.word(i);
+                }
+            }
+            for (int b = 0; b < busy.size() && bits != 0; b++) {
+                bits &= ~busy.get(b).word(i);
+            }
+            while (bits != 0) {
+                int slot = (i << 6) + Long.numberOfTrailingZeros(bits);
+                Vehicle vehicle = slot < table.length ? table[slot] : null;
+                if (vehicle != null) {
+                    result.add(vehicle);
+                }
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    // Only scan words that have ever held a slot
+    private int wordsInUse() {
+        return Math.min((nextSlot + 63) >>> 6, available.wordCount());
+    }
+
+    private List<Vehicle> collect(AtomicBitmap typeBits) {
+        List<Vehicle> result = new ArrayList<>();
+        Vehicle[] table = slots;
+        int words = wordsInUse();
+        for (int i = 0; i < words; i++) {
+            long bits = available.word(i);
+            if (typeBits != null) {
+                bits &= typeBits.word(i);
+            }
+            while (bits != 0) {
+                int slot = (i << 6) + Long.numberOfTrailingZeros(bits);
+                Vehicle vehicle = slot < table.length ? table[slot] : null;
+                if (vehicle != null) {
+                    result.add(vehicle);
+                }
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+}
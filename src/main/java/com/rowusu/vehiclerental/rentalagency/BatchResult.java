@@ -0,0 +1,49 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+/**
+ * Outcome of one item in a batch rental or return.
+ */
+public class BatchResult {
+
+    private final int index;
+    private final String vehicleId;
+    private final boolean success;
+    private final String message;
+
+    BatchResult(int index, String vehicleId, boolean success, String message) {
+        this.index = index;
+        this.vehicleId = vehicleId;
+        this.success = success;
+        this.message = message;
+    }
+
+    static BatchResult succeeded(int index, String vehicleId) {
+        return new BatchResult(index, vehicleId, true, "OK");
+    }
+
+    static BatchResult failed(int index, String vehicleId, String message) {
+        return new BatchResult(index, vehicleId, false, message);
+    }
+
+    // Position of the item in the submitted batch
+    public int getIndex() {
+        return index;
+    }
+
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + index + " " + vehicleId + ": " + (success ? "OK" : message);
+    }
+}
@@ -0,0 +1,43 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Which AvailabilityIndex slots are booked on each day, as one bitmap per day
+ * that has any booking. The vehicles free over a date range are then the
+ * registered slots minus the OR of those days' bitmaps, a few word operations
+ * per 64 vehicles instead of a calendar lookup per vehicle.
+ */
+class BookedDays {
+
+    // Epoch day -> slots booked that day
+    private final ConcurrentSkipListMap<Long, AtomicBitmap> days = new ConcurrentSkipListMap<>();
+
+    void mark(int slot, LocalDate from, LocalDate to) {
+        for (long day = from.toEpochDay(); day <= to.toEpochDay(); day++) {
+            AtomicBitmap bits = days.computeIfAbsent(day, d -> new AtomicBitmap());
+            bits.ensureCapacity(slot + 1);
+            bits.set(slot);
+        }
+    }
+
+    void unmark(int slot, LocalDate from, LocalDate to) {
+        for (long day = from.toEpochDay(); day <= to.toEpochDay(); day++) {
+            AtomicBitmap bits = days.get(day);
+            if (bits != null) {
+                bits.clear(slot);
+            }
+        }
+    }
+
+    // Bitmaps of the days in [from, to] that have had a booking
+    List<AtomicBitmap> between(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(days.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values());
+    }
+}
@@ -0,0 +1,286 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.FeatureCatalog;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.reports.FleetSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fleet as parallel primitive columns indexed by availability slot: ID,
+ * type code, availability, base and daily rate, rating sum and count, and a
+ * bitmask of the feature catalog's first 64 features. A fleet-wide scan walks a few flat arrays instead of
+ * following each Vehicle to its fields, histogram and feature list.
+ *
+ * Columns live in fixed chunks of 1024 slots that never move once created,
+ * so the vehicles can write their own slot without a lock while the index
+ * adds chunks. Each slot is written by one vehicle at a time: availability in
+ * its transient rent and return states, rates and ratings under its lock. A
+ * scan running alongside updates may see some of them and not others, like
+ * the report aggregates.
+ */
+public class FleetColumns {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    // Type code of an empty slot; a vehicle's is its type's ordinal + 1
+    private static final byte NONE = 0;
+
+    private volatile Chunk[] chunks = new Chunk[4];
+    // One past the highest slot ever filled, so scans stop at the last chunk in use
+    private volatile int slotLimit;
+
+    // Guarded by the availability index, which owns the slots
+    void put(int slot, Vehicle vehicle) {
+        int c = slot >>> CHUNK_BITS;
+        Chunk[] table = chunks;
+        if (c >= table.length || table[c] == null) {
+            Chunk[] grown = table;
+            if (c >= table.length) {
+                grown = new Chunk[Math.max(table.length * 2, c + 1)];
+                System.arraycopy(table, 0, grown, 0, table.length);
+            }
+            grown[c] = new Chunk();
+            chunks = grown;
+        }
+        Chunk chunk = chunks[c];
+        int i = slot & CHUNK_MASK;
+        chunk.vehicles[i] = vehicle;
+        chunk.ids[i] = vehicle.getVehicleId();
+        chunk.types[i] = (byte) (vehicle.getType().ordinal() + 1);
+        chunk.available[i] = (byte) (vehicle.isAvailable() ? 1 : 0);
+        chunk.baseRates[i] = vehicle.getBaseRentalRate();
+        chunk.dailyRates[i] = vehicle.getDailyRate();
+        chunk.ratingSums[i] = vehicle.getRatingHistogram().getSum();
+        chunk.ratingCounts[i] = vehicle.getRatingCount();
+        chunk.featureMasks[i] = vehicle.getFeatureMask();
+        if (slot >= slotLimit) {
+            slotLimit = slot + 1;
+        }
+    }
+
+    // Guarded by the availability index. Zeroed so sums can skip the type check.
+    void clear(int slot) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        int i = slot & CHUNK_MASK;
+        chunk.vehicles[i] = null;
+        chunk.ids[i] = null;
+        chunk.types[i] = NONE;
+        chunk.available[i] = 0;
+        chunk.baseRates[i] = 0;
+        chunk.dailyRates[i] = 0;
+        chunk.ratingSums[i] = 0;
+        chunk.ratingCounts[i] = 0;
+        chunk.featureMasks[i] = 0;
+    }
+
+    void setAvailable(int slot, boolean available) {
+        chunks[slot >>> CHUNK_BITS].available[slot & CHUNK_MASK] = (byte) (available ? 1 : 0);
+    }
+
+    // The rate only changes when a feature is added, so the mask comes too
+    void setDailyRate(int slot, double dailyRate, long featureMask) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        chunk.dailyRates[slot & CHUNK_MASK] = dailyRate;
+        chunk.featureMasks[slot & CHUNK_MASK] = featureMask;
+    }
+
+    void setRatings(int slot, long sum, int count) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        chunk.ratingSums[slot & CHUNK_MASK] = sum;
+        chunk.ratingCounts[slot & CHUNK_MASK] = count;
+    }
+
+    public int count(VehicleType type) {
+        byte code = (byte) (type.ordinal() + 1);
+        int count = 0;
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            byte[] types = chunk.types;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                count += types[i] == code ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    public int countAvailable(VehicleType type) {
+        byte code = (byte) (type.ordinal() + 1);
+        int count = 0;
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            byte[] types = chunk.types;
+            byte[] available = chunk.available;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                count += types[i] == code ? available[i] : 0;
+            }
+        }
+        return count;
+    }
+
+    // Sum of every vehicle's daily rate; empty slots hold 0
+    public double getDailyPotential() {
+        double total = 0;
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            double[] rates = chunk.dailyRates;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                total += rates[i];
+            }
+        }
+        return total;
+    }
+
+    // Average of every rating any vehicle of the type has had, 0.0 if none
+    public double getAverageRating(VehicleType type) {
+        byte code = (byte) (type.ordinal() + 1);
+        long sum = 0;
+        long count = 0;
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            byte[] types = chunk.types;
+            long[] sums = chunk.ratingSums;
+            int[] counts = chunk.ratingCounts;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                if (types[i] == code) {
+                    sum += sums[i];
+                    count += counts[i];
+                }
+            }
+        }
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    // Vehicles that have a feature with this name, at any cost. The masks
+    // hold the catalog's first 64 features; past those the vehicles are asked.
+    public int countWithFeature(String name) {
+        long flag = 0;
+        for (int id : FeatureCatalog.idsNamed(name)) {
+            if (id >= Long.SIZE) {
+                return countFromVehicles(name);
+            }
+            flag |= 1L << id;
+        }
+        if (flag == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            long[] masks = chunk.featureMasks;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                count += (masks[i] & flag) != 0 ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    private int countFromVehicles(String name) {
+        int count = 0;
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            for (Vehicle vehicle : chunk.vehicles) {
+                if (vehicle != null && vehicle.hasFeature(name)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // IDs of the vehicles of the type, read from the ID column alone
+    public List<String> getVehicleIds(VehicleType type, boolean availableOnly) {
+        byte code = (byte) (type.ordinal() + 1);
+        List<String> result = new ArrayList<>();
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                if (chunk.types[i] == code && (!availableOnly || chunk.available[i] != 0)) {
+                    result.add(chunk.ids[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Vehicles of the type (any type if null) whose base rate is in
+    // [minRate, maxRate], in slot order
+    public List<Vehicle> search(VehicleType type, double minRate, double maxRate, boolean availableOnly) {
+        List<Vehicle> result = new ArrayList<>();
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            byte[] types = chunk.types;
+            byte[] available = chunk.available;
+            double[] rates = chunk.baseRates;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                if (types[i] == NONE || (type != null && types[i] != type.ordinal() + 1)) continue;
+                if (rates[i] < minRate || rates[i] > maxRate) continue;
+                if (availableOnly && available[i] == 0) continue;
+                Vehicle vehicle = chunk.vehicles[i];
+                if (vehicle != null) {
+                    result.add(vehicle);
+                }
+            }
+        }
+        return result;
+    }
+
+    // The same totals ReportEngine.summarizeFleet works out from the vehicles,
+    // in one pass over the columns
+    public FleetSummary summarize() {
+        int[] counts = new int[TYPES.length + 1];
+        int[] available = new int[TYPES.length + 1];
+        double[] ratings = new double[TYPES.length + 1];
+        double[] baseRates = new double[TYPES.length + 1];
+        double[] dailyRates = new double[TYPES.length + 1];
+        for (Chunk chunk : inUse()) {
+            if (chunk == null) continue;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                int code = chunk.types[i];
+                counts[code]++;
+                available[code] += chunk.available[i];
+                int rated = chunk.ratingCounts[i];
+                ratings[code] += rated > 0 ? (double) chunk.ratingSums[i] / rated : 0;
+                baseRates[code] += chunk.baseRates[i];
+                dailyRates[code] += chunk.dailyRates[i];
+            }
+        }
+        // Code 0 collected the empty slots
+        FleetSummary summary = new FleetSummary();
+        for (VehicleType type : TYPES) {
+            int code = type.ordinal() + 1;
+            summary.addGroup(type, counts[code], available[code], ratings[code], baseRates[code], dailyRates[code]);
+        }
+        return summary;
+    }
+
+    // Chunks up to the last slot ever filled; some entries may be null
+    private Chunk[] inUse() {
+        int limit = slotLimit;
+        Chunk[] table = chunks;
+        int used = Math.min(table.length, (limit + CHUNK_MASK) >>> CHUNK_BITS);
+        if (used == table.length) {
+            return table;
+        }
+        Chunk[] prefix = new Chunk[used];
+        System.arraycopy(table, 0, prefix, 0, used);
+        return prefix;
+    }
+
+    private static final class Chunk {
+        final Vehicle[] vehicles = new Vehicle[CHUNK_SIZE];
+        final String[] ids = new String[CHUNK_SIZE];
+        final byte[] types = new byte[CHUNK_SIZE];
+        final byte[] available = new byte[CHUNK_SIZE];
+        final double[] baseRates = new double[CHUNK_SIZE];
+        final double[] dailyRates = new double[CHUNK_SIZE];
+        final long[] ratingSums = new long[CHUNK_SIZE];
+        final int[] ratingCounts = new int[CHUNK_SIZE];
+        final long[] featureMasks = new long[CHUNK_SIZE];
+    }
+}
@@ -0,0 +1,35 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a rental history. The next page is requested with
+ * getNextCursor(), which is 0 once the last page has been served.
+ */
+public final class HistoryPage {
+
+    // Page sizes the web front ends use when none or too large a one is asked for
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 200;
+
+    private final List<RentalTransaction> transactions;
+    private final long nextCursor;
+
+    HistoryPage(List<RentalTransaction> transactions, long nextCursor) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<RentalTransaction> getTransactions() {
+        return transactions;
+    }
+
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != 0;
+    }
+}
@@ -0,0 +1,20 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+/**
+ * Fleet and customer records that haven't been turned into objects yet, such
+ * as those of a memory-mapped snapshot. The agency asks for a record the first
+ * time its ID is looked up, and for all of them before anything walks the
+ * whole fleet or customer list. Materialized records are registered through
+ * the agency's restore methods.
+ */
+public interface LazyRecords {
+
+    // Materialize and register the vehicle with this ID, if there is one pending
+    void materializeVehicle(String vehicleId);
+
+    // Materialize and register the customer with this ID, if there is one pending
+    void materializeCustomer(String customerId);
+
+    // Materialize and register every pending record. Returns once all are done.
+    void materializeAll();
+}
@@ -0,0 +1,327 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.RatingHistogram;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Customers kept outside the Java heap, for agencies with more of them than
+ * the heap should hold. Each customer is a fixed-width record in direct
+ * buffers: ID and name as references into an off-heap string table, loyalty
+ * points and the five rating counts. The ID index is an open-addressing table
+ * in a direct buffer too, so the heap holds a few buffer objects however many
+ * customers there are.
+ *
+ * A record is turned into a Customer when it's looked up, and that object is
+ * the agency's resident copy until the agency writes it back. While a customer
+ * is resident the object is the truth and the record only holds the ID.
+ * Every method locks the store; callers may hold that customer's lock.
+ */
+public class OffHeapCustomers {
+
+    private static final int RECORD_BYTES = 48;
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_RECORDS = 1 << PAGE_BITS;
+
+    // Record layout
+    private static final int ID = 0;
+    private static final int NAME = 8;
+    private static final int POINTS = 16;
+    private static final int RATINGS = 20;
+    private static final int STATE = 40;
+
+    private static final int AT_REST = 1;
+    private static final int RESIDENT = 2;
+    private static final int REMOVED = 3;
+
+    // Index entries are the ID's hash and the record number + 1, 0 when empty.
+    // 2^27 entries is a 1 GB buffer, the most one direct buffer can be doubled to.
+    private static final int ENTRY_BYTES = 8;
+    private static final int INITIAL_ENTRIES = 1 << 12;
+    private static final int MAX_ENTRIES = 1 << 27;
+
+    private final Strings strings = new Strings();
+    private ByteBuffer[] pages = new ByteBuffer[16];
+    private ByteBuffer index = ByteBuffer.allocateDirect(INITIAL_ENTRIES * ENTRY_BYTES);
+    private int indexMask = INITIAL_ENTRIES - 1;
+
+    // Records handed out, and those not removed
+    private int records;
+    private int live;
+
+    // Register a customer that stays resident, e.g. one just added. Fails if
+    // the ID is taken.
+    synchronized void add(Customer customer, Map<String, Customer> residents) {
+        int record = claim(customer.getCustomerId(), customer.getName());
+        write(record, customer);
+        setState(record, RESIDENT);
+        residents.put(customer.getCustomerId(), customer);
+    }
+
+    // Register a customer with no points or ratings straight into a record,
+    // without making an object for them
+    synchronized void addRecord(String customerId, String name) {
+        int record = claim(customerId, name);
+        ByteBuffer page = page(record);
+        int at = offset(record);
+        page.putInt(at + POINTS, 0);
+        for (int i = 0; i < 5; i++) {
+            page.putInt(at + RATINGS + 4 * i, 0);
+        }
+        setState(record, AT_REST);
+    }
+
+    // The resident customer with this ID, made from its record if it was at
+    // rest, or null if there is no such customer
+    synchronized Customer load(String customerId, Map<String, Customer> residents) {
+        int record = find(customerId);
+        if (record < 0) {
+            return null;
+        }
+        int state = state(record);
+        if (state == RESIDENT) {
+            return residents.get(customerId);
+        }
+        if (state != AT_REST) {
+            return null;
+        }
+        ByteBuffer page = page(record);
+        int at = offset(record);
+        Customer customer = new Customer(strings.get(page.getLong(at + NAME)), customerId);
+        int points = page.getInt(at + POINTS);
+        if (points > 0) {
+            customer.addLoyaltyPoints(points);
+        }
+        int[] counts = new int[5];
+        for (int i = 0; i < 5; i++) {
+            counts[i] = page.getInt(at + RATINGS + 4 * i);
+        }
+        customer.addRatings(RatingHistogram.fromCounts(counts));
+        setState(record, RESIDENT);
+        residents.put(customerId, customer);
+        return customer;
+    }
+
+    // Make every record at rest resident
+    synchronized void loadAll(Map<String, Customer> residents) {
+        for (int record = 0; record < records; record++) {
+            if (state(record) == AT_REST) {
+                load(strings.get(page(record).getLong(offset(record) + ID)), residents);
+            }
+        }
+    }
+
+    // Write a resident customer back to its record and drop the object. The
+    // caller holds the customer's lock and has retired it.
+    synchronized void store(Customer customer, Map<String, Customer> residents) {
+        int record = find(customer.getCustomerId());
+        if (record < 0 || state(record) != RESIDENT) {
+            throw new IllegalStateException("Customer " + customer.getCustomerId() + " is not resident.");
+        }
+        write(record, customer);
+        setState(record, AT_REST);
+        residents.remove(customer.getCustomerId(), customer);
+    }
+
+    // False if there was no such customer
+    synchronized boolean remove(String customerId) {
+        int record = find(customerId);
+        if (record < 0 || state(record) == REMOVED) {
+            return false;
+        }
+        setState(record, REMOVED);
+        live--;
+        return true;
+    }
+
+    public synchronized boolean contains(String customerId) {
+        int record = find(customerId);
+        return record >= 0 && state(record) != REMOVED;
+    }
+
+    // Customers registered, resident or not
+    public synchronized int size() {
+        return live;
+    }
+
+    // Bytes of direct memory held by records, strings and the index
+    public synchronized long getOffHeapBytes() {
+        long bytes = (long) index.capacity() + strings.bytes();
+        for (ByteBuffer page : pages) {
+            if (page != null) {
+                bytes += page.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    // A record for the ID: a removed one is reused, otherwise a new one is
+    // indexed. The caller fills in everything but the ID and name.
+    private int claim(String customerId, String name) {
+        if (customerId == null || customerId.isEmpty()) {
+            throw new IllegalArgumentException("Customer ID cannot be null or empty.");
+        }
+        if (name == null) {
+            throw new IllegalArgumentException("Customer name cannot be null.");
+        }
+        int record = find(customerId);
+        if (record >= 0 && state(record) != REMOVED) {
+            throw new IllegalArgumentException("Customer with ID " + customerId + " already exists.");
+        }
+        if (record < 0) {
+            if ((long) (records + 1) * 4 > (long) (indexMask + 1) * 3) {
+                growIndex();
+            }
+            record = records++;
+            if ((record >>> PAGE_BITS) >= pages.length) {
+                pages = Arrays.copyOf(pages, pages.length * 2);
+            }
+            if (pages[record >>> PAGE_BITS] == null) {
+                pages[record >>> PAGE_BITS] = ByteBuffer.allocateDirect(PAGE_RECORDS * RECORD_BYTES);
+            }
+            page(record).putLong(offset(record) + ID, strings.add(customerId));
+            insert(hash(customerId), record);
+        }
+        page(record).putLong(offset(record) + NAME, strings.add(name));
+        live++;
+        return record;
+    }
+
+    private void write(int record, Customer customer) {
+        ByteBuffer page = page(record);
+        int at = offset(record);
+        page.putInt(at + POINTS, customer.getLoyaltyPoints());
+        RatingHistogram ratings = customer.getRatingHistogram();
+        for (int i = 0; i < 5; i++) {
+            page.putInt(at + RATINGS + 4 * i, ratings.getCount(RatingHistogram.MIN_RATING + i));
+        }
+    }
+
+    private ByteBuffer page(int record) {
+        return pages[record >>> PAGE_BITS];
+    }
+
+    private static int offset(int record) {
+        return (record & (PAGE_RECORDS - 1)) * RECORD_BYTES;
+    }
+
+    private int state(int record) {
+        return page(record).getInt(offset(record) + STATE);
+    }
+
+    private void setState(int record, int state) {
+        page(record).putInt(offset(record) + STATE, state);
+    }
+
+    private static int hash(String customerId) {
+        int h = customerId.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // The ID's record, or -1 if it was never registered
+    private int find(String customerId) {
+        int hash = hash(customerId);
+        byte[] bytes = customerId.getBytes(StandardCharsets.UTF_8);
+        for (int i = hash & indexMask; ; i = (i + 1) & indexMask) {
+            int record = index.getInt(i * ENTRY_BYTES + 4) - 1;
+            if (record < 0) {
+                return -1;
+            }
+            if (index.getInt(i * ENTRY_BYTES) == hash
+                    && strings.matches(page(record).getLong(offset(record) + ID), bytes)) {
+                return record;
+            }
+        }
+    }
+
+    private void insert(int hash, int record) {
+        int i = hash & indexMask;
+        while (index.getInt(i * ENTRY_BYTES + 4) != 0) {
+            i = (i + 1) & indexMask;
+        }
+        index.putInt(i * ENTRY_BYTES, hash);
+        index.putInt(i * ENTRY_BYTES + 4, record + 1);
+    }
+
+    private void growIndex() {
+        int entries = indexMask + 1;
+        if (entries >= MAX_ENTRIES) {
+            throw new IllegalStateException("Off-heap customer index is full at " + records + " customers.");
+        }
+        ByteBuffer old = index;
+        index = ByteBuffer.allocateDirect(entries * 2 * ENTRY_BYTES);
+        indexMask = entries * 2 - 1;
+        for (int i = 0; i < entries; i++) {
+            int record = old.getInt(i * ENTRY_BYTES + 4);
+            if (record != 0) {
+                insert(old.getInt(i * ENTRY_BYTES), record - 1);
+            }
+        }
+    }
+
+    /**
+     * Append-only UTF-8 strings in direct pages, each a two-byte length and
+     * the bytes. A reference is the page number and offset in one long.
+     * Strings of removed customers are not reclaimed.
+     */
+    private static final class Strings {
+
+        private static final int PAGE_BITS = 20;
+        private static final int PAGE_BYTES = 1 << PAGE_BITS;
+        private static final int MAX_LENGTH = 0xFFFF;
+
+        private ByteBuffer[] pages = new ByteBuffer[4];
+        private int pageCount;
+        private int position = PAGE_BYTES;
+
+        long add(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_LENGTH) {
+                throw new IllegalArgumentException("String too long to store: " + bytes.length + " bytes");
+            }
+            if (position + 2 + bytes.length > PAGE_BYTES) {
+                if (pageCount == pages.length) {
+                    pages = Arrays.copyOf(pages, pages.length * 2);
+                }
+                pages[pageCount++] = ByteBuffer.allocateDirect(PAGE_BYTES);
+                position = 0;
+            }
+            ByteBuffer page = pages[pageCount - 1];
+            long ref = ((long) (pageCount - 1) << PAGE_BITS) | position;
+            page.putShort(position, (short) bytes.length);
+            page.put(position + 2, bytes);
+            position += 2 + bytes.length;
+            return ref;
+        }
+
+        String get(long ref) {
+            ByteBuffer page = pages[(int) (ref >>> PAGE_BITS)];
+            int at = (int) (ref & (PAGE_BYTES - 1));
+            byte[] bytes = new byte[page.getShort(at) & 0xFFFF];
+            page.get(at + 2, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        boolean matches(long ref, byte[] bytes) {
+            ByteBuffer page = pages[(int) (ref >>> PAGE_BITS)];
+            int at = (int) (ref & (PAGE_BYTES - 1));
+            if ((page.getShort(at) & 0xFFFF) != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (page.get(at + 2 + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long bytes() {
+            return (long) pageCount * PAGE_BYTES;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+/**
+ * Outcome of one item in a batch quote: the price and the vehicle it is for,
+ * or why there is no price.
+ */
+public class Quote {
+
+    private final int index;
+    private final String target;
+    private final String vehicleId;
+    private final int days;
+    private final double price;
+    private final String message;
+
+    private Quote(int index, String target, String vehicleId, int days, double price, String message) {
+        this.index = index;
+        this.target = target;
+        this.vehicleId = vehicleId;
+        this.days = days;
+        this.price = price;
+        this.message = message;
+    }
+
+    static Quote priced(int index, QuoteRequest request, String vehicleId, double price) {
+        return new Quote(index, request.getTarget(), vehicleId, request.getDays(), price, "OK");
+    }
+
+    static Quote failed(int index, QuoteRequest request, String message) {
+        return new Quote(index, request.getTarget(), null, request.getDays(), 0.0, message);
+    }
+
+    // Position of the item in the submitted batch
+    public int getIndex() {
+        return index;
+    }
+
+    // The vehicle ID or type asked for
+    public String getTarget() {
+        return target;
+    }
+
+    // The vehicle priced, or null if there is no price
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public boolean isSuccess() {
+        return vehicleId != null;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + index + " " + target + ": " + (isSuccess() ? vehicleId + " " + price : message);
+    }
+}
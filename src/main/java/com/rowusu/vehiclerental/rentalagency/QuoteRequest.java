@@ -0,0 +1,78 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One price asked for in a batch quote: a vehicle by ID, or a vehicle type
+ * for the cheapest available vehicle of that type, for a number of days and
+ * optionally a customer whose loyalty discount applies.
+ */
+public class QuoteRequest {
+
+    private final String target;
+    private final String customerId;
+    private final int days;
+
+    // The target is a vehicle ID or a type name ("car", "Truck", ...); the
+    // customer ID may be null for a walk-in price
+    public QuoteRequest(String target, String customerId, int days) {
+        if (target == null || target.isEmpty()) {
+            throw new IllegalArgumentException("Quote needs a vehicle ID or type");
+        }
+        this.target = target;
+        this.customerId = customerId;
+        this.days = days;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    // The type the target names, or null if it's a vehicle ID
+    VehicleType getType() {
+        for (VehicleType type : VehicleType.values()) {
+            if (type.getDisplayName().equalsIgnoreCase(target)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    // Parse "target:customerId:days" entries separated by commas, with the
+    // customer left empty for walk-ins, e.g. "V001:C123:3,truck::5"
+    public static List<QuoteRequest> parseList(String spec) {
+        List<QuoteRequest> requests = new ArrayList<>();
+        if (spec == null || spec.trim().isEmpty()) {
+            return requests;
+        }
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid quote entry: " + entry);
+            }
+            try {
+                requests.add(new QuoteRequest(parts[0], parts[1].isEmpty() ? null : parts[1],
+                        Integer.parseInt(parts[2])));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid quote days in entry: " + entry);
+            }
+        }
+        return requests;
+    }
+
+    @Override
+    public String toString() {
+        return target + ":" + (customerId != null ? customerId : "") + ":" + days;
+    }
+}
@@ -0,0 +1,200 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * The best and worst rated vehicles, kept up to date as ratings come in so the
+ * dashboard doesn't sort the fleet on every request. Only vehicles with at
+ * least a minimum number of ratings take part.
+ *
+ * Each end tracks up to twice the board size in a sorted set, with everything
+ * it doesn't track ranking no higher than its last entry. An update costs
+ * O(log size). When tracked vehicles fall out faster than new ones come in
+ * and fewer than the board size remain, that end is rebuilt from the fleet on
+ * the next read; the extra room makes that rare.
+ */
+public class RatingLeaderboard {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int DEFAULT_MIN_RATINGS = 3;
+
+    // Higher average first; ties go to the vehicle with more ratings, then by ID
+    private static final Comparator<Standing> BEST = Comparator
+            .comparingDouble((Standing s) -> -s.averageRating)
+            .thenComparing(s -> -s.ratingCount)
+            .thenComparing(s -> s.vehicle.getVehicleId());
+    private static final Comparator<Standing> WORST = Comparator
+            .comparingDouble((Standing s) -> s.averageRating)
+            .thenComparing(s -> -s.ratingCount)
+            .thenComparing(s -> s.vehicle.getVehicleId());
+
+    private final int size;
+    private final int minRatings;
+    private final Supplier<? extends Collection<Vehicle>> fleet;
+    private final Board best;
+    private final Board worst;
+
+    // The fleet is read only to rebuild an end that ran short
+    RatingLeaderboard(int size, int minRatings, Supplier<? extends Collection<Vehicle>> fleet) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Leaderboard size must be at least 1.");
+        }
+        if (minRatings < 1) {
+            throw new IllegalArgumentException("Minimum ratings must be at least 1.");
+        }
+        this.size = size;
+        this.minRatings = minRatings;
+        this.fleet = fleet;
+        this.best = new Board(BEST);
+        this.worst = new Board(WORST);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMinRatings() {
+        return minRatings;
+    }
+
+    // The vehicle's ratings changed, or it joined the fleet
+    synchronized void update(Vehicle vehicle) {
+        int count = vehicle.getRatingCount();
+        Standing standing = count >= minRatings
+                ? new Standing(vehicle, vehicle.getAverageRating(), count) : null;
+        best.update(vehicle.getVehicleId(), standing);
+        worst.update(vehicle.getVehicleId(), standing);
+    }
+
+    synchronized void remove(Vehicle vehicle) {
+        best.update(vehicle.getVehicleId(), null);
+        worst.update(vehicle.getVehicleId(), null);
+    }
+
+    // Up to limit of the best rated vehicles, best first
+    public synchronized List<Standing> getTopRated(int limit) {
+        return best.first(limit);
+    }
+
+    // Up to limit of the worst rated vehicles, worst first
+    public synchronized List<Standing> getLowestRated(int limit) {
+        return worst.first(limit);
+    }
+
+    /** A vehicle's place on the board, as of its last rating. */
+    public static final class Standing {
+        private final Vehicle vehicle;
+        private final double averageRating;
+        private final int ratingCount;
+
+        Standing(Vehicle vehicle, double averageRating, int ratingCount) {
+            this.vehicle = vehicle;
+            this.averageRating = averageRating;
+            this.ratingCount = ratingCount;
+        }
+
+        public Vehicle getVehicle() {
+            return vehicle;
+        }
+
+        public double getAverageRating() {
+            return averageRating;
+        }
+
+        public int getRatingCount() {
+            return ratingCount;
+        }
+    }
+
+    // One end of the board
+    private final class Board {
+        private final Comparator<Standing> order;
+        private final TreeSet<Standing> ranked;
+        private final Map<String, Standing> byId = new HashMap<>();
+        // Whether every eligible vehicle is tracked
+        private boolean complete = true;
+        private boolean stale;
+
+        Board(Comparator<Standing> order) {
+            this.order = order;
+            this.ranked = new TreeSet<>(order);
+        }
+
+        private int capacity() {
+            return size * 2;
+        }
+
+        // Null takes the vehicle off this end
+        void update(String vehicleId, Standing standing) {
+            if (stale) {
+                return; // the rebuild will read it
+            }
+            Standing old = byId.remove(vehicleId);
+            if (old != null) {
+                ranked.remove(old);
+            }
+            if (standing != null) {
+                // Untracked vehicles rank at or below the last tracked one, so
+                // anything past it has to stay out to keep that true
+                if (complete || (!ranked.isEmpty() && order.compare(standing, ranked.last()) < 0)) {
+                    add(standing);
+                }
+            }
+            if (!complete && ranked.size() < size) {
+                stale = true;
+            }
+        }
+
+        private void add(Standing standing) {
+            ranked.add(standing);
+            byId.put(standing.vehicle.getVehicleId(), standing);
+            if (ranked.size() > capacity()) {
+                Standing dropped = ranked.pollLast();
+                byId.remove(dropped.vehicle.getVehicleId());
+                complete = false;
+            }
+        }
+
+        List<Standing> first(int limit) {
+            if (stale) {
+                rebuild();
+            }
+            int count = Math.max(0, Math.min(limit, size));
+            List<Standing> result = new ArrayList<>(count);
+            Iterator<Standing> it = ranked.iterator();
+            while (result.size() < count && it.hasNext()) {
+                result.add(it.next());
+            }
+            return result;
+        }
+
+        private void rebuild() {
+            ranked.clear();
+            byId.clear();
+            complete = true;
+            for (Vehicle vehicle : fleet.get()) {
+                int count = vehicle.getRatingCount();
+                if (count < minRatings) {
+                    continue;
+                }
+                Standing standing = new Standing(vehicle, vehicle.getAverageRating(), count);
+                if (ranked.size() < capacity() || order.compare(standing, ranked.last()) < 0) {
+                    add(standing);
+                } else {
+                    complete = false;
+                }
+            }
+            stale = false;
+        }
+    }
+}
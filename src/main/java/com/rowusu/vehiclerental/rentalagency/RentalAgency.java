@@ -1,112 +1,687 @@
 package com.rowusu.vehiclerental.rentalagency;
 
 import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Feature;
 import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.pricing.PriceEvaluator;
+import com.rowusu.vehiclerental.pricing.PricingRules;
+import com.rowusu.vehiclerental.pricing.QuoteCache;
 import com.rowusu.vehiclerental.exceptions.*;
+import com.rowusu.vehiclerental.journal.JournalEvent;
+import com.rowusu.vehiclerental.journal.JournalWriter;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventType;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 public class RentalAgency {
 
     // List to manage the fleet of vehicles
     private List<Vehicle> vehicleFleet;
 
-    // Map to track currently rented vehicles and their customers
-    private Map<Vehicle, Customer> activeRentals;
+    // Currently rented vehicles and their customers
+    private final ActiveRentals activeRentals;
+    // Stripes of the rental table in a concurrent agency
+    private static final int RENTAL_STRIPES = 16;
+    // Cost passed to claimRental for a rental to be priced now
+    private static final double UNPRICED = -1.0;
     
     // List to manage customers
     private List<Customer> customers;
 
+    // ID indexes so lookups don't have to scan the fleet or customer list
+    private Map<String, Vehicle> vehiclesById;
+    private Map<String, Customer> customersById;
+
+    // Report totals, kept current by every mutation below
+    private final ReportAggregates aggregates = new ReportAggregates();
+
+    // The fleet as primitive columns for fleet-wide scans
+    private final FleetColumns fleetColumns = new FleetColumns();
+
+    // Bitmap of which fleet slots are available, kept current by the vehicles
+    // themselves. It also keeps the fleet's daily potential in the aggregates
+    // and the columns above in step.
+    private final AvailabilityIndex availabilityIndex = new AvailabilityIndex(aggregates, fleetColumns);
+
+    // Index slots booked on each day, kept by the vehicles' calendars
+    private final BookedDays bookedDays = new BookedDays();
+
+    // Type and rate indexes for filtered searches
+    private final VehicleSearchIndex searchIndex = new VehicleSearchIndex();
+
+    // Per-vehicle booking calendars keyed by vehicle ID, every booking by ID,
+    // and the booking that backs each current rental
+    private Map<String, ReservationCalendar> calendars;
+    private Map<String, Reservation> reservationsById;
+    private Map<Vehicle, Reservation> rentalBookings;
+    private final AtomicLong reservationSequence = new AtomicLong();
+
+    // Revenue earned per day by the rentals committed so far
+    private final RevenueLedger revenueLedger = new RevenueLedger();
+
+    // Every rental started, with its dates and cost
+    private final RentalTransactionStore transactions = new RentalTransactionStore();
+
+    // Best and worst rated vehicles in the fleet
+    private volatile RatingLeaderboard leaderboard;
+
+    // Prices every rental; without rules that's the vehicle's daily rate times
+    // the days. Quotes go through its cache, rentals straight to the evaluator.
+    private volatile QuoteCache quotes = new QuoteCache(new PricingRules().compile(), QuoteCache.DEFAULT_CAPACITY);
+
+    // Where mutations are recorded, or null if the agency isn't persisted
+    private volatile JournalWriter journal;
+
+    // Snapshot records not materialized yet, or null once everything is loaded
+    private volatile LazyRecords lazyRecords;
+
+    // Whether this agency may be shared between threads
+    private final boolean concurrent;
+
+    // Customers not in use, kept outside the heap, or null if every customer
+    // lives on the heap. Only customers looked up recently are resident, in
+    // the ID map; the customer list isn't kept.
+    private final OffHeapCustomers offHeap;
+    public static final int DEFAULT_RESIDENT_CUSTOMERS = 10_000;
+    private volatile int residentLimit = DEFAULT_RESIDENT_CUSTOMERS;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
     // Constructor
     public RentalAgency() {
-        this.vehicleFleet = new ArrayList<>();
-        this.activeRentals = new HashMap<>();
-        this.customers = new ArrayList<>();
+        this(false, false);
+    }
+
+    private RentalAgency(boolean concurrent, boolean offHeapCustomers) {
+        this.concurrent = concurrent;
+        this.offHeap = offHeapCustomers ? new OffHeapCustomers() : null;
+        if (concurrent) {
+            // Fleet and customer lists are read far more often than they change,
+            // so copy-on-write lets reports iterate them while vehicles are added.
+            this.vehicleFleet = new CopyOnWriteArrayList<>();
+            this.activeRentals = new ActiveRentals(RENTAL_STRIPES);
+            this.customers = new CopyOnWriteArrayList<>();
+            this.vehiclesById = new ConcurrentHashMap<>();
+            this.customersById = new ConcurrentHashMap<>();
+            this.calendars = new ConcurrentHashMap<>();
+            this.reservationsById = new ConcurrentHashMap<>();
+            this.rentalBookings = new ConcurrentHashMap<>();
+        } else {
+            this.vehicleFleet = new ArrayList<>();
+            this.activeRentals = new ActiveRentals(1);
+            this.customers = new ArrayList<>();
+            this.vehiclesById = new HashMap<>();
+            this.customersById = new HashMap<>();
+            this.calendars = new HashMap<>();
+            this.reservationsById = new HashMap<>();
+            this.rentalBookings = new HashMap<>();
+        }
+        this.leaderboard = newLeaderboard(RatingLeaderboard.DEFAULT_SIZE, RatingLeaderboard.DEFAULT_MIN_RATINGS);
+    }
+
+    // Create an agency that can be shared between request threads. Rent and
+    // return are lock-free per vehicle and only lock the customer involved.
+    public static RentalAgency createConcurrent() {
+        return new RentalAgency(true, false);
+    }
+
+    // Create a concurrent agency that keeps customers in off-heap records,
+    // so heap use doesn't grow with the customer count. A customer is made
+    // into an object when looked up; idle ones are written back once more
+    // than the resident limit are in memory. Walking every customer (the
+    // customer list, snapshots) brings them all in until the next sweep.
+    public static RentalAgency createOffHeap() {
+        return new RentalAgency(true, true);
+    }
+
+    // The off-heap customer records, or null if customers live on the heap
+    public OffHeapCustomers getOffHeapCustomers() {
+        return offHeap;
+    }
+
+    // Customers kept in memory before idle ones are written back off-heap
+    public void setResidentCustomerLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Resident customer limit must be positive.");
+        }
+        this.residentLimit = limit;
+    }
+
+    // Write idle resident customers back off the heap once there are more
+    // than the limit. One sweep at a time; customers with rentals out stay, as
+    // does the one just loaded or added, which the caller is about to use.
+    private void trimResidents(Customer keep) {
+        if (offHeap == null || customersById.size() <= residentLimit || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (Customer customer : customersById.values()) {
+                if (customer == keep) {
+                    continue;
+                }
+                synchronized (customer) {
+                    if (customer.retireIfIdle()) {
+                        offHeap.store(customer, customersById);
+                    }
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    // A customer written back off the heap is stale; act on the copy a
+    // lookup brings back instead
+    private Customer live(Customer customer) {
+        if (offHeap == null || !customer.isRetired()) {
+            return customer;
+        }
+        Customer current = findCustomerById(customer.getCustomerId());
+        return current != null ? current : customer;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    // Start recording every mutation to the journal. Attach it after any
+    // replay so replayed events aren't journaled a second time.
+    public void setJournal(JournalWriter journal) {
+        this.journal = journal;
+    }
+
+    public JournalWriter getJournal() {
+        return journal;
+    }
+
+    // Serve lookups from these records until they are all materialized. Set by
+    // a snapshot load and cleared by the records once everything is loaded.
+    public void setLazyRecords(LazyRecords records) {
+        this.lazyRecords = records;
+    }
+
+    // Anything that walks the whole fleet or customer list needs every record
+    private void ensureLoaded() {
+        LazyRecords records = lazyRecords;
+        if (records != null) {
+            records.materializeAll();
+        }
+    }
+
+    // Totals for the reports. Pending snapshot records are loaded first so
+    // they are counted.
+    public ReportAggregates getAggregates() {
+        ensureLoaded();
+        return aggregates;
+    }
+
+    // Pending snapshot records are loaded first so they are scanned too
+    public FleetColumns getFleetColumns() {
+        ensureLoaded();
+        return fleetColumns;
+    }
+
+    // Pending snapshot records are loaded first so they can be ranked
+    public RatingLeaderboard getLeaderboard() {
+        ensureLoaded();
+        return leaderboard;
+    }
+
+    // Rank vehicles with at least minRatings ratings, keeping size at each end.
+    // Meant for startup: a rating that lands during the switch may be missed
+    // by the new board until its next rebuild.
+    public void configureLeaderboard(int size, int minRatings) {
+        RatingLeaderboard board = newLeaderboard(size, minRatings);
+        for (Vehicle vehicle : vehiclesById.values()) {
+            board.update(vehicle);
+        }
+        leaderboard = board;
+    }
+
+    private RatingLeaderboard newLeaderboard(int size, int minRatings) {
+        return new RatingLeaderboard(size, minRatings, vehiclesById::values);
+    }
+
+    public PriceEvaluator getPricing() {
+        return quotes.getEvaluator();
+    }
+
+    // Price rentals started from now on by these rules. Rentals already out
+    // keep what they were charged; a journal replay prices with the rules set
+    // at the time of the replay. Cached quotes start over.
+    public void setPricing(PricingRules rules) {
+        this.quotes = new QuoteCache(rules.compile(), quotes.getCapacity());
+    }
+
+    public QuoteCache getQuoteCache() {
+        return quotes;
+    }
+
+    // Price each request as a rental from start, or today if start is null,
+    // without renting anything. A type is priced on its cheapest available
+    // vehicle by base rate, and a request without a customer gets the walk-in
+    // price. Requests that can't be priced fail on their own.
+    public List<Quote> quoteAll(List<QuoteRequest> requests, LocalDate start) {
+        QuoteCache cache = quotes;
+        long startDay = (start != null ? start : today()).toEpochDay();
+        List<Quote> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            QuoteRequest request = requests.get(i);
+            if (request.getDays() <= 0) {
+                results.add(Quote.failed(i, request, "Rental period must be greater than zero."));
+                continue;
+            }
+            VehicleType type = request.getType();
+            Vehicle vehicle;
+            if (type != null) {
+                ensureLoaded();
+                vehicle = searchIndex.cheapest(type, true);
+            } else {
+                vehicle = findVehicleById(request.getTarget());
+            }
+            if (vehicle == null) {
+                results.add(Quote.failed(i, request,
+                        type != null ? "No " + type.getDisplayName() + " available" : "Vehicle not found"));
+                continue;
+            }
+            int tier = 0;
+            if (request.getCustomerId() != null) {
+                Customer customer = findCustomerById(request.getCustomerId());
+                if (customer == null) {
+                    results.add(Quote.failed(i, request, "Customer not found"));
+                    continue;
+                }
+                tier = PriceEvaluator.tierOf(customer.getLoyaltyStatus());
+            }
+            double price = cache.quote(vehicle.getType(), vehicle.getDailyRate(), tier, startDay, request.getDays());
+            results.add(Quote.priced(i, request, vehicle.getVehicleId(), price));
+        }
+        return results;
+    }
+
+    public RevenueLedger getRevenueLedger() {
+        return revenueLedger;
+    }
+
+    public RentalTransactionStore getTransactions() {
+        return transactions;
+    }
+
+    // The customer's rentals, oldest first, including ones still out
+    public List<RentalTransaction> getRentalHistory(Customer customer) {
+        return transactions.forCustomer(customer.getCustomerId());
+    }
+
+    // The vehicle's rentals, oldest first, including one still out
+    public List<RentalTransaction> getRentalHistory(Vehicle vehicle) {
+        return transactions.forVehicle(vehicle.getVehicleId());
+    }
+
+    // One page of the customer's rentals started in [from, to], either bound
+    // optional, continuing after the cursor (0 for the first page). Costs
+    // O(log n + page size); see RentalTransactionStore.customerPage.
+    public HistoryPage getRentalHistory(Customer customer, long cursor, int pageSize, boolean newestFirst,
+                                        LocalDate from, LocalDate to) {
+        return transactions.customerPage(customer.getCustomerId(), cursor, pageSize, newestFirst, from, to);
+    }
+
+    private void record(JournalEvent event) {
+        JournalWriter writer = journal;
+        if (writer != null) {
+            writer.append(event);
+        }
+    }
+
+    private void record(List<JournalEvent> events) {
+        JournalWriter writer = journal;
+        if (writer != null) {
+            writer.appendAll(events);
+        }
     }
     
     public List<Vehicle> getFleet() {
+        ensureLoaded();
         return vehicleFleet;
     }
     
     public List<Customer> getCustomers() {
+        ensureLoaded();
+        if (offHeap != null) {
+            offHeap.loadAll(customersById);
+            return new ArrayList<>(customersById.values());
+        }
         return customers;
     }
+
+    public List<Vehicle> getAvailableVehicles() {
+        ensureLoaded();
+        return availabilityIndex.availableVehicles();
+    }
+
+    public List<Vehicle> getAvailableVehicles(VehicleType type) {
+        ensureLoaded();
+        return availabilityIndex.availableVehicles(type);
+    }
+
+    public int countAvailableVehicles() {
+        ensureLoaded();
+        return availabilityIndex.countAvailable();
+    }
+
+    public int countAvailableVehicles(VehicleType type) {
+        ensureLoaded();
+        return availabilityIndex.countAvailable(type);
+    }
+
+    // First available vehicle of the given type, or null if none is free
+    public Vehicle findFirstAvailable(VehicleType type) {
+        ensureLoaded();
+        return availabilityIndex.firstAvailable(type);
+    }
+
+    public List<Vehicle> getVehiclesByType(VehicleType type) {
+        ensureLoaded();
+        return searchIndex.byType(type);
+    }
+
+    public int countVehicles(VehicleType type) {
+        ensureLoaded();
+        return searchIndex.count(type);
+    }
+
+    // Vehicles with a base rate in [minRate, maxRate], cheapest first.
+    // Pass a null type to search every type.
+    public List<Vehicle> searchVehicles(VehicleType type, double minRate, double maxRate, boolean availableOnly) {
+        ensureLoaded();
+        return searchIndex.find(type, minRate, maxRate, availableOnly);
+    }
+
+    // Look up a vehicle by its ID, or null if it is not in the fleet
+    public Vehicle findVehicleById(String vehicleId) {
+        if (vehicleId == null) {
+            return null;
+        }
+        Vehicle vehicle = vehiclesById.get(vehicleId);
+        LazyRecords records = lazyRecords;
+        if (vehicle == null && records != null) {
+            records.materializeVehicle(vehicleId);
+            vehicle = vehiclesById.get(vehicleId);
+        }
+        return vehicle;
+    }
+
+    // Look up a customer by their ID, or null if they are not registered
+    public Customer findCustomerById(String customerId) {
+        if (customerId == null) {
+            return null;
+        }
+        Customer customer = customersById.get(customerId);
+        LazyRecords records = lazyRecords;
+        if (customer == null && records != null) {
+            records.materializeCustomer(customerId);
+            customer = customersById.get(customerId);
+        }
+        if (customer == null && offHeap != null) {
+            customer = offHeap.load(customerId, customersById);
+            if (customer != null) {
+                trimResidents(customer);
+            }
+        }
+        return customer;
+    }
     
     // Add a customer
     public void addCustomer(Customer customer) {
-        customers.add(customer);
-        System.out.println("Customer added: " + customer.getName());
+        // A pending snapshot record with the same ID counts as taken
+        LazyRecords records = lazyRecords;
+        if (records != null) {
+            records.materializeCustomer(customer.getCustomerId());
+        }
+        // Registering under the customer's lock keeps a concurrent rating or
+        // award from being counted twice or not at all
+        synchronized (customer) {
+            if (offHeap != null) {
+                offHeap.add(customer, customersById);
+            } else if (customersById.putIfAbsent(customer.getCustomerId(), customer) != null) {
+                throw new IllegalArgumentException("Customer with ID " + customer.getCustomerId() + " already exists.");
+            }
+            aggregates.customerAdded(customer.getLoyaltyPoints(), customer.getAverageRating());
+        }
+        if (offHeap != null) {
+            trimResidents(customer);
+        } else {
+            customers.add(customer);
+        }
+        if (journal != null) {
+            record(JournalEvent.customerWithRatings(customer));
+        }
+        EventLog.get().log(EventType.CUSTOMER_ADDED, customer.getCustomerId(), customer.getName());
     }
+
+    // Add a customer with no points or ratings to an off-heap agency without
+    // making an object for them, e.g. when importing millions of customers
+    public void addCustomerRecord(String customerId, String name) {
+        if (offHeap == null) {
+            throw new IllegalStateException("Customer records need an off-heap agency.");
+        }
+        offHeap.addRecord(customerId, name);
+        aggregates.customerAdded(0, 0.0);
+        if (journal != null) {
+            record(JournalEvent.customerAdded(new Customer(name, customerId)));
+        }
+        EventLog.get().log(EventType.CUSTOMER_ADDED, customerId, name);
+    }
+
+    // Remove a customer
+    public boolean removeCustomer(Customer customer) {
+        customer = live(customer);
+        synchronized (customer) {
+            if (!customersById.remove(customer.getCustomerId(), customer)) {
+                return false;
+            }
+            aggregates.customerRemoved(customer.getLoyaltyPoints(), customer.getAverageRating());
+            if (offHeap != null) {
+                offHeap.remove(customer.getCustomerId());
+            }
+        }
+        if (offHeap == null) {
+            customers.remove(customer);
+        }
+        if (journal != null) {
+            record(JournalEvent.customerRemoved(customer));
+        }
+        return true;
+    }
+
     // Add a vehicle to the fleet
     public void addVehicleToFleet(Vehicle vehicle) {
+        LazyRecords records = lazyRecords;
+        if (records != null) {
+            records.materializeVehicle(vehicle.getVehicleId());
+        }
+        if (vehiclesById.containsKey(vehicle.getVehicleId())) {
+            throw new IllegalArgumentException("Vehicle with ID " + vehicle.getVehicleId() + " already exists in the fleet.");
+        }
+        // Indexed before it can be looked up, so no rent can reach it untracked
+        availabilityIndex.register(vehicle);
+        boolean added;
+        synchronized (vehicle) {
+            added = vehiclesById.putIfAbsent(vehicle.getVehicleId(), vehicle) == null;
+            if (added) {
+                aggregates.vehicleAdded(vehicle.getAverageRating());
+                leaderboard.update(vehicle);
+            }
+        }
+        if (!added) {
+            availabilityIndex.unregister(vehicle);
+            throw new IllegalArgumentException("Vehicle with ID " + vehicle.getVehicleId() + " already exists in the fleet.");
+        }
+        searchIndex.add(vehicle);
+        calendars.put(vehicle.getVehicleId(), new ReservationCalendar(vehicle.getSlot(), bookedDays));
         vehicleFleet.add(vehicle);
-        System.out.println("Vehicle added to fleet: " + vehicle.getModel());
+        if (journal != null) {
+            record(JournalEvent.vehicleWithFeaturesAndRatings(vehicle));
+        }
+        EventLog.get().log(EventType.VEHICLE_ADDED, vehicle.getVehicleId(), vehicle.getModel());
     }
 
     // Remove a vehicle from the fleet
     public void removeVehicleFromFleet(Vehicle vehicle) {
-        if (vehicleFleet.remove(vehicle)) {
-            System.out.println("Vehicle removed from fleet: " + vehicle.getModel());
+        boolean removed;
+        synchronized (vehicle) {
+            removed = vehiclesById.remove(vehicle.getVehicleId(), vehicle);
+            if (removed) {
+                aggregates.vehicleRemoved(vehicle.getAverageRating());
+                leaderboard.remove(vehicle);
+            }
+        }
+        if (removed) {
+            // Unindex the bookings while the slot is still this vehicle's
+            ReservationCalendar calendar = calendars.remove(vehicle.getVehicleId());
+            if (calendar != null) {
+                calendar.release();
+                for (Reservation reservation : calendar.getReservations()) {
+                    reservationsById.remove(reservation.getReservationId());
+                }
+            }
+            availabilityIndex.unregister(vehicle);
+            searchIndex.remove(vehicle);
+            vehicleFleet.remove(vehicle);
+            if (journal != null) {
+                record(JournalEvent.vehicleRemoved(vehicle));
+            }
+            EventLog.get().log(EventType.VEHICLE_REMOVED, vehicle.getVehicleId(), vehicle.getModel());
         } else {
-            System.out.println("Vehicle not found in fleet.");
+            EventLog.get().log(EventType.VEHICLE_NOT_IN_FLEET, vehicle.getVehicleId(), null);
         }
     }
 
     // Process a rental
     public void processRental(Customer customer, Vehicle vehicle, int days) {
-        if (!vehicleFleet.contains(vehicle)) {
-            System.out.println("Vehicle is not part of the fleet.");
+        customer = live(customer);
+        if (findVehicleById(vehicle.getVehicleId()) == null) {
+            EventLog.get().log(EventType.RENTAL_REJECTED, vehicle.getVehicleId(), "not part of the fleet");
             return;
         }
 
         if (!vehicle.isAvailable()) {
-            System.out.println("Vehicle is currently unavailable.");
+            EventLog.get().log(EventType.RENTAL_REJECTED, vehicle.getVehicleId(), "vehicle unavailable");
             return;
         }
 
         if (!customer.isEligibleForRental()) {
-            System.out.println("Customer is not eligible for rental.");
+            EventLog.get().log(EventType.RENTAL_REJECTED, vehicle.getVehicleId(), "customer not eligible");
+            return;
+        }
+
+        // Hold the dates first so the rental can't run into a future reservation
+        Reservation booking = bookRental(vehicle, customer, days, today());
+        if (booking == null) {
+            EventLog.get().log(EventType.RENTAL_REJECTED, vehicle.getVehicleId(), "reserved during the requested period");
             return;
         }
 
-        // Rent the vehicle
-        vehicle.rent(customer, days);
+        // Rent the vehicle (another thread may have taken it since the checks above)
+        try {
+            vehicle.rent(customer, days);
+        } catch (IllegalStateException e) {
+            releaseBooking(booking);
+            EventLog.get().log(EventType.RENTAL_REJECTED, vehicle.getVehicleId(), e.getMessage());
+            return;
+        }
 
         // Update active rentals
-        activeRentals.put(vehicle, customer);
+        trackRental(vehicle, customer, booking, days, 0, UNPRICED);
+        commitRental(vehicle, customer, booking, true);
+        postRevenue(booking);
 
-        System.out.println("Rental processed successfully for vehicle: " + vehicle.getModel());
+        EventLog.get().log(EventType.RENTAL_PROCESSED, vehicle.getVehicleId(), customer.getCustomerId(), days);
 // Inside processRental in RentalAgency:
-        customer.addLoyaltyPoints(days * 10); // Award points for rental days
+        awardLoyaltyPoints(customer, days * 10); // Award points for rental days
 
     }
 
+    // Add loyalty points to a customer
+    public void awardLoyaltyPoints(Customer customer, int points) {
+        customer = live(customer);
+        synchronized (customer) {
+            if (customer.isRetired()) {
+                // Written back off-heap while we waited; award the fresh copy
+                Customer current = live(customer);
+                if (current != customer) {
+                    awardLoyaltyPoints(current, points);
+                    return;
+                }
+            }
+            int before = customer.getLoyaltyPoints();
+            customer.addLoyaltyPoints(points);
+            if (isRegistered(customer)) {
+                aggregates.pointsAwarded(before, customer.getLoyaltyPoints());
+            }
+        }
+        if (journal != null) {
+            record(JournalEvent.loyaltyPoints(customer, points));
+        }
+    }
+
     // Process a return
     public void processReturn(Vehicle vehicle) {
-        if (!activeRentals.containsKey(vehicle)) {
-            System.out.println("Vehicle is not currently rented.");
+        Customer customer = completeReturn(vehicle, today());
+        if (customer == null) {
+            EventLog.get().log(EventType.RETURN_REJECTED, vehicle.getVehicleId(), "not currently rented");
             return;
         }
 
-        // Return the vehicle
-        vehicle.returnVehicle();
+        EventLog.get().log(EventType.RETURN_PROCESSED, vehicle.getVehicleId(), customer.getCustomerId());
+    }
 
-        // Update active rentals
-        Customer customer = activeRentals.remove(vehicle);
-        customer.removeCurrentRental(vehicle);
+    // Returns the customer who had the vehicle, or null if it wasn't rented
+    // through the agency
+    private Customer completeReturn(Vehicle vehicle, LocalDate on) {
+        Customer customer;
+        // Under the vehicle's lock, like commitRental, so the journal has the
+        // return after the rental it ends and before the next one
+        synchronized (vehicle) {
+            // Removing the entry first means only one caller can return a given rental
+            customer = activeRentals.remove(vehicle);
+            if (customer == null) {
+                return null;
+            }
 
-        // Add to the customer's rental history
-       customer.addToRentalHistory(vehicle);
+            // Return the vehicle and free the rest of its booked days
+            vehicle.returnVehicle();
+            Reservation booking = endRentalBooking(vehicle, on);
+            if (booking != null) {
+                aggregates.rentalEnded(vehicle.getType(), booking.getRentalDays(), booking.getRentalCost());
+                double refund = revenueLedger.postReturn(booking.getStartDate(), booking.getRentalDays(),
+                        booking.getRentalCost(), on);
+                transactions.close(booking.getTransactionId(), on.minusDays(1), refund);
+            }
+            if (journal != null) {
+                record(JournalEvent.returned(vehicle, on));
+            }
+        }
 
-        System.out.println("Vehicle returned successfully: " );
-                //+ vehicle.getModel());
+        // Update the customer's current rentals
+        customer.removeCurrentRental(vehicle);
+        return customer;
     }
 
     // Generate a report of all vehicles in the fleet
     public void generateFleetReport() {
+        ensureLoaded();
         System.out.println("\nFleet Report:");
         for (Vehicle vehicle : vehicleFleet) {
             System.out.println(vehicle.getModel() + " - " + (vehicle.isAvailable() ? "Available" : "Rented"));
@@ -120,21 +695,21 @@ public class RentalAgency {
             System.out.println("Vehicle: " + vehicle.getModel() + ", Rented by: " + customer.getName());
         });
     }*/public void generateActiveRentalsReport() {
+        ensureLoaded();
         System.out.println("Active Rentals Report:");
         if (activeRentals.isEmpty()) {
             System.out.println("No active rentals.");
             return;
         }
 
-        for (Map.Entry<Vehicle, Customer> entry : activeRentals.entrySet()) {
-            Vehicle vehicle = entry.getKey();
-            Customer customer = entry.getValue();
-            System.out.println(vehicle.getModel() + " rented by " + customer.getName());
-        }
+        activeRentals.forEach((vehicle, customer) ->
+                System.out.println(vehicle.getModel() + " rented by " + customer.getName()));
     }
 
-    public void rentVehicle(Vehicle vehicle, Customer customer, int days)
+    // Returns the rental's transaction
+    public RentalTransaction rentVehicle(Vehicle vehicle, Customer customer, int days)
             throws VehicleNotAvailable, CustomerNotEligible, InvalidRentalPeriod {
+        customer = live(customer);
 
         // Check if the rental period is valid
         if (days <= 0) {
@@ -149,31 +724,566 @@ public class RentalAgency {
             throw new VehicleNotAvailable("Vehicle is not available for rental: " + vehicle.getModel());
         }
 
-        vehicle.setAvailableForRental(false); // Mark vehicle as rented
-        // Proceed with rental if all checks pass
-        vehicle.rent(customer, days);
-        String transactionDetails = "Rented for " + days + " days";
-        customer.addRental(vehicle, transactionDetails, days);
-        activeRentals.put(vehicle, customer);
+        Reservation booking = claimRental(vehicle, customer, days, today(), 0, UNPRICED);
+        commitRental(vehicle, customer, booking, true);
+        postRevenue(booking);
+        return transactions.get(booking.getTransactionId());
+    }
+
+    // Book the rental days, rent the vehicle and open its transaction, or tie
+    // it to the given one if the ID isn't 0. The rental is charged the given
+    // cost, or a fresh quote if it is UNPRICED. The caller commits the rental.
+    private Reservation claimRental(Vehicle vehicle, Customer customer, int days, LocalDate start, long transactionId,
+                                    double cost) throws VehicleNotAvailable, CustomerNotEligible {
+
+        // Hold the rental days in the vehicle's calendar
+        Reservation booking = bookRental(vehicle, customer, days, start);
+        if (booking == null) {
+            throw new VehicleNotAvailable("Vehicle is reserved during the requested period: " + vehicle.getModel());
+        }
+
+        // Proceed with rental if all checks pass. rent() claims the vehicle and the
+        // customer's rental slot atomically, so a concurrent rental that got there
+        // first surfaces here as an IllegalStateException.
+        try {
+            vehicle.rent(customer, days);
+        } catch (IllegalStateException e) {
+            releaseBooking(booking);
+            if (!customer.isEligibleForRental()) {
+                throw new CustomerNotEligible("Customer is not eligible for rental.");
+            }
+            throw new VehicleNotAvailable("Vehicle is not available for rental: " + vehicle.getModel());
+        }
+        trackRental(vehicle, customer, booking, days, transactionId, cost);
+        return booking;
+    }
+
+    // Take back a rental made by claimRental, as if it never happened
+    private void undoRental(Vehicle vehicle, Reservation booking) {
+        if (rentalBookings.remove(vehicle, booking)) {
+            aggregates.rentalEnded(vehicle.getType(), booking.getRentalDays(), booking.getRentalCost());
+        }
+        transactions.discard(booking.getTransactionId());
+        releaseBooking(booking);
+        vehicle.returnVehicle();
+    }
+
+    // Rent several vehicles in one call. All requests are validated up front
+    // against each other as well as the agency's state. With allOrNothing either
+    // every request is applied or none are; otherwise each valid request is
+    // applied on its own. Results come back in request order.
+    public List<BatchResult> rentVehicles(List<RentalRequest> requests, boolean allOrNothing) {
+        int size = requests.size();
+        BatchResult[] results = new BatchResult[size];
+        Vehicle[] vehicles = new Vehicle[size];
+        Customer[] renters = new Customer[size];
+        Set<Vehicle> claimed = new HashSet<>();
+        Map<Customer, Integer> slotsTaken = new HashMap<>();
+        boolean rejected = false;
+
+        for (int i = 0; i < size; i++) {
+            RentalRequest request = requests.get(i);
+            Vehicle vehicle = findVehicleById(request.getVehicleId());
+            Customer customer = findCustomerById(request.getCustomerId());
+            String error = null;
+            if (vehicle == null) {
+                error = "Vehicle not found";
+            } else if (customer == null) {
+                error = "Customer not found";
+            } else if (request.getDays() <= 0) {
+                error = "Rental period must be greater than zero.";
+            } else if (!claimed.add(vehicle)) {
+                error = "Vehicle appears more than once in the batch.";
+            } else if (!vehicle.isAvailableForRental()) {
+                error = "Vehicle is not available for rental: " + vehicle.getModel();
+            } else if (customer.getCurrentRentalCount() + slotsTaken.getOrDefault(customer, 0) >= customer.getRentalLimit()) {
+                error = "Customer is not eligible for rental.";
+            }
+
+            if (error != null) {
+                results[i] = BatchResult.failed(i, request.getVehicleId(), error);
+                rejected = true;
+            } else {
+                vehicles[i] = vehicle;
+                renters[i] = customer;
+                slotsTaken.merge(customer, 1, Integer::sum);
+            }
+        }
+
+        if (!(allOrNothing && rejected)) {
+            Reservation[] bookings = new Reservation[size];
+            for (int i = 0; i < size && !(allOrNothing && rejected); i++) {
+                if (vehicles[i] == null) {
+                    continue;
+                }
+                // State can still change under us in concurrent mode
+                try {
+                    bookings[i] = claimRental(vehicles[i], renters[i], requests.get(i).getDays(), today(), 0,
+                            UNPRICED);
+                } catch (VehicleNotAvailable | CustomerNotEligible e) {
+                    results[i] = BatchResult.failed(i, requests.get(i).getVehicleId(), e.getMessage());
+                    rejected = true;
+                }
+            }
+
+            if (allOrNothing && rejected) {
+                for (int i = size - 1; i >= 0; i--) {
+                    if (bookings[i] != null) {
+                        undoRental(vehicles[i], bookings[i]);
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    if (bookings[i] != null) {
+                        commitRental(vehicles[i], renters[i], bookings[i], true);
+                        postRevenue(bookings[i]);
+                        results[i] = BatchResult.succeeded(i, requests.get(i).getVehicleId());
+                    }
+                }
+            }
+        }
+
+        int applied = fillSkipped(results, requests.size(), i -> requests.get(i).getVehicleId());
+        EventLog.get().log(EventType.BATCH_RENTAL, null, null, applied);
+        return List.of(results);
+    }
+
+    // Return several vehicles in one call, validated up front like rentVehicles
+    public List<BatchResult> returnVehicles(List<String> vehicleIds, boolean allOrNothing) {
+        int size = vehicleIds.size();
+        BatchResult[] results = new BatchResult[size];
+        Vehicle[] vehicles = new Vehicle[size];
+        Set<Vehicle> seen = new HashSet<>();
+        boolean rejected = false;
+
+        for (int i = 0; i < size; i++) {
+            Vehicle vehicle = findVehicleById(vehicleIds.get(i));
+            String error = null;
+            if (vehicle == null) {
+                error = "Vehicle not found";
+            } else if (!seen.add(vehicle)) {
+                error = "Vehicle appears more than once in the batch.";
+            } else if (!activeRentals.containsKey(vehicle)) {
+                error = "Vehicle is not currently rented.";
+            }
+
+            if (error != null) {
+                results[i] = BatchResult.failed(i, vehicleIds.get(i), error);
+                rejected = true;
+            } else {
+                vehicles[i] = vehicle;
+            }
+        }
+
+        // A return can only fail here if another thread returned the vehicle first
+        if (!(allOrNothing && rejected)) {
+            for (int i = 0; i < size; i++) {
+                if (vehicles[i] == null) {
+                    continue;
+                }
+                results[i] = completeReturn(vehicles[i], today()) != null
+                        ? BatchResult.succeeded(i, vehicleIds.get(i))
+                        : BatchResult.failed(i, vehicleIds.get(i), "Vehicle is not currently rented.");
+            }
+        }
+
+        int applied = fillSkipped(results, size, vehicleIds::get);
+        EventLog.get().log(EventType.BATCH_RETURN, null, null, applied);
+        return List.of(results);
+    }
+
+    // Mark items that were never applied and count the ones that were
+    private static int fillSkipped(BatchResult[] results, int size, IntFunction<String> vehicleId) {
+        int applied = 0;
+        for (int i = 0; i < size; i++) {
+            if (results[i] == null) {
+                results[i] = BatchResult.failed(i, vehicleId.apply(i), "Not applied: another item in the batch failed.");
+            } else if (results[i].isSuccess()) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    // Reserve a vehicle for the inclusive date range [startDate, endDate]
+    public Reservation reserveVehicle(Vehicle vehicle, Customer customer, LocalDate startDate, LocalDate endDate)
+            throws VehicleNotAvailable, InvalidRentalPeriod {
+        customer = live(customer);
+
+        if (endDate.isBefore(startDate)) {
+            throw new InvalidRentalPeriod("Reservation cannot end before it starts.");
+        }
+        if (startDate.isBefore(today())) {
+            throw new InvalidRentalPeriod("Reservation cannot start in the past.");
+        }
+        ReservationCalendar calendar = calendarFor(vehicle);
+        if (calendar == null) {
+            throw new VehicleNotAvailable("Vehicle is not part of the fleet: " + vehicle.getModel());
+        }
+
+        Reservation reservation = newReservation(vehicle, customer, startDate, endDate);
+        if (!calendar.book(reservation)) {
+            throw new VehicleNotAvailable("Vehicle is already booked between " + startDate + " and " + endDate + ": " + vehicle.getModel());
+        }
+        reservationsById.put(reservation.getReservationId(), reservation);
+        return reservation;
+    }
+
+    // Cancel a reservation, freeing its dates
+    public boolean cancelReservation(Reservation reservation) {
+        ReservationCalendar calendar = calendarFor(reservation.getVehicle());
+        if (calendar == null || !calendar.cancel(reservation)) {
+            return false;
+        }
+        reservationsById.remove(reservation.getReservationId(), reservation);
+        return true;
+    }
+
+    public Reservation findReservationById(String reservationId) {
+        if (reservationId == null) {
+            return null;
+        }
+        return reservationsById.get(reservationId);
+    }
+
+    // Bookings for the vehicle in date order, including those backing rentals
+    public List<Reservation> getReservations(Vehicle vehicle) {
+        ReservationCalendar calendar = calendarFor(vehicle);
+        return calendar == null ? new ArrayList<>() : calendar.getReservations();
+    }
+
+    // The booking behind the vehicle's current rental, or null if it isn't rented
+    public Reservation getRentalBooking(Vehicle vehicle) {
+        return rentalBookings.get(vehicle);
+    }
+
+    // Whether the vehicle has no bookings on any day in [from, to]
+    public boolean isVehicleFree(Vehicle vehicle, LocalDate from, LocalDate to) {
+        ReservationCalendar calendar = calendarFor(vehicle);
+        return calendar != null && calendar.isFree(from, to);
+    }
+
+    // Vehicles of the given type (or any type if null) with no bookings in [from, to]
+    public List<Vehicle> findFreeVehicles(VehicleType type, LocalDate from, LocalDate to) {
+        ensureLoaded();
+        return availabilityIndex.unbooked(type, bookedDays.between(from, to));
+    }
+
+    private ReservationCalendar calendarFor(Vehicle vehicle) {
+        return calendars.get(vehicle.getVehicleId());
+    }
+
+    private Reservation newReservation(Vehicle vehicle, Customer customer, LocalDate startDate, LocalDate endDate) {
+        String id = "RES" + reservationSequence.incrementAndGet();
+        return new Reservation(id, vehicle, customer, startDate, endDate);
+    }
+
+    // Book [start, start + days) for a rental. Vehicles outside the fleet have
+    // no calendar and get an unrecorded booking; null means the days are taken.
+    private Reservation bookRental(Vehicle vehicle, Customer customer, int days, LocalDate start) {
+        Reservation booking = newReservation(vehicle, customer, start, start.plusDays(Math.max(days, 1) - 1));
+        ReservationCalendar calendar = calendarFor(vehicle);
+        if (calendar != null && !calendar.book(booking)) {
+            return null;
+        }
+        return booking;
+    }
+
+    private void releaseBooking(Reservation booking) {
+        ReservationCalendar calendar = calendarFor(booking.getVehicle());
+        if (calendar != null) {
+            calendar.cancel(booking);
+        }
+    }
+
+    // The booking goes in before the active rental, so a return that finds
+    // the rental also finds what it was charged and its transaction
+    private void trackRental(Vehicle vehicle, Customer customer, Reservation booking, int days, long transactionId,
+                             double cost) {
+        if (cost == UNPRICED) {
+            cost = quotes.getEvaluator().quote(vehicle, customer, booking.getStartDate(), days);
+        }
+        booking.charge(days, cost);
+        booking.setTransactionId(openTransaction(vehicle, customer, booking, cost, transactionId));
+        aggregates.rentalStarted(vehicle.getType(), days, cost);
+        rentalBookings.put(vehicle, booking);
+    }
+
+    // Make a claimed rental returnable and, unless it is being restored or
+    // replayed, journal it. A return can only find the rental once it is in
+    // the active rentals, and both happen under the vehicle's lock, so the
+    // journal gets rent and return in the order they were applied and
+    // replays them the same way.
+    private void commitRental(Vehicle vehicle, Customer customer, Reservation booking, boolean journaled) {
+        synchronized (vehicle) {
+            activeRentals.put(vehicle, customer);
+            if (journaled && journal != null) {
+                record(JournalEvent.rented(vehicle, customer, booking.getRentalDays(), booking.getStartDate(),
+                        booking.getTransactionId(), booking.getRentalCost()));
+            }
+        }
+    }
+
+    // A returned vehicle is free again from the day it comes back. Returns the
+    // rental's booking, or null if it had none.
+    private Reservation endRentalBooking(Vehicle vehicle, LocalDate on) {
+        Reservation booking = rentalBookings.remove(vehicle);
+        ReservationCalendar calendar = booking == null ? null : calendarFor(vehicle);
+        if (calendar != null) {
+            calendar.shorten(booking, on.minusDays(1));
+        }
+        return booking;
+    }
+
+    // A new transaction if the ID is 0; otherwise one the store already has,
+    // restored from a snapshot or recorded by the replay of its RENTED event.
+    // Either way the store isn't read, so a lazily restored one stays unread.
+    private long openTransaction(Vehicle vehicle, Customer customer, Reservation booking, double cost, long transactionId) {
+        if (transactionId == 0) {
+            return transactions.open(vehicle.getVehicleId(), vehicle.getModel(), customer.getCustomerId(),
+                    booking.getStartDate(), booking.getEndDate(), cost);
+        }
+        return transactionId;
+    }
+
+    // Rentals reach the ledger once committed, so a rolled-back batch never posts
+    private void postRevenue(Reservation booking) {
+        revenueLedger.postRental(booking.getStartDate(), booking.getRentalDays(), booking.getRentalCost());
+    }
+
+    private boolean isRegistered(Customer customer) {
+        return customersById.get(customer.getCustomerId()) == customer;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now();
+    }
+
+    // Register vehicles rebuilt from a snapshot. Like addVehicleToFleet, but not
+    // journaled or logged, and the fleet list grows once per call.
+    public void restoreVehicles(List<Vehicle> restored) {
+        for (Vehicle vehicle : restored) {
+            availabilityIndex.register(vehicle);
+            if (vehiclesById.putIfAbsent(vehicle.getVehicleId(), vehicle) != null) {
+                availabilityIndex.unregister(vehicle);
+                throw new IllegalStateException("Vehicle with ID " + vehicle.getVehicleId() + " already exists in the fleet.");
+            }
+            aggregates.vehicleAdded(vehicle.getAverageRating());
+            leaderboard.update(vehicle);
+            searchIndex.add(vehicle);
+            calendars.put(vehicle.getVehicleId(), new ReservationCalendar(vehicle.getSlot(), bookedDays));
+        }
+        vehicleFleet.addAll(restored);
+    }
+
+    // Register customers rebuilt from a snapshot, without journaling them
+    public void restoreCustomers(List<Customer> restored) {
+        for (Customer customer : restored) {
+            if (offHeap != null && !offHeap.contains(customer.getCustomerId())) {
+                offHeap.add(customer, customersById);
+            } else if (offHeap != null || customersById.putIfAbsent(customer.getCustomerId(), customer) != null) {
+                throw new IllegalStateException("Customer with ID " + customer.getCustomerId() + " already exists.");
+            }
+            aggregates.customerAdded(customer.getLoyaltyPoints(), customer.getAverageRating());
+        }
+        if (offHeap != null) {
+            trimResidents(null);
+        } else {
+            customers.addAll(restored);
+        }
     }
+
+    // Put back a rental that was out when a snapshot was taken. Its revenue is
+    // already in the ledger the snapshot restores, so it isn't posted again.
+    // It keeps the open transaction the snapshot restored, or gets a new one if
+    // the ID is 0, and is charged the given cost, or priced now if that is negative.
+    public void restoreRental(Vehicle vehicle, Customer customer, int days, LocalDate start, long transactionId,
+                              double cost) {
+        if (cost < 0) {
+            cost = UNPRICED;
+        }
+        try {
+            Reservation booking = claimRental(vehicle, customer, days, start, transactionId, cost);
+            commitRental(vehicle, customer, booking, false);
+        } catch (VehicleNotAvailable | CustomerNotEligible e) {
+            throw new IllegalStateException("Cannot restore rental of " + vehicle.getVehicleId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // The customer renting the vehicle through the agency, or null if it isn't rented
+    public Customer getRenter(Vehicle vehicle) {
+        return activeRentals.get(vehicle);
+    }
+
+    // Apply one journaled mutation without journaling it again. Used to rebuild
+    // the agency from the journal, so the checks a live request
+    // goes through are skipped: the event already happened. Ratings and points
+    // for customers the agency doesn't track are dropped.
+    public void applyEvent(JournalEvent event) {
+        if (journal != null) {
+            throw new IllegalStateException("Detach the journal before replaying events.");
+        }
+        switch (event.getType()) {
+            case VEHICLE_ADDED:
+                addVehicleToFleet(event.toVehicle());
+                break;
+            case VEHICLE_REMOVED: {
+                Vehicle vehicle = findVehicleById(event.getVehicleId());
+                if (vehicle != null) {
+                    removeVehicleFromFleet(vehicle);
+                }
+                break;
+            }
+            case CUSTOMER_ADDED: {
+                Customer customer = new Customer(event.getText(), event.getCustomerId());
+                customer.addLoyaltyPoints(event.getAmount());
+                addCustomer(customer);
+                break;
+            }
+            case CUSTOMER_REMOVED: {
+                Customer customer = findCustomerById(event.getCustomerId());
+                if (customer != null) {
+                    removeCustomer(customer);
+                }
+                break;
+            }
+            case RENTED: {
+                // Customers don't have to be registered to rent, so rebuild
+                // unregistered ones from the ID and name on the event. The
+                // rental is charged what it was then, not what it would cost now.
+                Vehicle vehicle = findVehicleById(event.getVehicleId());
+                Customer customer = findCustomerById(event.getCustomerId());
+                if (customer == null) {
+                    customer = new Customer(event.getText(), event.getCustomerId());
+                }
+                if (vehicle == null) {
+                    break;
+                }
+                try {
+                    Reservation booking = claimRental(vehicle, customer, event.getAmount(), event.getDate(),
+                            event.getTransactionId(), event.getCost());
+                    // The transaction goes back under the ID it had before
+                    if (event.getTransactionId() != 0) {
+                        transactions.put(event.getTransactionId(), vehicle.getVehicleId(), vehicle.getModel(),
+                                customer.getCustomerId(), booking.getStartDate(), booking.getEndDate(),
+                                booking.getRentalCost(), false);
+                    }
+                    commitRental(vehicle, customer, booking, false);
+                    postRevenue(booking);
+                } catch (VehicleNotAvailable | CustomerNotEligible e) {
+                    throw new IllegalStateException("Cannot replay " + event + ": " + e.getMessage(), e);
+                }
+                break;
+            }
+            case RETURNED: {
+                Vehicle vehicle = findVehicleById(event.getVehicleId());
+                if (vehicle != null) {
+                    completeReturn(vehicle, event.getDate());
+                }
+                break;
+            }
+            case VEHICLE_RATED: {
+                Vehicle vehicle = findVehicleById(event.getVehicleId());
+                if (vehicle != null) {
+                    addVehicleRating(vehicle, event.getAmount());
+                }
+                break;
+            }
+            case CUSTOMER_RATED: {
+                Customer customer = findCustomerById(event.getCustomerId());
+                if (customer != null) {
+                    addCustomerRating(customer, event.getAmount());
+                }
+                break;
+            }
+            case FEATURE_ADDED: {
+                Vehicle vehicle = findVehicleById(event.getVehicleId());
+                if (vehicle != null) {
+                    vehicle.addFeature(event.toFeature());
+                }
+                break;
+            }
+            case LOYALTY_POINTS: {
+                Customer customer = findCustomerById(event.getCustomerId());
+                if (customer != null) {
+                    awardLoyaltyPoints(customer, event.getAmount());
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal event: " + event);
+        }
+    }
+
+    // Add a feature to a vehicle, raising its daily rate. Adding one the
+    // vehicle already has changes nothing and isn't journaled.
+    public void addVehicleFeature(Vehicle vehicle, Feature feature) {
+        synchronized (vehicle) {
+            if (vehicle.hasFeature(feature)) {
+                return;
+            }
+            vehicle.addFeature(feature);
+            if (journal != null) {
+                record(JournalEvent.featureAdded(vehicle, feature));
+            }
+        }
+    }
+
     // Method to rate a vehicle
     public void rateVehicle(Vehicle vehicle, int rating) {
         try {
-            vehicle.addRating(rating);
-            System.out.println("Vehicle " + vehicle.getModel() + " rated successfully.");
+            addVehicleRating(vehicle, rating);
+            if (journal != null) {
+                record(JournalEvent.vehicleRated(vehicle, rating));
+            }
+            EventLog.get().log(EventType.RATING_ADDED, vehicle.getVehicleId(), null, rating);
         } catch (IllegalArgumentException e) {
-            System.out.println("Error rating vehicle: " + e.getMessage());
+            EventLog.get().log(EventType.RATING_REJECTED, vehicle.getVehicleId(), e.getMessage(), rating);
         }
     }
 
     // Method to rate a customer
     public void rateCustomer(Customer customer, int rating) {
         try {
-            customer.addRating(rating);
-            System.out.println("Customer " + customer.getName() + " rated successfully.");
+            addCustomerRating(customer, rating);
+            if (journal != null) {
+                record(JournalEvent.customerRated(customer, rating));
+            }
+            EventLog.get().log(EventType.RATING_ADDED, customer.getCustomerId(), null, rating);
         } catch (IllegalArgumentException e) {
-            System.out.println("Error rating customer: " + e.getMessage());
+            EventLog.get().log(EventType.RATING_REJECTED, customer.getCustomerId(), e.getMessage(), rating);
         }
     }
-}
 
+    // Ratings count toward the report averages and the leaderboard while the
+    // vehicle is in the fleet
+    private void addVehicleRating(Vehicle vehicle, int rating) {
+        synchronized (vehicle) {
+            double before = vehicle.getAverageRating();
+            vehicle.addRating(rating);
+            if (vehiclesById.get(vehicle.getVehicleId()) == vehicle) {
+                aggregates.vehicleRated(before, vehicle.getAverageRating());
+                leaderboard.update(vehicle);
+            }
+        }
+    }
+
+    private void addCustomerRating(Customer customer, int rating) {
+        customer = live(customer);
+        synchronized (customer) {
+            if (customer.isRetired()) {
+                // Written back off-heap while we waited; rate the fresh copy
+                Customer current = live(customer);
+                if (current != customer) {
+                    addCustomerRating(current, rating);
+                    return;
+                }
+            }
+            double before = customer.getAverageRating();
+            customer.addRating(rating);
+            if (isRegistered(customer)) {
+                aggregates.customerRated(before, customer.getAverageRating());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One rental in a batch: which vehicle, for which customer, for how many
+ * days. Vehicles and customers are referred to by ID and resolved against
+ * the agency when the batch runs.
+ */
+public class RentalRequest {
+
+    private final String vehicleId;
+    private final String customerId;
+    private final int days;
+
+    public RentalRequest(String vehicleId, String customerId, int days) {
+        this.vehicleId = vehicleId;
+        this.customerId = customerId;
+        this.days = days;
+    }
+
+    public RentalRequest(Vehicle vehicle, Customer customer, int days) {
+        this(vehicle.getVehicleId(), customer.getCustomerId(), days);
+    }
+
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    // Parse "vehicleId:customerId:days" entries separated by commas,
+    // e.g. "V001:C123:3,V002:C124:5"
+    public static List<RentalRequest> parseList(String spec) {
+        List<RentalRequest> requests = new ArrayList<>();
+        if (spec == null || spec.trim().isEmpty()) {
+            return requests;
+        }
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid rental entry: " + entry);
+            }
+            try {
+                requests.add(new RentalRequest(parts[0], parts[1], Integer.parseInt(parts[2])));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid rental days in entry: " + entry);
+            }
+        }
+        return requests;
+    }
+
+    @Override
+    public String toString() {
+        return vehicleId + ":" + customerId + ":" + days;
+    }
+}
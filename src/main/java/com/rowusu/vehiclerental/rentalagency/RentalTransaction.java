@@ -0,0 +1,86 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * One rental as the agency recorded it: who rented what, for which days and
+ * at what price. Returned by RentalTransactionStore as a read-only copy of its
+ * row; the vehicle and customer are kept by ID, so the record outlives both.
+ */
+public final class RentalTransaction {
+
+    private final long transactionId;
+    private final String vehicleId;
+    private final String vehicleModel;
+    private final String customerId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final double cost;
+    private final boolean returned;
+
+    RentalTransaction(long transactionId, String vehicleId, String vehicleModel, String customerId,
+                      LocalDate startDate, LocalDate endDate, double cost, boolean returned) {
+        this.transactionId = transactionId;
+        this.vehicleId = vehicleId;
+        this.vehicleModel = vehicleModel;
+        this.customerId = customerId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.cost = cost;
+        this.returned = returned;
+    }
+
+    // The ID shown to clients, e.g. RENT42
+    public static String rentalId(long transactionId) {
+        return "RENT" + transactionId;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public String getRentalId() {
+        return rentalId(transactionId);
+    }
+
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getVehicleModel() {
+        return vehicleModel;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    // Last day booked while the rental is out, last day kept once it's returned
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public int getDays() {
+        return (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+    }
+
+    // What the rental was charged, less any days given back by an early return
+    public double getCost() {
+        return cost;
+    }
+
+    public boolean isReturned() {
+        return returned;
+    }
+
+    @Override
+    public String toString() {
+        return getRentalId() + ": " + vehicleId + " for " + customerId + " from " + startDate + " to " + endDate
+                + (returned ? " (returned)" : "");
+    }
+}
@@ -0,0 +1,409 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Every rental the agency has started, one row per transaction. Row i holds
+ * transaction i + 1, so IDs are unique, grow with each rental and look up in
+ * O(1).
+ *
+ * Rows are primitive columns: vehicle and customer as indexes into small ID
+ * dictionaries, start and end as epoch days, cost in cents. A row is about 30
+ * bytes counting its index entries below and holds no references, so history costs no objects per rental and a
+ * vehicle that has left the fleet isn't kept alive by it. Each vehicle and
+ * customer also has an int array of their own rows in start-date order, so a
+ * history, a date range or a page of either is an index range into it.
+ *
+ * A store rebuilt from a snapshot can leave the snapshot's rows unread (see
+ * restoreLazily) until something reads or changes one of them. New rentals
+ * are handed IDs after those rows without reading them.
+ */
+public class RentalTransactionStore {
+
+    private static final int INITIAL_ROWS = 256;
+    private static final int INITIAL_KEYS = 64;
+
+    private static final byte EMPTY = 0;
+    private static final byte OPEN = 1;
+    private static final byte RETURNED = 2;
+
+    // Guarded by this. Rows [0, size) have been handed out; an EMPTY one is an
+    // ID whose rental was rolled back or hasn't been replayed yet.
+    private int size;
+    private int count;
+    private byte[] status = new byte[INITIAL_ROWS];
+    private int[] vehicles = new int[INITIAL_ROWS];
+    private int[] customers = new int[INITIAL_ROWS];
+    private int[] startDays = new int[INITIAL_ROWS];
+    private int[] endDays = new int[INITIAL_ROWS];
+    private long[] costCents = new long[INITIAL_ROWS];
+
+    private final Keys vehicleKeys = new Keys();
+    private final Keys customerKeys = new Keys();
+
+    // Guarded by this. Rows [0, pendingRows) are still with the loader, which
+    // puts them into the store when run.
+    private int pendingRows;
+    private Consumer<RentalTransactionStore> loader;
+
+    // Leave the first rows to the loader, which records them with put the
+    // first time one of them, or the whole store, is needed
+    public synchronized void restoreLazily(int rows, Consumer<RentalTransactionStore> loader) {
+        if (size > 0 || this.loader != null) {
+            throw new IllegalStateException("Transactions can only be restored into an empty store.");
+        }
+        ensureRows(rows);
+        this.pendingRows = rows;
+        this.loader = loader;
+        this.size = rows;
+    }
+
+    // Read any rows still left to the loader
+    public synchronized void materialize() {
+        Consumer<RentalTransactionStore> pending = loader;
+        if (pending == null) {
+            return;
+        }
+        loader = null;
+        pendingRows = 0;
+        pending.accept(this);
+    }
+
+    // Read the pending rows first if the transaction is one of them
+    private void materializeFor(long transactionId) {
+        if (transactionId <= pendingRows) {
+            materialize();
+        }
+    }
+
+    // Record a new rental of [start, end] and return its ID
+    public synchronized long open(String vehicleId, String vehicleModel, String customerId,
+                                  LocalDate start, LocalDate end, double cost) {
+        int row = size;
+        insert(row, vehicleId, vehicleModel, customerId, start, end, cost, OPEN);
+        return row + 1L;
+    }
+
+    // Record a rental under an ID handed out before, e.g. one read back from
+    // the journal or a snapshot. IDs may arrive out of order; the rows in
+    // between stay empty until theirs do.
+    public synchronized void put(long transactionId, String vehicleId, String vehicleModel, String customerId,
+                                 LocalDate start, LocalDate end, double cost, boolean returned) {
+        if (transactionId < 1 || transactionId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid transaction ID: " + transactionId);
+        }
+        materializeFor(transactionId);
+        int row = (int) (transactionId - 1);
+        if (row < size && status[row] != EMPTY) {
+            throw new IllegalStateException("Transaction " + transactionId + " is already recorded.");
+        }
+        insert(row, vehicleId, vehicleModel, customerId, start, end, cost, returned ? RETURNED : OPEN);
+    }
+
+    // Close an open rental. It keeps the days up to lastDay (at least its
+    // first day) and is charged refund less. False if it wasn't open.
+    public synchronized boolean close(long transactionId, LocalDate lastDay, double refund) {
+        materializeFor(transactionId);
+        int row = rowOf(transactionId);
+        if (row < 0 || status[row] != OPEN) {
+            return false;
+        }
+        endDays[row] = Math.max(startDays[row], Math.toIntExact(lastDay.toEpochDay()));
+        costCents[row] -= Math.round(refund * 100);
+        status[row] = RETURNED;
+        return true;
+    }
+
+    // Drop a rental that was rolled back. Its ID is not handed out again.
+    public synchronized boolean discard(long transactionId) {
+        materializeFor(transactionId);
+        int row = rowOf(transactionId);
+        if (row < 0) {
+            return false;
+        }
+        vehicleKeys.remove(vehicles[row], row);
+        customerKeys.remove(customers[row], row);
+        status[row] = EMPTY;
+        count--;
+        return true;
+    }
+
+    public synchronized boolean isOpen(long transactionId) {
+        materializeFor(transactionId);
+        int row = rowOf(transactionId);
+        return row >= 0 && status[row] == OPEN;
+    }
+
+    // The transaction with the given ID, or null if there is none
+    public synchronized RentalTransaction get(long transactionId) {
+        materializeFor(transactionId);
+        int row = rowOf(transactionId);
+        return row < 0 ? null : view(row);
+    }
+
+    // ID of the vehicle's rental if it is still out, or 0
+    public synchronized long findOpen(String vehicleId) {
+        materialize();
+        Integer vehicle = vehicleKeys.index.get(vehicleId);
+        if (vehicle == null) {
+            return 0;
+        }
+        int row = vehicleKeys.latest(vehicle);
+        return row >= 0 && status[row] == OPEN ? row + 1L : 0;
+    }
+
+    // Every rental of the vehicle ID, oldest first
+    public synchronized List<RentalTransaction> forVehicle(String vehicleId) {
+        materialize();
+        return history(vehicleKeys, vehicleId);
+    }
+
+    // Every rental by the customer ID, oldest first
+    public synchronized List<RentalTransaction> forCustomer(String customerId) {
+        materialize();
+        return history(customerKeys, customerId);
+    }
+
+    // One page of the customer's rentals that started in [from, to] (either
+    // may be null for no bound), in start-date order or newest first. The
+    // page begins just past the cursor, a transaction ID from the previous
+    // page's getNextCursor, or at the start if the cursor is 0. Finding the
+    // page is a binary search, so it costs O(log n + page size) however long
+    // the history is.
+    public synchronized HistoryPage customerPage(String customerId, long cursor, int pageSize, boolean newestFirst,
+                                                 LocalDate from, LocalDate to) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        materialize();
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Range cannot end before it starts.");
+        }
+        Integer owner = customerKeys.index.get(customerId);
+        int row = cursor == 0 ? -1 : rowOf(cursor);
+        if (cursor != 0 && (owner == null || row < 0 || customers[row] != owner)) {
+            throw new IllegalArgumentException("Unknown cursor for customer " + customerId + ": " + cursor);
+        }
+        if (owner == null) {
+            return new HistoryPage(new ArrayList<>(), 0);
+        }
+
+        // Positions [low, high) of the owner's rows are in range and past the cursor
+        int low = from == null ? 0 : customerKeys.firstStartingOnOrAfter(owner, from.toEpochDay());
+        int high = to == null ? customerKeys.counts[owner]
+                : customerKeys.firstStartingOnOrAfter(owner, to.toEpochDay() + 1);
+        if (row >= 0) {
+            int at = customerKeys.positionOf(owner, row);
+            if (newestFirst) {
+                high = Math.min(high, at);
+            } else {
+                low = Math.max(low, at + 1);
+            }
+        }
+
+        int[] rows = customerKeys.rows[owner];
+        int length = Math.max(0, Math.min(pageSize, high - low));
+        List<RentalTransaction> items = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            items.add(view(rows[newestFirst ? high - 1 - i : low + i]));
+        }
+        boolean more = length < high - low;
+        return new HistoryPage(items, more ? items.get(length - 1).getTransactionId() : 0);
+    }
+
+    public synchronized int countForVehicle(String vehicleId) {
+        materialize();
+        return vehicleKeys.count(vehicleId);
+    }
+
+    public synchronized int countForCustomer(String customerId) {
+        materialize();
+        return customerKeys.count(customerId);
+    }
+
+    // Transactions recorded, not counting rolled-back ones
+    public synchronized int getCount() {
+        materialize();
+        return count;
+    }
+
+    // Highest ID handed out so far, or 0
+    public synchronized long getLastId() {
+        return size;
+    }
+
+    private void insert(int row, String vehicleId, String vehicleModel, String customerId,
+                        LocalDate start, LocalDate end, double cost, byte state) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("Rental cannot end before it starts.");
+        }
+        if (row == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Transaction store is full.");
+        }
+        ensureRows(row + 1);
+        int vehicle = vehicleKeys.indexOf(vehicleId, vehicleModel);
+        int customer = customerKeys.indexOf(customerId, null);
+        status[row] = state;
+        vehicles[row] = vehicle;
+        customers[row] = customer;
+        startDays[row] = Math.toIntExact(start.toEpochDay());
+        endDays[row] = Math.toIntExact(end.toEpochDay());
+        costCents[row] = Math.round(cost * 100);
+        vehicleKeys.add(vehicle, row);
+        customerKeys.add(customer, row);
+        size = Math.max(size, row + 1);
+        count++;
+    }
+
+    private int rowOf(long transactionId) {
+        if (transactionId < 1 || transactionId > size) {
+            return -1;
+        }
+        int row = (int) (transactionId - 1);
+        return status[row] == EMPTY ? -1 : row;
+    }
+
+    private RentalTransaction view(int row) {
+        return new RentalTransaction(row + 1L, vehicleKeys.ids[vehicles[row]], vehicleKeys.labels[vehicles[row]],
+                customerKeys.ids[customers[row]], LocalDate.ofEpochDay(startDays[row]),
+                LocalDate.ofEpochDay(endDays[row]), costCents[row] / 100.0, status[row] == RETURNED);
+    }
+
+    private List<RentalTransaction> history(Keys keys, String id) {
+        Integer owner = keys.index.get(id);
+        if (owner == null) {
+            return new ArrayList<>();
+        }
+        int[] rows = keys.rows[owner];
+        List<RentalTransaction> history = new ArrayList<>(keys.counts[owner]);
+        for (int i = 0; i < keys.counts[owner]; i++) {
+            history.add(view(rows[i]));
+        }
+        return history;
+    }
+
+    // Order of rows within a history: by start day, then by ID
+    private int compareRows(int a, int b) {
+        int byStart = Integer.compare(startDays[a], startDays[b]);
+        return byStart != 0 ? byStart : Integer.compare(a, b);
+    }
+
+    private void ensureRows(int rows) {
+        if (rows <= status.length) {
+            return;
+        }
+        int capacity = (int) Math.min(Math.max((long) status.length * 2, rows), Integer.MAX_VALUE - 8);
+        status = Arrays.copyOf(status, capacity);
+        vehicles = Arrays.copyOf(vehicles, capacity);
+        customers = Arrays.copyOf(customers, capacity);
+        startDays = Arrays.copyOf(startDays, capacity);
+        endDays = Arrays.copyOf(endDays, capacity);
+        costCents = Arrays.copyOf(costCents, capacity);
+    }
+
+    // IDs seen so far, each with its rows in history order. Vehicles also
+    // keep the model they were last rented under.
+    private final class Keys {
+        final Map<String, Integer> index = new HashMap<>();
+        String[] ids = new String[INITIAL_KEYS];
+        String[] labels = new String[INITIAL_KEYS];
+        int[][] rows = new int[INITIAL_KEYS][];
+        int[] counts = new int[INITIAL_KEYS];
+
+        int indexOf(String id, String label) {
+            Integer existing = index.get(id);
+            if (existing != null) {
+                if (label != null) {
+                    labels[existing] = label;
+                }
+                return existing;
+            }
+            int key = index.size();
+            if (key == ids.length) {
+                ids = Arrays.copyOf(ids, key * 2);
+                labels = Arrays.copyOf(labels, key * 2);
+                rows = Arrays.copyOf(rows, key * 2);
+                counts = Arrays.copyOf(counts, key * 2);
+            }
+            ids[key] = id;
+            labels[key] = label;
+            rows[key] = new int[2];
+            index.put(id, key);
+            return key;
+        }
+
+        int count(String id) {
+            Integer key = index.get(id);
+            return key == null ? 0 : counts[key];
+        }
+
+        // Last row in history order, or -1
+        int latest(int key) {
+            return counts[key] == 0 ? -1 : rows[key][counts[key] - 1];
+        }
+
+        // New rentals start today, so they nearly always go on the end;
+        // replayed ones can land a little further back
+        void add(int key, int row) {
+            int count = counts[key];
+            if (count == rows[key].length) {
+                rows[key] = Arrays.copyOf(rows[key], count * 2);
+            }
+            int[] list = rows[key];
+            int at = count;
+            while (at > 0 && compareRows(list[at - 1], row) > 0) {
+                at--;
+            }
+            System.arraycopy(list, at, list, at + 1, count - at);
+            list[at] = row;
+            counts[key]++;
+        }
+
+        void remove(int key, int row) {
+            int at = positionOf(key, row);
+            System.arraycopy(rows[key], at + 1, rows[key], at, counts[key] - at - 1);
+            counts[key]--;
+        }
+
+        // Position of a row the key is known to have
+        int positionOf(int key, int row) {
+            int[] list = rows[key];
+            int low = 0;
+            int high = counts[key] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compareRows(list[mid], row);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            throw new IllegalStateException("Row " + row + " is missing from its history.");
+        }
+
+        // Position of the first row starting on or after the epoch day
+        int firstStartingOnOrAfter(int key, long day) {
+            int[] list = rows[key];
+            int low = 0;
+            int high = counts[key];
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (startDays[list[mid]] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
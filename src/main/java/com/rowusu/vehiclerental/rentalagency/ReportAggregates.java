@@ -0,0 +1,212 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals behind the business reports. The agency updates them as each
+ * vehicle or customer is added or removed and as each rent, return, rating and
+ * loyalty award happens, so a report is a few reads instead of a walk over
+ * every customer's rentals.
+ *
+ * Counters are adders, so concurrent updates don't contend. A report reads
+ * them one at a time, so it may see a mutation that is only half counted.
+ */
+public class ReportAggregates {
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final int BRONZE = 0;
+    private static final int SILVER = 1;
+    private static final int GOLD = 2;
+
+    private final LongAdder vehicles = new LongAdder();
+    private final LongAdder customers = new LongAdder();
+
+    // Rentals currently out, whoever the renter is
+    private final LongAdder activeRentals = new LongAdder();
+    private final LongAdder activeRentalDays = new LongAdder();
+    private final DoubleAdder activeRevenue = new DoubleAdder();
+    private final LongAdder[] rentedByType = new LongAdder[TYPES.length];
+
+    // Registered customers by loyalty tier, and those with any points at all
+    private final LongAdder[] tiers = {new LongAdder(), new LongAdder(), new LongAdder()};
+    private final LongAdder customersWithPoints = new LongAdder();
+
+    // Sums of per-vehicle and per-customer average ratings (unrated counts as 0)
+    private final DoubleAdder vehicleRatings = new DoubleAdder();
+    private final DoubleAdder customerRatings = new DoubleAdder();
+
+    // Sum of the fleet's daily rates, i.e. what a fully rented day brings in
+    private final DoubleAdder dailyPotential = new DoubleAdder();
+
+    ReportAggregates() {
+        for (int i = 0; i < rentedByType.length; i++) {
+            rentedByType[i] = new LongAdder();
+        }
+    }
+
+    // Same thresholds as Customer.getLoyaltyStatus
+    private static int tierOf(int points) {
+        if (points >= 100) return GOLD;
+        if (points >= 50) return SILVER;
+        return BRONZE;
+    }
+
+    void vehicleAdded(double averageRating) {
+        vehicles.increment();
+        vehicleRatings.add(averageRating);
+    }
+
+    void vehicleRemoved(double averageRating) {
+        vehicles.decrement();
+        vehicleRatings.add(-averageRating);
+    }
+
+    void vehicleRated(double averageBefore, double averageAfter) {
+        vehicleRatings.add(averageAfter - averageBefore);
+    }
+
+    // Fed by the availability index as vehicles join or leave it or gain features
+    void dailyRateChanged(double before, double after) {
+        dailyPotential.add(after - before);
+    }
+
+    void customerAdded(int points, double averageRating) {
+        customers.increment();
+        tiers[tierOf(points)].increment();
+        if (points > 0) {
+            customersWithPoints.increment();
+        }
+        customerRatings.add(averageRating);
+    }
+
+    void customerRemoved(int points, double averageRating) {
+        customers.decrement();
+        tiers[tierOf(points)].decrement();
+        if (points > 0) {
+            customersWithPoints.decrement();
+        }
+        customerRatings.add(-averageRating);
+    }
+
+    void customerRated(double averageBefore, double averageAfter) {
+        customerRatings.add(averageAfter - averageBefore);
+    }
+
+    void pointsAwarded(int pointsBefore, int pointsAfter) {
+        int from = tierOf(pointsBefore);
+        int to = tierOf(pointsAfter);
+        if (from != to) {
+            tiers[from].decrement();
+            tiers[to].increment();
+        }
+        if (pointsBefore <= 0 && pointsAfter > 0) {
+            customersWithPoints.increment();
+        }
+    }
+
+    void rentalStarted(VehicleType type, int days, double cost) {
+        activeRentals.increment();
+        activeRentalDays.add(days);
+        activeRevenue.add(cost);
+        rentedByType[type.ordinal()].increment();
+    }
+
+    void rentalEnded(VehicleType type, int days, double cost) {
+        activeRentals.decrement();
+        activeRentalDays.add(-days);
+        activeRevenue.add(-cost);
+        rentedByType[type.ordinal()].decrement();
+    }
+
+    public int getVehicleCount() {
+        return vehicles.intValue();
+    }
+
+    public int getCustomerCount() {
+        return customers.intValue();
+    }
+
+    public int getActiveRentals() {
+        return activeRentals.intValue();
+    }
+
+    public long getActiveRentalDays() {
+        return activeRentalDays.sum();
+    }
+
+    // What the rentals currently out were charged
+    public double getActiveRevenue() {
+        return activeRevenue.sum();
+    }
+
+    public int getRentedCount(VehicleType type) {
+        return rentedByType[type.ordinal()].intValue();
+    }
+
+    // The type with the most rentals out, or null if nothing is rented
+    public VehicleType getPeakDemandType() {
+        VehicleType peak = null;
+        long most = 0;
+        for (VehicleType type : TYPES) {
+            long count = rentedByType[type.ordinal()].sum();
+            if (count > most) {
+                most = count;
+                peak = type;
+            }
+        }
+        return peak;
+    }
+
+    public int getGoldMembers() {
+        return tiers[GOLD].intValue();
+    }
+
+    public int getSilverMembers() {
+        return tiers[SILVER].intValue();
+    }
+
+    public int getBronzeMembers() {
+        return tiers[BRONZE].intValue();
+    }
+
+    public int getCustomersWithPoints() {
+        return customersWithPoints.intValue();
+    }
+
+    // Retention rate: the percentage of registered customers holding any
+    // loyalty points, i.e. who have been rewarded for coming back
+    public double getRetentionRate() {
+        int count = getCustomerCount();
+        return count > 0 ? (double) getCustomersWithPoints() / count * 100 : 0;
+    }
+
+    public double getAverageRentalDays() {
+        int rentals = getActiveRentals();
+        return rentals > 0 ? (double) getActiveRentalDays() / rentals : 0;
+    }
+
+    public double getAverageRevenuePerRental() {
+        int rentals = getActiveRentals();
+        return rentals > 0 ? getActiveRevenue() / rentals : 0;
+    }
+
+    // Daily revenue if every vehicle in the fleet were rented
+    public double getDailyPotential() {
+        return dailyPotential.sum();
+    }
+
+    // Mean of the vehicles' average ratings
+    public double getAverageVehicleRating() {
+        int count = getVehicleCount();
+        return count > 0 ? vehicleRatings.sum() / count : 0;
+    }
+
+    // Mean of the registered customers' average ratings
+    public double getAverageCustomerRating() {
+        int count = getCustomerCount();
+        return count > 0 ? customerRatings.sum() / count : 0;
+    }
+}
@@ -0,0 +1,104 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Vehicle;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A booking of one vehicle for an inclusive range of dates. Rentals started
+ * through the agency are booked the same way, starting on the rental day.
+ */
+public class Reservation {
+
+    private final String reservationId;
+    private final Vehicle vehicle;
+    private final Customer customer;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    // What a rental backed by this booking was charged, so the report totals
+    // come off by the same amounts when it ends
+    private int rentalDays;
+    private double rentalCost;
+
+    // The rental's transaction, or 0 if the booking isn't backing a rental
+    private long transactionId;
+
+    public Reservation(String reservationId, Vehicle vehicle, Customer customer,
+                       LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Reservation cannot end before it starts.");
+        }
+        this.reservationId = reservationId;
+        this.vehicle = vehicle;
+        this.customer = customer;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    // Number of days booked, counting both the first and the last day
+    public int getDays() {
+        return (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+    }
+
+    // Set before the rental is published to other threads
+    void charge(int days, double cost) {
+        this.rentalDays = days;
+        this.rentalCost = cost;
+    }
+
+    int getRentalDays() {
+        return rentalDays;
+    }
+
+    // What the rental was charged, or 0 for a plain reservation
+    public double getRentalCost() {
+        return rentalCost;
+    }
+
+    // Set along with the charge, before the rental is published
+    void setTransactionId(long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public boolean overlaps(LocalDate from, LocalDate to) {
+        return !startDate.isAfter(to) && !endDate.isBefore(from);
+    }
+
+    // Same booking, cut short to end on the given day
+    Reservation endingOn(LocalDate lastDay) {
+        return new Reservation(reservationId, vehicle, customer, startDate, lastDay);
+    }
+
+    @Override
+    public String toString() {
+        return reservationId + ": " + vehicle.getVehicleId() + " for " + customer.getCustomerId()
+                + " from " + startDate + " to " + endDate;
+    }
+}
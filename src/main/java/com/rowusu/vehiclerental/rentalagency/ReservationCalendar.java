@@ -0,0 +1,129 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One vehicle's bookings, kept as non-overlapping date ranges ordered by start
+ * day. Because the ranges never overlap, the booking with the latest start on
+ * or before a date is the only one that can cover it, so free/busy checks and
+ * inserts are a single tree lookup however many bookings the vehicle has.
+ */
+public class ReservationCalendar {
+
+    // Start epoch day -> booking
+    private final TreeMap<Long, Reservation> bookings = new TreeMap<>();
+
+    // The vehicle's index slot and the per-day index its bookings are copied
+    // into, or null once released or if no index is kept
+    private final int slot;
+    private BookedDays booked;
+
+    public ReservationCalendar() {
+        this(-1, null);
+    }
+
+    ReservationCalendar(int slot, BookedDays booked) {
+        this.slot = slot;
+        this.booked = slot >= 0 ? booked : null;
+    }
+
+    // Whether no booking touches any day in [from, to]
+    public synchronized boolean isFree(LocalDate from, LocalDate to) {
+        return conflict(from, to) == null;
+    }
+
+    // The booking that overlaps [from, to], or null if the range is free
+    public synchronized Reservation conflict(LocalDate from, LocalDate to) {
+        Map.Entry<Long, Reservation> candidate = bookings.floorEntry(to.toEpochDay());
+        if (candidate != null && !candidate.getValue().getEndDate().isBefore(from)) {
+            return candidate.getValue();
+        }
+        return null;
+    }
+
+    // Add the booking if its dates are free; the check and insert are atomic
+    public synchronized boolean book(Reservation reservation) {
+        if (conflict(reservation.getStartDate(), reservation.getEndDate()) != null) {
+            return false;
+        }
+        bookings.put(reservation.getStartDate().toEpochDay(), reservation);
+        if (booked != null) {
+            booked.mark(slot, reservation.getStartDate(), reservation.getEndDate());
+        }
+        return true;
+    }
+
+    public synchronized boolean cancel(Reservation reservation) {
+        if (!bookings.remove(reservation.getStartDate().toEpochDay(), reservation)) {
+            return false;
+        }
+        if (booked != null) {
+            booked.unmark(slot, reservation.getStartDate(), reservation.getEndDate());
+        }
+        return true;
+    }
+
+    // Free every day after lastDay and return what is left of the booking.
+    // A booking that hadn't started by then is dropped and null is returned.
+    public synchronized Reservation shorten(Reservation reservation, LocalDate lastDay) {
+        long start = reservation.getStartDate().toEpochDay();
+        if (bookings.get(start) != reservation) {
+            return null;
+        }
+        if (lastDay.isBefore(reservation.getStartDate())) {
+            bookings.remove(start);
+            if (booked != null) {
+                booked.unmark(slot, reservation.getStartDate(), reservation.getEndDate());
+            }
+            return null;
+        }
+        if (!lastDay.isBefore(reservation.getEndDate())) {
+            return reservation;
+        }
+        Reservation shortened = reservation.endingOn(lastDay);
+        bookings.put(start, shortened);
+        if (booked != null) {
+            booked.unmark(slot, lastDay.plusDays(1), reservation.getEndDate());
+        }
+        return shortened;
+    }
+
+    // Take the bookings out of the per-day index before the slot is reused.
+    // The calendar itself keeps working, it just isn't indexed any more.
+    synchronized void release() {
+        if (booked != null) {
+            for (Reservation reservation : bookings.values()) {
+                booked.unmark(slot, reservation.getStartDate(), reservation.getEndDate());
+            }
+            booked = null;
+        }
+    }
+
+    // Bookings overlapping [from, to], in date order
+    public synchronized List<Reservation> between(LocalDate from, LocalDate to) {
+        List<Reservation> result = new ArrayList<>();
+        if (to.isBefore(from)) {
+            return result;
+        }
+        Long first = bookings.floorKey(from.toEpochDay());
+        long fromKey = first != null ? first : from.toEpochDay();
+        for (Reservation reservation : bookings.subMap(fromKey, true, to.toEpochDay(), true).values()) {
+            if (reservation.overlaps(from, to)) {
+                result.add(reservation);
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<Reservation> getReservations() {
+        return new ArrayList<>(bookings.values());
+    }
+
+    public synchronized int size() {
+        return bookings.size();
+    }
+}
@@ -0,0 +1,192 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Revenue earned per calendar day, in cents. A rental posts its charge spread
+ * over the days it is booked for, and a return ahead of schedule takes back
+ * the days it no longer covers, so each day holds what the rentals out that
+ * day earned.
+ *
+ * Days live in one primitive array starting at the earliest day posted, with
+ * a Fenwick tree over it, so the total for any day, week, month or range of
+ * dates is two prefix sums: O(log n) however many years are kept. Both arrays
+ * double when a posting falls outside them.
+ */
+public class RevenueLedger {
+
+    private static final int INITIAL_DAYS = 512;
+
+    // Guarded by this. firstDay is the epoch day of index 0.
+    private long firstDay;
+    private long[] daily = new long[0];
+    private long[] tree = new long[1];
+
+    // Spread the rental's charge over its booked days; the first day takes
+    // whatever doesn't divide evenly
+    public synchronized void postRental(LocalDate start, int days, double cost) {
+        int booked = Math.max(days, 1);
+        long cents = Math.round(cost * 100);
+        long perDay = cents / booked;
+        long first = start.toEpochDay();
+        add(first, perDay + cents % booked);
+        for (int i = 1; i < booked; i++) {
+            add(first + i, perDay);
+        }
+    }
+
+    // Take back the booked days from the return day on. A rental always keeps
+    // its first day, and a late return earns nothing extra. Returns the
+    // amount taken back.
+    public synchronized double postReturn(LocalDate start, int days, double cost, LocalDate returnedOn) {
+        int booked = Math.max(days, 1);
+        long perDay = Math.round(cost * 100) / booked;
+        long first = start.toEpochDay();
+        long from = Math.max(returnedOn.toEpochDay(), first + 1);
+        long refunded = 0;
+        for (long day = from; day < first + booked; day++) {
+            add(day, -perDay);
+            refunded += perDay;
+        }
+        return refunded / 100.0;
+    }
+
+    public double getDay(LocalDate day) {
+        return getRange(day, day);
+    }
+
+    // Total for the inclusive range [from, to]
+    public synchronized double getRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range cannot end before it starts.");
+        }
+        return (prefix(to.toEpochDay()) - prefix(from.toEpochDay() - 1)) / 100.0;
+    }
+
+    // The n days ending with (and including) the given day
+    public double getTrailingDays(LocalDate last, int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Trailing period must be at least one day.");
+        }
+        return getRange(last.minusDays(n - 1), last);
+    }
+
+    // The Monday-to-Sunday week containing the day
+    public double getWeek(LocalDate day) {
+        LocalDate monday = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return getRange(monday, monday.plusDays(6));
+    }
+
+    public double getMonth(YearMonth month) {
+        return getRange(month.atDay(1), month.atEndOfMonth());
+    }
+
+    // Weekly totals for the given number of weeks, starting with the one containing from
+    public double[] getWeeks(LocalDate from, int weeks) {
+        double[] totals = new double[weeks];
+        for (int i = 0; i < weeks; i++) {
+            totals[i] = getWeek(from.plusWeeks(i));
+        }
+        return totals;
+    }
+
+    public double[] getMonths(YearMonth from, int months) {
+        double[] totals = new double[months];
+        for (int i = 0; i < months; i++) {
+            totals[i] = getMonth(from.plusMonths(i));
+        }
+        return totals;
+    }
+
+    public double getToday() {
+        return getDay(LocalDate.now());
+    }
+
+    // Epoch day of the first stored day, for persisting the ledger
+    public synchronized long getFirstDay() {
+        return firstDay;
+    }
+
+    // Copy of the stored days in cents, starting at getFirstDay()
+    public synchronized long[] getDailyCents() {
+        return daily.clone();
+    }
+
+    // Replace the contents with days persisted by getFirstDay/getDailyCents
+    public synchronized void restore(long firstDay, long[] cents) {
+        this.firstDay = firstDay;
+        this.daily = cents.clone();
+        rebuild();
+    }
+
+    private void add(long day, long cents) {
+        if (cents == 0) {
+            return;
+        }
+        int index = indexFor(day);
+        daily[index] += cents;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += cents;
+        }
+    }
+
+    // Sum of every stored day up to and including the given one
+    private long prefix(long day) {
+        long offset = day - firstDay;
+        if (offset < 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = (int) Math.min(offset + 1, daily.length); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Index of the day, growing the arrays to cover it if needed
+    private int indexFor(long day) {
+        if (daily.length == 0) {
+            firstDay = day;
+            daily = new long[INITIAL_DAYS];
+            tree = new long[INITIAL_DAYS + 1];
+            return 0;
+        }
+        long offset = day - firstDay;
+        if (offset >= 0 && offset < daily.length) {
+            return (int) offset;
+        }
+        // Double until the day fits, adding room on the side it fell
+        long length = daily.length;
+        long shift = 0;
+        while (offset + shift < 0 || offset + shift >= length) {
+            if (offset + shift < 0) {
+                shift += length;
+            }
+            length *= 2;
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Day is too far from the rest of the ledger: " + LocalDate.ofEpochDay(day));
+        }
+        long[] grown = new long[(int) length];
+        System.arraycopy(daily, 0, grown, (int) shift, daily.length);
+        daily = grown;
+        firstDay -= shift;
+        rebuild();
+        return (int) (offset + shift);
+    }
+
+    // Build the Fenwick tree over the daily array in linear time
+    private void rebuild() {
+        tree = new long[daily.length + 1];
+        for (int i = 1; i <= daily.length; i++) {
+            tree[i] += daily[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= daily.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
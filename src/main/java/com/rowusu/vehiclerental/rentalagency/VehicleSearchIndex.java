@@ -0,0 +1,117 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Secondary indexes over the fleet: vehicles grouped by type and sorted by
+ * base daily rate, both overall and within each type. Type and price-range
+ * queries are a skip-list seek plus the size of the result.
+ */
+public class VehicleSearchIndex {
+
+    private final NavigableMap<RateKey, Vehicle> byRate = new ConcurrentSkipListMap<>();
+    private final Map<VehicleType, NavigableMap<RateKey, Vehicle>> byTypeAndRate = new EnumMap<>(VehicleType.class);
+    private final Map<VehicleType, AtomicInteger> typeCounts = new EnumMap<>(VehicleType.class);
+
+    public VehicleSearchIndex() {
+        for (VehicleType type : VehicleType.values()) {
+            byTypeAndRate.put(type, new ConcurrentSkipListMap<>());
+            typeCounts.put(type, new AtomicInteger());
+        }
+    }
+
+    public void add(Vehicle vehicle) {
+        RateKey key = RateKey.of(vehicle);
+        byRate.put(key, vehicle);
+        byTypeAndRate.get(vehicle.getType()).put(key, vehicle);
+        typeCounts.get(vehicle.getType()).incrementAndGet();
+    }
+
+    public void remove(Vehicle vehicle) {
+        RateKey key = RateKey.of(vehicle);
+        if (byRate.remove(key, vehicle)) {
+            byTypeAndRate.get(vehicle.getType()).remove(key, vehicle);
+            typeCounts.get(vehicle.getType()).decrementAndGet();
+        }
+    }
+
+    public int count(VehicleType type) {
+        return typeCounts.get(type).get();
+    }
+
+    public List<Vehicle> byType(VehicleType type) {
+        return new ArrayList<>(byTypeAndRate.get(type).values());
+    }
+
+    /**
+     * Vehicles whose base rate lies in [minRate, maxRate], cheapest first.
+     * A null type searches the whole fleet.
+     */
+    public List<Vehicle> find(VehicleType type, double minRate, double maxRate, boolean availableOnly) {
+        List<Vehicle> result = new ArrayList<>();
+        if (minRate > maxRate) {
+            return result;
+        }
+        NavigableMap<RateKey, Vehicle> source = type == null ? byRate : byTypeAndRate.get(type);
+        RateKey from = new RateKey(minRate, "");
+        RateKey to = new RateKey(Math.nextUp(maxRate), "");
+        for (Vehicle vehicle : source.subMap(from, true, to, false).values()) {
+            if (!availableOnly || vehicle.isAvailable()) {
+                result.add(vehicle);
+            }
+        }
+        return result;
+    }
+
+    // The vehicle of the type with the lowest base rate, or null if there's none
+    public Vehicle cheapest(VehicleType type, boolean availableOnly) {
+        for (Vehicle vehicle : byTypeAndRate.get(type).values()) {
+            if (!availableOnly || vehicle.isAvailable()) {
+                return vehicle;
+            }
+        }
+        return null;
+    }
+
+    // Sort key: base rate, then vehicle ID so equal rates don't collide
+    private static final class RateKey implements Comparable<RateKey> {
+        private final double rate;
+        private final String vehicleId;
+
+        private RateKey(double rate, String vehicleId) {
+            this.rate = rate;
+            this.vehicleId = vehicleId;
+        }
+
+        static RateKey of(Vehicle vehicle) {
+            return new RateKey(vehicle.getBaseRentalRate(), vehicle.getVehicleId());
+        }
+
+        @Override
+        public int compareTo(RateKey other) {
+            int byRate = Double.compare(rate, other.rate);
+            return byRate != 0 ? byRate : vehicleId.compareTo(other.vehicleId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RateKey)) return false;
+            return compareTo((RateKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(rate) + vehicleId.hashCode();
+        }
+    }
+}
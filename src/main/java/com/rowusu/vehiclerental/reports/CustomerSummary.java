@@ -0,0 +1,119 @@
+package com.rowusu.vehiclerental.reports;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+
+import java.util.Map;
+
+/**
+ * Customer totals: loyalty tiers, ratings, and the rentals the customers
+ * currently have out, with their days, cost and vehicle types.
+ */
+public class CustomerSummary implements PartialResult<Customer, CustomerSummary> {
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private int customers;
+    private int gold;
+    private int silver;
+    private int withPoints;
+    private double ratingSum;
+    private int rentals;
+    private long rentalDays;
+    private double revenue;
+    private final int[] rentedByType = new int[TYPES.length];
+
+    @Override
+    public void add(Customer customer) {
+        customers++;
+        int points = customer.getLoyaltyPoints();
+        if (points >= 100) gold++;
+        else if (points >= 50) silver++;
+        if (points > 0) withPoints++;
+        ratingSum += customer.getAverageRating();
+
+        for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
+            Vehicle vehicle = entry.getKey();
+            int days = entry.getValue();
+            rentals++;
+            rentalDays += days;
+            revenue += vehicle.calculateRentalCost(days);
+            rentedByType[vehicle.getType().ordinal()]++;
+        }
+    }
+
+    @Override
+    public CustomerSummary merge(CustomerSummary other) {
+        customers += other.customers;
+        gold += other.gold;
+        silver += other.silver;
+        withPoints += other.withPoints;
+        ratingSum += other.ratingSum;
+        rentals += other.rentals;
+        rentalDays += other.rentalDays;
+        revenue += other.revenue;
+        for (int i = 0; i < TYPES.length; i++) {
+            rentedByType[i] += other.rentedByType[i];
+        }
+        return this;
+    }
+
+    public int getCustomerCount() {
+        return customers;
+    }
+
+    public int getGoldMembers() {
+        return gold;
+    }
+
+    public int getSilverMembers() {
+        return silver;
+    }
+
+    public int getBronzeMembers() {
+        return customers - gold - silver;
+    }
+
+    public int getCustomersWithPoints() {
+        return withPoints;
+    }
+
+    // Mean of the customers' average ratings (unrated counts as 0)
+    public double getAverageRating() {
+        return customers > 0 ? ratingSum / customers : 0;
+    }
+
+    public int getRentals() {
+        return rentals;
+    }
+
+    public long getRentalDays() {
+        return rentalDays;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public double getAverageRentalDays() {
+        return rentals > 0 ? (double) rentalDays / rentals : 0;
+    }
+
+    public int getRentedCount(VehicleType type) {
+        return rentedByType[type.ordinal()];
+    }
+
+    // The type with the most rentals out, or null if nothing is rented
+    public VehicleType getPeakDemandType() {
+        VehicleType peak = null;
+        int most = 0;
+        for (VehicleType type : TYPES) {
+            if (rentedByType[type.ordinal()] > most) {
+                most = rentedByType[type.ordinal()];
+                peak = type;
+            }
+        }
+        return peak;
+    }
+}
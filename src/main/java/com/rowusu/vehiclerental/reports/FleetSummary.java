@@ -0,0 +1,100 @@
+package com.rowusu.vehiclerental.reports;
+
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+
+/**
+ * Fleet totals: vehicle and availability counts per type, rating and rate
+ * sums, and the daily revenue the fleet could bring in if fully rented.
+ */
+public class FleetSummary implements PartialResult<Vehicle, FleetSummary> {
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private int vehicles;
+    private int available;
+    private final int[] byType = new int[TYPES.length];
+    private final int[] availableByType = new int[TYPES.length];
+    private double ratingSum;
+    private double rateSum;
+    private double dailyPotential;
+
+    @Override
+    public void add(Vehicle vehicle) {
+        int type = vehicle.getType().ordinal();
+        vehicles++;
+        byType[type]++;
+        if (vehicle.isAvailable()) {
+            available++;
+            availableByType[type]++;
+        }
+        ratingSum += vehicle.getAverageRating();
+        rateSum += vehicle.getBaseRentalRate();
+        dailyPotential += vehicle.getDailyRate();
+    }
+
+    // Totals for a group of vehicles of one type at once, e.g. from a columnar
+    // scan; ratingSum is the sum of their average ratings
+    public void addGroup(VehicleType type, int count, int availableCount, double ratingSum,
+                         double baseRateSum, double dailyRateSum) {
+        vehicles += count;
+        byType[type.ordinal()] += count;
+        available += availableCount;
+        availableByType[type.ordinal()] += availableCount;
+        this.ratingSum += ratingSum;
+        rateSum += baseRateSum;
+        dailyPotential += dailyRateSum;
+    }
+
+    @Override
+    public FleetSummary merge(FleetSummary other) {
+        vehicles += other.vehicles;
+        available += other.available;
+        for (int i = 0; i < TYPES.length; i++) {
+            byType[i] += other.byType[i];
+            availableByType[i] += other.availableByType[i];
+        }
+        ratingSum += other.ratingSum;
+        rateSum += other.rateSum;
+        dailyPotential += other.dailyPotential;
+        return this;
+    }
+
+    public int getVehicleCount() {
+        return vehicles;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getUnavailable() {
+        return vehicles - available;
+    }
+
+    public int getCount(VehicleType type) {
+        return byType[type.ordinal()];
+    }
+
+    public int getAvailable(VehicleType type) {
+        return availableByType[type.ordinal()];
+    }
+
+    // Mean of the vehicles' average ratings (unrated counts as 0)
+    public double getAverageRating() {
+        return vehicles > 0 ? ratingSum / vehicles : 0;
+    }
+
+    public double getAverageRate() {
+        return vehicles > 0 ? rateSum / vehicles : 0;
+    }
+
+    // Base rates plus feature surcharges across the fleet
+    public double getDailyPotential() {
+        return dailyPotential;
+    }
+
+    public double getUtilization() {
+        return vehicles > 0 ? ((double) getUnavailable() / vehicles) * 100 : 0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.rowusu.vehiclerental.reports;
+
+/**
+ * Report totals over one chunk of a list. The engine folds each item of a
+ * chunk into a fresh result, then merges the chunks' results pairwise, so
+ * merge has to be associative and a fresh result has to be its identity.
+ */
+public interface PartialResult<T, P extends PartialResult<T, P>> {
+
+    void add(T item);
+
+    // Fold the other chunk's totals into this one and return this
+    P merge(P other);
+}
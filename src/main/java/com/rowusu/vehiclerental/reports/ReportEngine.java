@@ -0,0 +1,128 @@
+package com.rowusu.vehiclerental.reports;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Vehicle;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs ad-hoc reports over the fleet or customer list: the list is split into
+ * chunks, each chunk is summarized on a fork-join pool, and the partial
+ * results are merged. Lists shorter than the threshold, or an engine with a
+ * parallelism of one, are summarized on the calling thread, where forking
+ * would cost more than it saves.
+ */
+public class ReportEngine {
+
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    // Smallest chunk worth its own task
+    private static final int MIN_CHUNK = 1024;
+
+    // Chunks per worker, so a slow chunk doesn't leave the others idle
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int parallelism;
+    private final int threshold;
+    private volatile ForkJoinPool pool;
+
+    public ReportEngine(int parallelism, int threshold) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+    }
+
+    // Settings from vehiclerental.reports.parallelism and vehiclerental.reports.threshold
+    public static ReportEngine fromProperties() {
+        return new ReportEngine(
+            Integer.getInteger("vehiclerental.reports.parallelism", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("vehiclerental.reports.threshold", DEFAULT_THRESHOLD));
+    }
+
+    public FleetSummary summarizeFleet(List<Vehicle> fleet) {
+        return summarize(fleet, FleetSummary::new);
+    }
+
+    public CustomerSummary summarizeCustomers(List<Customer> customers) {
+        return summarize(customers, CustomerSummary::new);
+    }
+
+    // Fold every item into results from the supplier and merge them into one
+    public <T, P extends PartialResult<T, P>> P summarize(List<? extends T> items, Supplier<P> empty) {
+        // Work from a copy so chunks see one consistent list even if it changes
+        Object[] snapshot = items.toArray();
+        if (parallelism == 1 || snapshot.length < threshold) {
+            return summarizeRange(snapshot, 0, snapshot.length, empty);
+        }
+        int chunk = Math.max(MIN_CHUNK, -Math.floorDiv(-snapshot.length, parallelism * CHUNKS_PER_THREAD));
+        return pool().invoke(new ChunkTask<>(snapshot, 0, snapshot.length, chunk, empty));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, P extends PartialResult<T, P>> P summarizeRange(Object[] items, int from, int to, Supplier<P> empty) {
+        P result = empty.get();
+        for (int i = from; i < to; i++) {
+            result.add((T) items[i]);
+        }
+        return result;
+    }
+
+    private ForkJoinPool pool() {
+        ForkJoinPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                current = pool;
+                if (current == null) {
+                    current = new ForkJoinPool(parallelism);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    // Halves its range until it is one chunk, then summarizes it directly
+    private static final class ChunkTask<T, P extends PartialResult<T, P>> extends RecursiveTask<P> {
+        private final Object[] items;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final Supplier<P> empty;
+
+        ChunkTask(Object[] items, int from, int to, int chunk, Supplier<P> empty) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.empty = empty;
+        }
+
+        @Override
+        protected P compute() {
+            if (to - from <= chunk) {
+                return summarizeRange(items, from, to, empty);
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask<T, P> left = new ChunkTask<>(items, from, mid, chunk, empty);
+            left.fork();
+            P right = new ChunkTask<T, P>(items, mid, to, chunk, empty).compute();
+            return left.join().merge(right);
+        }
+    }
+}
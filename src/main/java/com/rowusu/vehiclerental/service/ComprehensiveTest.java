@@ -195,7 +195,7 @@ public class ComprehensiveTest {
             agency.processReturn(car);
             assert car.isAvailable();
             assert customer.getCurrentRentals().size() == 0;
-            assert customer.getRentalHistory().contains(car);
+            assert agency.getRentalHistory(customer).get(0).isReturned();
             passTest("Successful vehicle return");
             
         } catch (Exception e) {
@@ -1,9 +1,11 @@
 package com.rowusu.vehiclerental.service;
 
 import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.journal.AgencyStore;
 import com.rowusu.vehiclerental.model.*;
 import com.rowusu.vehiclerental.rentalagency.RentalAgency;
 
+import java.io.IOException;
 import java.util.Scanner;
 
 public class InteractiveApp {
@@ -15,7 +17,15 @@ public class InteractiveApp {
         System.out.println("=========================================================");
         System.out.println("📝 This version allows you to input your own data!");
         
-        agency = new RentalAgency();
+        // Pick up where the last session left off
+        try {
+            AgencyStore store = AgencyStore.open(AgencyStore.defaultDirectory(), false);
+            store.closeOnShutdown();
+            agency = store.getAgency();
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not load saved data, starting empty: " + e.getMessage());
+            agency = new RentalAgency();
+        }
         scanner = new Scanner(System.in);
         
         // Start interactive menu
@@ -338,7 +348,7 @@ public class InteractiveApp {
             }
             
             double cost = getValidDouble("Enter feature cost per day: $", 0.0, 1000.0);
-            vehicle.addFeature(new Feature(featureName, cost));
+            vehicle.addFeature(Feature.of(featureName, cost));
             System.out.println("✅ Feature '" + featureName + "' added!");
         }
     }
@@ -527,7 +537,7 @@ public class InteractiveApp {
         // Process rental
         try {
             agency.rentVehicle(selectedVehicle, customer, days);
-            customer.addLoyaltyPoints(days * 10); // Award loyalty points
+            agency.awardLoyaltyPoints(customer, days * 10); // Award loyalty points
             System.out.println("✅ Rental processed successfully!");
             System.out.printf("   %s earned %d loyalty points!\n", customer.getName(), days * 10);
         } catch (Exception e) {
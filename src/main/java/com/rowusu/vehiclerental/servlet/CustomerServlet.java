@@ -1,7 +1,9 @@
 package com.rowusu.vehiclerental.servlet;
 
 import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.rentalagency.HistoryPage;
 import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.RentalTransaction;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -11,6 +13,8 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 /**
@@ -22,7 +26,7 @@ public class CustomerServlet extends HttpServlet {
     private RentalAgency getRentalAgency(HttpSession session) {
         RentalAgency agency = (RentalAgency) session.getAttribute("rentalAgency");
         if (agency == null) {
-            agency = new RentalAgency();
+            agency = RentalAgency.createConcurrent();
             session.setAttribute("rentalAgency", agency);
         }
         return agency;
@@ -63,17 +67,68 @@ public class CustomerServlet extends HttpServlet {
                 json.append("]}");
                 out.print(json.toString());
                 
+            } else if ("history".equals(action)) {
+                // One page of a customer's rentals:
+                // id=C123&limit=20&order=desc&cursor=41&from=2024-01-01&to=2024-06-30
+                Customer customer = findCustomer(agency, request.getParameter("id"));
+                if (customer == null) {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    out.print("{\"error\":\"Customer not found\"}");
+                    return;
+                }
+                String limit = request.getParameter("limit");
+                String cursor = request.getParameter("cursor");
+                String from = request.getParameter("from");
+                String to = request.getParameter("to");
+                HistoryPage page = agency.getRentalHistory(customer,
+                        cursor == null || cursor.isEmpty() ? 0 : Long.parseLong(cursor),
+                        limit == null ? HistoryPage.DEFAULT_SIZE : Math.min(Integer.parseInt(limit), HistoryPage.MAX_SIZE),
+                        !"asc".equals(request.getParameter("order")),
+                        from == null ? null : LocalDate.parse(from),
+                        to == null ? null : LocalDate.parse(to));
+                out.print(historyJson(customer, page));
+                
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.print("{\"error\":\"Invalid action\"}");
             }
             
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.print("{\"error\":\"" + e.getMessage() + "\"}");
         }
     }
     
+    private String historyJson(Customer customer, HistoryPage page) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"customerId\":\"").append(customer.getCustomerId()).append("\",")
+            .append("\"rentals\":[");
+        
+        List<RentalTransaction> rentals = page.getTransactions();
+        for (int i = 0; i < rentals.size(); i++) {
+            RentalTransaction t = rentals.get(i);
+            if (i > 0) json.append(",");
+            json.append("{")
+                .append("\"id\":\"").append(t.getRentalId()).append("\",")
+                .append("\"vehicleId\":\"").append(t.getVehicleId()).append("\",")
+                .append("\"vehicleModel\":\"").append(t.getVehicleModel()).append("\",")
+                .append("\"startDate\":\"").append(t.getStartDate()).append("\",")
+                .append("\"endDate\":\"").append(t.getEndDate()).append("\",")
+                .append("\"days\":").append(t.getDays()).append(",")
+                .append("\"cost\":").append(t.getCost()).append(",")
+                .append("\"status\":\"").append(t.isReturned() ? "Returned" : "Active").append("\"")
+                .append("}");
+        }
+        
+        json.append("],\"nextCursor\":")
+            .append(page.hasMore() ? "\"" + page.getNextCursor() + "\"" : "null")
+            .append("}");
+        return json.toString();
+    }
+    
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
@@ -143,7 +198,7 @@ public class CustomerServlet extends HttpServlet {
         try {
             Customer customer = findCustomer(agency, customerId);
             if (customer != null) {
-                agency.getCustomers().remove(customer);
+                agency.removeCustomer(customer);
                 out.print("{\"success\":true,\"message\":\"Customer removed successfully\"}");
             } else {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -160,11 +215,6 @@ public class CustomerServlet extends HttpServlet {
      * Helper method to find customer by ID
      */
     private Customer findCustomer(RentalAgency agency, String customerId) {
-        for (Customer customer : agency.getCustomers()) {
-            if (customer.getCustomerId().equals(customerId)) {
-                return customer;
-            }
-        }
-        return null;
+        return agency.findCustomerById(customerId);
     }
 }
\ No newline at end of file
@@ -2,7 +2,15 @@ package com.rowusu.vehiclerental.servlet;
 
 import com.rowusu.vehiclerental.customers.Customer;
 import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.rentalagency.BatchResult;
+import com.rowusu.vehiclerental.rentalagency.Quote;
+import com.rowusu.vehiclerental.rentalagency.QuoteRequest;
 import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.RentalRequest;
+import com.rowusu.vehiclerental.rentalagency.RentalTransaction;
+import com.rowusu.vehiclerental.rentalagency.ReportAggregates;
+import com.rowusu.vehiclerental.rentalagency.Reservation;
 import com.rowusu.vehiclerental.exceptions.*;
 
 import javax.servlet.ServletException;
@@ -13,6 +21,11 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,7 +37,7 @@ public class RentalServlet extends HttpServlet {
     private RentalAgency getRentalAgency(HttpSession session) {
         RentalAgency agency = (RentalAgency) session.getAttribute("rentalAgency");
         if (agency == null) {
-            agency = new RentalAgency();
+            agency = RentalAgency.createConcurrent();
             session.setAttribute("rentalAgency", agency);
         }
         return agency;
@@ -53,19 +66,24 @@ public class RentalServlet extends HttpServlet {
                     for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
                         Vehicle vehicle = entry.getKey();
                         Integer days = entry.getValue();
+                        Reservation booking = agency.getRentalBooking(vehicle);
+                        LocalDate startDate = booking != null ? booking.getStartDate() : LocalDate.now();
+                        // What the rental was charged, not what it would cost now
+                        RentalTransaction transaction = booking != null ? agency.getTransactions().get(booking.getTransactionId()) : null;
+                        double totalCost = transaction != null ? transaction.getCost() : vehicle.calculateRentalCost(days);
                         
                         if (!first) json.append(",");
                         first = false;
                         
                         json.append("{")
-                            .append("\"id\":\"RENT").append(vehicle.getVehicleId()).append("\",")
+                            .append("\"id\":\"").append(booking != null ? RentalTransaction.rentalId(booking.getTransactionId()) : "").append("\",")
                             .append("\"vehicleId\":\"").append(vehicle.getVehicleId()).append("\",")
                             .append("\"vehicleModel\":\"").append(vehicle.getModel()).append("\",")
                             .append("\"customerId\":\"").append(customer.getCustomerId()).append("\",")
                             .append("\"customerName\":\"").append(customer.getName()).append("\",")
                             .append("\"days\":").append(days).append(",")
-                            .append("\"totalCost\":").append(vehicle.calculateRentalCost(days)).append(",")
-                            .append("\"startDate\":\"").append(java.time.LocalDate.now()).append("\",")
+                            .append("\"totalCost\":").append(totalCost).append(",")
+                            .append("\"startDate\":\"").append(startDate).append("\",")
                             .append("\"status\":\"Active\"")
                             .append("}");
                     }
@@ -76,37 +94,64 @@ public class RentalServlet extends HttpServlet {
                 
             } else if ("stats".equals(action)) {
                 // Return rental statistics
-                int totalRentals = 0;
-                double totalRevenue = 0.0;
-                int totalDays = 0;
-                
-                for (Customer customer : agency.getCustomers()) {
-                    for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                        Vehicle vehicle = entry.getKey();
-                        Integer days = entry.getValue();
-                        totalRentals++;
-                        totalRevenue += vehicle.calculateRentalCost(days);
-                        totalDays += days;
-                    }
-                }
-                
-                double avgDays = totalRentals > 0 ? (double) totalDays / totalRentals : 0;
+                ReportAggregates stats = agency.getAggregates();
+                int totalRentals = stats.getActiveRentals();
+                double avgDays = stats.getAverageRentalDays();
                 
                 StringBuilder json = new StringBuilder();
                 json.append("{")
                     .append("\"activeRentals\":").append(totalRentals).append(",")
                     .append("\"todayRentals\":").append(totalRentals).append(",")
-                    .append("\"todayRevenue\":").append(totalRevenue).append(",")
+                    .append("\"todayRevenue\":").append(agency.getRevenueLedger().getToday()).append(",")
                     .append("\"avgRentalDays\":").append(String.format("%.1f", avgDays))
                     .append("}");
                 
                 out.print(json.toString());
                 
+            } else if ("quote".equals(action)) {
+                // Prices without renting: quotes=V001:C123:3,truck::5&start=2024-07-01
+                out.print(quotesJson(agency, request));
+                
+            } else if ("availability".equals(action)) {
+                // Vehicles with no bookings between start and end (inclusive)
+                String startParam = request.getParameter("start");
+                String endParam = request.getParameter("end");
+                if (startParam == null || endParam == null) {
+                    throw new IllegalArgumentException("start and end dates are required");
+                }
+                LocalDate start = LocalDate.parse(startParam);
+                LocalDate end = LocalDate.parse(endParam);
+                String typeParam = request.getParameter("type");
+                VehicleType type = typeParam != null ? VehicleType.fromName(typeParam) : null;
+                
+                List<Vehicle> free = agency.findFreeVehicles(type, start, end);
+                StringBuilder json = new StringBuilder();
+                json.append("{\"start\":\"").append(start).append("\",")
+                    .append("\"end\":\"").append(end).append("\",")
+                    .append("\"vehicles\":[");
+                
+                for (int i = 0; i < free.size(); i++) {
+                    Vehicle vehicle = free.get(i);
+                    if (i > 0) json.append(",");
+                    json.append("{")
+                        .append("\"id\":\"").append(vehicle.getVehicleId()).append("\",")
+                        .append("\"type\":\"").append(vehicle.getType().getDisplayName()).append("\",")
+                        .append("\"model\":\"").append(vehicle.getModel()).append("\",")
+                        .append("\"rate\":").append(vehicle.getBaseRentalRate())
+                        .append("}");
+                }
+                
+                json.append("]}");
+                out.print(json.toString());
+                
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.print("{\"error\":\"Invalid action\"}");
             }
             
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.print("{\"error\":\"" + e.getMessage() + "\"}");
@@ -148,8 +193,7 @@ public class RentalServlet extends HttpServlet {
                 }
                 
                 try {
-                    agency.rentVehicle(vehicle, customer, days);
-                    String rentalId = "RENT" + vehicleId;
+                    String rentalId = agency.rentVehicle(vehicle, customer, days).getRentalId();
                     out.print("{\"success\":true,\"message\":\"Rental processed successfully\",\"rentalId\":\"" + rentalId + "\"}");
                 } catch (VehicleNotAvailable | CustomerNotEligible | InvalidRentalPeriod e) {
                     response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -169,6 +213,61 @@ public class RentalServlet extends HttpServlet {
                     out.print("{\"error\":\"Vehicle not found\"}");
                 }
                 
+            } else if ("reserve".equals(action)) {
+                // Book a vehicle for a future date range
+                Vehicle vehicle = findVehicle(agency, request.getParameter("vehicle"));
+                Customer customer = findCustomer(agency, request.getParameter("customer"));
+                
+                if (vehicle == null) {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    out.print("{\"error\":\"Vehicle not found\"}");
+                    return;
+                }
+                
+                if (customer == null) {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    out.print("{\"error\":\"Customer not found\"}");
+                    return;
+                }
+                
+                try {
+                    LocalDate start = LocalDate.parse(request.getParameter("start"));
+                    LocalDate end = LocalDate.parse(request.getParameter("end"));
+                    Reservation reservation = agency.reserveVehicle(vehicle, customer, start, end);
+                    out.print("{\"success\":true,\"message\":\"Reservation created\",\"reservationId\":\"" + reservation.getReservationId() + "\"}");
+                } catch (VehicleNotAvailable | InvalidRentalPeriod e) {
+                    response.setStatus(HttpServletResponse.SC_CONFLICT);
+                    out.print("{\"error\":\"" + e.getMessage() + "\"}");
+                }
+                
+            } else if ("quote".equals(action)) {
+                // Same as GET, for batches too long for a query string
+                out.print(quotesJson(agency, request));
+                
+            } else if ("batchRent".equals(action)) {
+                // Many rentals in one request: rentals=V001:C123:3,V002:C124:5
+                boolean atomic = Boolean.parseBoolean(request.getParameter("atomic"));
+                List<RentalRequest> requests = RentalRequest.parseList(request.getParameter("rentals"));
+                out.print(batchResultsJson(agency.rentVehicles(requests, atomic)));
+                
+            } else if ("batchReturn".equals(action)) {
+                // Many returns in one request: vehicles=V001,V002
+                boolean atomic = Boolean.parseBoolean(request.getParameter("atomic"));
+                String vehicles = request.getParameter("vehicles");
+                List<String> vehicleIds = vehicles == null || vehicles.isEmpty()
+                        ? new ArrayList<>() : Arrays.asList(vehicles.split(","));
+                out.print(batchResultsJson(agency.returnVehicles(vehicleIds, atomic)));
+                
+            } else if ("cancel".equals(action)) {
+                // Cancel a reservation
+                Reservation reservation = agency.findReservationById(request.getParameter("reservationId"));
+                if (reservation != null && agency.cancelReservation(reservation)) {
+                    out.print("{\"success\":true,\"message\":\"Reservation cancelled\"}");
+                } else {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    out.print("{\"error\":\"Reservation not found\"}");
+                }
+                
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.print("{\"error\":\"Invalid action\"}");
@@ -177,33 +276,82 @@ public class RentalServlet extends HttpServlet {
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             out.print("{\"error\":\"Invalid number format\"}");
+        } catch (DateTimeParseException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"Invalid date format, expected yyyy-mm-dd\"}");
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.print("{\"error\":\"" + e.getMessage() + "\"}");
         }
     }
     
+    // Optional start (ISO date) prices every quote from that day instead of today
+    private String quotesJson(RentalAgency agency, HttpServletRequest request) {
+        List<QuoteRequest> requests = QuoteRequest.parseList(request.getParameter("quotes"));
+        String start = request.getParameter("start");
+        List<Quote> quotes = agency.quoteAll(requests, start != null ? LocalDate.parse(start) : null);
+        
+        int priced = 0;
+        StringBuilder json = new StringBuilder();
+        json.append("{\"quotes\":[");
+        for (int i = 0; i < quotes.size(); i++) {
+            Quote quote = quotes.get(i);
+            if (i > 0) json.append(",");
+            json.append("{")
+                .append("\"index\":").append(quote.getIndex()).append(",")
+                .append("\"target\":\"").append(quote.getTarget()).append("\",")
+                .append("\"days\":").append(quote.getDays()).append(",")
+                .append("\"success\":").append(quote.isSuccess()).append(",");
+            if (quote.isSuccess()) {
+                priced++;
+                json.append("\"vehicleId\":\"").append(quote.getVehicleId()).append("\",")
+                    .append("\"price\":").append(String.format("%.2f", quote.getPrice()));
+            } else {
+                json.append("\"message\":\"").append(quote.getMessage()).append("\"");
+            }
+            json.append("}");
+        }
+        json.append("],\"priced\":").append(priced).append("}");
+        return json.toString();
+    }
+    
+    private String batchResultsJson(List<BatchResult> results) {
+        int applied = 0;
+        StringBuilder json = new StringBuilder();
+        json.append("{\"results\":[");
+        
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            if (result.isSuccess()) applied++;
+            if (i > 0) json.append(",");
+            json.append("{")
+                .append("\"index\":").append(result.getIndex()).append(",")
+                .append("\"vehicleId\":\"").append(result.getVehicleId()).append("\",")
+                .append("\"success\":").append(result.isSuccess()).append(",")
+                .append("\"message\":\"").append(result.getMessage()).append("\"")
+                .append("}");
+        }
+        
+        json.append("],\"applied\":").append(applied)
+            .append(",\"success\":").append(applied == results.size())
+            .append("}");
+        return json.toString();
+    }
+    
     /**
      * Helper method to find vehicle by ID
      */
     private Vehicle findVehicle(RentalAgency agency, String vehicleId) {
-        for (Vehicle vehicle : agency.getFleet()) {
-            if (vehicle.getVehicleId().equals(vehicleId)) {
-                return vehicle;
-            }
-        }
-        return null;
+        return agency.findVehicleById(vehicleId);
     }
     
     /**
      * Helper method to find customer by ID
      */
     private Customer findCustomer(RentalAgency agency, String customerId) {
-        for (Customer customer : agency.getCustomers()) {
-            if (customer.getCustomerId().equals(customerId)) {
-                return customer;
-            }
-        }
-        return null;
+        return agency.findCustomerById(customerId);
     }
 }
\ No newline at end of file
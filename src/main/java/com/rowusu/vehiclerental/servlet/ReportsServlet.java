@@ -1,8 +1,11 @@
 package com.rowusu.vehiclerental.servlet;
 
-import com.rowusu.vehiclerental.customers.Customer;
-import com.rowusu.vehiclerental.model.*;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.pricing.QuoteCache;
+import com.rowusu.vehiclerental.rentalagency.RatingLeaderboard;
 import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.ReportAggregates;
+import com.rowusu.vehiclerental.rentalagency.RevenueLedger;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -12,9 +15,9 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Servlet for generating business reports and analytics
@@ -25,7 +28,7 @@ public class ReportsServlet extends HttpServlet {
     private RentalAgency getRentalAgency(HttpSession session) {
         RentalAgency agency = (RentalAgency) session.getAttribute("rentalAgency");
         if (agency == null) {
-            agency = new RentalAgency();
+            agency = RentalAgency.createConcurrent();
             session.setAttribute("rentalAgency", agency);
         }
         return agency;
@@ -47,13 +50,17 @@ public class ReportsServlet extends HttpServlet {
             if ("fleet".equals(reportType)) {
                 generateFleetReport(agency, out);
             } else if ("revenue".equals(reportType)) {
-                generateRevenueReport(agency, out);
+                generateRevenueReport(agency, request, out);
             } else if ("customer".equals(reportType)) {
                 generateCustomerReport(agency, out);
             } else if ("utilization".equals(reportType)) {
                 generateUtilizationReport(agency, out);
             } else if ("dashboard".equals(reportType)) {
                 generateDashboardReport(agency, out);
+            } else if ("ratings".equals(reportType)) {
+                generateRatingsReport(agency, request, out);
+            } else if ("quotes".equals(reportType)) {
+                generateQuoteCacheReport(agency, out);
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.print("{\"error\":\"Invalid report type\"}");
@@ -66,23 +73,12 @@ public class ReportsServlet extends HttpServlet {
     }
     
     private void generateFleetReport(RentalAgency agency, PrintWriter out) {
-        List<Vehicle> vehicles = agency.getFleet();
-        int total = vehicles.size();
-        int available = 0;
-        int rented = 0;
+        ReportAggregates stats = agency.getAggregates();
+        int total = stats.getVehicleCount();
+        int available = agency.countAvailableVehicles();
+        int rented = total - available;
         int maintenance = 0;
-        double totalRating = 0;
-        
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.isAvailable()) {
-                available++;
-            } else {
-                rented++;
-            }
-            totalRating += vehicle.getAverageRating();
-        }
-        
-        double avgRating = total > 0 ? totalRating / total : 0;
+        double avgRating = stats.getAverageVehicleRating();
         double utilization = total > 0 ? ((double) rented / total) * 100 : 0;
         
         StringBuilder json = new StringBuilder();
@@ -98,26 +94,16 @@ public class ReportsServlet extends HttpServlet {
         out.print(json.toString());
     }
     
-    private void generateRevenueReport(RentalAgency agency, PrintWriter out) {
-        double totalRevenue = 0;
-        double todayRevenue = 0;
-        int totalRentals = 0;
-        int activeRentals = 0;
-        
-        for (Customer customer : agency.getCustomers()) {
-            for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                Vehicle vehicle = entry.getKey();
-                Integer days = entry.getValue();
-                double cost = vehicle.calculateRentalCost(days);
-                
-                totalRevenue += cost;
-                todayRevenue += cost; // Simplified - treating all as today's revenue
-                totalRentals++;
-                activeRentals++;
-            }
-        }
-        
-        double avgPerRental = totalRentals > 0 ? totalRevenue / totalRentals : 0;
+    // Optional from and to (ISO dates) add the revenue earned in that range
+    private void generateRevenueReport(RentalAgency agency, HttpServletRequest request, PrintWriter out) {
+        ReportAggregates stats = agency.getAggregates();
+        RevenueLedger ledger = agency.getRevenueLedger();
+        LocalDate today = LocalDate.now();
+        double totalRevenue = stats.getActiveRevenue();
+        double todayRevenue = ledger.getDay(today);
+        int totalRentals = stats.getActiveRentals();
+        int activeRentals = totalRentals;
+        double avgPerRental = stats.getAverageRevenuePerRental();
         
         StringBuilder json = new StringBuilder();
         json.append("{")
@@ -125,136 +111,130 @@ public class ReportsServlet extends HttpServlet {
             .append("\"todayRevenue\":").append(String.format("%.2f", todayRevenue)).append(",")
             .append("\"totalRentals\":").append(totalRentals).append(",")
             .append("\"activeRentals\":").append(activeRentals).append(",")
-            .append("\"avgPerRental\":").append(String.format("%.2f", avgPerRental))
-            .append("}");
+            .append("\"avgPerRental\":").append(String.format("%.2f", avgPerRental)).append(",")
+            .append("\"last7Days\":").append(String.format("%.2f", ledger.getTrailingDays(today, 7))).append(",")
+            .append("\"last30Days\":").append(String.format("%.2f", ledger.getTrailingDays(today, 30))).append(",")
+            .append("\"weekly\":").append(amounts(ledger.getWeeks(today.minusWeeks(3), 4))).append(",")
+            .append("\"monthly\":").append(amounts(ledger.getMonths(YearMonth.from(today).minusMonths(11), 12)));
+        String from = request.getParameter("from");
+        String to = request.getParameter("to");
+        if (from != null && to != null) {
+            json.append(",\"rangeRevenue\":")
+                .append(String.format("%.2f", ledger.getRange(LocalDate.parse(from), LocalDate.parse(to))));
+        }
+        json.append("}");
         
         out.print(json.toString());
     }
     
-    private void generateCustomerReport(RentalAgency agency, PrintWriter out) {
-        List<Customer> customers = agency.getCustomers();
-        int total = customers.size();
-        int gold = 0;
-        int silver = 0;
-        int bronze = 0;
-        double totalRating = 0;
-        int returningCustomers = 0;
-        
-        for (Customer customer : customers) {
-            int points = customer.getLoyaltyPoints();
-            if (points >= 100) gold++;
-            else if (points >= 50) silver++;
-            else bronze++;
-            
-            totalRating += customer.getAverageRating();
-            
-            if (points > 0) returningCustomers++;
+    // Oldest period first
+    private String amounts(double[] totals) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < totals.length; i++) {
+            if (i > 0) json.append(",");
+            json.append(String.format("%.2f", totals[i]));
         }
-        
-        double avgRating = total > 0 ? totalRating / total : 0;
-        double retentionRate = total > 0 ? ((double) returningCustomers / total) * 100 : 0;
+        return json.append("]").toString();
+    }
+    
+    private void generateCustomerReport(RentalAgency agency, PrintWriter out) {
+        ReportAggregates stats = agency.getAggregates();
+        int total = stats.getCustomerCount();
+        double avgRating = stats.getAverageCustomerRating();
         
         StringBuilder json = new StringBuilder();
         json.append("{")
             .append("\"totalCustomers\":").append(total).append(",")
-            .append("\"goldMembers\":").append(gold).append(",")
-            .append("\"silverMembers\":").append(silver).append(",")
-            .append("\"bronzeMembers\":").append(bronze).append(",")
+            .append("\"goldMembers\":").append(stats.getGoldMembers()).append(",")
+            .append("\"silverMembers\":").append(stats.getSilverMembers()).append(",")
+            .append("\"bronzeMembers\":").append(stats.getBronzeMembers()).append(",")
             .append("\"avgRating\":").append(String.format("%.1f", avgRating)).append(",")
-            .append("\"retentionRate\":").append(String.format("%.1f", retentionRate))
+            .append("\"retentionRate\":").append(String.format("%.1f", stats.getRetentionRate()))
             .append("}");
         
         out.print(json.toString());
     }
     
     private void generateUtilizationReport(RentalAgency agency, PrintWriter out) {
-        List<Vehicle> vehicles = agency.getFleet();
-        Map<String, Integer> typeCounts = new HashMap<>();
-        Map<String, Integer> typeRented = new HashMap<>();
-        
-        int totalDays = 0;
-        int totalRentals = 0;
-        
-        for (Vehicle vehicle : vehicles) {
-            String type = getVehicleType(vehicle);
-            typeCounts.put(type, typeCounts.getOrDefault(type, 0) + 1);
-            
-            if (!vehicle.isAvailable()) {
-                typeRented.put(type, typeRented.getOrDefault(type, 0) + 1);
-            }
-        }
-        
-        for (Customer customer : agency.getCustomers()) {
-            for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                totalDays += entry.getValue();
-                totalRentals++;
-            }
-        }
-        
-        double avgRentalDuration = totalRentals > 0 ? (double) totalDays / totalRentals : 0;
-        double utilization = vehicles.size() > 0 ? ((double) typeRented.values().stream().mapToInt(Integer::intValue).sum() / vehicles.size()) * 100 : 0;
+        ReportAggregates stats = agency.getAggregates();
+        int fleetSize = stats.getVehicleCount();
+        int rentedVehicles = fleetSize - agency.countAvailableVehicles();
         
-        String peakDemandType = getMostRentedVehicleType(agency);
+        double utilization = fleetSize > 0 ? ((double) rentedVehicles / fleetSize) * 100 : 0;
+        VehicleType peak = stats.getPeakDemandType();
+        String peakDemandType = peak != null ? peak.getDisplayName() : "None";
         
         StringBuilder json = new StringBuilder();
         json.append("{")
             .append("\"utilization\":").append(String.format("%.1f", utilization)).append(",")
-            .append("\"avgRentalDuration\":").append(String.format("%.1f", avgRentalDuration)).append(",")
-            .append("\"totalRentalDays\":").append(totalDays).append(",")
+            .append("\"avgRentalDuration\":").append(String.format("%.1f", stats.getAverageRentalDays())).append(",")
+            .append("\"totalRentalDays\":").append(stats.getActiveRentalDays()).append(",")
             .append("\"peakDemandType\":\"").append(peakDemandType).append("\",")
-            .append("\"totalActiveRentals\":").append(totalRentals)
+            .append("\"totalActiveRentals\":").append(stats.getActiveRentals())
             .append("}");
         
         out.print(json.toString());
     }
     
     private void generateDashboardReport(RentalAgency agency, PrintWriter out) {
-        List<Vehicle> vehicles = agency.getFleet();
-        List<Customer> customers = agency.getCustomers();
+        ReportAggregates stats = agency.getAggregates();
         
-        int activeRentals = 0;
-        double todayRevenue = 0;
+        StringBuilder json = new StringBuilder();
+        json.append("{")
+            .append("\"vehicleCount\":").append(stats.getVehicleCount()).append(",")
+            .append("\"customerCount\":").append(stats.getCustomerCount()).append(",")
+            .append("\"activeRentals\":").append(stats.getActiveRentals()).append(",")
+            .append("\"todayRevenue\":").append(String.format("%.2f", agency.getRevenueLedger().getToday()))
+            .append("}");
         
-        for (Customer customer : customers) {
-            for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                Vehicle vehicle = entry.getKey();
-                Integer days = entry.getValue();
-                activeRentals++;
-                todayRevenue += vehicle.calculateRentalCost(days);
-            }
-        }
+        out.print(json.toString());
+    }
+    
+    // How well the quote cache is absorbing repeat quotes
+    private void generateQuoteCacheReport(RentalAgency agency, PrintWriter out) {
+        QuoteCache cache = agency.getQuoteCache();
         
         StringBuilder json = new StringBuilder();
         json.append("{")
-            .append("\"vehicleCount\":").append(vehicles.size()).append(",")
-            .append("\"customerCount\":").append(customers.size()).append(",")
-            .append("\"activeRentals\":").append(activeRentals).append(",")
-            .append("\"todayRevenue\":").append(String.format("%.2f", todayRevenue))
+            .append("\"capacity\":").append(cache.getCapacity()).append(",")
+            .append("\"size\":").append(cache.getSize()).append(",")
+            .append("\"hits\":").append(cache.getHits()).append(",")
+            .append("\"misses\":").append(cache.getMisses()).append(",")
+            .append("\"evictions\":").append(cache.getEvictions()).append(",")
+            .append("\"hitRate\":").append(String.format("%.3f", cache.getHitRate()))
             .append("}");
         
         out.print(json.toString());
     }
     
-    private String getMostRentedVehicleType(RentalAgency agency) {
-        Map<String, Integer> typeCounts = new HashMap<>();
+    // Best and worst rated vehicles; optional limit caps each list at the board size
+    private void generateRatingsReport(RentalAgency agency, HttpServletRequest request, PrintWriter out) {
+        RatingLeaderboard board = agency.getLeaderboard();
+        String limitParam = request.getParameter("limit");
+        int limit = limitParam != null ? Integer.parseInt(limitParam) : board.getSize();
         
-        for (Customer customer : agency.getCustomers()) {
-            for (Vehicle vehicle : customer.getCurrentRentals().keySet()) {
-                String type = getVehicleType(vehicle);
-                typeCounts.put(type, typeCounts.getOrDefault(type, 0) + 1);
-            }
-        }
+        StringBuilder json = new StringBuilder();
+        json.append("{")
+            .append("\"minRatings\":").append(board.getMinRatings()).append(",")
+            .append("\"top\":").append(standings(board.getTopRated(limit))).append(",")
+            .append("\"bottom\":").append(standings(board.getLowestRated(limit)))
+            .append("}");
         
-        return typeCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("None");
+        out.print(json.toString());
     }
     
-    private String getVehicleType(Vehicle vehicle) {
-        if (vehicle instanceof Car) return "Car";
-        if (vehicle instanceof Motorcycle) return "Motorcycle";
-        if (vehicle instanceof Truck) return "Truck";
-        return "Unknown";
+    private String standings(List<RatingLeaderboard.Standing> standings) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < standings.size(); i++) {
+            RatingLeaderboard.Standing standing = standings.get(i);
+            if (i > 0) json.append(",");
+            json.append("{")
+                .append("\"id\":\"").append(standing.getVehicle().getVehicleId()).append("\",")
+                .append("\"model\":\"").append(standing.getVehicle().getModel()).append("\",")
+                .append("\"avgRating\":").append(String.format("%.2f", standing.getAverageRating())).append(",")
+                .append("\"ratings\":").append(standing.getRatingCount())
+                .append("}");
+        }
+        return json.append("]").toString();
     }
-}
\ No newline at end of file
+}
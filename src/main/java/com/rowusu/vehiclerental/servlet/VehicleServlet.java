@@ -14,7 +14,6 @@ import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * Servlet for handling vehicle management operations
@@ -25,7 +24,7 @@ public class VehicleServlet extends HttpServlet {
     private RentalAgency getRentalAgency(HttpSession session) {
         RentalAgency agency = (RentalAgency) session.getAttribute("rentalAgency");
         if (agency == null) {
-            agency = new RentalAgency();
+            agency = RentalAgency.createConcurrent();
             session.setAttribute("rentalAgency", agency);
         }
         return agency;
@@ -68,13 +67,7 @@ public class VehicleServlet extends HttpServlet {
                 
             } else if ("available".equals(action)) {
                 // Return only available vehicles
-                List<Vehicle> allVehicles = agency.getFleet();
-                List<Vehicle> availableVehicles = new ArrayList<>();
-                for (Vehicle v : allVehicles) {
-                    if (v.isAvailable()) {
-                        availableVehicles.add(v);
-                    }
-                }
+                List<Vehicle> availableVehicles = agency.getAvailableVehicles();
                 
                 StringBuilder json = new StringBuilder();
                 json.append("{\"vehicles\":[");
@@ -93,11 +86,43 @@ public class VehicleServlet extends HttpServlet {
                 json.append("]}");
                 out.print(json.toString());
                 
+            } else if ("search".equals(action)) {
+                // Filter by type and base rate range using the agency's indexes
+                String typeParam = request.getParameter("type");
+                String minParam = request.getParameter("minRate");
+                String maxParam = request.getParameter("maxRate");
+                VehicleType type = typeParam != null ? VehicleType.fromName(typeParam) : null;
+                double minRate = minParam != null ? Double.parseDouble(minParam) : 0.0;
+                double maxRate = maxParam != null ? Double.parseDouble(maxParam) : Double.MAX_VALUE;
+                boolean availableOnly = Boolean.parseBoolean(request.getParameter("available"));
+                
+                List<Vehicle> matches = agency.searchVehicles(type, minRate, maxRate, availableOnly);
+                StringBuilder json = new StringBuilder();
+                json.append("{\"vehicles\":[");
+                
+                for (int i = 0; i < matches.size(); i++) {
+                    Vehicle v = matches.get(i);
+                    if (i > 0) json.append(",");
+                    json.append("{")
+                        .append("\"id\":\"").append(v.getVehicleId()).append("\",")
+                        .append("\"type\":\"").append(getVehicleType(v)).append("\",")
+                        .append("\"model\":\"").append(v.getModel()).append("\",")
+                        .append("\"rate\":").append(v.getBaseRentalRate()).append(",")
+                        .append("\"isAvailable\":").append(v.isAvailable())
+                        .append("}");
+                }
+                
+                json.append("]}");
+                out.print(json.toString());
+                
             } else {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.print("{\"error\":\"Invalid action\"}");
             }
             
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.print("{\"error\":\"" + e.getMessage() + "\"}");
@@ -205,21 +230,13 @@ public class VehicleServlet extends HttpServlet {
      * Helper method to find vehicle by ID
      */
     private Vehicle findVehicle(RentalAgency agency, String vehicleId) {
-        for (Vehicle vehicle : agency.getFleet()) {
-            if (vehicle.getVehicleId().equals(vehicleId)) {
-                return vehicle;
-            }
-        }
-        return null;
+        return agency.findVehicleById(vehicleId);
     }
     
     /**
      * Helper method to get vehicle type string
      */
     private String getVehicleType(Vehicle vehicle) {
-        if (vehicle instanceof Car) return "Car";
-        if (vehicle instanceof Motorcycle) return "Motorcycle";
-        if (vehicle instanceof Truck) return "Truck";
-        return "Unknown";
+        return vehicle.getType().getDisplayName();
     }
 }
\ No newline at end of file
@@ -3,7 +3,24 @@ package com.rowusu.vehiclerental.web;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import com.rowusu.vehiclerental.journal.AgencyStore;
+import com.rowusu.vehiclerental.journal.GroupCommitJournal;
+import com.rowusu.vehiclerental.journal.Histogram;
+import com.rowusu.vehiclerental.rentalagency.BatchResult;
+import com.rowusu.vehiclerental.pricing.QuoteCache;
+import com.rowusu.vehiclerental.rentalagency.HistoryPage;
+import com.rowusu.vehiclerental.rentalagency.RatingLeaderboard;
+import com.rowusu.vehiclerental.rentalagency.Quote;
+import com.rowusu.vehiclerental.rentalagency.QuoteRequest;
 import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.RentalRequest;
+import com.rowusu.vehiclerental.rentalagency.RentalTransaction;
+import com.rowusu.vehiclerental.rentalagency.ReportAggregates;
+import com.rowusu.vehiclerental.rentalagency.Reservation;
+import com.rowusu.vehiclerental.rentalagency.RevenueLedger;
+import com.rowusu.vehiclerental.reports.CustomerSummary;
+import com.rowusu.vehiclerental.reports.FleetSummary;
+import com.rowusu.vehiclerental.reports.ReportEngine;
 import com.rowusu.vehiclerental.model.*;
 import com.rowusu.vehiclerental.customers.Customer;
 
@@ -11,8 +28,16 @@ import java.io.*;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 /**
  * Simple HTTP server for the vehicle rental web application
@@ -20,12 +45,25 @@ import java.util.Map;
  */
 public class SimpleWebServer {
     
-    private static RentalAgency agency = new RentalAgency();
+    // Shared by every request thread, so it has to be the concurrent variant
+    private static RentalAgency agency;
+    private static AgencyStore store;
+    private static final ReportEngine reportEngine = ReportEngine.fromProperties();
     private static final int PORT = 8080;
     
     public static void main(String[] args) throws IOException {
-        // Initialize with sample data
-        initializeSampleData();
+        // Recover the agency from its journal and snapshot. Mutations are
+        // acknowledged once durable, with concurrent requests sharing syncs.
+        store = AgencyStore.openDurable(AgencyStore.defaultDirectory(), true,
+            Duration.ofMillis(Long.getLong("vehiclerental.journal.syncIntervalMs", 1L)),
+            Integer.getInteger("vehiclerental.journal.maxBatch", 256));
+        agency = store.getAgency();
+        store.closeOnShutdown();
+        
+        // Initialize with sample data on first start only
+        if (agency.getFleet().isEmpty()) {
+            initializeSampleData();
+        }
         
         // Create HTTP server
         HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
@@ -37,8 +75,8 @@ public class SimpleWebServer {
         server.createContext("/api/rentals", new RentalHandler());
         server.createContext("/api/reports", new ReportsHandler());
         
-        // Start server
-        server.setExecutor(null);
+        // Start server with one worker per core so requests are handled in parallel
+        server.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
         server.start();
         
         System.out.println("🚀 Advanced Vehicle Rental Management System Started!");
@@ -143,6 +181,8 @@ public class SimpleWebServer {
                         response = getVehicleList();
                     } else if ("available".equals(action)) {
                         response = getAvailableVehicles();
+                    } else if ("search".equals(action)) {
+                        response = searchVehicles(params);
                     } else {
                         response = "{\"error\":\"Invalid action\"}";
                         statusCode = 400;
@@ -206,18 +246,44 @@ public class SimpleWebServer {
             json.append("{\"vehicles\":[");
             
             boolean first = true;
-            for (Vehicle v : agency.getFleet()) {
-                if (v.isAvailable()) {
-                    if (!first) json.append(",");
-                    first = false;
-                    
-                    json.append("{")
-                        .append("\"id\":\"").append(v.getVehicleId()).append("\",")
-                        .append("\"type\":\"").append(getVehicleType(v)).append("\",")
-                        .append("\"model\":\"").append(v.getModel()).append("\",")
-                        .append("\"rate\":").append(v.getBaseRentalRate())
-                        .append("}");
-                }
+            for (Vehicle v : agency.getAvailableVehicles()) {
+                if (!first) json.append(",");
+                first = false;
+                
+                json.append("{")
+                    .append("\"id\":\"").append(v.getVehicleId()).append("\",")
+                    .append("\"type\":\"").append(getVehicleType(v)).append("\",")
+                    .append("\"model\":\"").append(v.getModel()).append("\",")
+                    .append("\"rate\":").append(v.getBaseRentalRate())
+                    .append("}");
+            }
+            
+            json.append("]}");
+            return json.toString();
+        }
+        
+        // e.g. /api/vehicles?action=search&type=Truck&maxRate=90&available=true
+        private String searchVehicles(Map<String, String> params) {
+            VehicleType type = params.containsKey("type") ? VehicleType.fromName(params.get("type")) : null;
+            double minRate = params.containsKey("minRate") ? Double.parseDouble(params.get("minRate")) : 0.0;
+            double maxRate = params.containsKey("maxRate") ? Double.parseDouble(params.get("maxRate")) : Double.MAX_VALUE;
+            boolean availableOnly = Boolean.parseBoolean(params.get("available"));
+            
+            StringBuilder json = new StringBuilder();
+            json.append("{\"vehicles\":[");
+            
+            boolean first = true;
+            for (Vehicle v : agency.searchVehicles(type, minRate, maxRate, availableOnly)) {
+                if (!first) json.append(",");
+                first = false;
+                
+                json.append("{")
+                    .append("\"id\":\"").append(v.getVehicleId()).append("\",")
+                    .append("\"type\":\"").append(getVehicleType(v)).append("\",")
+                    .append("\"model\":\"").append(v.getModel()).append("\",")
+                    .append("\"rate\":").append(v.getBaseRentalRate()).append(",")
+                    .append("\"isAvailable\":").append(v.isAvailable())
+                    .append("}");
             }
             
             json.append("]}");
@@ -285,19 +351,11 @@ public class SimpleWebServer {
         }
         
         private Vehicle findVehicle(String vehicleId) {
-            for (Vehicle vehicle : agency.getFleet()) {
-                if (vehicle.getVehicleId().equals(vehicleId)) {
-                    return vehicle;
-                }
-            }
-            return null;
+            return agency.findVehicleById(vehicleId);
         }
         
         private String getVehicleType(Vehicle vehicle) {
-            if (vehicle instanceof Car) return "Car";
-            if (vehicle instanceof Motorcycle) return "Motorcycle";
-            if (vehicle instanceof Truck) return "Truck";
-            return "Unknown";
+            return vehicle.getType().getDisplayName();
         }
     }
     
@@ -317,6 +375,8 @@ public class SimpleWebServer {
                     String action = params.get("action");
                     if ("list".equals(action)) {
                         response = getCustomerList();
+                    } else if ("history".equals(action)) {
+                        response = getCustomerHistory(params);
                     } else {
                         response = "{\"error\":\"Invalid action\"}";
                         statusCode = 400;
@@ -374,6 +434,52 @@ public class SimpleWebServer {
             return json.toString();
         }
         
+        // id=C123&limit=20&order=desc&cursor=41&from=2024-01-01&to=2024-06-30
+        private String getCustomerHistory(Map<String, String> params) {
+            try {
+                Customer customer = findCustomer(params.get("id"));
+                if (customer == null) {
+                    return "{\"error\":\"Customer not found\"}";
+                }
+                String limit = params.get("limit");
+                String cursor = params.get("cursor");
+                HistoryPage page = agency.getRentalHistory(customer,
+                        cursor == null || cursor.isEmpty() ? 0 : Long.parseLong(cursor),
+                        limit == null ? HistoryPage.DEFAULT_SIZE : Math.min(Integer.parseInt(limit), HistoryPage.MAX_SIZE),
+                        !"asc".equals(params.get("order")),
+                        params.containsKey("from") ? LocalDate.parse(params.get("from")) : null,
+                        params.containsKey("to") ? LocalDate.parse(params.get("to")) : null);
+                
+                StringBuilder json = new StringBuilder();
+                json.append("{\"customerId\":\"").append(customer.getCustomerId()).append("\",")
+                    .append("\"rentals\":[");
+                
+                boolean first = true;
+                for (RentalTransaction t : page.getTransactions()) {
+                    if (!first) json.append(",");
+                    first = false;
+                    
+                    json.append("{")
+                        .append("\"id\":\"").append(t.getRentalId()).append("\",")
+                        .append("\"vehicleId\":\"").append(t.getVehicleId()).append("\",")
+                        .append("\"vehicleModel\":\"").append(t.getVehicleModel()).append("\",")
+                        .append("\"startDate\":\"").append(t.getStartDate()).append("\",")
+                        .append("\"endDate\":\"").append(t.getEndDate()).append("\",")
+                        .append("\"days\":").append(t.getDays()).append(",")
+                        .append("\"cost\":").append(t.getCost()).append(",")
+                        .append("\"status\":\"").append(t.isReturned() ? "Returned" : "Active").append("\"")
+                        .append("}");
+                }
+                
+                json.append("],\"nextCursor\":")
+                    .append(page.hasMore() ? "\"" + page.getNextCursor() + "\"" : "null")
+                    .append("}");
+                return json.toString();
+            } catch (Exception e) {
+                return "{\"error\":\"" + e.getMessage() + "\"}";
+            }
+        }
+        
         private String addCustomer(Map<String, String> params) {
             try {
                 String customerId = params.get("id");
@@ -409,7 +515,7 @@ public class SimpleWebServer {
             try {
                 Customer customer = findCustomer(customerId);
                 if (customer != null) {
-                    agency.getCustomers().remove(customer);
+                    agency.removeCustomer(customer);
                     return "{\"success\":true,\"message\":\"Customer removed successfully\"}";
                 } else {
                     return "{\"error\":\"Customer not found\"}";
@@ -420,12 +526,7 @@ public class SimpleWebServer {
         }
         
         private Customer findCustomer(String customerId) {
-            for (Customer customer : agency.getCustomers()) {
-                if (customer.getCustomerId().equals(customerId)) {
-                    return customer;
-                }
-            }
-            return null;
+            return agency.findCustomerById(customerId);
         }
     }
     
@@ -447,6 +548,10 @@ public class SimpleWebServer {
                         response = getRentalList();
                     } else if ("stats".equals(action)) {
                         response = getRentalStats();
+                    } else if ("availability".equals(action)) {
+                        response = getFreeVehicles(params);
+                    } else if ("quote".equals(action)) {
+                        response = getQuotes(params);
                     } else {
                         response = "{\"error\":\"Invalid action\"}";
                         statusCode = 400;
@@ -460,6 +565,16 @@ public class SimpleWebServer {
                         response = processRental(postParams);
                     } else if ("return".equals(action)) {
                         response = returnVehicle(postParams);
+                    } else if ("reserve".equals(action)) {
+                        response = reserveVehicle(postParams);
+                    } else if ("cancel".equals(action)) {
+                        response = cancelReservation(postParams);
+                    } else if ("batchRent".equals(action)) {
+                        response = batchRent(postParams);
+                    } else if ("quote".equals(action)) {
+                        response = getQuotes(postParams);
+                    } else if ("batchReturn".equals(action)) {
+                        response = batchReturn(postParams);
                     } else {
                         response = "{\"error\":\"Invalid action\"}";
                         statusCode = 400;
@@ -488,19 +603,24 @@ public class SimpleWebServer {
                 for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
                     Vehicle vehicle = entry.getKey();
                     Integer days = entry.getValue();
+                    Reservation booking = agency.getRentalBooking(vehicle);
+                    LocalDate startDate = booking != null ? booking.getStartDate() : LocalDate.now();
+                    // What the rental was charged, not what it would cost now
+                    RentalTransaction transaction = booking != null ? agency.getTransactions().get(booking.getTransactionId()) : null;
+                    double totalCost = transaction != null ? transaction.getCost() : vehicle.calculateRentalCost(days);
                     
                     if (!first) json.append(",");
                     first = false;
                     
                     json.append("{")
-                        .append("\"id\":\"RENT").append(vehicle.getVehicleId()).append("\",")
+                        .append("\"id\":\"").append(booking != null ? RentalTransaction.rentalId(booking.getTransactionId()) : "").append("\",")
                         .append("\"vehicleId\":\"").append(vehicle.getVehicleId()).append("\",")
                         .append("\"vehicleModel\":\"").append(vehicle.getModel()).append("\",")
                         .append("\"customerId\":\"").append(customer.getCustomerId()).append("\",")
                         .append("\"customerName\":\"").append(customer.getName()).append("\",")
                         .append("\"days\":").append(days).append(",")
-                        .append("\"totalCost\":").append(vehicle.calculateRentalCost(days)).append(",")
-                        .append("\"startDate\":\"").append(java.time.LocalDate.now()).append("\",")
+                        .append("\"totalCost\":").append(totalCost).append(",")
+                        .append("\"startDate\":\"").append(startDate).append("\",")
                         .append("\"status\":\"Active\"")
                         .append("}");
                 }
@@ -511,27 +631,15 @@ public class SimpleWebServer {
         }
         
         private String getRentalStats() {
-            int totalRentals = 0;
-            double totalRevenue = 0.0;
-            int totalDays = 0;
-            
-            for (Customer customer : agency.getCustomers()) {
-                for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                    Vehicle vehicle = entry.getKey();
-                    Integer days = entry.getValue();
-                    totalRentals++;
-                    totalRevenue += vehicle.calculateRentalCost(days);
-                    totalDays += days;
-                }
-            }
-            
-            double avgDays = totalRentals > 0 ? (double) totalDays / totalRentals : 0;
+            ReportAggregates stats = agency.getAggregates();
+            int totalRentals = stats.getActiveRentals();
+            double avgDays = stats.getAverageRentalDays();
             
             StringBuilder json = new StringBuilder();
             json.append("{")
                 .append("\"activeRentals\":").append(totalRentals).append(",")
                 .append("\"todayRentals\":").append(totalRentals).append(",")
-                .append("\"todayRevenue\":").append(totalRevenue).append(",")
+                .append("\"todayRevenue\":").append(agency.getRevenueLedger().getToday()).append(",")
                 .append("\"avgRentalDays\":").append(String.format("%.1f", avgDays))
                 .append("}");
             
@@ -555,8 +663,7 @@ public class SimpleWebServer {
                     return "{\"error\":\"Customer not found\"}";
                 }
                 
-                agency.rentVehicle(vehicle, customer, days);
-                String rentalId = "RENT" + vehicleId;
+                String rentalId = agency.rentVehicle(vehicle, customer, days).getRentalId();
                 return "{\"success\":true,\"message\":\"Rental processed successfully\",\"rentalId\":\"" + rentalId + "\"}";
                 
             } catch (Exception e) {
@@ -564,6 +671,138 @@ public class SimpleWebServer {
             }
         }
         
+        // e.g. /api/rentals?action=availability&type=Car&start=2024-07-01&end=2024-07-05
+        private String getFreeVehicles(Map<String, String> params) {
+            LocalDate start = LocalDate.parse(params.get("start"));
+            LocalDate end = LocalDate.parse(params.get("end"));
+            VehicleType type = params.containsKey("type") ? VehicleType.fromName(params.get("type")) : null;
+            
+            StringBuilder json = new StringBuilder();
+            json.append("{\"start\":\"").append(start).append("\",")
+                .append("\"end\":\"").append(end).append("\",")
+                .append("\"vehicles\":[");
+            
+            boolean first = true;
+            for (Vehicle v : agency.findFreeVehicles(type, start, end)) {
+                if (!first) json.append(",");
+                first = false;
+                
+                json.append("{")
+                    .append("\"id\":\"").append(v.getVehicleId()).append("\",")
+                    .append("\"type\":\"").append(v.getType().getDisplayName()).append("\",")
+                    .append("\"model\":\"").append(v.getModel()).append("\",")
+                    .append("\"rate\":").append(v.getBaseRentalRate())
+                    .append("}");
+            }
+            
+            json.append("]}");
+            return json.toString();
+        }
+        
+        private String reserveVehicle(Map<String, String> params) {
+            try {
+                Vehicle vehicle = findVehicle(params.get("vehicle"));
+                Customer customer = findCustomer(params.get("customer"));
+                
+                if (vehicle == null) {
+                    return "{\"error\":\"Vehicle not found\"}";
+                }
+                
+                if (customer == null) {
+                    return "{\"error\":\"Customer not found\"}";
+                }
+                
+                LocalDate start = LocalDate.parse(params.get("start"));
+                LocalDate end = LocalDate.parse(params.get("end"));
+                Reservation reservation = agency.reserveVehicle(vehicle, customer, start, end);
+                return "{\"success\":true,\"message\":\"Reservation created\",\"reservationId\":\"" + reservation.getReservationId() + "\"}";
+                
+            } catch (Exception e) {
+                return "{\"error\":\"" + e.getMessage() + "\"}";
+            }
+        }
+        
+        private String cancelReservation(Map<String, String> params) {
+            Reservation reservation = agency.findReservationById(params.get("reservationId"));
+            if (reservation != null && agency.cancelReservation(reservation)) {
+                return "{\"success\":true,\"message\":\"Reservation cancelled\"}";
+            }
+            return "{\"error\":\"Reservation not found\"}";
+        }
+        
+        // quotes=V001:C123:3,truck::5&start=2024-07-01, start optional
+        private String getQuotes(Map<String, String> params) {
+            try {
+                List<QuoteRequest> requests = QuoteRequest.parseList(params.get("quotes"));
+                String start = params.get("start");
+                List<Quote> quotes = agency.quoteAll(requests, start != null ? LocalDate.parse(start) : null);
+                int priced = 0;
+                StringBuilder json = new StringBuilder("{\"quotes\":[");
+                for (int i = 0; i < quotes.size(); i++) {
+                    Quote quote = quotes.get(i);
+                    if (i > 0) json.append(",");
+                    json.append("{\"index\":").append(quote.getIndex())
+                        .append(",\"target\":\"").append(quote.getTarget()).append("\"")
+                        .append(",\"days\":").append(quote.getDays())
+                        .append(",\"success\":").append(quote.isSuccess());
+                    if (quote.isSuccess()) {
+                        priced++;
+                        json.append(",\"vehicleId\":\"").append(quote.getVehicleId()).append("\"")
+                            .append(String.format(",\"price\":%.2f", quote.getPrice()));
+                    } else {
+                        json.append(",\"message\":\"").append(quote.getMessage()).append("\"");
+                    }
+                    json.append("}");
+                }
+                return json.append("],\"priced\":").append(priced).append("}").toString();
+            } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+                return "{\"error\":\"" + e.getMessage() + "\"}";
+            }
+        }
+        
+        // rentals=V001:C123:3,V002:C124:5&atomic=true
+        private String batchRent(Map<String, String> params) {
+            try {
+                boolean atomic = Boolean.parseBoolean(params.get("atomic"));
+                List<RentalRequest> requests = RentalRequest.parseList(params.get("rentals"));
+                return batchResultsJson(agency.rentVehicles(requests, atomic));
+            } catch (IllegalArgumentException e) {
+                return "{\"error\":\"" + e.getMessage() + "\"}";
+            }
+        }
+        
+        // vehicles=V001,V002&atomic=false
+        private String batchReturn(Map<String, String> params) {
+            boolean atomic = Boolean.parseBoolean(params.get("atomic"));
+            String vehicles = params.get("vehicles");
+            List<String> vehicleIds = vehicles == null || vehicles.isEmpty()
+                    ? new ArrayList<>() : Arrays.asList(vehicles.split(","));
+            return batchResultsJson(agency.returnVehicles(vehicleIds, atomic));
+        }
+        
+        private String batchResultsJson(List<BatchResult> results) {
+            int applied = 0;
+            StringBuilder json = new StringBuilder();
+            json.append("{\"results\":[");
+            
+            for (int i = 0; i < results.size(); i++) {
+                BatchResult result = results.get(i);
+                if (result.isSuccess()) applied++;
+                if (i > 0) json.append(",");
+                json.append("{")
+                    .append("\"index\":").append(result.getIndex()).append(",")
+                    .append("\"vehicleId\":\"").append(result.getVehicleId()).append("\",")
+                    .append("\"success\":").append(result.isSuccess()).append(",")
+                    .append("\"message\":\"").append(result.getMessage()).append("\"")
+                    .append("}");
+            }
+            
+            json.append("],\"applied\":").append(applied)
+                .append(",\"success\":").append(applied == results.size())
+                .append("}");
+            return json.toString();
+        }
+        
         private String returnVehicle(Map<String, String> params) {
             try {
                 String vehicleId = params.get("vehicleId");
@@ -581,21 +820,11 @@ public class SimpleWebServer {
         }
         
         private Vehicle findVehicle(String vehicleId) {
-            for (Vehicle vehicle : agency.getFleet()) {
-                if (vehicle.getVehicleId().equals(vehicleId)) {
-                    return vehicle;
-                }
-            }
-            return null;
+            return agency.findVehicleById(vehicleId);
         }
         
         private Customer findCustomer(String customerId) {
-            for (Customer customer : agency.getCustomers()) {
-                if (customer.getCustomerId().equals(customerId)) {
-                    return customer;
-                }
-            }
-            return null;
+            return agency.findCustomerById(customerId);
         }
     }
     
@@ -616,11 +845,20 @@ public class SimpleWebServer {
                 } else if ("fleet".equals(reportType)) {
                     response = getFleetReport();
                 } else if ("revenue".equals(reportType)) {
-                    response = getRevenueReport();
+                    response = getRevenueReport(params);
                 } else if ("customer".equals(reportType)) {
                     response = getCustomerReport();
                 } else if ("utilization".equals(reportType)) {
                     response = getUtilizationReport();
+                } else if ("ratings".equals(reportType)) {
+                    response = getRatingsReport(params);
+                } else if ("quotes".equals(reportType)) {
+                    response = getQuoteCacheReport();
+                } else if ("journal".equals(reportType)) {
+                    response = getJournalReport();
+                } else if ("asOf".equals(reportType)) {
+                    // e.g. /api/reports?type=asOf&at=2024-07-01T12:00:00Z
+                    response = getAsOfReport(Instant.parse(params.get("at")));
                 } else {
                     response = "{\"error\":\"Invalid report type\"}";
                     statusCode = 400;
@@ -640,104 +878,170 @@ public class SimpleWebServer {
         }
         
         private String getDashboardReport() {
-            int vehicleCount = agency.getFleet().size();
-            int customerCount = agency.getCustomers().size();
-            
-            int activeRentals = 0;
-            double todayRevenue = 0;
-            
-            for (Customer customer : agency.getCustomers()) {
-                for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                    Vehicle vehicle = entry.getKey();
-                    Integer days = entry.getValue();
-                    activeRentals++;
-                    todayRevenue += vehicle.calculateRentalCost(days);
-                }
-            }
-            
+            ReportAggregates stats = agency.getAggregates();
             return String.format("{\"vehicleCount\":%d,\"customerCount\":%d,\"activeRentals\":%d,\"todayRevenue\":%.2f}",
-                vehicleCount, customerCount, activeRentals, todayRevenue);
+                stats.getVehicleCount(), stats.getCustomerCount(), stats.getActiveRentals(), agency.getRevenueLedger().getToday());
         }
         
         private String getFleetReport() {
-            int total = agency.getFleet().size();
-            int available = 0;
-            int rented = 0;
-            double totalRating = 0;
-            
-            for (Vehicle vehicle : agency.getFleet()) {
-                if (vehicle.isAvailable()) {
-                    available++;
-                } else {
-                    rented++;
-                }
-                totalRating += vehicle.getAverageRating();
-            }
-            
-            double avgRating = total > 0 ? totalRating / total : 0;
+            ReportAggregates stats = agency.getAggregates();
+            int total = stats.getVehicleCount();
+            int available = agency.countAvailableVehicles();
+            int rented = total - available;
             double utilization = total > 0 ? ((double) rented / total) * 100 : 0;
             
             return String.format("{\"totalVehicles\":%d,\"available\":%d,\"rented\":%d,\"maintenance\":0,\"utilization\":\"%.1f\",\"avgRating\":\"%.1f\"}",
-                total, available, rented, utilization, avgRating);
+                total, available, rented, utilization, stats.getAverageVehicleRating());
         }
         
-        private String getRevenueReport() {
-            double totalRevenue = 0;
-            int totalRentals = 0;
+        // e.g. /api/reports?type=revenue&from=2024-07-01&to=2024-07-31 adds that range
+        private String getRevenueReport(Map<String, String> params) {
+            ReportAggregates stats = agency.getAggregates();
+            RevenueLedger ledger = agency.getRevenueLedger();
+            LocalDate today = LocalDate.now();
+            double totalRevenue = stats.getActiveRevenue();
+            int totalRentals = stats.getActiveRentals();
             
-            for (Customer customer : agency.getCustomers()) {
-                for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                    Vehicle vehicle = entry.getKey();
-                    Integer days = entry.getValue();
-                    totalRevenue += vehicle.calculateRentalCost(days);
-                    totalRentals++;
-                }
+            StringBuilder json = new StringBuilder();
+            json.append(String.format("{\"totalRevenue\":\"%.2f\",\"todayRevenue\":\"%.2f\",\"totalRentals\":%d,\"activeRentals\":%d,\"avgPerRental\":\"%.2f\",",
+                totalRevenue, ledger.getDay(today), totalRentals, totalRentals, stats.getAverageRevenuePerRental()));
+            json.append(String.format("\"last7Days\":\"%.2f\",\"last30Days\":\"%.2f\",",
+                ledger.getTrailingDays(today, 7), ledger.getTrailingDays(today, 30)));
+            json.append("\"weekly\":").append(amountsJson(ledger.getWeeks(today.minusWeeks(3), 4))).append(",");
+            json.append("\"monthly\":").append(amountsJson(ledger.getMonths(YearMonth.from(today).minusMonths(11), 12)));
+            if (params.get("from") != null && params.get("to") != null) {
+                json.append(String.format(",\"rangeRevenue\":\"%.2f\"",
+                    ledger.getRange(LocalDate.parse(params.get("from")), LocalDate.parse(params.get("to")))));
             }
-            
-            double avgPerRental = totalRentals > 0 ? totalRevenue / totalRentals : 0;
-            
-            return String.format("{\"totalRevenue\":\"%.2f\",\"todayRevenue\":\"%.2f\",\"totalRentals\":%d,\"activeRentals\":%d,\"avgPerRental\":\"%.2f\"}",
-                totalRevenue, totalRevenue, totalRentals, totalRentals, avgPerRental);
+            return json.append("}").toString();
         }
         
-        private String getCustomerReport() {
-            int total = agency.getCustomers().size();
-            int gold = 0;
-            int silver = 0;
-            int bronze = 0;
-            double totalRating = 0;
-            
-            for (Customer customer : agency.getCustomers()) {
-                int points = customer.getLoyaltyPoints();
-                if (points >= 100) gold++;
-                else if (points >= 50) silver++;
-                else bronze++;
-                
-                totalRating += customer.getAverageRating();
+        // Oldest period first
+        private String amountsJson(double[] totals) {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < totals.length; i++) {
+                if (i > 0) json.append(",");
+                json.append(String.format("\"%.2f\"", totals[i]));
             }
+            return json.append("]").toString();
+        }
+        
+        private String getCustomerReport() {
+            ReportAggregates stats = agency.getAggregates();
+            int total = stats.getCustomerCount();
             
-            double avgRating = total > 0 ? totalRating / total : 0;
-            
-            return String.format("{\"totalCustomers\":%d,\"goldMembers\":%d,\"silverMembers\":%d,\"bronzeMembers\":%d,\"avgRating\":\"%.1f\",\"retentionRate\":\"85.0\"}",
-                total, gold, silver, bronze, avgRating);
+            return String.format("{\"totalCustomers\":%d,\"goldMembers\":%d,\"silverMembers\":%d,\"bronzeMembers\":%d,\"avgRating\":\"%.1f\",\"retentionRate\":\"%.1f\"}",
+                total, stats.getGoldMembers(), stats.getSilverMembers(), stats.getBronzeMembers(),
+                stats.getAverageCustomerRating(), stats.getRetentionRate());
         }
         
         private String getUtilizationReport() {
-            int totalDays = 0;
-            int totalRentals = 0;
+            ReportAggregates stats = agency.getAggregates();
+            int totalRentals = stats.getActiveRentals();
+            int fleetSize = stats.getVehicleCount();
+            double utilization = fleetSize > 0 ? ((double) totalRentals / fleetSize) * 100 : 0;
+            VehicleType peak = stats.getPeakDemandType();
             
-            for (Customer customer : agency.getCustomers()) {
+            return String.format("{\"utilization\":\"%.1f\",\"avgRentalDuration\":\"%.1f\",\"totalRentalDays\":%d,\"peakDemandType\":\"%s\",\"totalActiveRentals\":%d}",
+                utilization, stats.getAverageRentalDays(), stats.getActiveRentalDays(),
+                peak != null ? peak.getDisplayName() : "None", totalRentals);
+        }
+        
+        // How well the quote cache is absorbing repeat quotes
+        private String getQuoteCacheReport() {
+            QuoteCache cache = agency.getQuoteCache();
+            return String.format("{\"capacity\":%d,\"size\":%d,\"hits\":%d,\"misses\":%d,\"evictions\":%d,\"hitRate\":\"%.3f\"}",
+                cache.getCapacity(), cache.getSize(), cache.getHits(), cache.getMisses(),
+                cache.getEvictions(), cache.getHitRate());
+        }
+        
+        // e.g. /api/reports?type=ratings&limit=10 for the ten best and worst rated vehicles
+        private String getRatingsReport(Map<String, String> params) {
+            RatingLeaderboard board = agency.getLeaderboard();
+            int limit = params.get("limit") != null ? Integer.parseInt(params.get("limit")) : board.getSize();
+            return "{\"minRatings\":" + board.getMinRatings() + ","
+                + "\"top\":" + standingsJson(board.getTopRated(limit)) + ","
+                + "\"bottom\":" + standingsJson(board.getLowestRated(limit)) + "}";
+        }
+        
+        private String standingsJson(List<RatingLeaderboard.Standing> standings) {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < standings.size(); i++) {
+                RatingLeaderboard.Standing standing = standings.get(i);
+                if (i > 0) json.append(",");
+                json.append(String.format("{\"id\":\"%s\",\"model\":\"%s\",\"avgRating\":\"%.2f\",\"ratings\":%d}",
+                    standing.getVehicle().getVehicleId(), standing.getVehicle().getModel(),
+                    standing.getAverageRating(), standing.getRatingCount()));
+            }
+            return json.append("]").toString();
+        }
+        
+        // Commit latency and group-commit batch sizes of the durable journal
+        private String getJournalReport() {
+            if (!(store.getJournal() instanceof GroupCommitJournal)) {
+                return "{\"durable\":false,\"lastSequence\":" + store.getJournal().getLastSequence() + "}";
+            }
+            GroupCommitJournal journal = (GroupCommitJournal) store.getJournal();
+            return "{\"durable\":true,"
+                + "\"lastSequence\":" + journal.getLastSequence() + ","
+                + "\"syncIntervalMs\":" + journal.getSyncInterval().toMillis() + ","
+                + "\"maxBatchSize\":" + journal.getMaxBatchSize() + ","
+                + "\"commitLatencyMicros\":" + histogramJson(journal.getCommitLatencyMicros()) + ","
+                + "\"batchSize\":" + histogramJson(journal.getBatchSizes()) + "}";
+        }
+        
+        // Summary plus the non-empty power-of-two buckets, keyed by their upper bound
+        private String histogramJson(Histogram histogram) {
+            StringBuilder json = new StringBuilder();
+            json.append(String.format("{\"count\":%d,\"mean\":%.1f,\"p50\":%d,\"p99\":%d,\"max\":%d,\"buckets\":{",
+                histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                histogram.getPercentile(99), histogram.getMax()));
+            long[] counts = histogram.getBucketCounts();
+            boolean first = true;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                if (!first) json.append(",");
+                json.append("\"").append(i == 0 ? 0 : (1L << i) - 1).append("\":").append(counts[i]);
+                first = false;
+            }
+            json.append("}}");
+            return json.toString();
+        }
+        
+        // Fleet and rentals as they stood at a past moment, rebuilt from the journal
+        private String getAsOfReport(Instant at) throws IOException {
+            RentalAgency past = store.stateAt(at);
+            // A rebuilt agency is read once, so its totals are worked out here
+            FleetSummary fleet = past.getFleetColumns().summarize();
+            CustomerSummary customers = reportEngine.summarizeCustomers(past.getCustomers());
+            VehicleType peak = customers.getPeakDemandType();
+            StringBuilder json = new StringBuilder();
+            json.append("{\"at\":\"").append(at).append("\",")
+                .append("\"vehicleCount\":").append(fleet.getVehicleCount()).append(",")
+                .append("\"customerCount\":").append(customers.getCustomerCount()).append(",")
+                .append("\"available\":").append(fleet.getAvailable()).append(",")
+                .append("\"utilization\":").append(String.format("%.1f", fleet.getUtilization())).append(",")
+                .append("\"avgRating\":").append(String.format("%.1f", fleet.getAverageRating())).append(",")
+                .append("\"revenue\":").append(String.format("%.2f", customers.getRevenue())).append(",")
+                .append("\"avgRentalDuration\":").append(String.format("%.1f", customers.getAverageRentalDays())).append(",")
+                .append("\"peakDemandType\":\"").append(peak != null ? peak.getDisplayName() : "None").append("\",")
+                .append("\"rentals\":[");
+            boolean first = true;
+            for (Customer customer : past.getCustomers()) {
                 for (Map.Entry<Vehicle, Integer> entry : customer.getCurrentRentals().entrySet()) {
-                    totalDays += entry.getValue();
-                    totalRentals++;
+                    Reservation booking = past.getRentalBooking(entry.getKey());
+                    if (!first) json.append(",");
+                    json.append("{")
+                        .append("\"vehicleId\":\"").append(entry.getKey().getVehicleId()).append("\",")
+                        .append("\"customerId\":\"").append(customer.getCustomerId()).append("\",")
+                        .append("\"days\":").append(entry.getValue()).append(",")
+                        .append("\"startDate\":\"").append(booking != null ? booking.getStartDate() : "").append("\"")
+                        .append("}");
+                    first = false;
                 }
             }
-            
-            double avgDuration = totalRentals > 0 ? (double) totalDays / totalRentals : 0;
-            double utilization = agency.getFleet().size() > 0 ? ((double) totalRentals / agency.getFleet().size()) * 100 : 0;
-            
-            return String.format("{\"utilization\":\"%.1f\",\"avgRentalDuration\":\"%.1f\",\"totalRentalDays\":%d,\"peakDemandType\":\"Car\",\"totalActiveRentals\":%d}",
-                utilization, avgDuration, totalDays, totalRentals);
+            json.append("]}");
+            return json.toString();
         }
     }
     
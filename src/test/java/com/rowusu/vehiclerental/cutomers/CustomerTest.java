@@ -86,12 +86,12 @@ class CustomerTest {
     }
 
     @Test
-    void testRentalHistory() {
+    void testAddRental() {
         customer.addRental(car, "First rental", 5);  // Add car rental
-        assertEquals(1, customer.getRentalHistory().size(), "Rental history should have one entry");
+        assertEquals(1, customer.getCurrentRentals().size(), "Customer should have one rental out");
 
         customer.addRental(truck, "Second rental", 3);  // Add truck rental
-        assertEquals(2, customer.getRentalHistory().size(), "Rental history should have two entries");
+        assertEquals(2, customer.getCurrentRentals().size(), "Customer should have two rentals out");
     }
 
     @Test
@@ -0,0 +1,178 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.RentalTransaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgencySnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    // Test that everything the snapshot covers comes back after a load
+    @Test
+    public void testRoundTrip() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, true, false, true);
+        car.addFeature(new Feature("Roof Rack", 7.5));
+        Vehicle truck = new Truck("TRUCK001", "Ford F-150", 85.0, false, true);
+        Vehicle sold = new Car("CAR002", "Honda Civic", 40.0, false, false, false);
+        Vehicle parked = new Car("CAR003", "Mazda 3", 42.0, false, false, false);
+        agency.addVehicleToFleet(car);
+        agency.addVehicleToFleet(truck);
+        agency.addVehicleToFleet(sold);
+        agency.addVehicleToFleet(parked);
+        parked.setAvailable(false);
+
+        Customer john = new Customer("John Smith", "CUST001");
+        john.addLoyaltyPoints(120);
+        agency.addCustomer(john);
+        Customer walkIn = new Customer("Walk In", "GUEST");
+
+        agency.rentVehicle(sold, john, 1);
+        agency.processReturn(sold);
+        agency.removeVehicleFromFleet(sold);
+        agency.rentVehicle(car, john, 3);
+        agency.rentVehicle(truck, walkIn, 2);
+        agency.rateVehicle(car, 4);
+        agency.rateVehicle(car, 2);
+        agency.rateCustomer(john, 5);
+
+        Path file = dir.resolve("snapshot.bin");
+        AgencySnapshot.write(file, agency, 42, 1234L);
+
+        RentalAgency loaded = new RentalAgency();
+        AgencySnapshot snapshot = AgencySnapshot.load(file, loaded);
+        assertEquals(42, snapshot.getLastSequence());
+        assertEquals(1234L, snapshot.getTimestamp());
+
+        Car loadedCar = (Car) loaded.findVehicleById("CAR001");
+        assertTrue(loadedCar.hasGPS() && loadedCar.hasSunroof() && !loadedCar.hasChildSeat());
+        assertEquals(1, loadedCar.getFeatures().size());
+        assertEquals(7.5, loadedCar.calculateTotalFeatureCost(), 0.001);
+        assertEquals(3.0, loadedCar.getAverageRating(), 0.001);
+        assertFalse(loadedCar.isAvailable());
+
+        Customer loadedJohn = loaded.findCustomerById("CUST001");
+        assertEquals(120, loadedJohn.getLoyaltyPoints());
+        assertEquals(5.0, loadedJohn.getAverageRating(), 0.001);
+        assertEquals(3, loadedJohn.getCurrentRentals().get(loadedCar));
+        assertSame(loadedJohn, loaded.getRenter(loadedCar));
+        assertEquals(LocalDate.now(), loaded.getRentalBooking(loadedCar).getStartDate());
+        // History keeps the car that has since left the fleet, and the current
+        // rental under the same ID it had before
+        List<RentalTransaction> history = loaded.getRentalHistory(loadedJohn);
+        assertEquals(2, history.size());
+        assertEquals("CAR002", history.get(0).getVehicleId());
+        assertEquals("Honda Civic", history.get(0).getVehicleModel());
+        assertTrue(history.get(0).isReturned());
+        assertEquals(agency.getRentalBooking(car).getTransactionId(), history.get(1).getTransactionId());
+        assertEquals(loaded.getRentalBooking(loadedCar).getTransactionId(), history.get(1).getTransactionId());
+        assertFalse(history.get(1).isReturned());
+
+        // The walk-in renter comes back with the truck but isn't registered
+        Vehicle loadedTruck = loaded.findVehicleById("TRUCK001");
+        assertEquals("GUEST", loaded.getRenter(loadedTruck).getCustomerId());
+        assertNull(loaded.findCustomerById("GUEST"));
+        assertTrue(((Truck) loadedTruck).hasRefrigeratedStorage());
+
+        // The ledger comes back as it was, without reposting the restored rentals
+        assertEquals(agency.getRevenueLedger().getRange(LocalDate.now(), LocalDate.now().plusDays(5)),
+                loaded.getRevenueLedger().getRange(LocalDate.now(), LocalDate.now().plusDays(5)), 1e-9);
+        assertEquals((45.0 + 7.5) + 40.0 + 85.0, loaded.getRevenueLedger().getToday(), 1e-9);
+
+        assertFalse(loaded.findVehicleById("CAR003").isAvailable());
+        assertNull(loaded.findVehicleById("CAR002"));
+        assertEquals(3, loaded.getFleet().size());
+        assertEquals(1, loaded.getCustomers().size());
+        assertEquals(0, loaded.countAvailableVehicles());
+
+        // Returning the restored rental works like any other, and closes its transaction
+        loaded.processReturn(loadedCar);
+        assertTrue(loadedCar.isAvailable());
+        assertTrue(loadedJohn.isEligibleForRental());
+        assertTrue(loaded.getRentalHistory(loadedJohn).get(1).isReturned());
+        assertEquals(3, loaded.getTransactions().getCount());
+    }
+
+    // Test that an ID still waiting in the snapshot counts as taken
+    @Test
+    public void testPendingIdsAreTaken() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        agency.addVehicleToFleet(new Car("CAR001", "Toyota Camry", 45.0, false, false, false));
+        agency.addCustomer(new Customer("John Smith", "CUST001"));
+        Path file = dir.resolve("snapshot.bin");
+        AgencySnapshot.write(file, agency, 2, 0L);
+
+        RentalAgency loaded = new RentalAgency();
+        AgencySnapshot.load(file, loaded);
+        assertThrows(IllegalArgumentException.class,
+                () -> loaded.addVehicleToFleet(new Car("CAR001", "Other", 30.0, false, false, false)));
+        assertThrows(IllegalArgumentException.class,
+                () -> loaded.addCustomer(new Customer("Someone Else", "CUST001")));
+        assertEquals(1, loaded.getFleet().size());
+        assertEquals("John Smith", loaded.getCustomers().get(0).getName());
+    }
+
+    // Test that a file written by another format version is refused rather than misread
+    @Test
+    public void testOtherVersionsAreRejected() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        agency.addVehicleToFleet(new Car("CAR001", "Toyota Camry", 45.0, false, false, false));
+        Path file = dir.resolve("snapshot.bin");
+        AgencySnapshot.write(file, agency, 1, 0L);
+
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, AgencySnapshot.VERSION - 1);
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> AgencySnapshot.peek(file));
+        assertThrows(IOException.class, () -> AgencySnapshot.load(file, new RentalAgency()));
+    }
+
+    // Test that a large fleet can serve lookups right after the load while the
+    // rest is materialized in the background
+    @Test
+    public void testLargeFleetIsReadyImmediately() throws Exception {
+        int size = 200_000;
+        RentalAgency agency = new RentalAgency();
+        for (int i = 0; i < size; i++) {
+            agency.addVehicleToFleet(new Car("CAR" + i, "Model " + (i % 50), 20.0 + i % 100, i % 2 == 0, false, false));
+        }
+        Customer john = new Customer("John Smith", "CUST001");
+        agency.addCustomer(john);
+        agency.rentVehicle(agency.findVehicleById("CAR12345"), john, 2);
+        Path file = dir.resolve("snapshot.bin");
+        AgencySnapshot.write(file, agency, 1, 0L);
+        agency = null;
+
+        RentalAgency loaded = RentalAgency.createConcurrent();
+        long start = System.nanoTime();
+        AgencySnapshot.load(file, loaded);
+        Vehicle vehicle = loaded.findVehicleById("CAR199999");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("Model 49", vehicle.getModel());
+        assertTrue(elapsedMillis < 500, "First lookup took " + elapsedMillis + "ms");
+        assertFalse(loaded.findVehicleById("CAR12345").isAvailable());
+        assertEquals(1, loaded.findCustomerById("CUST001").getCurrentRentals().size());
+
+        assertEquals(size, loaded.getFleet().size());
+        assertEquals(size - 1, loaded.countAvailableVehicles());
+        assertSame(vehicle, loaded.findVehicleById("CAR199999"));
+    }
+}
@@ -0,0 +1,400 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventLogger;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.Motorcycle;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.pricing.PricingRules;
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.RentalTransaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgencyStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static void populate(RentalAgency agency) throws Exception {
+        agency.addVehicleToFleet(new Car("CAR001", "Toyota Camry", 45.0, true, false, true));
+        agency.addVehicleToFleet(new Motorcycle("MOTO001", "Harley Davidson", 75.0, true, false));
+        Customer john = new Customer("John Smith", "CUST001");
+        john.addLoyaltyPoints(20);
+        agency.addCustomer(john);
+        agency.addCustomer(new Customer("Sarah Johnson", "CUST002"));
+
+        agency.rentVehicle(agency.findVehicleById("CAR001"), john, 3);
+        agency.processRental(agency.findCustomerById("CUST002"), agency.findVehicleById("MOTO001"), 2);
+        agency.processReturn(agency.findVehicleById("MOTO001"));
+        agency.rateVehicle(agency.findVehicleById("MOTO001"), 4);
+        agency.rateCustomer(john, 5);
+    }
+
+    private static void assertPopulated(RentalAgency agency) {
+        assertEquals(2, agency.getFleet().size());
+        assertEquals(2, agency.getCustomers().size());
+
+        Vehicle car = agency.findVehicleById("CAR001");
+        Vehicle moto = agency.findVehicleById("MOTO001");
+        Customer john = agency.findCustomerById("CUST001");
+        Customer sarah = agency.findCustomerById("CUST002");
+
+        assertTrue(((Car) car).hasSunroof());
+        assertFalse(car.isAvailable());
+        assertTrue(moto.isAvailable());
+        assertEquals(3, john.getCurrentRentals().get(car));
+        // Transactions come back under the IDs they were given
+        assertEquals(1, agency.getRentalHistory(john).size());
+        assertEquals(1L, agency.getRentalHistory(john).get(0).getTransactionId());
+        assertFalse(agency.getRentalHistory(john).get(0).isReturned());
+        assertEquals(2L, agency.getRentalHistory(sarah).get(0).getTransactionId());
+        assertTrue(agency.getRentalHistory(sarah).get(0).isReturned());
+        assertEquals(20, john.getLoyaltyPoints());
+        assertEquals(20, sarah.getLoyaltyPoints());
+        assertEquals(4.0, moto.getAverageRating(), 0.001);
+        assertEquals(5.0, john.getAverageRating(), 0.001);
+        assertEquals(1, agency.countAvailableVehicles());
+    }
+
+    // Test that reopening the store rebuilds the same agency from the journal
+    @Test
+    public void testReopenReplaysJournal() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, true)) {
+            populate(store.getAgency());
+        }
+        try (AgencyStore store = AgencyStore.open(dir, true)) {
+            assertPopulated(store.getAgency());
+            assertEquals(10, store.getJournal().getLastSequence());
+        }
+    }
+
+    // Test that the snapshot plus the journal tail after it gives the same state
+    @Test
+    public void testSnapshotThenTail() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            populate(store.getAgency());
+            store.snapshot();
+            store.getAgency().processReturn(store.getAgency().findVehicleById("CAR001"));
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            RentalAgency agency = store.getAgency();
+            assertTrue(agency.findVehicleById("CAR001").isAvailable());
+            assertEquals(1, agency.getRentalHistory(agency.findCustomerById("CUST001")).size());
+            assertTrue(agency.getTransactions().get(1).isReturned());
+            assertEquals(0, agency.findCustomerById("CUST001").getCurrentRentals().size());
+
+            // A second snapshot replaces the first and doesn't change the result
+            store.snapshot();
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertEquals(2, store.getAgency().countAvailableVehicles());
+            assertEquals(5.0, store.getAgency().findCustomerById("CUST001").getAverageRating(), 0.001);
+        }
+    }
+
+    // Test that rentals restored from the snapshot after the journal is
+    // attached aren't journaled a second time
+    @Test
+    public void testRestoredRentalsAreNotJournaledAgain() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            populate(store.getAgency());
+            store.snapshot();
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertPopulated(store.getAgency());
+            assertEquals(10, store.getJournal().getLastSequence());
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertPopulated(store.getAgency());
+        }
+    }
+
+    // Test that opening after a snapshot starts reading the journal where the
+    // snapshot left off, so nothing it covers is read again
+    @Test
+    public void testOpenSeeksPastSnapshot() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            populate(store.getAgency());
+            store.snapshot();
+            store.getAgency().addVehicleToFleet(new Car("CAR002", "Honda Civic", 40.0, false, false, false));
+        }
+        // Damage the first record; only a full read would notice
+        try (FileChannel channel = FileChannel.open(dir.resolve(AgencyStore.JOURNAL_FILE), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF}), 0);
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertNotNull(store.getAgency().findVehicleById("CAR002"));
+            assertEquals(11, store.getJournal().getLastSequence());
+            assertEquals(3, store.getAgency().findCustomerById("CUST001").getCurrentRentals().get(
+                    store.getAgency().findVehicleById("CAR001")));
+        }
+    }
+
+    // Test that a journal which no longer matches the snapshot's offset is
+    // read from the start, and numbering carries on after the snapshot
+    @Test
+    public void testReplacedJournalIsReadFromStart() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            populate(store.getAgency());
+            store.snapshot();
+        }
+        Files.write(dir.resolve(AgencyStore.JOURNAL_FILE), new byte[0]);
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertPopulated(store.getAgency());
+            assertEquals(10, store.getJournal().getLastSequence());
+            store.getAgency().addVehicleToFleet(new Car("CAR002", "Honda Civic", 40.0, false, false, false));
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertNotNull(store.getAgency().findVehicleById("CAR002"));
+            assertEquals(11, store.getJournal().getLastSequence());
+        }
+    }
+
+    // Test that features added before and after joining the fleet survive a
+    // reopen and a snapshot rebuilt from the journal
+    @Test
+    public void testFeaturesSurviveReopenAndSnapshot() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            RentalAgency agency = store.getAgency();
+            Car car = new Car("CAR001", "Toyota Camry", 40.0, false, false, false);
+            car.addFeature(Feature.of("GPS", 10.0));
+            agency.addVehicleToFleet(car);
+            agency.addVehicleFeature(car, Feature.of("Child Seat", 5.0));
+            agency.addVehicleFeature(car, Feature.of("Child Seat", 5.0));
+            assertEquals(55.0, car.getDailyRate(), 0.001);
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            Vehicle car = store.getAgency().findVehicleById("CAR001");
+            assertEquals(55.0, car.getDailyRate(), 0.001);
+            assertEquals(2, car.getFeatures().size());
+            assertEquals(3, store.getJournal().getLastSequence());
+            store.snapshot();
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            Vehicle car = store.getAgency().findVehicleById("CAR001");
+            assertEquals(55.0, car.getDailyRate(), 0.001);
+            assertTrue(car.hasFeature("GPS"));
+            assertTrue(car.hasFeature("Child Seat"));
+        }
+    }
+
+    // Test that a rental replayed from the journal or a snapshot keeps what it
+    // was charged, even though the reopened agency has default pricing
+    @Test
+    public void testChargedCostSurvivesReplay() throws Exception {
+        double charged;
+        LocalDate start;
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            RentalAgency agency = store.getAgency();
+            agency.setPricing(new PricingRules().typeSurcharge(VehicleType.CAR, 20.0));
+            agency.addVehicleToFleet(new Car("CAR001", "Toyota Camry", 40.0, false, false, false));
+            agency.addCustomer(new Customer("John Smith", "CUST001"));
+            RentalTransaction rental = agency.rentVehicle(agency.findVehicleById("CAR001"),
+                    agency.findCustomerById("CUST001"), 3);
+            charged = rental.getCost();
+            start = rental.getStartDate();
+            assertEquals(180.0, charged, 0.001);
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            RentalAgency agency = store.getAgency();
+            assertEquals(charged, agency.getTransactions().get(1).getCost(), 0.001);
+            assertEquals(charged, agency.getRevenueLedger().getRange(start, start.plusDays(2)), 0.001);
+            assertEquals(charged, store.stateAt(Instant.now()).getTransactions().get(1).getCost(), 0.001);
+            store.snapshot();
+        }
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            RentalAgency agency = store.getAgency();
+            assertEquals(charged, agency.getTransactions().get(1).getCost(), 0.001);
+            assertEquals(charged, agency.getRevenueLedger().getRange(start, start.plusDays(2)), 0.001);
+        }
+    }
+
+    // Test that a record torn by a crash is dropped and the journal stays appendable
+    @Test
+    public void testTornTailIsTruncated() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, true)) {
+            populate(store.getAgency());
+        }
+        Path journal = dir.resolve(AgencyStore.JOURNAL_FILE);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (AgencyStore store = AgencyStore.open(dir, true)) {
+            // The last rating is gone, everything before it survives
+            assertEquals(9, store.getJournal().getLastSequence());
+            assertEquals(0.0, store.getAgency().findCustomerById("CUST001").getAverageRating(), 0.001);
+            store.getAgency().rateCustomer(store.getAgency().findCustomerById("CUST001"), 3);
+        }
+        try (AgencyStore store = AgencyStore.open(dir, true)) {
+            assertEquals(10, store.getJournal().getLastSequence());
+            assertEquals(3.0, store.getAgency().findCustomerById("CUST001").getAverageRating(), 0.001);
+        }
+    }
+
+    // Test that a zero-filled tail, as left by a crash after the file grew,
+    // is cut off rather than read as empty records
+    @Test
+    public void testZeroFilledTailIsTruncated() throws Exception {
+        assertTailIsTruncated(new byte[64]);
+    }
+
+    // Test that a frame claiming more bytes than any record has is cut off
+    // without trying to read it
+    @Test
+    public void testOversizedLengthIsTruncated() throws Exception {
+        assertTailIsTruncated(ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE).putInt(0).array());
+    }
+
+    private void assertTailIsTruncated(byte[] tail) throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            populate(store.getAgency());
+        }
+        Path journal = dir.resolve(AgencyStore.JOURNAL_FILE);
+        long length = Files.size(journal);
+        Files.write(journal, tail, StandardOpenOption.APPEND);
+
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertPopulated(store.getAgency());
+            assertEquals(10, store.getJournal().getLastSequence());
+            store.getAgency().rateCustomer(store.getAgency().findCustomerById("CUST001"), 3);
+        }
+        assertTrue(Files.size(journal) > length);
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertEquals(11, store.getJournal().getLastSequence());
+            assertEquals(4.0, store.getAgency().findCustomerById("CUST001").getAverageRating(), 0.001);
+        }
+    }
+
+    // Test point-in-time queries on either side of a rental, with and without a snapshot
+    @Test
+    public void testStateAt() throws Exception {
+        try (AgencyStore store = AgencyStore.open(dir, true)) {
+            RentalAgency agency = store.getAgency();
+            agency.addVehicleToFleet(new Car("CAR001", "Toyota Camry", 45.0, false, false, false));
+            Customer john = new Customer("John Smith", "CUST001");
+            agency.addCustomer(john);
+            Thread.sleep(5);
+            Instant beforeRental = Instant.now();
+            Thread.sleep(5);
+            agency.rentVehicle(agency.findVehicleById("CAR001"), john, 2);
+            Thread.sleep(5);
+            Instant afterRental = Instant.now();
+
+            assertTrue(store.stateAt(beforeRental).findVehicleById("CAR001").isAvailable());
+            assertFalse(store.stateAt(afterRental).findVehicleById("CAR001").isAvailable());
+
+            // A snapshot taken later must not leak into earlier queries
+            store.snapshot();
+            assertTrue(store.stateAt(beforeRental).findVehicleById("CAR001").isAvailable());
+            assertFalse(store.stateAt(afterRental).findVehicleById("CAR001").isAvailable());
+            assertTrue(store.stateAt(Instant.EPOCH).getFleet().isEmpty());
+        }
+    }
+
+    // Test that rentals and returns of one vehicle racing on several threads
+    // reach the journal in the order they were applied, so the store reopens
+    @Test
+    public void testConcurrentRentAndReturnReplays() throws Exception {
+        int threads = 8;
+        int rounds = 300;
+        boolean rentedAtClose;
+        int rentals;
+        EventLogger previous = EventLog.set(null);
+        try {
+            try (AgencyStore store = AgencyStore.open(dir, true)) {
+                RentalAgency agency = store.getAgency();
+                Vehicle car = new Car("C1", "Toyota Camry", 45.0, false, false, false);
+                agency.addVehicleToFleet(car);
+                for (int t = 0; t < threads; t++) {
+                    agency.addCustomer(new Customer("Customer " + t, "CUST" + t));
+                }
+                CountDownLatch start = new CountDownLatch(1);
+                List<Thread> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    Customer customer = agency.findCustomerById("CUST" + t);
+                    Thread worker = new Thread(() -> {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int i = 0; i < rounds; i++) {
+                            try {
+                                agency.rentVehicle(car, customer, 1);
+                            } catch (Exception e) {
+                                // Someone else has it
+                            }
+                            agency.processReturn(car);
+                        }
+                    });
+                    workers.add(worker);
+                    worker.start();
+                }
+                start.countDown();
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                rentedAtClose = !car.isAvailable();
+                rentals = agency.getTransactions().countForVehicle("C1");
+            }
+            try (AgencyStore store = AgencyStore.open(dir, true)) {
+                RentalAgency agency = store.getAgency();
+                assertEquals(rentedAtClose, !agency.findVehicleById("C1").isAvailable());
+                assertEquals(rentals, agency.getTransactions().countForVehicle("C1"));
+            }
+        } finally {
+            EventLog.set(previous);
+        }
+    }
+
+    // Test that replaying a long journal of rentals and returns stays fast
+    @Test
+    public void testReplayThroughput() throws Exception {
+        int pairs = 50_000;
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            RentalAgency agency = store.getAgency();
+            Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+            Customer john = new Customer("John Smith", "CUST001");
+            agency.addVehicleToFleet(car);
+            agency.addCustomer(john);
+            for (int i = 0; i < pairs; i++) {
+                agency.rentVehicle(car, john, 1);
+                agency.processReturn(car);
+            }
+        }
+
+        long start = System.nanoTime();
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(2L + 2L * pairs, store.getJournal().getLastSequence());
+            assertEquals(pairs, store.getAgency().getTransactions().countForCustomer("CUST001"));
+            assertTrue(elapsedMillis < 10_000, "Replay took " + elapsedMillis + "ms");
+        }
+    }
+
+    // Test that a file that isn't a snapshot is rejected instead of half-loaded
+    @Test
+    public void testRejectsForeignSnapshot() throws IOException {
+        Files.write(dir.resolve(AgencyStore.SNAPSHOT_FILE), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> AgencyStore.open(dir, false));
+    }
+}
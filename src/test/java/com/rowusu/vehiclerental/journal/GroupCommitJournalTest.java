@@ -0,0 +1,148 @@
+package com.rowusu.vehiclerental.journal;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupCommitJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static final Customer CUSTOMER = new Customer("John Smith", "CUST001");
+
+    private static void appendConcurrently(GroupCommitJournal journal, int threads, int perThread) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    journal.append(JournalEvent.loyaltyPoints(CUSTOMER, 1));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    // Test that concurrent appends are grouped into fewer syncs and all survive a reopen
+    @Test
+    public void testConcurrentAppendsShareSyncs() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        try (GroupCommitJournal journal = GroupCommitJournal.open(dir.resolve("journal.log"), Duration.ofMillis(2), 64)) {
+            appendConcurrently(journal, threads, perThread);
+
+            assertEquals(threads * perThread, journal.getCommitLatencyMicros().getCount());
+            Histogram batches = journal.getBatchSizes();
+            assertEquals(threads * perThread, Math.round(batches.getMean() * batches.getCount()));
+            assertTrue(batches.getCount() < threads * perThread, "Expected grouped syncs, got " + batches.getCount());
+            assertTrue(batches.getMax() <= 64);
+        }
+
+        Set<Long> sequences = new HashSet<>();
+        EventJournal.read(dir.resolve("journal.log"), event -> sequences.add(event.getSequence()));
+        assertEquals(threads * perThread, sequences.size());
+    }
+
+    // Test that a batch never grows past the configured maximum
+    @Test
+    public void testMaxBatchSize() throws Exception {
+        try (GroupCommitJournal journal = GroupCommitJournal.open(dir.resolve("journal.log"), Duration.ofMillis(50), 4)) {
+            appendConcurrently(journal, 8, 20);
+            assertTrue(journal.getBatchSizes().getMax() <= 4);
+            assertEquals(160, journal.getLastSequence());
+        }
+    }
+
+    // Test that a store opened in durable mode journals and recovers like the plain one
+    @Test
+    public void testDurableStoreRecovers() throws Exception {
+        try (AgencyStore store = AgencyStore.openDurable(dir, true, Duration.ZERO, 16)) {
+            RentalAgency agency = store.getAgency();
+            Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+            Customer sarah = new Customer("Sarah Johnson", "CUST002");
+            agency.addVehicleToFleet(car);
+            agency.addCustomer(sarah);
+            agency.processRental(sarah, car, 2);
+        }
+        try (AgencyStore store = AgencyStore.openDurable(dir, true, Duration.ZERO, 16)) {
+            assertFalse(store.getAgency().findVehicleById("CAR001").isAvailable());
+            assertEquals(4, store.getJournal().getLastSequence());
+        }
+    }
+
+    // Test that appends after close are refused and bad settings are rejected
+    @Test
+    public void testClosedAndInvalidSettings() throws Exception {
+        GroupCommitJournal journal = GroupCommitJournal.open(dir.resolve("journal.log"), Duration.ZERO, 8);
+        journal.close();
+        assertThrows(IllegalStateException.class, () -> journal.append(JournalEvent.loyaltyPoints(CUSTOMER, 1)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> GroupCommitJournal.open(dir.resolve("other.log"), Duration.ofMillis(-1), 8));
+        assertThrows(IllegalArgumentException.class,
+                () -> GroupCommitJournal.open(dir.resolve("other.log"), Duration.ZERO, 0));
+    }
+
+    // Test histogram buckets and percentiles
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(99));
+        assertEquals(1, histogram.getBucketCounts()[1]);
+        assertEquals(2, histogram.getBucketCounts()[2]);
+    }
+
+    // Test that a snapshot taken while a record waits in the write buffer
+    // covers it, instead of claiming its sequence and leaving it out
+    @Test
+    public void testSnapshotCoversBufferedRecords() throws Exception {
+        AgencyStore durable = AgencyStore.openDurable(dir, true, Duration.ofSeconds(30), 1000);
+        RentalAgency agency = durable.getAgency();
+        Thread adder = new Thread(() ->
+                agency.addVehicleToFleet(new Car("CAR001", "Toyota Camry", 45.0, false, false, false)));
+        adder.start();
+        // The record is stamped but the sync is still 30 seconds off
+        while (durable.getJournal().getLastSequence() < 1) {
+            Thread.sleep(1);
+        }
+        durable.snapshot();
+        // Closing syncs the record and lets the add return
+        durable.close();
+        adder.join();
+
+        try (AgencyStore store = AgencyStore.open(dir, false)) {
+            assertNotNull(store.getAgency().findVehicleById("CAR001"));
+        }
+    }
+}
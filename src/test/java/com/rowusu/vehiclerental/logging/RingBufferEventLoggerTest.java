@@ -0,0 +1,150 @@
+package com.rowusu.vehiclerental.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferEventLoggerTest {
+
+    private ByteArrayOutputStream output;
+    private RingBufferEventLogger logger;
+
+    @BeforeEach
+    public void setUp() {
+        output = new ByteArrayOutputStream();
+        logger = new RingBufferEventLogger(new PrintStream(output, true), 1024, LogLevel.INFO);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.close();
+    }
+
+    private String[] lines() {
+        String text = output.toString().trim();
+        return text.isEmpty() ? new String[0] : text.split(System.lineSeparator());
+    }
+
+    // Test that events are written with their schema field names
+    @Test
+    public void testEventFormat() {
+        logger.log(EventType.RENTAL_PROCESSED, "V001", "C123", 3);
+        logger.flush();
+
+        String[] lines = lines();
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].endsWith("INFO RENTAL_PROCESSED vehicle=V001 customer=C123 days=3"), lines[0]);
+    }
+
+    // Test that events below the threshold are skipped
+    @Test
+    public void testLevelThreshold() {
+        logger.log(EventType.VEHICLE_RENTED, "V001", "C123", 3);
+        logger.log(EventType.RENTAL_REJECTED, "V002", "vehicle unavailable");
+        logger.flush();
+        assertEquals(1, lines().length);
+        assertFalse(logger.isEnabled(EventType.VEHICLE_RENTED));
+
+        logger.setLevel(LogLevel.OFF);
+        logger.log(EventType.RENTAL_REJECTED, "V002", "vehicle unavailable");
+        logger.flush();
+        assertEquals(1, lines().length);
+    }
+
+    // Test that sampling keeps one event in every N of a type
+    @Test
+    public void testSampling() {
+        logger.setSampleRate(EventType.RETURN_PROCESSED, 10);
+        for (int i = 0; i < 100; i++) {
+            logger.log(EventType.RETURN_PROCESSED, "V001", "C123");
+        }
+        logger.log(EventType.VEHICLE_ADDED, "V002", "Ford F150");
+        logger.flush();
+
+        assertEquals(11, lines().length);
+        assertThrows(IllegalArgumentException.class, () -> logger.setSampleRate(EventType.RETURN_PROCESSED, 0));
+    }
+
+    // Test that events from many threads all arrive
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    logger.log(EventType.RETURN_PROCESSED, "V001", "C123");
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        logger.flush();
+
+        assertEquals(threads * perThread, lines().length + logger.getDroppedCount());
+    }
+
+    // Test that a stalled output drops events instead of blocking callers
+    @Test
+    public void testFullRingDropsEvents() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OutputStream stalled = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        RingBufferEventLogger small = new RingBufferEventLogger(new PrintStream(stalled), 4, LogLevel.INFO);
+        try {
+            // Wedge the drainer inside a write, then overfill the ring
+            small.log(EventType.VEHICLE_ADDED, "V0", "Model");
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i <= 20; i++) {
+                small.log(EventType.VEHICLE_ADDED, "V" + i, "Model");
+            }
+            assertEquals(16, small.getDroppedCount());
+        } finally {
+            release.countDown();
+            small.close();
+        }
+    }
+
+    // Test the process-wide holder and the no-op logger
+    @Test
+    public void testEventLogHolder() {
+        EventLogger previous = EventLog.set(logger);
+        try {
+            assertSame(logger, EventLog.get());
+            EventLog.disable();
+            assertSame(NoOpEventLogger.INSTANCE, EventLog.get());
+            assertFalse(EventLog.get().isEnabled(EventType.RENTAL_REJECTED));
+        } finally {
+            EventLog.set(previous);
+        }
+    }
+
+    // Test that the capacity must be a power of two
+    @Test
+    public void testCapacityValidation() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RingBufferEventLogger(System.out, 1000, LogLevel.INFO));
+    }
+}
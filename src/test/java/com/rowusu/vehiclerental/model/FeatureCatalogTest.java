@@ -0,0 +1,81 @@
+package com.rowusu.vehiclerental.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureCatalogTest {
+
+    // Test that each name and cost is interned once with its own ID
+    @Test
+    public void testInterning() {
+        Feature gps = Feature.of("Catalog GPS", 10.0);
+        assertSame(gps, Feature.of("Catalog GPS", 10.0));
+        assertSame(gps, FeatureCatalog.intern(new Feature("Catalog GPS", 10.0)));
+        assertSame(gps, FeatureCatalog.byId(gps.getId()));
+
+        Feature pricier = Feature.of("Catalog GPS", 12.0);
+        assertNotSame(gps, pricier);
+        assertNotEquals(gps.getId(), pricier.getId());
+        assertEquals(2, FeatureCatalog.idsNamed("Catalog GPS").length);
+        assertNull(FeatureCatalog.find("Catalog Wi-Fi", 1.0));
+        assertEquals(-1, new Feature("Catalog GPS", 10.0).getId());
+        assertThrows(IllegalArgumentException.class, () -> Feature.of("", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> FeatureCatalog.byId(-1));
+    }
+
+    // Test that vehicles share the catalog's features and hold them as bits
+    @Test
+    public void testVehiclesShareFeatures() {
+        Car first = new Car("CAR001", "Corolla", 50.0, false, false, false);
+        Car second = new Car("CAR002", "Civic", 45.0, false, false, false);
+        first.addFeature(new Feature("Catalog Roof Box", 8.0));
+        second.addFeature(new Feature("Catalog Roof Box", 8.0));
+        second.addFeature(new Feature("Catalog Roof Box", 8.0));
+
+        assertSame(first.getFeatures().get(0), second.getFeatures().get(0));
+        assertEquals(1, second.getFeatures().size());
+        assertEquals(53.0, second.getDailyRate());
+        assertTrue(first.hasFeature("Catalog Roof Box"));
+        assertTrue(first.hasFeature(new Feature("Catalog Roof Box", 8.0)));
+        assertFalse(first.hasFeature(new Feature("Catalog Roof Box", 9.0)));
+        assertFalse(first.hasFeature("Catalog Snow Chains"));
+    }
+
+    // Test that threads interning the same features concurrently get one instance each
+    @Test
+    public void testConcurrentInterning() throws InterruptedException {
+        Set<Feature> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 200; i++) {
+                    seen.add(Feature.of("Concurrent " + i, i));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(200, seen.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(1, FeatureCatalog.idsNamed("Concurrent " + i).length);
+        }
+    }
+}
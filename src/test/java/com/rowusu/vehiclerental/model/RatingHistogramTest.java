@@ -0,0 +1,77 @@
+package com.rowusu.vehiclerental.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RatingHistogramTest {
+
+    // Test that the average, distribution and percentiles come from the counts
+    @Test
+    public void testSummaries() {
+        RatingHistogram ratings = new RatingHistogram();
+        assertEquals(0.0, ratings.getAverage());
+        assertEquals(0, ratings.getMedian());
+
+        for (int rating : new int[] {5, 4, 4, 2, 5, 5, 1, 4, 5, 4}) {
+            ratings.add(rating);
+        }
+        assertEquals(10, ratings.getCount());
+        assertEquals(39L, ratings.getSum());
+        assertEquals(3.9, ratings.getAverage(), 1e-9);
+        assertArrayEquals(new int[] {1, 1, 0, 4, 4}, ratings.getDistribution());
+        assertEquals(4, ratings.getCount(4));
+        assertEquals(1, ratings.getPercentile(0));
+        assertEquals(4, ratings.getPercentile(30));
+        assertEquals(4, ratings.getMedian());
+        assertEquals(5, ratings.getPercentile(90));
+        assertEquals(5, ratings.getPercentile(100));
+
+        RatingHistogram copy = ratings.copy();
+        copy.addAll(RatingHistogram.fromCounts(new int[] {0, 0, 0, 0, 2}));
+        assertEquals(12, copy.getCount());
+        assertEquals(10, ratings.getCount());
+    }
+
+    // Test that out-of-range ratings, percentiles and counts are rejected
+    @Test
+    public void testInvalidInput() {
+        RatingHistogram ratings = new RatingHistogram();
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> ratings.add(6));
+        assertEquals("Rating must be between 1 and 5.", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> ratings.add(0));
+        assertThrows(IllegalArgumentException.class, () -> ratings.getPercentile(101));
+        assertThrows(IllegalArgumentException.class, () -> RatingHistogram.fromCounts(new int[] {1, 2, 3}));
+        assertThrows(IllegalArgumentException.class, () -> RatingHistogram.fromCounts(new int[] {0, 0, -1, 0, 0}));
+        assertEquals(0, ratings.getCount());
+    }
+
+    // Test that ratings added from several threads at once are all counted
+    @Test
+    public void testConcurrentAdds() throws Exception {
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        int threads = 4;
+        int perThread = 10_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    car.addRating(i % 5 + 1);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        RatingHistogram ratings = car.getRatingHistogram();
+        assertEquals(threads * perThread, ratings.getCount());
+        assertEquals(3L * threads * perThread, ratings.getSum());
+        assertEquals(3.0, car.getAverageRating(), 1e-9);
+    }
+}
@@ -0,0 +1,66 @@
+package com.rowusu.vehiclerental.model;
+
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Retained heap per vehicle, measured as the heap growth from holding 1M of
+ * them, for fresh vehicles and for rated ones with a feature. IDs are counted
+ * (about 48 bytes each); the model string and the array holding the vehicles
+ * are not. Off by default; run with
+ * mvn test -Dtest=VehicleFootprintBenchmark -Dvehiclerental.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "vehiclerental.benchmark", matches = "true")
+public class VehicleFootprintBenchmark {
+
+    private static final int COUNT = 1_000_000;
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double bytesPerVehicle(IntFunction<Vehicle> make) {
+        Vehicle[] vehicles = new Vehicle[COUNT];
+        long before = usedHeap();
+        for (int i = 0; i < COUNT; i++) {
+            vehicles[i] = make.apply(i);
+        }
+        long after = usedHeap();
+        assertNotNull(vehicles[COUNT - 1]);
+        return (double) (after - before) / COUNT;
+    }
+
+    // Test (and print) bytes per car, motorcycle and truck
+    @Test
+    public void benchmarkFootprint() {
+        EventLogger previous = EventLog.set(null);
+        try {
+            Feature gps = Feature.of("GPS", 5.0);
+            System.out.printf("Car, fresh:             %.1f bytes%n",
+                bytesPerVehicle(i -> new Car("CAR" + i, "Civic", 40.0, true, false, true)));
+            System.out.printf("Motorcycle, fresh:      %.1f bytes%n",
+                bytesPerVehicle(i -> new Motorcycle("MOTO" + i, "Duke", 30.0, true, false)));
+            System.out.printf("Truck, fresh:           %.1f bytes%n",
+                bytesPerVehicle(i -> new Truck("TRUCK" + i, "Hilux", 80.0, false, true)));
+            System.out.printf("Car, rated and GPS:     %.1f bytes%n",
+                bytesPerVehicle(i -> {
+                    Vehicle car = new Car("CAR" + i, "Civic", 40.0, true, false, true);
+                    car.addRating(4);
+                    car.addFeature(gps);
+                    return car;
+                }));
+        } finally {
+            EventLog.set(previous);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.rowusu.vehiclerental.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VehicleIntMapTest {
+
+    // Test that random puts and removes agree with a HashMap, through growth and back-shifted removals
+    @Test
+    public void testMatchesHashMap() {
+        VehicleIntMap map = new VehicleIntMap();
+        Map<Vehicle, Integer> expected = new HashMap<>();
+        Vehicle[] vehicles = new Vehicle[200];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i] = new Truck("TRUCK" + i, "Hilux", 80.0, false, false);
+        }
+        Random random = new Random(11);
+        for (int step = 0; step < 20_000; step++) {
+            Vehicle vehicle = vehicles[random.nextInt(vehicles.length)];
+            if (random.nextInt(3) > 0) {
+                int days = random.nextInt(30) + 1;
+                map.put(vehicle, days);
+                expected.put(vehicle, days);
+            } else {
+                assertEquals(expected.remove(vehicle) != null, map.remove(vehicle));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Vehicle vehicle : vehicles) {
+            assertEquals(expected.getOrDefault(vehicle, 0), map.get(vehicle, 0));
+            assertEquals(expected.containsKey(vehicle), map.containsKey(vehicle));
+        }
+        Map<Vehicle, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+}
@@ -41,6 +41,20 @@ public class VehicleTest {
         assertEquals(30.0, car.calculateTotalFeatureCost());
     }
 
+    // Test that the cached daily rate follows each added feature and prices every quote
+    @Test
+    public void testDailyRateFollowsFeatures() {
+        Car car = Vehicle.createCar("CAR001", "Toyota Corolla", 50.0, false, false, false);
+        assertEquals(50.0, car.getDailyRate());
+        assertEquals(150.0, car.calculateRentalCost(3));
+
+        car.addFeature(new Feature("GPS", 10.0));
+        car.addFeature(new Feature("Child Seat", 2.5));
+        assertEquals(62.5, car.getDailyRate());
+        assertEquals(187.5, car.calculateRentalCost(3));
+        assertThrows(UnsupportedOperationException.class, () -> car.getFeatures().add(new Feature("Sunroof", 15.0)));
+    }
+
     @Test
     public void testAddRatingAndGetAverageRating() {
         Car car = Vehicle.createCar("CAR001", "Toyota Corolla", 50.0, false, false, false);
@@ -59,4 +73,25 @@ public class VehicleTest {
         assertEquals(car1, car2); // Same vehicleId
         assertEquals(car1.hashCode(), car2.hashCode());
     }
+
+    // Test that equipment flags and rental state share one word without disturbing each other
+    @Test
+    public void testFlagsSurviveRentAndReturn() {
+        Car car = Vehicle.createCar("CAR001", "Toyota Corolla", 50.0, true, false, true);
+        car.setAvailable(false);
+        car.setChildSeat(true);
+        car.setGPS(false);
+        assertFalse(car.isAvailable());
+        assertFalse(car.isAvailableForRental());
+
+        car.setAvailable(true);
+        assertTrue(car.isAvailable());
+        assertFalse(car.hasGPS());
+        assertTrue(car.hasChildSeat());
+        assertTrue(car.hasSunroof());
+        assertEquals(0, car.getRatingCount());
+        assertEquals(0.0, car.getAverageRating());
+        assertThrows(IllegalArgumentException.class, () -> car.addRating(6));
+        assertEquals(0, car.getRatingCount());
+    }
 }
@@ -0,0 +1,50 @@
+package com.rowusu.vehiclerental.pricing;
+
+import com.rowusu.vehiclerental.model.VehicleType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Quotes per second from a compiled evaluator on one thread. Off by default;
+ * run with
+ * mvn test -Dtest=PriceEvaluatorBenchmark -Dvehiclerental.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "vehiclerental.benchmark", matches = "true")
+public class PriceEvaluatorBenchmark {
+
+    private static final int QUOTES = 10_000_000;
+    private static final int RUNS = 5;
+
+    // Test (and print) single-threaded quote throughput
+    @Test
+    public void benchmarkQuotes() {
+        PriceEvaluator evaluator = new PricingRules()
+                .typeSurcharge(VehicleType.TRUCK, 20.0)
+                .durationTier(7, 0.9)
+                .durationTier(30, 0.75)
+                .weekendMultiplier(1.2)
+                .season(MonthDay.of(6, 15), MonthDay.of(8, 31), 1.3)
+                .loyaltyDiscount("Gold", 10)
+                .compile();
+        VehicleType[] types = VehicleType.values();
+        long start = LocalDate.now().toEpochDay();
+
+        double best = 0;
+        for (int run = 0; run < RUNS; run++) {
+            double total = 0;
+            long began = System.nanoTime();
+            for (int i = 0; i < QUOTES; i++) {
+                total += evaluator.quote(types[i % 3], 30.0 + (i & 63), i % 3, start + (i & 511), 1 + (i & 31));
+            }
+            long elapsed = System.nanoTime() - began;
+            assertTrue(total > 0);
+            best = Math.max(best, QUOTES / (elapsed / 1e9));
+        }
+        System.out.printf("%,.0f quotes per second%n", best);
+    }
+}
@@ -0,0 +1,141 @@
+package com.rowusu.vehiclerental.pricing;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import com.rowusu.vehiclerental.rentalagency.RentalTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriceEvaluatorTest {
+
+    private static PricingRules rules() {
+        return new PricingRules()
+                .typeSurcharge(VehicleType.TRUCK, 20.0)
+                .durationTier(7, 0.9)
+                .durationTier(30, 0.75)
+                .weekendMultiplier(1.2)
+                .season(MonthDay.of(6, 15), MonthDay.of(8, 31), 1.3)
+                .season(MonthDay.of(12, 20), MonthDay.of(1, 5), 1.5)
+                .loyaltyDiscount("Silver", 5)
+                .loyaltyDiscount("Gold", 10);
+    }
+
+    // The rules applied a day at a time, the way they read
+    private static double expected(VehicleType type, double dailyRate, int tier, LocalDate start, int days) {
+        double rate = dailyRate + (type == VehicleType.TRUCK ? 20.0 : 0.0);
+        double total = 0;
+        for (int i = 0; i < days; i++) {
+            LocalDate day = start.plusDays(i);
+            double factor = 1.0;
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                factor *= 1.2;
+            }
+            MonthDay monthDay = MonthDay.from(day);
+            if (!monthDay.isBefore(MonthDay.of(6, 15)) && !monthDay.isAfter(MonthDay.of(8, 31))) {
+                factor *= 1.3;
+            }
+            if (!monthDay.isBefore(MonthDay.of(12, 20)) || !monthDay.isAfter(MonthDay.of(1, 5))) {
+                factor *= 1.5;
+            }
+            total += rate * factor;
+        }
+        double duration = days >= 30 ? 0.75 : days >= 7 ? 0.9 : 1.0;
+        double loyalty = tier == 2 ? 0.9 : tier == 1 ? 0.95 : 1.0;
+        return total * duration * loyalty;
+    }
+
+    // Test that compiled quotes match the rules applied day by day, inside
+    // and outside the precomputed window
+    @Test
+    public void testMatchesRules() {
+        PriceEvaluator evaluator = rules().compile(LocalDate.of(2024, 1, 1), LocalDate.of(2026, 12, 31));
+        Random random = new Random(19);
+        for (int i = 0; i < 5000; i++) {
+            VehicleType type = VehicleType.values()[random.nextInt(3)];
+            double rate = 20 + random.nextInt(100);
+            int tier = random.nextInt(3);
+            LocalDate start = LocalDate.of(2023, 6, 1).plusDays(random.nextInt(1500));
+            int days = 1 + random.nextInt(45);
+            double quote = evaluator.quote(type, rate, tier, start.toEpochDay(), days);
+            assertEquals(expected(type, rate, tier, start, days), quote, 1e-6, start + " for " + days + " days");
+        }
+        assertEquals(0.0, evaluator.quote(VehicleType.CAR, 50.0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> evaluator.quote(VehicleType.CAR, 50.0, 3, 0, 1));
+    }
+
+    // Test that with no rules a quote is what the vehicle itself charges, and
+    // that a customer's loyalty status picks the discount
+    @Test
+    public void testVehicleAndCustomerQuotes() {
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        car.addFeature(new Feature("Roof Rack", 7.5));
+        Customer customer = new Customer("John Smith", "CUST001");
+        LocalDate monday = LocalDate.of(2025, 3, 3);
+        assertEquals(car.calculateRentalCost(4), new PricingRules().compile().quote(car, customer, monday, 4));
+
+        PriceEvaluator evaluator = rules().compile();
+        double bronze = evaluator.quote(car, customer, monday, 3);
+        customer.addLoyaltyPoints(120);
+        assertEquals(52.5 * 3, bronze, 1e-9);
+        assertEquals(bronze * 0.9, evaluator.quote(car, customer, monday, 3), 1e-9);
+
+        assertThrows(IllegalArgumentException.class, () -> new PricingRules().loyaltyDiscount("Platinum", 5));
+        assertThrows(IllegalArgumentException.class, () -> new PricingRules().weekendMultiplier(0));
+        assertThrows(IllegalArgumentException.class, () -> new PricingRules().durationTier(0, 0.9));
+    }
+
+    // Test that rentals are charged by the agency's rules once they are set
+    @Test
+    public void testAgencyChargesByRules() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        Vehicle truck = new Truck("TRUCK001", "Ford F-150", 85.0, false, false);
+        agency.addVehicleToFleet(truck);
+        Customer customer = new Customer("John Smith", "CUST001");
+        agency.setPricing(new PricingRules().typeSurcharge(VehicleType.TRUCK, 15.0));
+
+        RentalTransaction rental = agency.rentVehicle(truck, customer, 2);
+        assertEquals(200.0, rental.getCost(), 1e-9);
+        assertEquals(200.0, agency.getAggregates().getActiveRevenue(), 1e-9);
+    }
+
+    // Test that quoting allocates nothing once warmed up
+    @Test
+    public void testQuoteDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        PriceEvaluator evaluator = rules().compile();
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        Customer customer = new Customer("John Smith", "CUST001");
+        long start = LocalDate.now().toEpochDay();
+
+        double total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            total += evaluator.quote(car.getType(), car.getDailyRate(), i % 3, start + i % 365, 1 + i % 40);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            total += evaluator.quote(car.getType(), car.getDailyRate(), i % 3, start + i % 365, 1 + i % 40);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(total > 0);
+        // Leave room for the measurement itself
+        assertTrue(allocated < 1024, "Quoting allocated " + allocated + " bytes");
+        assertTrue(evaluator.quote(car, customer, LocalDate.now(), 3) > 0);
+    }
+}
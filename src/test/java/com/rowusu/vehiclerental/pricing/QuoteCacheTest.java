@@ -0,0 +1,58 @@
+package com.rowusu.vehiclerental.pricing;
+
+import com.rowusu.vehiclerental.model.VehicleType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuoteCacheTest {
+
+    private final PriceEvaluator evaluator = new PricingRules()
+            .durationTier(7, 0.9)
+            .weekendMultiplier(1.25)
+            .season(MonthDay.of(6, 1), MonthDay.of(8, 31), 1.3)
+            .loyaltyDiscount("Gold", 10)
+            .compile();
+    private final long start = LocalDate.of(2025, 7, 4).toEpochDay();
+
+    // Test that repeat quotes are hits and every quote matches the evaluator
+    @Test
+    public void testHitsAndMisses() {
+        QuoteCache cache = new QuoteCache(evaluator, 64);
+        double first = cache.quote(VehicleType.CAR, 55.0, 2, start, 8);
+        double again = cache.quote(VehicleType.CAR, 55.0, 2, start, 8);
+
+        assertEquals(evaluator.quote(VehicleType.CAR, 55.0, 2, start, 8), first);
+        assertEquals(first, again);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+
+        // A changed rate, tier, day or length is a different quote
+        cache.quote(VehicleType.CAR, 60.0, 2, start, 8);
+        cache.quote(VehicleType.CAR, 55.0, 0, start, 8);
+        cache.quote(VehicleType.CAR, 55.0, 2, start + 1, 8);
+        cache.quote(VehicleType.TRUCK, 55.0, 2, start, 8);
+        assertEquals(1, cache.getHits());
+        assertEquals(5, cache.getMisses());
+    }
+
+    // Test that the cache never holds more quotes than its capacity
+    @Test
+    public void testBounded() {
+        QuoteCache cache = new QuoteCache(evaluator, 100);
+        assertEquals(128, cache.getCapacity());
+
+        for (int i = 0; i < 1000; i++) {
+            double rate = 20.0 + i;
+            assertEquals(evaluator.quote(VehicleType.MOTORCYCLE, rate, 1, start, 3),
+                    cache.quote(VehicleType.MOTORCYCLE, rate, 1, start, 3));
+        }
+        assertTrue(cache.getSize() <= 128);
+        assertEquals(1000, cache.getSize() + cache.getEvictions());
+        assertThrows(IllegalArgumentException.class, () -> new QuoteCache(evaluator, 0));
+    }
+}
@@ -0,0 +1,90 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventLogger;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActiveRentalsTest {
+
+    // Test that random puts and removes across stripes agree with a HashMap
+    @Test
+    public void testMatchesHashMap() {
+        ActiveRentals rentals = new ActiveRentals(4);
+        Map<Vehicle, Customer> expected = new HashMap<>();
+        Vehicle[] vehicles = new Vehicle[300];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i] = new Car("CAR" + i, "Civic", 40.0, false, false, false);
+        }
+        Customer john = new Customer("John", "C1");
+        Customer jane = new Customer("Jane", "C2");
+        Random random = new Random(7);
+        for (int step = 0; step < 20_000; step++) {
+            Vehicle vehicle = vehicles[random.nextInt(vehicles.length)];
+            if (random.nextBoolean()) {
+                Customer customer = random.nextBoolean() ? john : jane;
+                rentals.put(vehicle, customer);
+                expected.put(vehicle, customer);
+            } else {
+                assertEquals(expected.remove(vehicle), rentals.remove(vehicle));
+            }
+        }
+        assertEquals(expected.size(), rentals.size());
+        for (Vehicle vehicle : vehicles) {
+            assertEquals(expected.get(vehicle), rentals.get(vehicle));
+        }
+        Map<Vehicle, Customer> visited = new HashMap<>();
+        rentals.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    // Test that renting and returning allocate nothing once the tables have grown
+    @Test
+    public void testRentAndReturnDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        AvailabilityIndex index = new AvailabilityIndex(new ReportAggregates(), new FleetColumns());
+        ActiveRentals rentals = new ActiveRentals(1);
+        Vehicle car = new Car("CAR001", "Civic", 40.0, true, false, false);
+        Vehicle other = new Car("CAR002", "Corolla", 45.0, false, false, false);
+        index.register(car);
+        index.register(other);
+        Customer customer = new Customer("John", "C1");
+        EventLogger previous = EventLog.set(null);
+        try {
+            cycle(car, other, customer, rentals, 20_000);
+            long before = threads.getThreadAllocatedBytes(thread);
+            cycle(car, other, customer, rentals, 100_000);
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            assertTrue(allocated < 10_000, "Allocated " + allocated + " bytes over 100,000 rentals");
+        } finally {
+            EventLog.set(previous);
+        }
+        assertTrue(car.isAvailable());
+        assertEquals(0, customer.getCurrentRentalCount());
+        assertTrue(rentals.isEmpty());
+    }
+
+    private static void cycle(Vehicle car, Vehicle other, Customer customer, ActiveRentals rentals, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            car.rent(customer, 3);
+            rentals.put(car, customer);
+            other.rent(customer, 2);
+            rentals.put(other, customer);
+            rentals.remove(car);
+            car.returnVehicle();
+            rentals.remove(other);
+            other.returnVehicle();
+        }
+    }
+}
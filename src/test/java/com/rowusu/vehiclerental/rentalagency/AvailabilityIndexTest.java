@@ -0,0 +1,128 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Motorcycle;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AvailabilityIndexTest {
+
+    private AvailabilityIndex index;
+    private Vehicle car;
+    private Vehicle motorcycle;
+    private Vehicle truck;
+
+    @BeforeEach
+    public void setUp() {
+        index = new AvailabilityIndex();
+        car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        motorcycle = new Motorcycle("MOTO001", "Harley Davidson", 75.0, true, false);
+        truck = new Truck("TRUCK001", "Ford F-150", 85.0, false, false);
+        index.register(car);
+        index.register(motorcycle);
+        index.register(truck);
+    }
+
+    // Test that registered vehicles start out available
+    @Test
+    public void testRegisteredVehiclesAreAvailable() {
+        assertEquals(3, index.countAvailable());
+        assertEquals(List.of(car, motorcycle, truck), index.availableVehicles());
+        assertTrue(index.isAvailable(car));
+    }
+
+    // Test that renting and returning a vehicle updates the bitmap
+    @Test
+    public void testRentAndReturnUpdateIndex() {
+        Customer customer = new Customer("John Smith", "CUST001");
+
+        car.rent(customer, 3);
+        assertFalse(index.isAvailable(car));
+        assertEquals(2, index.countAvailable());
+        assertEquals(0, index.countAvailable(VehicleType.CAR));
+
+        car.returnVehicle();
+        assertTrue(index.isAvailable(car));
+        assertEquals(1, index.countAvailable(VehicleType.CAR));
+    }
+
+    // Test that a notification arriving after a later change doesn't undo it
+    @Test
+    public void testStaleNotificationIsIgnored() {
+        Customer customer = new Customer("John Smith", "CUST001");
+        car.rent(customer, 3);
+
+        index.availabilityChanged(car, true);
+        assertFalse(index.isAvailable(car));
+        assertEquals(2, index.countAvailable());
+    }
+
+    // Test that a failed rental leaves the vehicle available in the index
+    @Test
+    public void testFailedRentalRestoresAvailability() {
+        Customer customer = new Customer("John Smith", "CUST001");
+        customer.addCurrentRental(new Car("X1", "Other", 10.0, false, false, false), 1);
+        customer.addCurrentRental(new Car("X2", "Other", 10.0, false, false, false), 1);
+
+        assertThrows(IllegalStateException.class, () -> truck.rent(customer, 2));
+        assertTrue(index.isAvailable(truck));
+    }
+
+    // Test per-type queries
+    @Test
+    public void testQueriesByType() {
+        Vehicle car2 = new Car("CAR002", "Honda Civic", 40.0, false, false, false);
+        index.register(car2);
+        car.setAvailable(false);
+
+        assertEquals(List.of(car2), index.availableVehicles(VehicleType.CAR));
+        assertSame(car2, index.firstAvailable(VehicleType.CAR));
+        assertSame(truck, index.firstAvailable(VehicleType.TRUCK));
+
+        truck.setAvailable(false);
+        assertNull(index.firstAvailable(VehicleType.TRUCK));
+    }
+
+    // Test that unregistering frees the slot for the next vehicle
+    @Test
+    public void testUnregisterReusesSlot() {
+        int slot = motorcycle.getSlot();
+        index.unregister(motorcycle);
+
+        assertEquals(-1, motorcycle.getSlot());
+        assertEquals(0, index.countAvailable(VehicleType.MOTORCYCLE));
+
+        Vehicle bike = new Motorcycle("MOTO002", "Ducati Monster", 70.0, false, false);
+        index.register(bike);
+        assertEquals(slot, bike.getSlot());
+        assertSame(bike, index.firstAvailable(VehicleType.MOTORCYCLE));
+    }
+
+    // Test that the index keeps working past a single bitmap page
+    @Test
+    public void testLargeFleet() {
+        AvailabilityIndex large = new AvailabilityIndex();
+        int fleetSize = 70_000;
+        Vehicle last = null;
+        for (int i = 0; i < fleetSize; i++) {
+            last = new Truck("T" + i, "Truck " + i, 90.0, false, false);
+            large.register(last);
+            if (i % 2 == 0) {
+                last.setAvailable(false);
+            }
+        }
+
+        assertEquals(fleetSize / 2, large.countAvailable());
+        assertEquals(fleetSize / 2, large.countAvailable(VehicleType.TRUCK));
+        assertEquals(0, large.countAvailable(VehicleType.CAR));
+        assertTrue(large.isAvailable(last));
+    }
+}
@@ -0,0 +1,64 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.reports.FleetSummary;
+import com.rowusu.vehiclerental.reports.ReportEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A fleet summary from the columns against one from walking the vehicles, at
+ * 1M vehicles on one thread. Off by default; run with
+ * mvn test -Dtest=FleetColumnsBenchmark -Dvehiclerental.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "vehiclerental.benchmark", matches = "true")
+public class FleetColumnsBenchmark {
+
+    private static final int SIZE = 1_000_000;
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    // Best of several runs after a warmup, in milliseconds
+    private static double time(Supplier<FleetSummary> summary) {
+        for (int i = 0; i < WARMUP; i++) {
+            summary.get();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            FleetSummary result = summary.get();
+            best = Math.min(best, System.nanoTime() - start);
+            assertEquals(SIZE, result.getVehicleCount());
+        }
+        return best / 1_000_000.0;
+    }
+
+    // Test (and print) how much faster the column scan is
+    @Test
+    public void benchmarkFleetSummary() {
+        RentalAgency agency = new RentalAgency();
+        for (int i = 0; i < SIZE; i++) {
+            Vehicle vehicle = new Car("CAR" + i, "Model " + (i % 50), 20.0 + i % 100, i % 2 == 0, false, false);
+            vehicle.addRating(1 + i % 5);
+            if (i % 5 == 0) {
+                vehicle.addFeature(new Feature("Roof Rack", 7.5));
+            }
+            agency.addVehicleToFleet(vehicle);
+        }
+        List<Vehicle> fleet = agency.getFleet();
+        ReportEngine engine = new ReportEngine(1, ReportEngine.DEFAULT_THRESHOLD);
+        FleetColumns columns = agency.getFleetColumns();
+
+        double objects = time(() -> engine.summarizeFleet(fleet));
+        double scan = time(columns::summarize);
+        System.out.printf("%,d vehicles: objects %.1f ms, columns %.1f ms, speedup %.2fx%n",
+            SIZE, objects, scan, objects / scan);
+    }
+}
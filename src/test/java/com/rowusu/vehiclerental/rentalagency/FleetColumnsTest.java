@@ -0,0 +1,151 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.FeatureCatalog;
+import com.rowusu.vehiclerental.model.Motorcycle;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.reports.FleetSummary;
+import com.rowusu.vehiclerental.reports.ReportEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FleetColumnsTest {
+
+    private static final String[] FEATURES = {"GPS", "Roof Rack", "Tow Bar", "Heated Seats"};
+
+    // Check every scan against a walk over the agency's vehicles
+    private static void assertMatchesFleet(RentalAgency agency) {
+        FleetColumns columns = agency.getFleetColumns();
+        List<Vehicle> fleet = agency.getFleet();
+
+        for (VehicleType type : VehicleType.values()) {
+            List<Vehicle> ofType = fleet.stream().filter(v -> v.getType() == type).collect(Collectors.toList());
+            assertEquals(ofType.size(), columns.count(type));
+            assertEquals(ofType.stream().filter(Vehicle::isAvailable).count(), columns.countAvailable(type));
+
+            long sum = ofType.stream().mapToLong(v -> v.getRatingHistogram().getSum()).sum();
+            long count = ofType.stream().mapToLong(Vehicle::getRatingCount).sum();
+            assertEquals(count == 0 ? 0.0 : (double) sum / count, columns.getAverageRating(type), 1e-9);
+
+            List<String> ids = ofType.stream().filter(Vehicle::isAvailable).map(Vehicle::getVehicleId).sorted()
+                    .collect(Collectors.toList());
+            List<String> scanned = new ArrayList<>(columns.getVehicleIds(type, true));
+            scanned.sort(null);
+            assertEquals(ids, scanned);
+        }
+        for (String name : FEATURES) {
+            long having = fleet.stream()
+                    .filter(v -> v.getFeatures().stream().anyMatch(f -> f.getName().equals(name))).count();
+            assertEquals(having, columns.countWithFeature(name), name);
+        }
+        assertEquals(agency.getAggregates().getDailyPotential(), columns.getDailyPotential(), 1e-6);
+        assertEquals(agency.searchVehicles(VehicleType.CAR, 40, 80, true).size(),
+                columns.search(VehicleType.CAR, 40, 80, true).size());
+
+        FleetSummary expected = new ReportEngine(1, ReportEngine.DEFAULT_THRESHOLD).summarizeFleet(fleet);
+        FleetSummary scanned = columns.summarize();
+        assertEquals(expected.getVehicleCount(), scanned.getVehicleCount());
+        assertEquals(expected.getAvailable(), scanned.getAvailable());
+        for (VehicleType type : VehicleType.values()) {
+            assertEquals(expected.getCount(type), scanned.getCount(type));
+            assertEquals(expected.getAvailable(type), scanned.getAvailable(type));
+        }
+        assertEquals(expected.getAverageRating(), scanned.getAverageRating(), 1e-9);
+        assertEquals(expected.getAverageRate(), scanned.getAverageRate(), 1e-9);
+        assertEquals(expected.getDailyPotential(), scanned.getDailyPotential(), 1e-6);
+    }
+
+    private static Vehicle newVehicle(int i, Random random) {
+        double rate = 20 + random.nextInt(100);
+        switch (i % 3) {
+            case 0: return new Car("C" + i, "Civic", rate, random.nextBoolean(), false, false);
+            case 1: return new Motorcycle("M" + i, "Duke", rate, random.nextBoolean(), false);
+            default: return new Truck("T" + i, "Hilux", rate, random.nextBoolean(), false);
+        }
+    }
+
+    // Test that the columns follow adds, removals, rentals, ratings and features,
+    // across chunks and through slots reused after removal
+    @Test
+    public void testColumnsFollowTheFleet() {
+        RentalAgency agency = new RentalAgency();
+        Random random = new Random(21);
+        List<Vehicle> vehicles = new ArrayList<>();
+        int nextId = 0;
+        for (; nextId < 2500; nextId++) {
+            Vehicle vehicle = newVehicle(nextId, random);
+            agency.addVehicleToFleet(vehicle);
+            vehicles.add(vehicle);
+        }
+        assertMatchesFleet(agency);
+
+        for (int step = 0; step < 20_000; step++) {
+            Vehicle vehicle = vehicles.get(random.nextInt(vehicles.size()));
+            switch (random.nextInt(6)) {
+                case 0:
+                    agency.rateVehicle(vehicle, 1 + random.nextInt(5));
+                    break;
+                case 1:
+                    vehicle.addRating(1 + random.nextInt(5));
+                    break;
+                case 2:
+                    if (random.nextInt(10) == 0) {
+                        vehicle.addFeature(new Feature(FEATURES[random.nextInt(FEATURES.length)], 5.0));
+                    }
+                    break;
+                case 3:
+                    if (vehicle.isAvailable()) {
+                        vehicle.rent(new Customer("Renter", "R" + step), 1 + random.nextInt(5));
+                    }
+                    break;
+                case 4:
+                    if (!vehicle.isAvailable()) {
+                        vehicle.returnVehicle();
+                    }
+                    break;
+                default:
+                    if (random.nextInt(20) == 0) {
+                        if (!vehicle.isAvailable()) {
+                            vehicle.returnVehicle();
+                        }
+                        agency.removeVehicleFromFleet(vehicle);
+                        vehicles.remove(vehicle);
+                        Vehicle added = newVehicle(nextId++, random);
+                        agency.addVehicleToFleet(added);
+                        vehicles.add(added);
+                    }
+            }
+            if (step % 5000 == 0) {
+                assertMatchesFleet(agency);
+            }
+        }
+        assertMatchesFleet(agency);
+    }
+
+    // Test that features past the catalog's first 64 are still counted
+    @Test
+    public void testFeaturesPastTheMask() {
+        RentalAgency agency = new RentalAgency();
+        Vehicle car = new Car("C1", "Civic", 30.0, false, false, false);
+        agency.addVehicleToFleet(car);
+        for (int i = 0; i < 70; i++) {
+            car.addFeature(new Feature("Extra " + i, 1.0));
+        }
+
+        assertTrue(FeatureCatalog.idsNamed("Extra 69")[0] >= 64);
+        assertEquals(1, agency.getFleetColumns().countWithFeature("Extra 0"));
+        assertEquals(1, agency.getFleetColumns().countWithFeature("Extra 69"));
+        assertEquals(0, agency.getFleetColumns().countWithFeature("Sunroof"));
+        assertEquals(100.0, agency.getFleetColumns().getDailyPotential(), 1e-9);
+    }
+}
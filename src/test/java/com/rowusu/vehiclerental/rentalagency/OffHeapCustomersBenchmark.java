@@ -0,0 +1,68 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.logging.EventLog;
+import com.rowusu.vehiclerental.logging.EventLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Heap held by 2M customers on the heap against 2M in off-heap records, and
+ * lookup speed from the records. Off by default; run with
+ * mvn test -Dtest=OffHeapCustomersBenchmark -Dvehiclerental.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "vehiclerental.benchmark", matches = "true")
+public class OffHeapCustomersBenchmark {
+
+    private static final int CUSTOMERS = 2_000_000;
+    private static final int LOOKUPS = 1_000_000;
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Test (and print) heap use either way and off-heap lookup throughput
+    @Test
+    public void benchmarkCustomerStorage() {
+        EventLogger previous = EventLog.set(null);
+        try {
+            run();
+        } finally {
+            EventLog.set(previous);
+        }
+    }
+
+    private void run() {
+        long base = usedHeap();
+        RentalAgency onHeap = new RentalAgency();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            onHeap.addCustomer(new Customer("Customer " + i, "C" + i));
+        }
+        long heapUsed = usedHeap() - base;
+        assertNotNull(onHeap.findCustomerById("C1"));
+        onHeap = null;
+
+        base = usedHeap();
+        RentalAgency offHeap = RentalAgency.createOffHeap();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            offHeap.addCustomerRecord("C" + i, "Customer " + i);
+        }
+        long offHeapUsed = usedHeap() - base;
+
+        long began = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            assertNotNull(offHeap.findCustomerById("C" + (i * 7919L % CUSTOMERS)));
+        }
+        double perSecond = LOOKUPS / ((System.nanoTime() - began) / 1e9);
+
+        System.out.printf("%,d customers: on heap %,d MB; off-heap %,d MB heap + %,d MB direct; %,.0f lookups/s%n",
+            CUSTOMERS, heapUsed >> 20, offHeapUsed >> 20,
+            offHeap.getOffHeapCustomers().getOffHeapBytes() >> 20, perSecond);
+    }
+}
@@ -0,0 +1,99 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapCustomersTest {
+
+    // Test that customers survive being written off-heap and read back, with
+    // their points and ratings, while only a few stay in memory
+    @Test
+    public void testCustomersRoundTripThroughRecords() {
+        RentalAgency agency = RentalAgency.createOffHeap();
+        agency.setResidentCustomerLimit(10);
+        for (int i = 0; i < 500; i++) {
+            if (i % 2 == 0) {
+                agency.addCustomer(new Customer("Customer " + i, "C" + i));
+            } else {
+                agency.addCustomerRecord("C" + i, "Customer " + i);
+            }
+        }
+        Customer customer = agency.findCustomerById("C7");
+        agency.awardLoyaltyPoints(customer, 60);
+        agency.rateCustomer(customer, 4);
+        agency.rateCustomer(customer, 2);
+
+        // Looking up the rest pushes C7 back out
+        for (int i = 0; i < 500; i += 3) {
+            assertEquals("Customer " + i, agency.findCustomerById("C" + i).getName());
+        }
+        assertTrue(customer.isRetired());
+        assertEquals(500, agency.getOffHeapCustomers().size());
+        assertEquals(500, agency.getAggregates().getCustomerCount());
+        assertTrue(agency.getOffHeapCustomers().getOffHeapBytes() > 0);
+
+        Customer reloaded = agency.findCustomerById("C7");
+        assertNotSame(customer, reloaded);
+        assertEquals("Silver", reloaded.getLoyaltyStatus());
+        assertEquals(2, reloaded.getRatingCount());
+        assertEquals(3.0, reloaded.getAverageRating());
+        assertEquals(1, agency.getAggregates().getSilverMembers());
+
+        // Points awarded through the stale copy land on the live one
+        agency.awardLoyaltyPoints(customer, 50);
+        assertEquals("Gold", agency.findCustomerById("C7").getLoyaltyStatus());
+        assertNull(agency.findCustomerById("C500"));
+        assertThrows(IllegalArgumentException.class, () -> agency.addCustomerRecord("C1", "Again"));
+    }
+
+    // Test that a customer with a rental out stays in memory, and that a stale
+    // copy can still rent
+    @Test
+    public void testRentersStayResident() throws Exception {
+        RentalAgency agency = RentalAgency.createOffHeap();
+        agency.setResidentCustomerLimit(1);
+        Vehicle car = new Car("V1", "Civic", 40.0, false, false, false);
+        Vehicle other = new Car("V2", "Golf", 45.0, false, false, false);
+        agency.addVehicleToFleet(car);
+        agency.addVehicleToFleet(other);
+        Customer renter = new Customer("Renter", "R1");
+        agency.addCustomer(renter);
+        agency.rentVehicle(car, renter, 3);
+
+        Customer idle = new Customer("Idle", "R2");
+        agency.addCustomer(idle);
+        agency.addCustomer(new Customer("Third", "R3"));
+        assertFalse(renter.isRetired());
+        assertTrue(idle.isRetired());
+        assertSame(renter, agency.findCustomerById("R1"));
+
+        agency.rentVehicle(other, idle, 2);
+        Customer current = agency.findCustomerById("R2");
+        assertNotSame(idle, current);
+        assertSame(current, agency.getRenter(other));
+        assertEquals(1, current.getCurrentRentals().size());
+        assertTrue(idle.getCurrentRentals().isEmpty());
+    }
+
+    // Test that a removed customer's ID can be registered again
+    @Test
+    public void testRemoveAndReAdd() {
+        RentalAgency agency = RentalAgency.createOffHeap();
+        agency.setResidentCustomerLimit(1);
+        agency.addCustomerRecord("C1", "First");
+        agency.addCustomerRecord("C2", "Second");
+
+        assertTrue(agency.removeCustomer(agency.findCustomerById("C1")));
+        assertNull(agency.findCustomerById("C1"));
+        assertEquals(1, agency.getOffHeapCustomers().size());
+
+        agency.addCustomer(new Customer("Replacement", "C1"));
+        assertEquals("Replacement", agency.findCustomerById("C1").getName());
+        assertEquals(2, agency.getCustomers().size());
+        assertEquals(2, agency.getAggregates().getCustomerCount());
+    }
+}
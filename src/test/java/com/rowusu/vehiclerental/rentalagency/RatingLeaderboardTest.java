@@ -0,0 +1,102 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RatingLeaderboardTest {
+
+    // The IDs a full sort of the fleet would put at the top of the board
+    private static List<String> sorted(RentalAgency agency, int minRatings, int limit, boolean best) {
+        Comparator<Vehicle> byAverage = Comparator.comparingDouble(Vehicle::getAverageRating);
+        Comparator<Vehicle> order = (best ? byAverage.reversed() : byAverage)
+                .thenComparing(Comparator.comparingInt(Vehicle::getRatingCount).reversed())
+                .thenComparing(Vehicle::getVehicleId);
+        return agency.getFleet().stream()
+                .filter(v -> v.getRatingCount() >= minRatings)
+                .sorted(order)
+                .limit(limit)
+                .map(Vehicle::getVehicleId)
+                .toList();
+    }
+
+    private static List<String> ids(List<RatingLeaderboard.Standing> standings) {
+        return standings.stream().map(s -> s.getVehicle().getVehicleId()).toList();
+    }
+
+    // Test that only vehicles with enough ratings are ranked, best and worst first
+    @Test
+    public void testThresholdAndOrder() {
+        RentalAgency agency = new RentalAgency();
+        Vehicle good = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        Vehicle bad = new Car("CAR002", "Honda Civic", 40.0, false, false, false);
+        Vehicle fresh = new Car("CAR003", "Mazda 3", 42.0, false, false, false);
+        agency.addVehicleToFleet(good);
+        agency.addVehicleToFleet(bad);
+        agency.addVehicleToFleet(fresh);
+        for (int i = 0; i < 3; i++) {
+            agency.rateVehicle(good, 5);
+            agency.rateVehicle(bad, 1);
+        }
+        agency.rateVehicle(good, 3);
+        agency.rateVehicle(fresh, 5);
+
+        RatingLeaderboard board = agency.getLeaderboard();
+        assertEquals(List.of("CAR001", "CAR002"), ids(board.getTopRated(10)));
+        assertEquals(List.of("CAR002", "CAR001"), ids(board.getLowestRated(10)));
+        assertEquals(4.5, board.getTopRated(1).get(0).getAverageRating(), 1e-9);
+        assertEquals(4, board.getTopRated(1).get(0).getRatingCount());
+
+        agency.removeVehicleFromFleet(bad);
+        assertEquals(List.of("CAR001"), ids(board.getLowestRated(10)));
+        assertThrows(IllegalArgumentException.class, () -> agency.configureLeaderboard(0, 1));
+    }
+
+    // Test that the board matches a full sort of the fleet after random
+    // ratings, arrivals and removals, including when its tracked vehicles run out
+    @Test
+    public void testMatchesFullSort() {
+        RentalAgency agency = new RentalAgency();
+        int size = 5;
+        int minRatings = 2;
+        agency.configureLeaderboard(size, minRatings);
+        Random random = new Random(17);
+        List<Vehicle> fleet = new ArrayList<>();
+        int next = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(100);
+            if (fleet.isEmpty() || action < 5) {
+                Vehicle vehicle = new Car("CAR" + next++, "Model", 30.0, false, false, false);
+                agency.addVehicleToFleet(vehicle);
+                fleet.add(vehicle);
+            } else if (action < 7) {
+                agency.removeVehicleFromFleet(fleet.remove(random.nextInt(fleet.size())));
+            } else {
+                agency.rateVehicle(fleet.get(random.nextInt(fleet.size())), 1 + random.nextInt(5));
+            }
+            if (step % 50 == 0) {
+                RatingLeaderboard board = agency.getLeaderboard();
+                assertEquals(sorted(agency, minRatings, size, true), ids(board.getTopRated(size)));
+                assertEquals(sorted(agency, minRatings, 3, false), ids(board.getLowestRated(3)));
+            }
+        }
+    }
+
+    // Test that a vehicle rated before it joins the fleet is ranked on arrival
+    @Test
+    public void testRatedVehicleJoins() {
+        RentalAgency agency = new RentalAgency();
+        agency.configureLeaderboard(2, 1);
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        car.addRating(4);
+        agency.addVehicleToFleet(car);
+        assertEquals(List.of("CAR001"), ids(agency.getLeaderboard().getTopRated(5)));
+    }
+}
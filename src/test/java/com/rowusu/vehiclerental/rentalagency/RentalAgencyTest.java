@@ -1,12 +1,24 @@
 package com.rowusu.vehiclerental.rentalagency;
 import com.rowusu.vehiclerental.customers.Customer;
 import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
 import com.rowusu.vehiclerental.model.Truck;
 import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
 import com.rowusu.vehiclerental.exceptions.*;
+import com.rowusu.vehiclerental.pricing.PricingRules;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class RentalAgencyTest {
@@ -191,6 +203,346 @@ public class RentalAgencyTest {
         assertFalse(car1.isAvailable()); // The car should be rented by customer1
         assertFalse(truck1.isAvailable()); // The truck should be rented by customer2
     }
-}
 
+    // Test that vehicles and customers can be looked up by ID
+    @Test
+    public void testFindById() {
+        rentalAgency.addCustomer(customer1);
+
+        assertSame(car1, rentalAgency.findVehicleById("V001"));
+        assertSame(truck1, rentalAgency.findVehicleById("V002"));
+        assertSame(customer1, rentalAgency.findCustomerById("C123"));
+        assertNull(rentalAgency.findVehicleById("V999"));
+        assertNull(rentalAgency.findCustomerById("C999"));
+        assertNull(rentalAgency.findVehicleById(null));
+    }
+
+    // Test that removing a vehicle or customer also removes it from the ID index
+    @Test
+    public void testFindByIdAfterRemoval() {
+        rentalAgency.addCustomer(customer1);
+        rentalAgency.removeVehicleFromFleet(car1);
+        assertTrue(rentalAgency.removeCustomer(customer1));
+
+        assertNull(rentalAgency.findVehicleById("V001"));
+        assertNull(rentalAgency.findCustomerById("C123"));
+        assertFalse(rentalAgency.getCustomers().contains(customer1));
+        assertFalse(rentalAgency.removeCustomer(customer1));
+    }
+
+    // Test that duplicate IDs are rejected on insert
+    @Test
+    public void testDuplicateIdsRejected() {
+        rentalAgency.addCustomer(customer1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> rentalAgency.addVehicleToFleet(new Car("V001", "Other Car", 80.0, false, false, false)));
+        assertThrows(IllegalArgumentException.class, () -> rentalAgency.addVehicleToFleet(car1));
+        assertThrows(IllegalArgumentException.class,
+                () -> rentalAgency.addCustomer(new Customer("Other Name", "C123")));
+        assertEquals(2, rentalAgency.getFleet().size());
+        assertEquals(2, rentalAgency.countAvailableVehicles());
+        assertEquals(1, rentalAgency.getCustomers().size());
+        assertSame(car1, rentalAgency.findVehicleById("V001"));
+    }
+
+    // Test that the availability queries follow rentals, returns and removals
+    @Test
+    public void testAvailableVehicleQueries() {
+        rentalAgency.processRental(customer1, car1, 2);
+
+        assertEquals(List.of(truck1), rentalAgency.getAvailableVehicles());
+        assertEquals(1, rentalAgency.countAvailableVehicles());
+        assertNull(rentalAgency.findFirstAvailable(VehicleType.CAR));
+        assertSame(truck1, rentalAgency.findFirstAvailable(VehicleType.TRUCK));
+
+        rentalAgency.processReturn(car1);
+        rentalAgency.removeVehicleFromFleet(truck1);
+        assertEquals(List.of(car1), rentalAgency.getAvailableVehicles());
+        assertEquals(0, rentalAgency.countAvailableVehicles(VehicleType.TRUCK));
+    }
+
+    // Test that a reservation blocks rentals and other reservations that overlap it
+    @Test
+    public void testReservationBlocksOverlappingBookings() throws Exception {
+        LocalDate today = LocalDate.now();
+        Reservation reservation = rentalAgency.reserveVehicle(car1, customer2, today.plusDays(3), today.plusDays(5));
+
+        assertThrows(VehicleNotAvailable.class, () -> rentalAgency.rentVehicle(car1, customer1, 4));
+        assertTrue(car1.isAvailable());
+        assertThrows(VehicleNotAvailable.class,
+                () -> rentalAgency.reserveVehicle(car1, customer1, today.plusDays(5), today.plusDays(9)));
+
+        rentalAgency.rentVehicle(car1, customer1, 3);
+        assertEquals(today, rentalAgency.getRentalBooking(car1).getStartDate());
+        assertEquals(List.of(rentalAgency.getRentalBooking(car1), reservation), rentalAgency.getReservations(car1));
+    }
+
+    // Test that invalid reservation periods are rejected
+    @Test
+    public void testReservationPeriodValidation() {
+        LocalDate today = LocalDate.now();
+        assertThrows(InvalidRentalPeriod.class,
+                () -> rentalAgency.reserveVehicle(car1, customer1, today.plusDays(5), today.plusDays(2)));
+        assertThrows(InvalidRentalPeriod.class,
+                () -> rentalAgency.reserveVehicle(car1, customer1, today.minusDays(1), today.plusDays(2)));
+    }
+
+    // Test searching for vehicles free over a date range, and cancelling
+    @Test
+    public void testFindFreeVehicles() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(10);
+        LocalDate end = start.plusDays(2);
+        Reservation reservation = rentalAgency.reserveVehicle(truck1, customer1, start, end);
+
+        assertEquals(List.of(car1), rentalAgency.findFreeVehicles(null, start, end));
+        assertTrue(rentalAgency.findFreeVehicles(VehicleType.TRUCK, end, end.plusDays(1)).isEmpty());
+        assertEquals(List.of(truck1), rentalAgency.findFreeVehicles(VehicleType.TRUCK, end.plusDays(1), end.plusDays(1)));
+
+        assertSame(reservation, rentalAgency.findReservationById(reservation.getReservationId()));
+        assertTrue(rentalAgency.cancelReservation(reservation));
+        assertNull(rentalAgency.findReservationById(reservation.getReservationId()));
+        assertTrue(rentalAgency.isVehicleFree(truck1, start, end));
+    }
+
+    // Test that the free-vehicle search follows returns, and that a removed
+    // vehicle's bookings don't stick to the vehicle that reuses its slot
+    @Test
+    public void testFindFreeVehiclesAfterReturnAndRemoval() throws Exception {
+        LocalDate today = LocalDate.now();
+        rentalAgency.rentVehicle(car1, customer1, 7);
+        assertEquals(List.of(truck1), rentalAgency.findFreeVehicles(null, today.plusDays(3), today.plusDays(4)));
+
+        rentalAgency.processReturn(car1);
+        assertEquals(List.of(car1, truck1), rentalAgency.findFreeVehicles(null, today.plusDays(3), today.plusDays(4)));
+
+        rentalAgency.reserveVehicle(truck1, customer1, today.plusDays(5), today.plusDays(6));
+        rentalAgency.removeVehicleFromFleet(truck1);
+        Vehicle truck2 = new Truck("V003", "Ram 1500", 140.0, true, false);
+        rentalAgency.addVehicleToFleet(truck2);
+        assertEquals(List.of(truck2), rentalAgency.findFreeVehicles(VehicleType.TRUCK, today.plusDays(5), today.plusDays(6)));
+    }
+
+    // Test that returning a vehicle frees the rest of its rental period
+    @Test
+    public void testReturnFreesRemainingDays() throws Exception {
+        LocalDate today = LocalDate.now();
+        rentalAgency.rentVehicle(car1, customer1, 7);
+        assertFalse(rentalAgency.isVehicleFree(car1, today.plusDays(3), today.plusDays(4)));
+
+        rentalAgency.processReturn(car1);
+        assertNull(rentalAgency.getRentalBooking(car1));
+        assertTrue(rentalAgency.isVehicleFree(car1, today, today.plusDays(6)));
+
+        rentalAgency.rentVehicle(car1, customer2, 2);
+        assertFalse(car1.isAvailable());
+    }
 
+    // Test that a best-effort batch applies the valid rentals and reports the rest
+    @Test
+    public void testBatchRentBestEffort() {
+        rentalAgency.addCustomer(customer1);
+        List<RentalRequest> requests = List.of(
+                new RentalRequest(car1, customer1, 3),
+                new RentalRequest("V999", "C123", 2),
+                new RentalRequest(car1, customer1, 1),
+                new RentalRequest(truck1, customer1, 0));
+
+        List<BatchResult> results = rentalAgency.rentVehicles(requests, false);
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Vehicle not found", results.get(1).getMessage());
+        assertFalse(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertFalse(car1.isAvailable());
+        assertTrue(truck1.isAvailable());
+        assertEquals(1, customer1.getCurrentRentals().size());
+    }
+
+    // Test that an all-or-nothing batch applies nothing if any request is invalid
+    @Test
+    public void testBatchRentAllOrNothing() {
+        rentalAgency.addCustomer(customer1);
+        Vehicle car2 = new Car("V003", "Honda Civic", 80.0, false, false, false);
+        rentalAgency.addVehicleToFleet(car2);
+
+        // Three vehicles for a customer limited to two rentals
+        List<RentalRequest> requests = List.of(
+                new RentalRequest(car1, customer1, 3),
+                new RentalRequest(truck1, customer1, 2),
+                new RentalRequest(car2, customer1, 1));
+
+        List<BatchResult> results = rentalAgency.rentVehicles(requests, true);
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().noneMatch(BatchResult::isSuccess));
+        assertEquals("Customer is not eligible for rental.", results.get(2).getMessage());
+        assertEquals(3, rentalAgency.countAvailableVehicles());
+        assertTrue(customer1.getCurrentRentals().isEmpty());
+        assertTrue(rentalAgency.getReservations(car1).isEmpty());
+
+        results = rentalAgency.rentVehicles(requests.subList(0, 2), true);
+        assertTrue(results.stream().allMatch(BatchResult::isSuccess));
+        // The rolled-back batch left no transactions behind
+        List<RentalTransaction> history = rentalAgency.getRentalHistory(customer1);
+        assertEquals(2, history.size());
+        assertEquals(car1.getVehicleId(), history.get(0).getVehicleId());
+        assertEquals(truck1.getVehicleId(), history.get(1).getVehicleId());
+    }
+
+    // Test batch returns in both modes
+    @Test
+    public void testBatchReturn() {
+        rentalAgency.addCustomer(customer1);
+        rentalAgency.rentVehicles(List.of(new RentalRequest(car1, customer1, 3)), true);
+
+        List<BatchResult> results = rentalAgency.returnVehicles(List.of("V001", "V002"), true);
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Vehicle is not currently rented.", results.get(1).getMessage());
+        assertFalse(car1.isAvailable());
+
+        results = rentalAgency.returnVehicles(List.of("V001", "V002"), false);
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(car1.isAvailable());
+        assertTrue(customer1.getCurrentRentals().isEmpty());
+    }
+
+    // Test parsing the compact batch format used by the HTTP endpoint
+    @Test
+    public void testParseRentalRequests() {
+        List<RentalRequest> requests = RentalRequest.parseList("V001:C123:3, V002:C124:5");
+
+        assertEquals(2, requests.size());
+        assertEquals("V002", requests.get(1).getVehicleId());
+        assertEquals("C124", requests.get(1).getCustomerId());
+        assertEquals(5, requests.get(1).getDays());
+        assertThrows(IllegalArgumentException.class, () -> RentalRequest.parseList("V001:C123"));
+        assertThrows(IllegalArgumentException.class, () -> RentalRequest.parseList("V001:C123:x"));
+    }
+
+    // Test that concurrent rentals of the same vehicle book it exactly once
+    @Test
+    public void testConcurrentRentalsOfSameVehicle() throws InterruptedException {
+        RentalAgency agency = RentalAgency.createConcurrent();
+        Vehicle car = new Car("V100", "Toyota Corolla", 50.0, false, false, false);
+        agency.addVehicleToFleet(car);
+
+        int threads = 16;
+        List<Customer> renters = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Customer customer = new Customer("Customer " + i, "C" + i);
+            agency.addCustomer(customer);
+            renters.add(customer);
+        }
+
+        AtomicInteger successes = runConcurrently(threads, i -> agency.rentVehicle(car, renters.get(i), 2));
+
+        assertEquals(1, successes.get());
+        assertFalse(car.isAvailable());
+        long holders = renters.stream().filter(c -> c.getCurrentRentals().containsKey(car)).count();
+        assertEquals(1, holders);
+    }
+
+    // Test that concurrent rentals by one customer never exceed the rental limit
+    @Test
+    public void testConcurrentRentalsRespectCustomerLimit() throws InterruptedException {
+        RentalAgency agency = RentalAgency.createConcurrent();
+        Customer customer = new Customer("Busy Customer", "C500");
+        agency.addCustomer(customer);
+
+        int threads = 16;
+        List<Vehicle> cars = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Vehicle car = new Car("V" + (200 + i), "Car " + i, 40.0, false, false, false);
+            agency.addVehicleToFleet(car);
+            cars.add(car);
+        }
+
+        AtomicInteger successes = runConcurrently(threads, i -> agency.rentVehicle(cars.get(i), customer, 1));
+
+        assertEquals(2, successes.get());
+        assertEquals(2, customer.getCurrentRentals().size());
+        assertEquals(threads - 2, cars.stream().filter(Vehicle::isAvailable).count());
+    }
+
+    // Test that concurrent returns of the same rental only return it once
+    @Test
+    public void testConcurrentReturns() throws InterruptedException {
+        RentalAgency agency = RentalAgency.createConcurrent();
+        Vehicle car = new Car("V300", "Honda Civic", 45.0, false, false, false);
+        agency.addVehicleToFleet(car);
+        agency.addCustomer(customer1);
+        agency.processRental(customer1, car, 3);
+
+        runConcurrently(8, i -> agency.processReturn(car));
+
+        assertTrue(car.isAvailable());
+        assertTrue(customer1.getCurrentRentals().isEmpty());
+        assertNull(car.currentRenter);
+    }
+
+    private interface RentalTask {
+        void run(int index) throws Exception;
+    }
+
+    // Start all tasks at once and count the ones that completed without throwing
+    private AtomicInteger runConcurrently(int threads, RentalTask task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                    successes.incrementAndGet();
+                } catch (Exception e) {
+                    // Losing the race is expected
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        return successes;
+    }
+
+    // Test that a batch quotes by ID or type, applies loyalty, and reports misses per item
+    @Test
+    public void testQuoteAll() {
+        Vehicle car2 = new Car("V003", "Honda Civic", 80.0, false, false, false);
+        rentalAgency.addVehicleToFleet(car2);
+        rentalAgency.addCustomer(customer1);
+        rentalAgency.awardLoyaltyPoints(customer1, 100);
+        rentalAgency.setPricing(new PricingRules().loyaltyDiscount("Gold", 10));
+        LocalDate start = LocalDate.of(2025, 3, 3);
+
+        List<Quote> quotes = rentalAgency.quoteAll(
+                QuoteRequest.parseList("V001::3,car:C123:2,motorcycle::1,V999::1,V002:C999:1,V002::0"), start);
+
+        assertEquals(6, quotes.size());
+        assertEquals("V001", quotes.get(0).getVehicleId());
+        assertEquals(car1.calculateRentalCost(3), quotes.get(0).getPrice(), 1e-9);
+        // Cheapest available car, with the Gold discount
+        assertEquals("V003", quotes.get(1).getVehicleId());
+        assertEquals(80.0 * 2 * 0.9, quotes.get(1).getPrice(), 1e-9);
+        assertEquals("No Motorcycle available", quotes.get(2).getMessage());
+        assertEquals("Vehicle not found", quotes.get(3).getMessage());
+        assertEquals("Customer not found", quotes.get(4).getMessage());
+        assertFalse(quotes.get(5).isSuccess());
+
+        // Asking again is served from the cache, until a feature changes the rate
+        rentalAgency.quoteAll(QuoteRequest.parseList("V001::3"), start);
+        assertEquals(1, rentalAgency.getQuoteCache().getHits());
+        car1.addFeature(new Feature("Roof Box", 10.0));
+        Quote quote = rentalAgency.quoteAll(QuoteRequest.parseList("V001::3"), start).get(0);
+        assertEquals(car1.calculateRentalCost(3), quote.getPrice(), 1e-9);
+        assertEquals(1, rentalAgency.getQuoteCache().getHits());
+
+        // New rules start a fresh cache
+        rentalAgency.setPricing(new PricingRules());
+        assertEquals(0, rentalAgency.getQuoteCache().getSize());
+    }
+}
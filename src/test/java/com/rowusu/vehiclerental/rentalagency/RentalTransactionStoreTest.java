@@ -0,0 +1,202 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RentalTransactionStoreTest {
+
+    // Test that renting the same vehicle twice gives two transactions with
+    // their own IDs, and that history outlives the vehicle
+    @Test
+    public void testRepeatRentalsGetTheirOwnIds() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        Vehicle other = new Car("CAR002", "Honda Civic", 40.0, false, false, false);
+        agency.addVehicleToFleet(car);
+        agency.addVehicleToFleet(other);
+        Customer john = new Customer("John Smith", "CUST001");
+        Customer sarah = new Customer("Sarah Johnson", "CUST002");
+
+        RentalTransaction first = agency.rentVehicle(car, john, 2);
+        agency.processReturn(car);
+        agency.rentVehicle(other, sarah, 1);
+        RentalTransaction second = agency.rentVehicle(car, john, 3);
+
+        assertEquals("RENT1", first.getRentalId());
+        assertEquals(3L, second.getTransactionId());
+        assertEquals(LocalDate.now().plusDays(2), second.getEndDate());
+        assertEquals(135.0, second.getCost(), 1e-9);
+
+        agency.processReturn(car);
+        agency.removeVehicleFromFleet(car);
+        List<RentalTransaction> history = agency.getRentalHistory(john);
+        assertEquals(2, history.size());
+        assertEquals(1L, history.get(0).getTransactionId());
+        assertEquals(3L, history.get(1).getTransactionId());
+        assertEquals("Toyota Camry", history.get(1).getVehicleModel());
+        assertEquals(2, agency.getRentalHistory(car).size());
+        assertEquals(1, agency.getTransactions().countForCustomer("CUST002"));
+        assertTrue(agency.getRentalHistory(new Customer("Nobody", "CUST999")).isEmpty());
+    }
+
+    // Test that an early return keeps only the days used and matches the ledger's refund
+    @Test
+    public void testCloseKeepsDaysUsed() {
+        RentalTransactionStore store = new RentalTransactionStore();
+        RevenueLedger ledger = new RevenueLedger();
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        long id = store.open("CAR001", "Toyota Camry", "CUST001", start, start.plusDays(4), 100.0);
+        ledger.postRental(start, 5, 100.0);
+        assertTrue(store.isOpen(id));
+        assertEquals(id, store.findOpen("CAR001"));
+
+        double refund = ledger.postReturn(start, 5, 100.0, start.plusDays(2));
+        assertTrue(store.close(id, start.plusDays(1), refund));
+        assertFalse(store.close(id, start.plusDays(1), refund));
+
+        RentalTransaction closed = store.get(id);
+        assertTrue(closed.isReturned());
+        assertEquals(2, closed.getDays());
+        assertEquals(40.0, closed.getCost(), 1e-9);
+        assertEquals(ledger.getRange(start, start.plusDays(10)), closed.getCost(), 1e-9);
+        assertEquals(0, store.findOpen("CAR001"));
+
+        // A same-day return still keeps the first day
+        long sameDay = store.open("CAR001", "Toyota Camry", "CUST001", start, start.plusDays(2), 30.0);
+        store.close(sameDay, start.minusDays(1), 20.0);
+        assertEquals(start, store.get(sameDay).getEndDate());
+        assertEquals(10.0, store.get(sameDay).getCost(), 1e-9);
+    }
+
+    // Test that replayed IDs can arrive out of order and rolled-back ones leave gaps
+    @Test
+    public void testOutOfOrderIdsAndGaps() {
+        RentalTransactionStore store = new RentalTransactionStore();
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        store.put(3, "CAR003", "Model 3", "CUST001", day, day, 30.0, true);
+        store.put(1, "CAR001", "Model 1", "CUST001", day, day, 10.0, false);
+        assertEquals(3L, store.getLastId());
+        assertNull(store.get(2));
+        store.put(2, "CAR002", "Model 2", "CUST001", day, day, 20.0, false);
+        assertThrows(IllegalStateException.class,
+                () -> store.put(2, "CAR002", "Model 2", "CUST001", day, day, 20.0, false));
+
+        List<RentalTransaction> history = store.forCustomer("CUST001");
+        assertEquals(List.of(1L, 2L, 3L), history.stream().map(RentalTransaction::getTransactionId).toList());
+
+        long next = store.open("CAR001", "Model 1", "CUST002", day, day.plusDays(1), 25.0);
+        assertEquals(4L, next);
+        assertTrue(store.discard(next));
+        assertNull(store.get(next));
+        assertEquals(5L, store.open("CAR001", "Model 1", "CUST002", day, day, 12.5));
+        assertEquals(4, store.getCount());
+        assertEquals(1, store.countForCustomer("CUST002"));
+        assertEquals(2, store.forVehicle("CAR001").size());
+        assertThrows(IllegalArgumentException.class,
+                () -> store.open("CAR001", "Model 1", "CUST002", day, day.minusDays(1), 1.0));
+    }
+
+    // Test that paging forward, backward and within a date range visits each
+    // rental once, in order, and that a cursor must come from the same history
+    @Test
+    public void testHistoryPages() {
+        RentalTransactionStore store = new RentalTransactionStore();
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 1000; i++) {
+            LocalDate start = first.plusDays(i / 2);
+            store.open("CAR" + (i % 7), "Model", "CUST001", start, start, 10.0);
+            store.open("CAR" + (i % 7), "Model", "CUST002", start, start, 10.0);
+        }
+
+        List<Long> forward = new ArrayList<>();
+        long cursor = 0;
+        do {
+            HistoryPage page = store.customerPage("CUST001", cursor, 64, false, null, null);
+            assertTrue(page.getTransactions().size() <= 64);
+            page.getTransactions().forEach(t -> forward.add(t.getTransactionId()));
+            cursor = page.getNextCursor();
+        } while (cursor != 0);
+        assertEquals(store.forCustomer("CUST001").stream().map(RentalTransaction::getTransactionId).toList(), forward);
+
+        List<Long> backward = new ArrayList<>();
+        cursor = 0;
+        do {
+            HistoryPage page = store.customerPage("CUST001", cursor, 100, true, null, null);
+            page.getTransactions().forEach(t -> backward.add(t.getTransactionId()));
+            cursor = page.getNextCursor();
+        } while (cursor != 0);
+        Collections.reverse(backward);
+        assertEquals(forward, backward);
+
+        // Ten days hold twenty rentals; two pages of fifteen cover them
+        LocalDate from = first.plusDays(100);
+        LocalDate to = first.plusDays(109);
+        HistoryPage page = store.customerPage("CUST001", 0, 15, true, from, to);
+        assertEquals(to, page.getTransactions().get(0).getStartDate());
+        assertTrue(page.hasMore());
+        HistoryPage rest = store.customerPage("CUST001", page.getNextCursor(), 15, true, from, to);
+        assertEquals(5, rest.getTransactions().size());
+        assertEquals(from, rest.getTransactions().get(4).getStartDate());
+        assertFalse(rest.hasMore());
+
+        long other = store.forCustomer("CUST002").get(0).getTransactionId();
+        assertThrows(IllegalArgumentException.class, () -> store.customerPage("CUST001", other, 10, true, null, null));
+        assertThrows(IllegalArgumentException.class, () -> store.customerPage("CUST001", 0, 0, true, null, null));
+        assertTrue(store.customerPage("CUST999", 0, 10, true, null, null).getTransactions().isEmpty());
+    }
+
+    // Test that a rental replayed with an earlier start date lands in date order
+    @Test
+    public void testHistoryIsInStartDateOrder() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        agency.addVehicleToFleet(car);
+        Customer john = new Customer("John Smith", "CUST001");
+        agency.rentVehicle(car, john, 1);
+        agency.processReturn(car);
+        agency.getTransactions().put(5, "CAR009", "Old Van", "CUST001", LocalDate.now().minusDays(30),
+                LocalDate.now().minusDays(28), 60.0, true);
+
+        HistoryPage page = agency.getRentalHistory(john, 0, 10, false, null, LocalDate.now().minusDays(1));
+        assertEquals(1, page.getTransactions().size());
+        assertEquals("CAR009", page.getTransactions().get(0).getVehicleId());
+        assertEquals(List.of(5L, 1L), agency.getRentalHistory(john).stream().map(RentalTransaction::getTransactionId).toList());
+    }
+
+    // Test that rows left to a loader are only read once one of them is
+    // needed, and that new rentals meanwhile get IDs after them
+    @Test
+    public void testLazyRowsAreReadOnFirstUse() {
+        RentalTransactionStore store = new RentalTransactionStore();
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        int[] loads = {0};
+        store.restoreLazily(3, loaded -> {
+            loads[0]++;
+            loaded.put(1, "CAR001", "Toyota Camry", "CUST001", day, day.plusDays(1), 90.0, true);
+            loaded.put(3, "CAR001", "Toyota Camry", "CUST002", day.plusDays(4), day.plusDays(6), 135.0, false);
+        });
+
+        long id = store.open("CAR002", "Honda Civic", "CUST001", day.plusDays(2), day.plusDays(2), 40.0);
+        assertEquals(4L, id);
+        assertEquals(40.0, store.get(id).getCost(), 1e-9);
+        assertEquals(0, loads[0]);
+
+        assertEquals(3L, store.findOpen("CAR001"));
+        assertEquals(1, loads[0]);
+        assertEquals(3, store.getCount());
+        assertNull(store.get(2));
+        List<RentalTransaction> history = store.forCustomer("CUST001");
+        assertEquals(List.of(1L, 4L), List.of(history.get(0).getTransactionId(), history.get(1).getTransactionId()));
+        store.materialize();
+        assertEquals(1, loads[0]);
+    }
+}
@@ -0,0 +1,232 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.Motorcycle;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportAggregatesTest {
+
+    // Check every total against a walk over the agency's current state
+    private static void assertMatchesState(RentalAgency agency) {
+        ReportAggregates stats = agency.getAggregates();
+        List<Vehicle> fleet = agency.getFleet();
+        List<Customer> customers = agency.getCustomers();
+
+        double vehicleRatings = 0;
+        double dailyPotential = 0;
+        for (Vehicle vehicle : fleet) {
+            vehicleRatings += vehicle.getAverageRating();
+            dailyPotential += vehicle.getBaseRentalRate()
+                    + vehicle.getFeatures().stream().mapToDouble(Feature::getAdditionalCost).sum();
+        }
+        int gold = 0;
+        int silver = 0;
+        int withPoints = 0;
+        double customerRatings = 0;
+        for (Customer customer : customers) {
+            String status = customer.getLoyaltyStatus();
+            if (status.equals("Gold")) gold++;
+            if (status.equals("Silver")) silver++;
+            if (customer.getLoyaltyPoints() > 0) withPoints++;
+            customerRatings += customer.getAverageRating();
+        }
+        int rentals = 0;
+        long days = 0;
+        double revenue = 0;
+        int cars = 0;
+        for (Vehicle vehicle : fleet) {
+            Customer renter = agency.getRenter(vehicle);
+            if (renter != null) {
+                int rentalDays = renter.getCurrentRentals().get(vehicle);
+                rentals++;
+                days += rentalDays;
+                revenue += vehicle.calculateRentalCost(rentalDays);
+                if (vehicle.getType() == VehicleType.CAR) cars++;
+            }
+        }
+
+        assertEquals(fleet.size(), stats.getVehicleCount());
+        assertEquals(customers.size(), stats.getCustomerCount());
+        assertEquals(gold, stats.getGoldMembers());
+        assertEquals(silver, stats.getSilverMembers());
+        assertEquals(customers.size() - gold - silver, stats.getBronzeMembers());
+        assertEquals(withPoints, stats.getCustomersWithPoints());
+        assertEquals(customers.isEmpty() ? 0 : withPoints * 100.0 / customers.size(), stats.getRetentionRate(), 1e-9);
+        assertEquals(rentals, stats.getActiveRentals());
+        assertEquals(days, stats.getActiveRentalDays());
+        assertEquals(revenue, stats.getActiveRevenue(), 1e-6);
+        assertEquals(cars, stats.getRentedCount(VehicleType.CAR));
+        assertEquals(fleet.isEmpty() ? 0 : vehicleRatings / fleet.size(), stats.getAverageVehicleRating(), 1e-9);
+        assertEquals(dailyPotential, stats.getDailyPotential(), 1e-6);
+        assertEquals(customers.isEmpty() ? 0 : customerRatings / customers.size(), stats.getAverageCustomerRating(), 1e-9);
+
+        int available = 0;
+        for (Vehicle vehicle : fleet) {
+            if (vehicle.isAvailable()) available++;
+        }
+        assertEquals(available, agency.countAvailableVehicles());
+    }
+
+    // Test that each kind of mutation moves the totals the same way a full recount would
+    @Test
+    public void testTotalsFollowMutations() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, true, false, false);
+        Vehicle bike = new Motorcycle("MOTO001", "Harley Davidson", 75.0, true, false);
+        Vehicle truck = new Truck("TRUCK001", "Ford F-150", 85.0, true, false);
+        car.addRating(4);
+        agency.addVehicleToFleet(car);
+        agency.addVehicleToFleet(bike);
+        agency.addVehicleToFleet(truck);
+        Customer john = new Customer("John Smith", "CUST001");
+        john.addLoyaltyPoints(40);
+        Customer sarah = new Customer("Sarah Johnson", "CUST002");
+        agency.addCustomer(john);
+        agency.addCustomer(sarah);
+        assertMatchesState(agency);
+        assertNull(agency.getAggregates().getPeakDemandType());
+
+        agency.processRental(john, car, 3);
+        agency.rentVehicle(truck, sarah, 2);
+        agency.rateVehicle(car, 2);
+        agency.rateVehicle(bike, 5);
+        agency.rateCustomer(john, 5);
+        assertEquals(1, agency.getAggregates().getSilverMembers());
+        assertEquals(VehicleType.CAR, agency.getAggregates().getPeakDemandType());
+        assertMatchesState(agency);
+
+        // A feature added mid-rental doesn't change what the rental was charged
+        car.addFeature(new Feature("Roof Rack", 7.5));
+        agency.processReturn(car);
+        agency.removeCustomer(sarah);
+        agency.removeVehicleFromFleet(bike);
+        bike.addRating(1);
+        agency.rateVehicle(bike, 1);
+        bike.addFeature(new Feature("Saddle Bags", 4.0));
+        assertEquals(1, agency.getAggregates().getActiveRentals());
+        assertEquals(truck.calculateRentalCost(2), agency.getAggregates().getActiveRevenue(), 1e-9);
+        agency.processReturn(truck);
+        assertMatchesState(agency);
+        assertEquals(0, agency.getAggregates().getActiveRevenue(), 1e-9);
+    }
+
+    // Test that the retention rate is the share of customers holding loyalty points
+    @Test
+    public void testRetentionRate() {
+        RentalAgency agency = new RentalAgency();
+        assertEquals(0, agency.getAggregates().getRetentionRate(), 1e-9);
+
+        Customer john = new Customer("John Smith", "CUST001");
+        agency.addCustomer(john);
+        agency.addCustomer(new Customer("Sarah Johnson", "CUST002"));
+        agency.addCustomer(new Customer("Mike Brown", "CUST003"));
+        agency.addCustomer(new Customer("Emma Wilson", "CUST004"));
+        assertEquals(0, agency.getAggregates().getRetentionRate(), 1e-9);
+
+        agency.awardLoyaltyPoints(john, 10);
+        assertEquals(25.0, agency.getAggregates().getRetentionRate(), 1e-9);
+    }
+
+    // Test that batches, including a rolled-back one, leave the totals consistent
+    @Test
+    public void testBatchesAndRollback() {
+        RentalAgency agency = new RentalAgency();
+        for (int i = 0; i < 4; i++) {
+            agency.addVehicleToFleet(new Car("CAR00" + i, "Model " + i, 40.0 + i, false, false, false));
+        }
+        Customer john = new Customer("John Smith", "CUST001");
+        agency.addCustomer(john);
+
+        agency.rentVehicles(List.of(new RentalRequest("CAR000", "CUST001", 2),
+                new RentalRequest("CAR001", "CUST001", 3)), true);
+        agency.rentVehicles(List.of(new RentalRequest("CAR002", "CUST001", 2),
+                new RentalRequest("CAR009", "CUST001", 3)), true);
+        assertEquals(2, agency.getAggregates().getActiveRentals());
+        assertMatchesState(agency);
+
+        agency.returnVehicles(List.of("CAR000"), false);
+        assertMatchesState(agency);
+    }
+
+    // Test that concurrent rents, returns, ratings and awards add up
+    @Test
+    public void testConcurrentMutations() throws Exception {
+        RentalAgency agency = RentalAgency.createConcurrent();
+        int vehicles = 64;
+        for (int i = 0; i < vehicles; i++) {
+            agency.addVehicleToFleet(new Car("CAR" + i, "Model " + i, 20.0 + i, i % 2 == 0, false, false));
+        }
+        for (int i = 0; i < 16; i++) {
+            agency.addCustomer(new Customer("Customer " + i, "CUST" + i));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long seed = t;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 2_000; i++) {
+                    Vehicle vehicle = agency.findVehicleById("CAR" + random.nextInt(vehicles));
+                    Customer customer = agency.findCustomerById("CUST" + random.nextInt(16));
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            agency.processRental(customer, vehicle, 1 + random.nextInt(5));
+                            break;
+                        case 1:
+                            agency.processReturn(vehicle);
+                            break;
+                        case 2:
+                            agency.rateVehicle(vehicle, 1 + random.nextInt(5));
+                            agency.rateCustomer(customer, 1 + random.nextInt(5));
+                            break;
+                        default:
+                            agency.awardLoyaltyPoints(customer, random.nextInt(3));
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertMatchesState(agency);
+    }
+
+    // Test that rentals rebuilt from a snapshot or the journal are counted like live ones
+    @Test
+    public void testRestoredStateIsCounted() throws Exception {
+        RentalAgency agency = new RentalAgency();
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        car.addRating(3);
+        Customer john = new Customer("John Smith", "CUST001");
+        john.addLoyaltyPoints(60);
+        agency.restoreVehicles(List.of(car));
+        agency.restoreCustomers(List.of(john));
+        agency.restoreRental(car, john, 4, LocalDate.now(), 0, -1);
+        assertEquals(1, agency.getAggregates().getSilverMembers());
+        assertEquals(Map.of(car, 4), john.getCurrentRentals());
+        assertMatchesState(agency);
+    }
+}
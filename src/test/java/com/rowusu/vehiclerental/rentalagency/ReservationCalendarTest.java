@@ -0,0 +1,117 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationCalendarTest {
+
+    private static final LocalDate JULY_1 = LocalDate.of(2030, 7, 1);
+
+    private ReservationCalendar calendar;
+    private Vehicle car;
+    private Customer customer;
+
+    @BeforeEach
+    public void setUp() {
+        calendar = new ReservationCalendar();
+        car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        customer = new Customer("John Smith", "CUST001");
+    }
+
+    private Reservation reservation(String id, LocalDate start, LocalDate end) {
+        return new Reservation(id, car, customer, start, end);
+    }
+
+    // Test that overlapping bookings are rejected and adjacent ones accepted
+    @Test
+    public void testBookRejectsOverlaps() {
+        assertTrue(calendar.book(reservation("R1", JULY_1, JULY_1.plusDays(4))));
+
+        assertFalse(calendar.book(reservation("R2", JULY_1.plusDays(4), JULY_1.plusDays(6))));
+        assertFalse(calendar.book(reservation("R3", JULY_1.minusDays(3), JULY_1)));
+        assertFalse(calendar.book(reservation("R4", JULY_1.plusDays(1), JULY_1.plusDays(2))));
+        assertFalse(calendar.book(reservation("R5", JULY_1.minusDays(1), JULY_1.plusDays(10))));
+
+        assertTrue(calendar.book(reservation("R6", JULY_1.plusDays(5), JULY_1.plusDays(6))));
+        assertTrue(calendar.book(reservation("R7", JULY_1.minusDays(2), JULY_1.minusDays(1))));
+        assertEquals(3, calendar.size());
+    }
+
+    // Test free/busy checks at the edges of a booking
+    @Test
+    public void testIsFree() {
+        Reservation booked = reservation("R1", JULY_1.plusDays(10), JULY_1.plusDays(12));
+        calendar.book(booked);
+
+        assertTrue(calendar.isFree(JULY_1, JULY_1.plusDays(9)));
+        assertFalse(calendar.isFree(JULY_1, JULY_1.plusDays(10)));
+        assertFalse(calendar.isFree(JULY_1.plusDays(12), JULY_1.plusDays(20)));
+        assertTrue(calendar.isFree(JULY_1.plusDays(13), JULY_1.plusDays(20)));
+        assertSame(booked, calendar.conflict(JULY_1.plusDays(11), JULY_1.plusDays(11)));
+    }
+
+    // Test that cancelling frees the dates
+    @Test
+    public void testCancel() {
+        Reservation booked = reservation("R1", JULY_1, JULY_1.plusDays(2));
+        calendar.book(booked);
+
+        assertTrue(calendar.cancel(booked));
+        assertFalse(calendar.cancel(booked));
+        assertTrue(calendar.isFree(JULY_1, JULY_1.plusDays(2)));
+    }
+
+    // Test that shortening a booking frees only the days after the new end
+    @Test
+    public void testShorten() {
+        Reservation booked = reservation("R1", JULY_1, JULY_1.plusDays(6));
+        calendar.book(booked);
+
+        Reservation shortened = calendar.shorten(booked, JULY_1.plusDays(2));
+        assertEquals(JULY_1.plusDays(2), shortened.getEndDate());
+        assertEquals(3, shortened.getDays());
+        assertTrue(calendar.isFree(JULY_1.plusDays(3), JULY_1.plusDays(6)));
+        assertFalse(calendar.isFree(JULY_1.plusDays(2), JULY_1.plusDays(2)));
+
+        assertNull(calendar.shorten(shortened, JULY_1.minusDays(1)));
+        assertEquals(0, calendar.size());
+    }
+
+    // Test listing bookings that overlap a range
+    @Test
+    public void testBetween() {
+        Reservation first = reservation("R1", JULY_1, JULY_1.plusDays(2));
+        Reservation second = reservation("R2", JULY_1.plusDays(5), JULY_1.plusDays(7));
+        Reservation third = reservation("R3", JULY_1.plusDays(20), JULY_1.plusDays(21));
+        calendar.book(first);
+        calendar.book(second);
+        calendar.book(third);
+
+        assertEquals(List.of(first, second), calendar.between(JULY_1.plusDays(1), JULY_1.plusDays(5)));
+        assertEquals(List.of(third), calendar.between(JULY_1.plusDays(21), JULY_1.plusDays(30)));
+        assertTrue(calendar.between(JULY_1.plusDays(8), JULY_1.plusDays(19)).isEmpty());
+    }
+
+    // Test that a calendar with a very large number of bookings stays correct
+    @Test
+    public void testManyBookings() {
+        int bookings = 200_000;
+        for (int i = 0; i < bookings; i++) {
+            LocalDate start = JULY_1.plusDays(i * 3L);
+            assertTrue(calendar.book(reservation("R" + i, start, start.plusDays(1))));
+        }
+
+        assertEquals(bookings, calendar.size());
+        LocalDate gap = JULY_1.plusDays(150_000L * 3 + 2);
+        assertTrue(calendar.isFree(gap, gap));
+        assertFalse(calendar.isFree(gap, gap.plusDays(1)));
+    }
+}
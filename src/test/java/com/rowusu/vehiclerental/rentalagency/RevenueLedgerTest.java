@@ -0,0 +1,110 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RevenueLedgerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 7, 1); // a Monday
+
+    // Test that a rental is spread over its days, remainder on the first
+    @Test
+    public void testRentalIsSpreadOverItsDays() {
+        RevenueLedger ledger = new RevenueLedger();
+        ledger.postRental(DAY, 3, 100.0);
+        assertEquals(33.34, ledger.getDay(DAY), 1e-9);
+        assertEquals(33.33, ledger.getDay(DAY.plusDays(1)), 1e-9);
+        assertEquals(33.33, ledger.getDay(DAY.plusDays(2)), 1e-9);
+        assertEquals(0, ledger.getDay(DAY.plusDays(3)), 1e-9);
+        assertEquals(100.0, ledger.getRange(DAY.minusDays(10), DAY.plusDays(10)), 1e-9);
+        assertEquals(100.0, ledger.getWeek(DAY.plusDays(6)), 1e-9);
+        assertEquals(100.0, ledger.getMonth(YearMonth.of(2024, 7)), 1e-9);
+        assertEquals(66.67, ledger.getTrailingDays(DAY.plusDays(1), 2), 1e-9);
+    }
+
+    // Test that an early return takes back the unused days, keeping the first
+    @Test
+    public void testEarlyReturnRefundsRemainingDays() {
+        RevenueLedger ledger = new RevenueLedger();
+        ledger.postRental(DAY, 5, 250.0);
+        ledger.postReturn(DAY, 5, 250.0, DAY.plusDays(2));
+        assertEquals(100.0, ledger.getRange(DAY, DAY.plusDays(10)), 1e-9);
+
+        ledger.postRental(DAY, 4, 40.0);
+        ledger.postReturn(DAY, 4, 40.0, DAY);
+        assertEquals(10.0, ledger.getRange(DAY, DAY.plusDays(10)) - 100.0, 1e-9);
+
+        // Late returns earn nothing extra
+        ledger.postRental(DAY, 2, 20.0);
+        ledger.postReturn(DAY, 2, 20.0, DAY.plusDays(9));
+        assertEquals(130.0, ledger.getRange(DAY, DAY.plusDays(10)), 1e-9);
+    }
+
+    // Test random postings over years, in both directions, against a plain map
+    @Test
+    public void testQueriesMatchBruteForce() {
+        RevenueLedger ledger = new RevenueLedger();
+        Map<LocalDate, Long> cents = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            LocalDate start = DAY.plusDays(random.nextInt(4_000) - 2_000);
+            int days = 1 + random.nextInt(14);
+            long total = 100L * (1 + random.nextInt(500));
+            ledger.postRental(start, days, total / 100.0);
+            for (int d = 0; d < days; d++) {
+                cents.merge(start.plusDays(d), total / days + (d == 0 ? total % days : 0), Long::sum);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = DAY.plusDays(random.nextInt(5_000) - 2_500);
+            LocalDate to = from.plusDays(random.nextInt(400));
+            long expected = 0;
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                expected += cents.getOrDefault(day, 0L);
+            }
+            assertEquals(expected / 100.0, ledger.getRange(from, to), 1e-6);
+        }
+
+        RevenueLedger restored = new RevenueLedger();
+        restored.restore(ledger.getFirstDay(), ledger.getDailyCents());
+        assertEquals(ledger.getRange(DAY.minusYears(10), DAY.plusYears(10)),
+                restored.getRange(DAY.minusYears(10), DAY.plusYears(10)), 1e-6);
+        assertArrayEquals(ledger.getMonths(YearMonth.of(2020, 1), 60), restored.getMonths(YearMonth.of(2020, 1), 60), 1e-6);
+        assertThrows(IllegalArgumentException.class, () -> ledger.getRange(DAY, DAY.minusDays(1)));
+    }
+
+    // Test that the agency posts rentals and returns but not rolled-back batches
+    @Test
+    public void testAgencyPostsRentalsAndReturns() {
+        RentalAgency agency = new RentalAgency();
+        Vehicle car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        Vehicle other = new Car("CAR002", "Honda Civic", 40.0, false, false, false);
+        agency.addVehicleToFleet(car);
+        agency.addVehicleToFleet(other);
+        Customer john = new Customer("John Smith", "CUST001");
+        agency.addCustomer(john);
+        LocalDate today = LocalDate.now();
+
+        agency.processRental(john, car, 3);
+        assertEquals(45.0, agency.getRevenueLedger().getToday(), 1e-9);
+        assertEquals(135.0, agency.getRevenueLedger().getRange(today, today.plusDays(5)), 1e-9);
+
+        agency.rentVehicles(List.of(new RentalRequest("CAR002", "CUST001", 2),
+                new RentalRequest("CAR404", "CUST001", 2)), true);
+        assertEquals(45.0, agency.getRevenueLedger().getToday(), 1e-9);
+
+        agency.processReturn(car);
+        assertEquals(45.0, agency.getRevenueLedger().getRange(today, today.plusDays(5)), 1e-9);
+    }
+}
@@ -0,0 +1,82 @@
+package com.rowusu.vehiclerental.rentalagency;
+
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Motorcycle;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VehicleSearchIndexTest {
+
+    private VehicleSearchIndex index;
+    private Vehicle car;
+    private Vehicle motorcycle;
+    private Vehicle truck;
+    private Vehicle bigTruck;
+
+    @BeforeEach
+    public void setUp() {
+        index = new VehicleSearchIndex();
+        car = new Car("CAR001", "Toyota Camry", 45.0, false, false, false);
+        motorcycle = new Motorcycle("MOTO001", "Harley Davidson", 75.0, true, false);
+        truck = new Truck("TRUCK001", "Ford F-150", 85.0, false, false);
+        bigTruck = new Truck("TRUCK002", "Volvo FH16", 150.0, true, true);
+        index.add(car);
+        index.add(motorcycle);
+        index.add(truck);
+        index.add(bigTruck);
+    }
+
+    // Test that vehicles are grouped and counted by type
+    @Test
+    public void testByType() {
+        assertEquals(2, index.count(VehicleType.TRUCK));
+        assertEquals(1, index.count(VehicleType.CAR));
+        assertEquals(List.of(truck, bigTruck), index.byType(VehicleType.TRUCK));
+    }
+
+    // Test that rate range queries are inclusive and sorted by rate
+    @Test
+    public void testRateRange() {
+        assertEquals(List.of(motorcycle, truck), index.find(null, 75.0, 85.0, false));
+        assertEquals(List.of(car, motorcycle, truck, bigTruck),
+                index.find(null, 0.0, Double.MAX_VALUE, false));
+        assertTrue(index.find(null, 90.0, 80.0, false).isEmpty());
+    }
+
+    // Test combined type, rate and availability filters
+    @Test
+    public void testCombinedFilters() {
+        assertEquals(List.of(truck), index.find(VehicleType.TRUCK, 0.0, 90.0, false));
+
+        truck.setAvailable(false);
+        assertTrue(index.find(VehicleType.TRUCK, 0.0, 90.0, true).isEmpty());
+        assertEquals(List.of(bigTruck), index.find(VehicleType.TRUCK, 0.0, 200.0, true));
+    }
+
+    // Test that vehicles with the same rate are all kept
+    @Test
+    public void testEqualRates() {
+        Vehicle twin = new Car("CAR002", "Honda Accord", 45.0, false, false, false);
+        index.add(twin);
+
+        assertEquals(List.of(car, twin), index.find(VehicleType.CAR, 45.0, 45.0, false));
+    }
+
+    // Test that removed vehicles drop out of every index
+    @Test
+    public void testRemove() {
+        index.remove(truck);
+        index.remove(truck);
+
+        assertEquals(1, index.count(VehicleType.TRUCK));
+        assertEquals(List.of(bigTruck), index.byType(VehicleType.TRUCK));
+        assertFalse(index.find(null, 0.0, Double.MAX_VALUE, false).contains(truck));
+    }
+}
@@ -0,0 +1,68 @@
+package com.rowusu.vehiclerental.reports;
+
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sequential against parallel fleet summaries at 100k and 1M vehicles. Off
+ * by default; run with
+ * mvn test -Dtest=ReportEngineBenchmark -Dvehiclerental.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "vehiclerental.benchmark", matches = "true")
+public class ReportEngineBenchmark {
+
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    private static List<Vehicle> fleet(int size) {
+        List<Vehicle> fleet = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Vehicle vehicle = new Car("CAR" + i, "Model " + (i % 50), 20.0 + i % 100, i % 2 == 0, false, false);
+            vehicle.addRating(1 + i % 5);
+            vehicle.addRating(1 + i % 3);
+            if (i % 5 == 0) {
+                vehicle.addFeature(new Feature("Roof Rack", 7.5));
+            }
+            fleet.add(vehicle);
+        }
+        return fleet;
+    }
+
+    // Best of several runs after a warmup, in milliseconds
+    private static double time(ReportEngine engine, List<Vehicle> fleet) {
+        for (int i = 0; i < WARMUP; i++) {
+            engine.summarizeFleet(fleet);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            FleetSummary summary = engine.summarizeFleet(fleet);
+            best = Math.min(best, System.nanoTime() - start);
+            assertEquals(fleet.size(), summary.getVehicleCount());
+        }
+        return best / 1_000_000.0;
+    }
+
+    // Test (and print) the speedup of the parallel engine
+    @Test
+    public void benchmarkFleetSummary() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ReportEngine sequential = new ReportEngine(1, ReportEngine.DEFAULT_THRESHOLD);
+        ReportEngine parallel = new ReportEngine(cores, ReportEngine.DEFAULT_THRESHOLD);
+        for (int size : new int[] {100_000, 1_000_000}) {
+            List<Vehicle> fleet = fleet(size);
+            double sequentialMillis = time(sequential, fleet);
+            double parallelMillis = time(parallel, fleet);
+            System.out.printf("%,d vehicles: sequential %.1f ms, parallel (%d threads) %.1f ms, speedup %.2fx%n",
+                size, sequentialMillis, cores, parallelMillis, sequentialMillis / parallelMillis);
+        }
+    }
+}
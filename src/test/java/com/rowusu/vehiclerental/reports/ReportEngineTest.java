@@ -0,0 +1,110 @@
+package com.rowusu.vehiclerental.reports;
+
+import com.rowusu.vehiclerental.customers.Customer;
+import com.rowusu.vehiclerental.model.Car;
+import com.rowusu.vehiclerental.model.Feature;
+import com.rowusu.vehiclerental.model.Motorcycle;
+import com.rowusu.vehiclerental.model.Truck;
+import com.rowusu.vehiclerental.model.Vehicle;
+import com.rowusu.vehiclerental.model.VehicleType;
+import com.rowusu.vehiclerental.rentalagency.RentalAgency;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportEngineTest {
+
+    private static List<Vehicle> fleet(int size) {
+        List<Vehicle> fleet = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Vehicle vehicle;
+            switch (i % 3) {
+                case 0:
+                    vehicle = new Car("CAR" + i, "Model " + i, 20.0 + i % 50, i % 2 == 0, false, false);
+                    break;
+                case 1:
+                    vehicle = new Motorcycle("MOTO" + i, "Model " + i, 30.0 + i % 40, true, false);
+                    break;
+                default:
+                    vehicle = new Truck("TRUCK" + i, "Model " + i, 60.0 + i % 30, false, true);
+            }
+            vehicle.addRating(1 + i % 5);
+            if (i % 7 == 0) {
+                vehicle.addFeature(new Feature("Roof Rack", 5.0));
+            }
+            if (i % 4 == 0) {
+                vehicle.setAvailable(false);
+            }
+            fleet.add(vehicle);
+        }
+        return fleet;
+    }
+
+    // Test that the parallel fleet summary matches the sequential one
+    @Test
+    public void testParallelMatchesSequential() {
+        List<Vehicle> fleet = fleet(50_000);
+        FleetSummary sequential = new ReportEngine(1, 0).summarizeFleet(fleet);
+        FleetSummary parallel = new ReportEngine(4, 1000).summarizeFleet(fleet);
+
+        assertEquals(50_000, parallel.getVehicleCount());
+        assertEquals(sequential.getAvailable(), parallel.getAvailable());
+        assertEquals(37_500, parallel.getAvailable());
+        for (VehicleType type : VehicleType.values()) {
+            assertEquals(sequential.getCount(type), parallel.getCount(type));
+            assertEquals(sequential.getAvailable(type), parallel.getAvailable(type));
+        }
+        assertEquals(sequential.getAverageRating(), parallel.getAverageRating(), 1e-9);
+        assertEquals(sequential.getAverageRate(), parallel.getAverageRate(), 1e-9);
+        assertEquals(sequential.getDailyPotential(), parallel.getDailyPotential(), 1e-6);
+        assertEquals(25.0, parallel.getUtilization(), 1e-9);
+    }
+
+    // Test that customer totals, including rentals out, are summed across chunks
+    @Test
+    public void testCustomerSummary() {
+        RentalAgency agency = new RentalAgency();
+        for (Vehicle vehicle : fleet(30)) {
+            vehicle.setAvailable(true);
+            agency.addVehicleToFleet(vehicle);
+        }
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Customer customer = new Customer("Customer " + i, "CUST" + i);
+            customer.addLoyaltyPoints(i % 150);
+            agency.addCustomer(customer);
+            customers.add(customer);
+        }
+        agency.processRental(customers.get(0), agency.findVehicleById("CAR0"), 3);
+        agency.processRental(customers.get(1), agency.findVehicleById("CAR3"), 2);
+        agency.processRental(customers.get(2500), agency.findVehicleById("TRUCK2"), 4);
+
+        CustomerSummary summary = new ReportEngine(3, 100).summarizeCustomers(agency.getCustomers());
+        assertEquals(3000, summary.getCustomerCount());
+        assertEquals(3000, summary.getGoldMembers() + summary.getSilverMembers() + summary.getBronzeMembers());
+        assertEquals(1000, summary.getGoldMembers());
+        assertEquals(3, summary.getRentals());
+        assertEquals(9, summary.getRentalDays());
+        assertEquals(agency.getAggregates().getActiveRevenue(), summary.getRevenue(), 1e-9);
+        assertEquals(VehicleType.CAR, summary.getPeakDemandType());
+        assertEquals(1, summary.getRentedCount(VehicleType.TRUCK));
+    }
+
+    // Test the sequential fallback, empty input and invalid settings
+    @Test
+    public void testFallbackAndSettings() {
+        ReportEngine engine = new ReportEngine(4, 100);
+        FleetSummary small = engine.summarizeFleet(fleet(99));
+        assertEquals(99, small.getVehicleCount());
+        FleetSummary empty = engine.summarizeFleet(List.of());
+        assertEquals(0, empty.getVehicleCount());
+        assertEquals(0, empty.getAverageRating());
+        assertNull(new CustomerSummary().getPeakDemandType());
+
+        assertThrows(IllegalArgumentException.class, () -> new ReportEngine(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new ReportEngine(2, -1));
+    }
+}